@@ -0,0 +1,36 @@
+package org.mojodojocasahouse.extra.configuration;
+
+import org.mojodojocasahouse.extra.scheduling.BudgetReconciliationJob;
+import org.quartz.*;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+import org.springframework.scheduling.annotation.EnableScheduling;
+
+// Quartz runs the persistent jobs; @Scheduled is used for in-memory work of each instance
+@Configuration
+@EnableScheduling
+public class SchedulingConfiguration {
+
+    @Bean
+    public JobDetail budgetReconciliationJobDetail() {
+        return JobBuilder.newJob()
+                .ofType(BudgetReconciliationJob.class)
+                .withIdentity("JOB_BUDGET_RECONCILIATION", "BUDGETS")
+                .withDescription("Job to re-derive the current amount of every budget")
+                .storeDurably(true)
+                .build();
+    }
+
+    @Bean
+    public Trigger budgetReconciliationTrigger(JobDetail budgetReconciliationJobDetail) {
+        return TriggerBuilder.newTrigger()
+                .forJob(budgetReconciliationJobDetail)
+                .withIdentity("TGR_BUDGET_RECONCILIATION", "BUDGETS")
+                .withDescription("Trigger to reconcile budgets every night")
+                .withSchedule(CronScheduleBuilder
+                        .dailyAtHourAndMinute(3, 0)
+                        .withMisfireHandlingInstructionFireAndProceed())
+                .build();
+    }
+
+}
@@ -1,20 +1,29 @@
 package org.mojodojocasahouse.extra.configuration;
 
 import lombok.RequiredArgsConstructor;
+import org.mojodojocasahouse.extra.security.AccessTokenAuthenticationFilter;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
+import org.mojodojocasahouse.extra.security.CachingDaoAuthenticationProvider;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.springframework.beans.factory.annotation.Value;
 import org.mojodojocasahouse.extra.security.ExtraLogoutSuccessHandler;
 import org.springframework.context.annotation.Bean;
 import org.springframework.context.annotation.Configuration;
 import org.springframework.security.authentication.AuthenticationManager;
+import org.springframework.security.authentication.AuthenticationProvider;
 import org.springframework.security.config.Customizer;
 import org.springframework.security.config.annotation.authentication.configuration.AuthenticationConfiguration;
 import org.springframework.security.config.annotation.web.builders.HttpSecurity;
 import org.springframework.security.config.annotation.web.configuration.EnableWebSecurity;
 import org.springframework.security.config.annotation.web.configurers.AbstractHttpConfigurer;
+import org.springframework.security.core.userdetails.UserDetailsService;
 import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.security.web.SecurityFilterChain;
 import org.springframework.security.web.authentication.logout.LogoutSuccessHandler;
+import org.springframework.security.web.authentication.www.BasicAuthenticationFilter;
+
+import java.time.Duration;
 
 @Configuration
 @EnableWebSecurity
@@ -24,11 +33,22 @@ public class SecurityConfiguration {
 
     private final DelegatingBasicAuthenticationEntryPoint authenticationEntryPoint;
 
+    private final AccessTokenService accessTokenService;
+
     @Bean
     public AuthenticationManager authenticationManager(AuthenticationConfiguration authenticationConfiguration) throws Exception {
         return authenticationConfiguration.getAuthenticationManager();
     }
 
+    @Bean
+    public AuthenticationProvider authenticationProvider(
+            UserDetailsService userDetailsService,
+            PasswordEncoder passwordEncoder,
+            @Value("${extra.security.verified-credentials.maximum-size:10000}") long maximumSize,
+            @Value("${extra.security.verified-credentials.time-to-live:5m}") Duration timeToLive) {
+        return new CachingDaoAuthenticationProvider(userDetailsService, passwordEncoder, maximumSize, timeToLive);
+    }
+
     @Bean
     public SecurityFilterChain filterChain(HttpSecurity http) throws Exception {
 
@@ -39,6 +59,7 @@ public class SecurityConfiguration {
                         .requestMatchers("/getMyExpensesByCategory").authenticated()
                         .requestMatchers("/getAllCategories").authenticated()
                         .requestMatchers("/addExpense").authenticated()
+                        .requestMatchers("/addExpenses").authenticated()
                         .requestMatchers("/protected").authenticated()
                         .requestMatchers("/fullyProtected").fullyAuthenticated()
                         .requestMatchers("/logout").authenticated()
@@ -57,16 +78,27 @@ public class SecurityConfiguration {
                         .requestMatchers("/deleteBudget/{id}").authenticated()
                         .requestMatchers("/editBudget/{id}").authenticated()
                         .requestMatchers("/budget/{id}").authenticated()
+                        .requestMatchers("/budgets/{id}/forecast").authenticated()
                         .requestMatchers("/getAllCategoriesWithIcons").authenticated()
                         .requestMatchers("/error").permitAll()
                         .requestMatchers("/getActiveBudgets").authenticated()
+                        .requestMatchers("/getActiveBudgets/batch").authenticated()
                         .requestMatchers("/addInvestment").authenticated()
                         .requestMatchers("/unregisterDevice").permitAll()
                         .requestMatchers("/registerDevice").authenticated()
                         .requestMatchers("/getMyInvestments").authenticated()
                         .requestMatchers("/getMyTransactions").authenticated()
+                        .requestMatchers("/getMyTransactionsPage").authenticated()
+                        .requestMatchers("/searchMyTransactions").authenticated()
+                        .requestMatchers("/streamMyTransactions").authenticated()
+                        .requestMatchers("/exportMyTransactions/csv").authenticated()
+                        .requestMatchers("/exportMyTransactions/xlsx").authenticated()
                         .requestMatchers("/getYearlySumOfTransactions").authenticated()
                 )
+                .addFilterBefore(
+                        new AccessTokenAuthenticationFilter(accessTokenService),
+                        BasicAuthenticationFilter.class
+                )
                 .httpBasic(httpBasic -> httpBasic
                         .realmName("extra")
                         .authenticationEntryPoint(authenticationEntryPoint)
@@ -7,6 +7,7 @@ import org.mojodojocasahouse.extra.dto.requests.*;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
 import org.mojodojocasahouse.extra.model.Authority;
 import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.security.AccessToken;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.ResponseEntity;
@@ -46,6 +47,11 @@ public class AuthenticationController {
         userResponse.put("firstName", user.getFirstName());
         userResponse.put("lastName", user.getLastName());
 
+        // Lets clients send "Authorization: Bearer <accessToken>" instead of their password
+        AccessToken accessToken = userService.issueAccessToken(user);
+        userResponse.put("accessToken", accessToken.getToken());
+        userResponse.put("accessTokenExpiresAt", accessToken.getExpiresAt().toString());
+
         return new ResponseEntity<>(
                 new ApiResponse("Login successful", userResponse),
                 HttpStatus.OK
@@ -1,12 +1,17 @@
 package org.mojodojocasahouse.extra.controller;
 import java.security.Principal;
+import java.time.LocalDate;
+import java.util.List;
 import java.util.Optional;
 
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.ActiveBudgetLookupDTO;
 import org.mojodojocasahouse.extra.dto.model.BudgetDTO;
+import org.mojodojocasahouse.extra.dto.model.BudgetForecastDTO;
 import org.mojodojocasahouse.extra.dto.requests.ActiveBudgetRequest;
+import org.mojodojocasahouse.extra.dto.requests.ActiveBudgetsRequest;
 import org.mojodojocasahouse.extra.dto.requests.BudgetAddingRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
 import org.mojodojocasahouse.extra.model.Category;
@@ -53,6 +58,12 @@ public class BudgetController {
         );
     }
 
+    @GetMapping(value = "/budgets/{id}/forecast", produces = "application/json")
+    public ResponseEntity<BudgetForecastDTO> getBudgetForecast(Principal principal, @PathVariable Long id) {
+        ExtraUser user = userService.getUserByPrincipal(principal);
+        return ResponseEntity.ok(budgetService.getBudgetForecast(user, id, LocalDate.now()));
+    }
+
     @PostMapping("/getActiveBudgets")
     @Transactional(Transactional.TxType.REQUIRED)
     public ResponseEntity<Object> getActiveBudgets(Principal principal, @Valid @RequestBody ActiveBudgetRequest request){
@@ -69,4 +80,12 @@ public class BudgetController {
         return ResponseEntity.ok(foundBudget);
     }
 
+    // Answers many category and date lookups in one round trip, in the order they were given
+    @PostMapping(value = "/getActiveBudgets/batch", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<List<ActiveBudgetLookupDTO>> getActiveBudgetsBatch(Principal principal,
+                                                                             @Valid @RequestBody ActiveBudgetsRequest request) {
+        ExtraUser user = userService.getUserByPrincipal(principal);
+        return ResponseEntity.ok(budgetService.getActiveBudgetsByCategoriesAndDates(user, request.getLookups()));
+    }
+
 }
@@ -1,27 +1,40 @@
 package org.mojodojocasahouse.extra.controller;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.io.UncheckedIOException;
 import java.security.Principal;
 import java.sql.Date;
 import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 
+import com.fasterxml.jackson.databind.ObjectMapper;
 import jakarta.annotation.Nullable;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
 import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseAddingRequest;
+import org.mojodojocasahouse.extra.dto.requests.ExpenseBulkAddingRequest;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseEditingRequest;
 import org.mojodojocasahouse.extra.dto.requests.FilteringRequest;
+import org.mojodojocasahouse.extra.dto.requests.TransactionPageRequest;
+import org.mojodojocasahouse.extra.dto.requests.TransactionSearchRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
-import org.mojodojocasahouse.extra.exception.ExpenseAccessDeniedException;
-import org.mojodojocasahouse.extra.exception.ExpenseNotFoundException;
+import org.mojodojocasahouse.extra.dto.responses.ExpenseBulkAddingResponse;
+import org.mojodojocasahouse.extra.dto.responses.TransactionPageResponse;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
+import org.springframework.http.ContentDisposition;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
+import org.springframework.web.servlet.mvc.method.annotation.StreamingResponseBody;
 
 import jakarta.validation.Valid;
 
@@ -32,8 +45,15 @@ public class TransactionController {
 
     private final AuthenticationService userService;
 
+    private static final String NDJSON_MEDIA_TYPE = "application/x-ndjson";
+    private static final String CSV_MEDIA_TYPE = "text/csv";
+    private static final String XLSX_MEDIA_TYPE = "application/vnd.openxmlformats-officedocument.spreadsheetml.sheet";
+
     private final TransactionService transactionService;
     private final ExpenseService expenseService;
+    private final TransactionExportService exportService;
+
+    private final ObjectMapper objectMapper;
 
 
     @PostMapping(value = "/addExpense", consumes = "application/json", produces = "application/json")
@@ -50,24 +70,28 @@ public class TransactionController {
         );
     }
 
+    @PostMapping(value = "/addExpenses", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<ExpenseBulkAddingResponse> addExpenses(Principal principal,
+                                                                 @Valid @RequestBody ExpenseBulkAddingRequest request) {
+        ExtraUser user = userService.getUserByPrincipal(principal);
+        log.debug("Adding " + request.getExpenses().size() + " expenses to user: \"" + user.getEmail() + "\"");
+
+        // Rejected expenses are listed in the response, whether or not any other was added
+        ExpenseBulkAddingResponse response = expenseService.addExpenses(user, request.getExpenses());
+        return new ResponseEntity<>(
+                response,
+                response.getAdded() > 0 ? HttpStatus.CREATED : HttpStatus.BAD_REQUEST
+        );
+    }
+
     @PostMapping(value = "/editExpense/{id}", consumes = "application/json", produces = "application/json")
     public ResponseEntity<Object> editExpense(Principal principal,
                                               @Valid @RequestBody ExpenseEditingRequest expenseEditingRequest, @PathVariable Long id){
         ExtraUser user = userService.getUserByPrincipal(principal);
-
-        // Check if the expense with the given ID exists
-        if (!expenseService.existsById(id)) {
-            throw new ExpenseNotFoundException();
-        }
-
-        //Check that the user making the edition is the owner of the expense
-        if (!expenseService.isOwner(user, id)) {
-            throw new ExpenseAccessDeniedException();
-        }
-
         log.debug("Editing expense of user: \"" + user.getEmail() + "\"");
 
-        ApiResponse response = expenseService.editExpense(id, expenseEditingRequest);
+        // Fails when the expense does not exist or belongs to another user
+        ApiResponse response = expenseService.editExpense(user, id, expenseEditingRequest);
         return new ResponseEntity<>(
                 response,
                 HttpStatus.CREATED
@@ -78,18 +102,8 @@ public class TransactionController {
     public ResponseEntity<ApiResponse> deleteExpense(Principal principal, @PathVariable Long id) {
         ExtraUser user = userService.getUserByPrincipal(principal);
 
-        // Check if the expense with the given ID exists
-        if (!expenseService.existsById(id)) {
-            throw new ExpenseNotFoundException();
-        }
-
-        //Check that the user making the edition is the owner of the expense
-        if (!expenseService.isOwner(user, id)) {
-            throw new ExpenseAccessDeniedException();
-        }
-
-        // Delete the expense by ID
-        expenseService.deleteById(id);
+        // Fails when the expense does not exist or belongs to another user
+        expenseService.deleteExpense(user, id);
         return new ResponseEntity<>(
                 new ApiResponse("Expense deleted successfully"),
                 HttpStatus.OK
@@ -97,26 +111,29 @@ public class TransactionController {
     }
 
     @PostMapping(path = "/getSumOfExpenses", produces = "application/json")
-    public ResponseEntity<List<Map<String, String>>> getExpensesByDateAndCategory(
+    public ResponseEntity<List<CategoryAmountDTO>> getExpensesByDateAndCategory(
             Principal principal,
             @Valid @RequestBody @Nullable FilteringRequest request) {
         ExtraUser user = userService.getUserByPrincipal(principal);
         Date from = null, until = null;
         List<String> categories = new ArrayList<>();
+        List<Long> categoryIds = new ArrayList<>();
 
         if(request != null) {
             from = request.getFrom();
             until = request.getUntil();
             categories = request.getCategories();
+            categoryIds = request.getCategoryIds();
         }
 
         log.debug("Retrieving sum of expenses of user: \"" + principal.getName() + "\", " +
                 "for categories: " + categories + ", " +
+                "for category ids: " + categoryIds + ", " +
                 "from: " + from + ", " +
                 "until: " + until + ".");
 
-        List<Map<String, String>> categoryAmounts = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categories, from, until);
+        List<CategoryAmountDTO> categoryAmounts = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categories, categoryIds, from, until);
 
         return ResponseEntity.ok(categoryAmounts);
     }
@@ -129,49 +146,219 @@ public class TransactionController {
         ExtraUser user = userService.getUserByPrincipal(principal);
         Date from = null, until = null;
         List<String> categories = new ArrayList<>();
+        List<Long> categoryIds = new ArrayList<>();
 
         if(request != null) {
             from = request.getFrom();
             until = request.getUntil();
             categories = request.getCategories();
+            categoryIds = request.getCategoryIds();
         }
 
         log.debug("Retrieving transactions of user: \"" + principal.getName() + "\", " +
                 "for categories: " + categories + ", " +
+                "for category ids: " + categoryIds + ", " +
                 "from: " + from + ", " +
                 "until: " + until + ".");
 
         List<TransactionDTO> expenses = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categories, from, until);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categories, categoryIds, from, until);
 
         log.debug("Found " + expenses.size() + " transactions");
 
         return ResponseEntity.ok(expenses);
     }
 
+    @PostMapping(path = "/getMyTransactionsPage", produces = "application/json")
+    public ResponseEntity<TransactionPageResponse> getMyTransactionsPage(
+            Principal principal,
+            @Valid @RequestBody @Nullable TransactionPageRequest request){
+        ExtraUser user = userService.getUserByPrincipal(principal);
+        if(request == null) {
+            request = new TransactionPageRequest();
+        }
+
+        log.debug("Retrieving page of transactions of user: \"" + principal.getName() + "\", " +
+                "for categories: " + request.getCategories() + ", " +
+                "for category ids: " + request.getCategoryIds() + ", " +
+                "from: " + request.getFrom() + ", " +
+                "until: " + request.getUntil() + ", " +
+                "after: " + request.getCursorDate() + "/" + request.getCursorId() + ".");
+
+        TransactionPageResponse page = transactionService
+                .getTransactionPageOfUserByCategoriesAndDateRanges(
+                        user,
+                        request.getCategories(),
+                        request.getCategoryIds(),
+                        request.getFrom(),
+                        request.getUntil(),
+                        request.getCursorDate(),
+                        request.getCursorId(),
+                        request.getPageSize()
+                );
+
+        return ResponseEntity.ok(page);
+    }
+
+    @PostMapping(path = "/searchMyTransactions", consumes = "application/json", produces = "application/json")
+    public ResponseEntity<TransactionPageResponse> searchMyTransactions(
+            Principal principal,
+            @Valid @RequestBody TransactionSearchRequest request){
+        ExtraUser user = userService.getUserByPrincipal(principal);
+
+        log.debug("Searching transactions of user: \"" + principal.getName() + "\", " +
+                "for: \"" + request.getQuery() + "\", " +
+                "for categories: " + request.getCategories() + ", " +
+                "for category ids: " + request.getCategoryIds() + ", " +
+                "from: " + request.getFrom() + ", " +
+                "until: " + request.getUntil() + ", " +
+                "after: " + request.getCursorDate() + "/" + request.getCursorId() + ".");
+
+        TransactionPageResponse page = transactionService
+                .searchTransactionsOfUserByConceptAndCategoriesAndDateRanges(
+                        user,
+                        request.getQuery(),
+                        request.getCategories(),
+                        request.getCategoryIds(),
+                        request.getFrom(),
+                        request.getUntil(),
+                        request.getCursorDate(),
+                        request.getCursorId(),
+                        request.getPageSize()
+                );
+
+        return ResponseEntity.ok(page);
+    }
+
+    @PostMapping(path = "/streamMyTransactions", produces = NDJSON_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> streamMyTransactions(
+            Principal principal,
+            @Valid @RequestBody @Nullable FilteringRequest request){
+        ExtraUser user = userService.getUserByPrincipal(principal);
+        Date from = null, until = null;
+        List<String> categories = new ArrayList<>();
+        List<Long> categoryIds = new ArrayList<>();
+
+        if(request != null) {
+            from = request.getFrom();
+            until = request.getUntil();
+            categories = request.getCategories();
+            categoryIds = request.getCategoryIds();
+        }
+
+        log.debug("Streaming transactions of user: \"" + principal.getName() + "\", " +
+                "for categories: " + categories + ", " +
+                "for category ids: " + categoryIds + ", " +
+                "from: " + from + ", " +
+                "until: " + until + ".");
+
+        Date finalFrom = from, finalUntil = until;
+        List<String> finalCategories = categories;
+        List<Long> finalCategoryIds = categoryIds;
+        StreamingResponseBody body = outputStream -> {
+            long streamed = transactionService.forEachTransactionOfUserByCategoriesAndDateRanges(
+                    user, finalCategories, finalCategoryIds, finalFrom, finalUntil,
+                    transaction -> writeNdjsonLine(outputStream, transaction)
+            );
+            outputStream.flush();
+            log.debug("Streamed " + streamed + " transactions");
+        };
+
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.parseMediaType(NDJSON_MEDIA_TYPE))
+                .body(body);
+    }
+
+    private void writeNdjsonLine(OutputStream outputStream, TransactionDTO transaction) {
+        try {
+            outputStream.write(objectMapper.writeValueAsBytes(transaction));
+            outputStream.write('\n');
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    @PostMapping(path = "/exportMyTransactions/csv", produces = CSV_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportMyTransactionsAsCsv(
+            Principal principal,
+            @Valid @RequestBody @Nullable FilteringRequest request){
+        ExtraUser user = userService.getUserByPrincipal(principal);
+        FilteringRequest filters = request != null ? request : new FilteringRequest();
+
+        log.debug("Exporting transactions of user: \"" + principal.getName() + "\" as CSV, " +
+                "for categories: " + filters.getCategories() + ", " +
+                "for category ids: " + filters.getCategoryIds() + ", " +
+                "from: " + filters.getFrom() + ", " +
+                "until: " + filters.getUntil() + ".");
+
+        StreamingResponseBody body = outputStream -> {
+            long exported = exportService.writeCsv(
+                    user, filters.getCategories(), filters.getCategoryIds(), filters.getFrom(), filters.getUntil(), outputStream
+            );
+            log.debug("Exported " + exported + " transactions as CSV");
+        };
+
+        return attachment(body, CSV_MEDIA_TYPE, "transactions.csv");
+    }
+
+    @PostMapping(path = "/exportMyTransactions/xlsx", produces = XLSX_MEDIA_TYPE)
+    public ResponseEntity<StreamingResponseBody> exportMyTransactionsAsXlsx(
+            Principal principal,
+            @Valid @RequestBody @Nullable FilteringRequest request){
+        ExtraUser user = userService.getUserByPrincipal(principal);
+        FilteringRequest filters = request != null ? request : new FilteringRequest();
+
+        log.debug("Exporting transactions of user: \"" + principal.getName() + "\" as XLSX, " +
+                "for categories: " + filters.getCategories() + ", " +
+                "for category ids: " + filters.getCategoryIds() + ", " +
+                "from: " + filters.getFrom() + ", " +
+                "until: " + filters.getUntil() + ".");
+
+        StreamingResponseBody body = outputStream -> {
+            long exported = exportService.writeXlsx(
+                    user, filters.getCategories(), filters.getCategoryIds(), filters.getFrom(), filters.getUntil(), outputStream
+            );
+            log.debug("Exported " + exported + " transactions as XLSX");
+        };
+
+        return attachment(body, XLSX_MEDIA_TYPE, "transactions.xlsx");
+    }
+
+    private static ResponseEntity<StreamingResponseBody> attachment(StreamingResponseBody body, String mediaType, String filename) {
+        return ResponseEntity
+                .ok()
+                .contentType(MediaType.parseMediaType(mediaType))
+                .header(HttpHeaders.CONTENT_DISPOSITION, ContentDisposition.attachment().filename(filename).build().toString())
+                .body(body);
+    }
+
     @PostMapping(path = "/getYearlySumOfTransactions", produces = "application/json")
-    public ResponseEntity<List<Map<String, String>>> getSumOfTransactionsByYear(
+    public ResponseEntity<List<YearAmountDTO>> getSumOfTransactionsByYear(
             Principal principal,
             @Valid @RequestBody @Nullable FilteringRequest request) {
         ExtraUser user = userService.getUserByPrincipal(principal);
         Date from = null, until = null;
         List<String> categories = new ArrayList<>();
+        List<Long> categoryIds = new ArrayList<>();
 
         if(request != null) {
             from = request.getFrom();
             until = request.getUntil();
             categories = request.getCategories();
+            categoryIds = request.getCategoryIds();
         }
 
         log.debug("Retrieving yearly sum of transactions of user: \"" + principal.getName() + "\", " +
                 "for categories: " + categories + ", " +
+                "for category ids: " + categoryIds + ", " +
                 "from: " + from + ", " +
                 "until: " + until + ".");
 
-        List<Map<String, String>> categoryAmounts = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categories, from, until);
+        List<YearAmountDTO> yearlyAmounts = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categories, categoryIds, from, until);
 
-        return ResponseEntity.ok(categoryAmounts);
+        return ResponseEntity.ok(yearlyAmounts);
     }
 
 }
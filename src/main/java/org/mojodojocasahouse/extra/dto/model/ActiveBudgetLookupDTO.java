@@ -0,0 +1,23 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.Data;
+
+import java.sql.Date;
+
+// One looked up category and date, along with the budget active for them, if any
+@Data
+public class ActiveBudgetLookupDTO {
+
+    private CategoryDTO category;
+
+    private String date;
+
+    private BudgetDTO budget;
+
+    public ActiveBudgetLookupDTO(CategoryDTO category, Date date, BudgetDTO budget) {
+        this.category = category;
+        this.date = date.toString();
+        this.budget = budget;
+    }
+
+}
@@ -0,0 +1,19 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class BudgetAlertDTO {
+
+    private Long userId;
+
+    private Long budgetId;
+
+    private String budgetName;
+
+    // Percentage of the budget's limit amount that was reached
+    private Integer threshold;
+
+}
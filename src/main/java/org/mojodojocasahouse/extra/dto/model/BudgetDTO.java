@@ -24,4 +24,9 @@ public class BudgetDTO {
         this.category = category;
     }
 
+    // Used by JPQL constructor expressions, which cannot nest a CategoryDTO themselves
+    public BudgetDTO(Long id, String name, BigDecimal limitAmount, BigDecimal currentAmount, Date limitDate, Date creationDate, String categoryName, Short categoryIconId) {
+        this(id, name, limitAmount, currentAmount, limitDate, creationDate, new CategoryDTO(categoryName, categoryIconId));
+    }
+
 }
@@ -0,0 +1,25 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class BudgetForecastDTO {
+
+    private Long budgetId;
+
+    private BigDecimal limitAmount;
+
+    private BigDecimal spentToDate;
+
+    private BigDecimal dailyBurnRate;
+
+    private BigDecimal projectedTotal;
+
+    // Null when the budget is not expected to run out before its limit date
+    private String projectedExhaustionDate;
+
+}
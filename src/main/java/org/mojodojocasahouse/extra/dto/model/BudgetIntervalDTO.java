@@ -0,0 +1,22 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.sql.Date;
+
+@Data
+@AllArgsConstructor
+public class BudgetIntervalDTO {
+
+    private Long id;
+
+    private Date startingDate;
+
+    private Date limitDate;
+
+    public boolean covers(Date date) {
+        return !date.before(startingDate) && !date.after(limitDate);
+    }
+
+}
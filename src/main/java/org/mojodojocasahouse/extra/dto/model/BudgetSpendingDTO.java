@@ -0,0 +1,22 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class BudgetSpendingDTO {
+
+    private Long budgetId;
+
+    private Long userId;
+
+    private String name;
+
+    private BigDecimal limitAmount;
+
+    private BigDecimal currentAmount;
+
+}
@@ -0,0 +1,21 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import com.fasterxml.jackson.annotation.JsonIgnore;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class CategoryAmountDTO {
+
+    // Names are only unique together with their icon, so sums are kept apart by id
+    @JsonIgnore
+    private Long categoryId;
+
+    private String category;
+
+    private BigDecimal amount;
+
+}
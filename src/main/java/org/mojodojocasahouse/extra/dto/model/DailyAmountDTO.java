@@ -0,0 +1,17 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+@Data
+@AllArgsConstructor
+public class DailyAmountDTO {
+
+    private Date date;
+
+    private BigDecimal amount;
+
+}
@@ -0,0 +1,20 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class InvestmentReturnDTO {
+
+    private Long userId;
+
+    private Long investmentId;
+
+    private String investmentName;
+
+    private BigDecimal amount;
+
+}
@@ -0,0 +1,14 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+@Data
+@AllArgsConstructor
+public class InvestmentSweepDTO {
+
+    private Integer claimedInvestments;
+
+    private Integer deposits;
+
+}
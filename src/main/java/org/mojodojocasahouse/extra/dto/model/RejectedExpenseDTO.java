@@ -0,0 +1,17 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+@AllArgsConstructor
+public class RejectedExpenseDTO {
+
+    // Position of the expense in the request
+    private int index;
+
+    private List<String> errors;
+
+}
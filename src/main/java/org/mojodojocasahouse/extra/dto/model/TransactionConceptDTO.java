@@ -0,0 +1,20 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.sql.Date;
+
+@Data
+@AllArgsConstructor
+public class TransactionConceptDTO {
+
+    private Long id;
+
+    private String concept;
+
+    private Date date;
+
+    private Long categoryId;
+
+}
@@ -0,0 +1,16 @@
+package org.mojodojocasahouse.extra.dto.model;
+
+import lombok.AllArgsConstructor;
+import lombok.Data;
+
+import java.math.BigDecimal;
+
+@Data
+@AllArgsConstructor
+public class YearAmountDTO {
+
+    private Integer year;
+
+    private BigDecimal amount;
+
+}
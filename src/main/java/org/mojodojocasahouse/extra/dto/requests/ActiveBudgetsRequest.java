@@ -0,0 +1,27 @@
+package org.mojodojocasahouse.extra.dto.requests;
+
+import jakarta.validation.Valid;
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ActiveBudgetsRequest {
+
+    @NotEmpty(message = "Lookups are mandatory")
+    @Size(max = 100, message = "Cannot look up more than 100 active budgets at once")
+    private List<
+            @Valid
+            @NotNull(message = "Lookups cannot be null")
+            ActiveBudgetRequest> lookups;
+
+    public ActiveBudgetsRequest(List<ActiveBudgetRequest> lookups) {
+        this.lookups = lookups;
+    }
+
+    public ActiveBudgetsRequest() {}
+
+}
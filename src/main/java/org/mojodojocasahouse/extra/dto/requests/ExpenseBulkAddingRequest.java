@@ -0,0 +1,27 @@
+package org.mojodojocasahouse.extra.dto.requests;
+
+import jakarta.validation.constraints.NotEmpty;
+import jakarta.validation.constraints.NotNull;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+
+import java.util.List;
+
+@Data
+public class ExpenseBulkAddingRequest {
+
+    // Expenses themselves are validated one by one when added, so that invalid ones are
+    // reported back instead of rejecting the whole request
+    @NotEmpty(message = "Expenses are mandatory")
+    @Size(max = 5000, message = "Cannot add more than 5000 expenses at once")
+    private List<
+            @NotNull(message = "Expenses cannot be null")
+            ExpenseAddingRequest> expenses;
+
+    public ExpenseBulkAddingRequest(List<ExpenseAddingRequest> expenses) {
+        this.expenses = expenses;
+    }
+
+    public ExpenseBulkAddingRequest() {}
+
+}
@@ -24,12 +24,17 @@ public class FilteringRequest {
             @Pattern(regexp = "^[A-Za-z\\d\\s-]+$", message = "Category must only contain letters or numbers")
             String> categories;
 
+    private List<
+            @NotNull(message = "Category ids in categoryIds field cannot be null")
+            Long> categoryIds;
+
     private Date from;
 
     private Date until;
 
     public FilteringRequest() {
         this.categories = new ArrayList<>();
+        this.categoryIds = new ArrayList<>();
         this.from = null;
         this.until = null;
     }
@@ -38,6 +43,17 @@ public class FilteringRequest {
                             @Nullable Date until,
                             @Nullable List<String> categories) {
         this.categories = categories;
+        this.categoryIds = new ArrayList<>();
+        this.from = from;
+        this.until = until;
+    }
+
+    public FilteringRequest(@Nullable Date from,
+                            @Nullable Date until,
+                            @Nullable List<String> categories,
+                            @Nullable List<Long> categoryIds) {
+        this.categories = categories;
+        this.categoryIds = categoryIds;
         this.from = from;
         this.until = until;
     }
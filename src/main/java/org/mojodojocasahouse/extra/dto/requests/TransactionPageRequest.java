@@ -0,0 +1,43 @@
+package org.mojodojocasahouse.extra.dto.requests;
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.Max;
+import jakarta.validation.constraints.Min;
+import jakarta.validation.constraints.NotNull;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.sql.Date;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class TransactionPageRequest extends FilteringRequest {
+
+    // Keyset cursor: date and id of the last transaction of the previous page
+    private Date cursorDate;
+
+    private Long cursorId;
+
+    @NotNull(message = "Page size is mandatory")
+    @Min(value = 1, message = "Page size must be at least 1")
+    @Max(value = 500, message = "Page size cannot exceed 500")
+    private Integer pageSize;
+
+    public TransactionPageRequest() {
+        super();
+        this.pageSize = 50;
+    }
+
+    public TransactionPageRequest(@Nullable Date from,
+                                  @Nullable Date until,
+                                  @Nullable List<String> categories,
+                                  @Nullable Date cursorDate,
+                                  @Nullable Long cursorId,
+                                  Integer pageSize) {
+        super(from, until, categories);
+        this.cursorDate = cursorDate;
+        this.cursorId = cursorId;
+        this.pageSize = pageSize;
+    }
+}
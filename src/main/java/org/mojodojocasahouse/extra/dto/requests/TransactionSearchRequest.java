@@ -0,0 +1,37 @@
+package org.mojodojocasahouse.extra.dto.requests;
+
+import jakarta.annotation.Nullable;
+import jakarta.validation.constraints.NotBlank;
+import jakarta.validation.constraints.Pattern;
+import jakarta.validation.constraints.Size;
+import lombok.Data;
+import lombok.EqualsAndHashCode;
+
+import java.sql.Date;
+import java.util.List;
+
+@Data
+@EqualsAndHashCode(callSuper = true)
+public class TransactionSearchRequest extends TransactionPageRequest {
+
+    // Words that concepts must have words starting with, e.g. "gro sup" finds "Grocery supplies"
+    @NotBlank(message = "Query is mandatory")
+    @Size(max = 100, message = "Query cannot exceed 100 characters")
+    @Pattern(regexp = "^[A-Za-z\\d\\s]+$", message = "Query must only contain letters or numbers")
+    private String query;
+
+    public TransactionSearchRequest() {
+        super();
+    }
+
+    public TransactionSearchRequest(String query,
+                                    @Nullable Date from,
+                                    @Nullable Date until,
+                                    @Nullable List<String> categories,
+                                    @Nullable Date cursorDate,
+                                    @Nullable Long cursorId,
+                                    Integer pageSize) {
+        super(from, until, categories, cursorDate, cursorId, pageSize);
+        this.query = query;
+    }
+}
@@ -0,0 +1,21 @@
+package org.mojodojocasahouse.extra.dto.responses;
+
+import lombok.Data;
+import org.mojodojocasahouse.extra.dto.model.RejectedExpenseDTO;
+
+import java.util.List;
+
+@Data
+public class ExpenseBulkAddingResponse {
+
+    private int added;
+
+    private List<RejectedExpenseDTO> rejected;
+
+    public ExpenseBulkAddingResponse(int added, List<RejectedExpenseDTO> rejected) {
+        this.added = added;
+        this.rejected = rejected;
+    }
+
+    public ExpenseBulkAddingResponse() {}
+}
@@ -0,0 +1,28 @@
+package org.mojodojocasahouse.extra.dto.responses;
+
+import com.fasterxml.jackson.annotation.JsonFormat;
+import lombok.Data;
+import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
+
+import java.sql.Date;
+import java.util.List;
+
+@Data
+public class TransactionPageResponse {
+
+    private List<TransactionDTO> transactions;
+
+    // Cursor of the next page. Both are null when there are no more transactions.
+    @JsonFormat(shape = JsonFormat.Shape.STRING, pattern = "yyyy-MM-dd")
+    private Date nextCursorDate;
+
+    private Long nextCursorId;
+
+    public TransactionPageResponse(List<TransactionDTO> transactions, Date nextCursorDate, Long nextCursorId) {
+        this.transactions = transactions;
+        this.nextCursorDate = nextCursorDate;
+        this.nextCursorId = nextCursorId;
+    }
+
+    public TransactionPageResponse() {}
+}
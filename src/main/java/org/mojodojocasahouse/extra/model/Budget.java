@@ -43,6 +43,11 @@ public class Budget {
     @Column(name="CREATIONDATE", nullable = false)
     private Date startingDate;
 
+    // Running total of the linked transactions. Never written by dirty checking:
+    // it is only modified through the atomic updates in BudgetRepository.
+    @Column(name="CURRENT_AMOUNT", nullable = false, updatable = false, precision = 14, scale = 2)
+    private BigDecimal currentAmount;
+
     @ManyToOne
     @JoinColumn(name = "USER_ID", nullable = false)
     private ExtraUser user;
@@ -51,7 +56,7 @@ public class Budget {
     @JoinColumn(name = "CATEGORY_ID", nullable = false)
     private Category category;
 
-    @OneToMany(mappedBy = "linkedBudget", fetch = FetchType.EAGER)
+    @OneToMany(mappedBy = "linkedBudget", fetch = FetchType.LAZY)
     private Set<Transaction> transactions;
 
 
@@ -79,6 +84,7 @@ public class Budget {
         this.startingDate = startingDate;
         this.user = user;
         this.category = category;
+        this.currentAmount = BigDecimal.ZERO;
         this.transactions = new HashSet<>();
     }
 
@@ -96,20 +102,4 @@ public class Budget {
         );
     }
 
-    public BigDecimal getCurrentAmount() {
-        BigDecimal sum = BigDecimal.ZERO;
-        for( Transaction transaction: transactions) {
-            sum = sum.add(transaction.getSignedAmount());
-        }
-        return sum.negate();
-    }
-
-    public void add(Transaction transaction) {
-        this.transactions.add(transaction);
-    }
-
-    public void remove(Transaction transaction) {
-        this.transactions.remove(transaction);
-    }
-
 }
\ No newline at end of file
@@ -11,13 +11,19 @@ import java.sql.Date;
 
 @Entity
 @Getter
-@DiscriminatorValue("deposit")
+@DiscriminatorValue(Deposit.TRANSACTION_TYPE)
 public class Deposit extends Transaction {
 
+    public static final String TRANSACTION_TYPE = "deposit";
+
     @ManyToOne
     @JoinColumn(name = "SOURCE_INVESTMENT_ID")
     private Investment sourceInvestment;
 
+    // Position among the deposits of its investment, starting at 1
+    @Column(name = "DEPOSIT_SEQUENCE")
+    private Integer depositSequence;
+
     public Deposit() {}
 
     @Valid
@@ -27,7 +33,8 @@ public class Deposit extends Transaction {
                    ExtraUser user,
                    Category category,
                    Budget linkedBudget,
-                   Investment sourceInvestment) {
+                   Investment sourceInvestment,
+                   Integer depositSequence) {
         this.concept = concept;
         this.amount = amount;
         this.date = date;
@@ -35,6 +42,7 @@ public class Deposit extends Transaction {
         this.category = category;
         this.linkedBudget = linkedBudget;
         this.sourceInvestment = sourceInvestment;
+        this.depositSequence = depositSequence;
         this.signedAmount = amount;
     }
 
@@ -50,6 +58,11 @@ public class Deposit extends Transaction {
         );
     }
 
+    @Override
+    public String getTransactionType() {
+        return TRANSACTION_TYPE;
+    }
+
     @Override
     public BigDecimal getSignedAmount() {
         return this.signedAmount;
@@ -0,0 +1,51 @@
+package org.mojodojocasahouse.extra.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.sql.Timestamp;
+
+// An instance sweeping investment deposits, alive while its lease has not expired
+@Entity
+@Getter
+@Table(name = "DEPOSIT_SWEEP_NODES")
+public class DepositSweepNode {
+
+    @Id
+    @Column(name = "NODE_ID", nullable = false, length = 36)
+    private String nodeId;
+
+    @Column(name = "LEASE_EXPIRES_AT", nullable = false)
+    private Timestamp leaseExpiresAt;
+
+    // Since the instance started
+    @Column(name = "DEPOSITS_MADE", nullable = false)
+    private Long depositsMade;
+
+    @Column(name = "LAST_SWEEP_DEPOSITS", nullable = false)
+    private Integer lastSweepDeposits;
+
+    @Column(name = "LAST_SWEEP_MILLIS", nullable = false)
+    private Long lastSweepMillis;
+
+    public DepositSweepNode(String nodeId, Timestamp leaseExpiresAt) {
+        this.nodeId = nodeId;
+        this.leaseExpiresAt = leaseExpiresAt;
+        this.depositsMade = 0L;
+        this.lastSweepDeposits = 0;
+        this.lastSweepMillis = 0L;
+    }
+
+    public DepositSweepNode() {}
+
+    public void renewLease(Timestamp leaseExpiresAt) {
+        this.leaseExpiresAt = leaseExpiresAt;
+    }
+
+    public void recordSweep(int deposits, long millis) {
+        this.depositsMade += deposits;
+        this.lastSweepDeposits = deposits;
+        this.lastSweepMillis = millis;
+    }
+
+}
@@ -11,9 +11,11 @@ import java.sql.Date;
 
 @Entity
 @Getter
-@DiscriminatorValue("expense")
+@DiscriminatorValue(Expense.TRANSACTION_TYPE)
 public class Expense extends Transaction {
 
+    public static final String TRANSACTION_TYPE = "expense";
+
     public Expense(){}
 
     @Valid
@@ -32,6 +34,7 @@ public class Expense extends Transaction {
         }
         if (amount != null) {
             this.amount = amount;
+            this.signedAmount = amount.negate();
         }
         if (date != null ) {
             this.date = date;
@@ -52,6 +55,11 @@ public class Expense extends Transaction {
         );
     }
 
+    @Override
+    public String getTransactionType() {
+        return TRANSACTION_TYPE;
+    }
+
     @Override
     public BigDecimal getSignedAmount() {
         return this.signedAmount;
@@ -5,6 +5,7 @@ import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
 
+import java.util.HashSet;
 import java.util.Set;
 
 import org.mojodojocasahouse.extra.dto.requests.UserRegistrationRequest;
@@ -68,6 +69,14 @@ public class ExtraUser {
         this.authorities = authorities;
     }
 
+    // Detached copy, whose changes are not seen by the original nor by other copies
+    public ExtraUser copy() {
+        ExtraUser copy = new ExtraUser(firstName, lastName, email, password,
+                authorities == null ? null : new HashSet<>(authorities));
+        copy.id = id;
+        return copy;
+    }
+
     public static ExtraUser from(UserRegistrationRequest userRegistrationDto, String encodedPassword){
         return new ExtraUser(
                 userRegistrationDto.getFirstName(),
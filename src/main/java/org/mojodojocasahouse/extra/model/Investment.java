@@ -6,6 +6,7 @@ import org.mojodojocasahouse.extra.dto.model.InvestmentDTO;
 
 import java.math.BigDecimal;
 import java.sql.Timestamp;
+import java.time.temporal.ChronoUnit;
 import java.util.HashSet;
 import java.util.Set;
 
@@ -35,6 +36,13 @@ public class Investment {
     @Column(name = "DEPOSIT_INTERVAL_IN_DAYS", nullable = false)
     private Integer depositIntervalInDays;
 
+    @Column(name = "DEPOSITS_MADE", nullable = false)
+    private Integer depositsMade;
+
+    // Null once every deposit has been made
+    @Column(name = "NEXT_DEPOSIT_TIMESTAMP")
+    private Timestamp nextDepositTimestamp;
+
     @ManyToOne
     @JoinColumn(name = "USER_ID", nullable = false)
     private ExtraUser user;
@@ -61,6 +69,8 @@ public class Investment {
         this.depositAmount = depositAmount;
         this.maxNumberOfDeposits = maxNumberOfDeposits;
         this.depositIntervalInDays = depositIntervalInDays;
+        this.depositsMade = 0;
+        this.nextDepositTimestamp = depositStartTimestamp;
         this.user = user;
         this.category = category;
         this.returns = new HashSet<>();
@@ -68,6 +78,24 @@ public class Investment {
 
     public Investment() {}
 
+    // Number of deposits that fall due by the given time, counting those already made
+    public int depositsDueAt(Timestamp time) {
+        if (time.before(depositStartTimestamp)) {
+            return 0;
+        }
+        long days = ChronoUnit.DAYS.between(depositStartTimestamp.toLocalDateTime(), time.toLocalDateTime());
+        return (int) Math.min(maxNumberOfDeposits, days / depositIntervalInDays + 1);
+    }
+
+    public Timestamp depositTimestamp(int sequence) {
+        return Timestamp.valueOf(depositStartTimestamp.toLocalDateTime().plusDays((long) (sequence - 1) * depositIntervalInDays));
+    }
+
+    public void advanceTo(int lastSequence) {
+        depositsMade = lastSequence;
+        nextDepositTimestamp = lastSequence < maxNumberOfDeposits ? depositTimestamp(lastSequence + 1) : null;
+    }
+
 
     public InvestmentDTO asDto() {
         return new InvestmentDTO(
@@ -0,0 +1,43 @@
+package org.mojodojocasahouse.extra.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+// Signed sum of the transactions of one type, per user, category and calendar month.
+// Rows are only written through the upsert in MonthlyTransactionTotalRepository.
+@Entity
+@Getter
+@Table(name = "MONTHLY_TRANSACTION_TOTALS",
+        uniqueConstraints = {
+                @UniqueConstraint(
+                        name = "UniqueTotalPerUserCategoryMonthAndType",
+                        columnNames = {"USER_ID", "CATEGORY_ID", "MONTH_START", "TRANSACTION_TYPE"})
+        })
+public class MonthlyTransactionTotal {
+
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private Long id;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "USER_ID", nullable = false)
+    private ExtraUser user;
+
+    @ManyToOne(fetch = FetchType.LAZY)
+    @JoinColumn(name = "CATEGORY_ID", nullable = false)
+    private Category category;
+
+    // First day of the month the total covers
+    @Column(name = "MONTH_START", nullable = false)
+    private Date monthStart;
+
+    @Column(name = "TRANSACTION_TYPE", nullable = false, length = 31)
+    private String transactionType;
+
+    @Column(name = "SIGNED_AMOUNT", nullable = false, precision = 38, scale = 2)
+    private BigDecimal signedAmount;
+
+}
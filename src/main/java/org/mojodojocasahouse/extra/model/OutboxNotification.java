@@ -0,0 +1,122 @@
+package org.mojodojocasahouse.extra.model;
+
+import jakarta.persistence.*;
+import lombok.Getter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+
+// A push notification waiting to be delivered. Its subject is the budget of a budget alert
+// or the investment of an investment return.
+@Entity
+@Getter
+@Table(name = "NOTIFICATION_OUTBOX")
+public class OutboxNotification {
+
+    public enum Kind {
+        BUDGET_ALERT,
+        INVESTMENT_RETURN
+    }
+
+    // Same as transaction ids, see Transaction
+    @Id
+    @GeneratedValue(generator = "notification_outbox_ids")
+    @GenericGenerator(
+            name = "notification_outbox_ids",
+            type = SequenceStyleGenerator.class,
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "notification_outbox_ids"),
+                    @Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "100"),
+                    @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+            }
+    )
+    private Long id;
+
+    @Enumerated(EnumType.STRING)
+    @Column(name = "KIND", nullable = false, length = 20)
+    private Kind kind;
+
+    @Column(name = "USER_ID", nullable = false)
+    private Long userId;
+
+    @Column(name = "SUBJECT_ID", nullable = false)
+    private Long subjectId;
+
+    @Column(name = "SUBJECT_NAME", nullable = false)
+    private String subjectName;
+
+    // Of investment returns only
+    @Column(name = "AMOUNT", precision = 14, scale = 2)
+    private BigDecimal amount;
+
+    // Of budget alerts only
+    @Column(name = "THRESHOLD")
+    private Integer threshold;
+
+    // Failed sends so far
+    @Column(name = "ATTEMPTS", nullable = false)
+    private Integer attempts;
+
+    @Column(name = "NEXT_ATTEMPT_AT", nullable = false)
+    private Timestamp nextAttemptAt;
+
+    public OutboxNotification(BudgetAlertDTO alert, Timestamp now) {
+        this(Kind.BUDGET_ALERT, alert.getUserId(), alert.getBudgetId(), alert.getBudgetName(), null, alert.getThreshold(), now);
+    }
+
+    public OutboxNotification(InvestmentReturnDTO investmentReturn, Timestamp now) {
+        this(
+                Kind.INVESTMENT_RETURN,
+                investmentReturn.getUserId(),
+                investmentReturn.getInvestmentId(),
+                investmentReturn.getInvestmentName(),
+                investmentReturn.getAmount(),
+                null,
+                now
+        );
+    }
+
+    private OutboxNotification(Kind kind,
+                               Long userId,
+                               Long subjectId,
+                               String subjectName,
+                               BigDecimal amount,
+                               Integer threshold,
+                               Timestamp now) {
+        this.kind = kind;
+        this.userId = userId;
+        this.subjectId = subjectId;
+        this.subjectName = subjectName;
+        this.amount = amount;
+        this.threshold = threshold;
+        this.attempts = 0;
+        this.nextAttemptAt = now;
+    }
+
+    public OutboxNotification() {}
+
+    // Hidden from other relays until then
+    public void claimUntil(Timestamp claimExpiresAt) {
+        this.nextAttemptAt = claimExpiresAt;
+    }
+
+    public void retryAt(Timestamp nextAttemptAt) {
+        this.attempts++;
+        this.nextAttemptAt = nextAttemptAt;
+    }
+
+    public BudgetAlertDTO asBudgetAlertDto() {
+        return new BudgetAlertDTO(userId, subjectId, subjectName, threshold);
+    }
+
+    public InvestmentReturnDTO asInvestmentReturnDto() {
+        return new InvestmentReturnDTO(userId, subjectId, subjectName, amount);
+    }
+
+}
@@ -4,6 +4,9 @@ import jakarta.persistence.*;
 import jakarta.validation.constraints.*;
 import lombok.Getter;
 import lombok.Setter;
+import org.hibernate.annotations.GenericGenerator;
+import org.hibernate.annotations.Parameter;
+import org.hibernate.id.enhanced.SequenceStyleGenerator;
 import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
 
 import java.math.BigDecimal;
@@ -15,8 +18,20 @@ import java.sql.Date;
 @DiscriminatorColumn(name = "TRANSACTION_TYPE")
 public abstract class Transaction {
 
+    // Ids come in blocks from the transaction_ids table (MySQL has no sequences), so inserts
+    // can be batched. Each block is reserved with one update, and its ids handed out in memory.
     @Id
-    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    @GeneratedValue(generator = "transaction_ids")
+    @GenericGenerator(
+            name = "transaction_ids",
+            type = SequenceStyleGenerator.class,
+            parameters = {
+                    @Parameter(name = SequenceStyleGenerator.SEQUENCE_PARAM, value = "transaction_ids"),
+                    @Parameter(name = SequenceStyleGenerator.FORCE_TBL_PARAM, value = "true"),
+                    @Parameter(name = SequenceStyleGenerator.INCREMENT_PARAM, value = "100"),
+                    @Parameter(name = SequenceStyleGenerator.OPT_PARAM, value = "pooled-lo")
+            }
+    )
     protected Long id;
 
     @NotEmpty(message = "Concept cannot be empty")
@@ -53,6 +68,9 @@ public abstract class Transaction {
 
     public abstract TransactionDTO asDto();
 
+    // Value of the TRANSACTION_TYPE discriminator column
+    public abstract String getTransactionType();
+
     public abstract BigDecimal getSignedAmount();
 
 }
@@ -1,11 +1,20 @@
 package org.mojodojocasahouse.extra.repository;
+import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
+import java.util.Optional;
 
+import jakarta.persistence.LockModeType;
+import org.mojodojocasahouse.extra.dto.model.BudgetDTO;
+import org.mojodojocasahouse.extra.dto.model.BudgetIntervalDTO;
+import org.mojodojocasahouse.extra.dto.model.BudgetSpendingDTO;
 import org.mojodojocasahouse.extra.model.Budget;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
@@ -13,7 +22,13 @@ import org.springframework.stereotype.Repository;
 @Repository
 public interface BudgetRepository extends JpaRepository<Budget, Long> {
 
-    List<Budget> findAllBudgetsByUser(ExtraUser user);
+    // Projects straight into DTOs so that listing budgets is a single round trip,
+    // no matter how many budgets, categories or transactions the user has.
+    @Query( "SELECT new org.mojodojocasahouse.extra.dto.model.BudgetDTO(" +
+                "b.id, b.name, b.limitAmount, b.currentAmount, b.limitDate, b.startingDate, c.name, c.iconId) " +
+            "FROM Budget b JOIN b.category c " +
+            "WHERE b.user = :user")
+    List<BudgetDTO> findAllBudgetDtosByUser(@Param("user") ExtraUser user);
 
     @Query( "SELECT b FROM Budget b " +
             "WHERE b.user = :user " +
@@ -26,23 +41,70 @@ public interface BudgetRepository extends JpaRepository<Budget, Long> {
             @Param("date") Date date
     );
 
-    // Find existing budgets that overlap with given date range
-    //
-    // Added edge validation cases
-    // used:  https://www.codespeedy.com/check-if-two-date-ranges-overlap-or-not-in-java/ for reference
+    // Every budget of the named categories overlapping the dates, projected like the listing.
+    // A user's categories are identified by name and icon, so the categories need no query of their own.
+    @Query( "SELECT new org.mojodojocasahouse.extra.dto.model.BudgetDTO(" +
+                "b.id, b.name, b.limitAmount, b.currentAmount, b.limitDate, b.startingDate, c.name, c.iconId) " +
+            "FROM Budget b JOIN b.category c " +
+            "WHERE b.user = :user " +
+                "AND c.name IN :categoryNames " +
+                "AND b.startingDate <= :maxDate " +
+                "AND b.limitDate >= :minDate " +
+            "ORDER BY b.limitDate ASC")
+    List<BudgetDTO> findBudgetDtosByUserAndCategoryNamesOverlapping(
+            @Param("user") ExtraUser user,
+            @Param("categoryNames") Collection<String> categoryNames,
+            @Param("minDate") Date minDate,
+            @Param("maxDate") Date maxDate
+    );
+
+    @Query( "SELECT new org.mojodojocasahouse.extra.dto.model.BudgetIntervalDTO(b.id, b.startingDate, b.limitDate) " +
+            "FROM Budget b " +
+            "WHERE b.user.id = :userId AND b.category.id = :categoryId")
+    List<BudgetIntervalDTO> findBudgetIntervalsByUserIdAndCategoryId(
+            @Param("userId") Long userId,
+            @Param("categoryId") Long categoryId
+    );
+
+    @Query( "SELECT new org.mojodojocasahouse.extra.dto.model.BudgetSpendingDTO(" +
+                "b.id, b.user.id, b.name, b.limitAmount, b.currentAmount) " +
+            "FROM Budget b " +
+            "WHERE b.id = :budgetId")
+    Optional<BudgetSpendingDTO> findBudgetSpendingById(@Param("budgetId") Long budgetId);
+
+    // Find existing budgets that overlap with given date range. Two closed ranges overlap
+    // exactly when each one starts no later than the other ends; unlike a disjunction of
+    // edge cases, this is a plain range condition that idx_budgets_user_category_dates serves.
+    // A locking read, so it also sees budgets committed after this transaction's snapshot.
+    @Lock(LockModeType.PESSIMISTIC_READ)
     @Query( "SELECT b FROM Budget b " +
             "WHERE b.user = :user " +
                 "AND b.category = :category " +
-                "AND (" +
-                    "   (:startingDate <= b.startingDate AND :limitDate >= b.startingDate) " +
-                    "OR (:startingDate <= b.limitDate    AND :limitDate >= b.limitDate   ) " +
-                    "OR (:startingDate <= b.startingDate AND :limitDate >= b.limitDate   ) " +
-                    "OR (:startingDate >= b.startingDate AND :limitDate <= b.limitDate   ) " +
-            ") ORDER BY b.limitDate ASC")
+                "AND b.startingDate <= :limitDate " +
+                "AND b.limitDate >= :startingDate " +
+            "ORDER BY b.limitDate ASC")
     List<Budget> findOverlappingBudgetsByUserAndCategory(
-            ExtraUser user,
-            Category category,
-            Date startingDate,
-            Date limitDate
+            @Param("user") ExtraUser user,
+            @Param("category") Category category,
+            @Param("startingDate") Date startingDate,
+            @Param("limitDate") Date limitDate
     );
+
+    // Atomically adds the given amount to the running total of a budget.
+    // Being a single UPDATE, concurrent writers cannot lose each other's increments.
+    @Modifying
+    @Query( "UPDATE Budget b " +
+            "SET b.currentAmount = b.currentAmount + :amount " +
+            "WHERE b.id = :budgetId")
+    int addToCurrentAmount(
+            @Param("budgetId") Long budgetId,
+            @Param("amount") BigDecimal amount
+    );
+
+    // Re-derives every running total from the linked transactions in one statement
+    @Modifying
+    @Query( "UPDATE Budget b " +
+            "SET b.currentAmount = COALESCE(" +
+                "(SELECT -SUM(t.signedAmount) FROM Transaction t WHERE t.linkedBudget = b), 0)")
+    int reconcileCurrentAmounts();
 }
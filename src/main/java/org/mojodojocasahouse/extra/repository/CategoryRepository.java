@@ -3,7 +3,9 @@ package org.mojodojocasahouse.extra.repository;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 
 import java.util.List;
 import java.util.Optional;
@@ -15,6 +17,37 @@ public interface CategoryRepository extends JpaRepository<Category, Long> {
     @Query("SELECT c.name FROM Category c WHERE c.owner = :user")
     List<String> getCategoryNamesByUser(ExtraUser user);
 
+    @Query("SELECT c.id FROM Category c WHERE c.owner = :user AND c.name IN :names")
+    List<Long> getCategoryIdsByUserAndNameIn(ExtraUser user, List<String> names);
+
     Optional<Category> getCategoryByOwnerAndNameAndIconId(ExtraUser owner, String name, Short iconId);
 
+    @Query("SELECT c.id FROM Category c WHERE c.owner = :owner AND c.name = :name AND c.iconId = :iconId")
+    Optional<Long> getCategoryIdByOwnerAndNameAndIconId(ExtraUser owner, String name, Short iconId);
+
+    // Locking read, so it also sees a row another transaction committed after this one started
+    @Query(value = "SELECT id FROM categories WHERE owner_id = :ownerId AND name = :name AND icon_id = :iconId " +
+                    "FOR UPDATE",
+            nativeQuery = true)
+    Optional<Long> getCurrentCategoryIdByOwnerAndNameAndIconId(
+            @Param("ownerId") Long ownerId,
+            @Param("name") String name,
+            @Param("iconId") Short iconId
+    );
+
+    // Row lock on the category, held until the transaction ends. Used as the guard row
+    // that serializes budget creation for a category across instances.
+    @Query(value = "SELECT id FROM categories WHERE id = :id FOR UPDATE", nativeQuery = true)
+    Optional<Long> lockById(@Param("id") Long id);
+
+    // Does nothing when UniqueNameAndIconPerUser already holds the category, instead of failing the transaction
+    @Modifying
+    @Query(value = "INSERT IGNORE INTO categories (name, icon_id, owner_id) VALUES (:name, :iconId, :ownerId)",
+            nativeQuery = true)
+    int insertIfAbsent(
+            @Param("ownerId") Long ownerId,
+            @Param("name") String name,
+            @Param("iconId") Short iconId
+    );
+
 }
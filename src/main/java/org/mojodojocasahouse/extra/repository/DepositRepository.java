@@ -1,9 +1,25 @@
 package org.mojodojocasahouse.extra.repository;
 
+import org.mojodojocasahouse.extra.dto.model.DepositSequenceDTO;
 import org.mojodojocasahouse.extra.model.Deposit;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
+import java.util.List;
+
 @Repository
 public interface DepositRepository extends JpaRepository<Deposit, Long> {
+
+    // Sequence of the last deposit made of each of the investments that have any, read
+    // through UniqueDepositSequencePerInvestment
+    @Query( "SELECT new org.mojodojocasahouse.extra.dto.model.DepositSequenceDTO(" +
+                "d.sourceInvestment.id, MAX(d.depositSequence)) " +
+            "FROM Deposit d " +
+            "WHERE d.sourceInvestment.id IN :investmentIds " +
+            "GROUP BY d.sourceInvestment.id")
+    List<DepositSequenceDTO> findLastDepositSequences(@Param("investmentIds") Collection<Long> investmentIds);
+
 }
@@ -0,0 +1,26 @@
+package org.mojodojocasahouse.extra.repository;
+
+import org.mojodojocasahouse.extra.model.DepositSweepNode;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface DepositSweepNodeRepository extends JpaRepository<DepositSweepNode, String> {
+
+    // In a fixed order, so that every node numbers the live ones the same way
+    @Query( "SELECT n.nodeId FROM DepositSweepNode n " +
+            "WHERE n.leaseExpiresAt > :now " +
+            "ORDER BY n.nodeId ASC")
+    List<String> findLiveNodeIds(@Param("now") Timestamp now);
+
+    @Modifying
+    @Query("DELETE FROM DepositSweepNode n WHERE n.leaseExpiresAt < :expiredBefore")
+    int deleteExpiredBefore(@Param("expiredBefore") Timestamp expiredBefore);
+
+}
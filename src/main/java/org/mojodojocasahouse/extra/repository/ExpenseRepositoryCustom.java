@@ -0,0 +1,13 @@
+package org.mojodojocasahouse.extra.repository;
+
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
+import org.mojodojocasahouse.extra.model.Expense;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+
+public interface ExpenseRepositoryCustom {
+
+    List<CategoryAmountDTO> getSumOfExpensesByCategory(Specification<Expense> specification);
+
+}
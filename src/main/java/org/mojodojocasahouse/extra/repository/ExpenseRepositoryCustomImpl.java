@@ -0,0 +1,38 @@
+package org.mojodojocasahouse.extra.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.Expense;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+
+public class ExpenseRepositoryCustomImpl implements ExpenseRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<CategoryAmountDTO> getSumOfExpensesByCategory(Specification<Expense> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CategoryAmountDTO> query = builder.createQuery(CategoryAmountDTO.class);
+        Root<Expense> root = query.from(Expense.class);
+        Join<Expense, Category> category = root.join("category");
+        Expression<BigDecimal> amount = builder.sum(root.get("amount"));
+
+        Predicate predicate = specification.toPredicate(root, query, builder);
+        if (predicate != null) {
+            query.where(predicate);
+        }
+        query.select(builder.construct(CategoryAmountDTO.class, category.get("id"), category.get("name"), amount))
+                .groupBy(category.get("id"), category.get("name"))
+                .orderBy(builder.desc(amount));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+}
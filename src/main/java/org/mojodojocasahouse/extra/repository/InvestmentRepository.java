@@ -1,14 +1,40 @@
 package org.mojodojocasahouse.extra.repository;
 
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.LockOptions;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.model.Investment;
-import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.*;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
 
 @Repository
 public interface InvestmentRepository extends JpaRepository<Investment, Long> {
     List<Investment> findByUser(ExtraUser user);
 
+    // Locks the investments of the given partition due at the given time, oldest due first.
+    // Investments are split between partitions by id. Investments locked by another sweep
+    // are skipped rather than waited for (FOR UPDATE SKIP LOCKED on MySQL, a plain FOR UPDATE
+    // on databases without it). Only ids are selected, so that no rows of the eagerly fetched
+    // associations are locked along with them.
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "" + LockOptions.SKIP_LOCKED))
+    @Query( "SELECT i.id FROM Investment i " +
+            "WHERE i.nextDepositTimestamp <= :now " +
+                "AND MOD(i.id, :partitions) = :partition " +
+            "ORDER BY i.nextDepositTimestamp ASC, i.id ASC")
+    List<Long> claimDueInvestmentIds(@Param("now") Timestamp now,
+                                     @Param("partition") int partition,
+                                     @Param("partitions") int partitions,
+                                     Pageable page);
+
+    @EntityGraph(attributePaths = {"user.authorities", "category"})
+    List<Investment> findAllWithUserAndCategoryByIdIn(Collection<Long> ids);
+
 }
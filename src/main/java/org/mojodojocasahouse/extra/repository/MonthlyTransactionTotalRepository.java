@@ -0,0 +1,30 @@
+package org.mojodojocasahouse.extra.repository;
+
+import org.mojodojocasahouse.extra.model.MonthlyTransactionTotal;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+public interface MonthlyTransactionTotalRepository
+        extends JpaRepository<MonthlyTransactionTotal, Long>, MonthlyTransactionTotalRepositoryCustom {
+
+    // Single atomic statement, so concurrent writers of the same month never lose an update
+    @Modifying
+    @Query(value = "INSERT INTO monthly_transaction_totals " +
+                        "(user_id, category_id, month_start, transaction_type, signed_amount) " +
+                    "VALUES (:userId, :categoryId, :monthStart, :transactionType, :amount) " +
+                    "ON DUPLICATE KEY UPDATE signed_amount = signed_amount + :amount",
+            nativeQuery = true)
+    int addToTotal(
+            @Param("userId") Long userId,
+            @Param("categoryId") Long categoryId,
+            @Param("monthStart") Date monthStart,
+            @Param("transactionType") String transactionType,
+            @Param("amount") BigDecimal amount
+    );
+
+}
@@ -0,0 +1,18 @@
+package org.mojodojocasahouse.extra.repository;
+
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+
+import java.sql.Date;
+import java.util.List;
+
+public interface MonthlyTransactionTotalRepositoryCustom {
+
+    // Month bounds are inclusive first days of month; null bounds and null categories do not filter
+
+    List<YearAmountDTO> getYearlySums(ExtraUser user, List<Long> categoryIds, Date firstMonth, Date lastMonth);
+
+    List<CategoryAmountDTO> getSumsOfExpensesByCategory(ExtraUser user, List<Long> categoryIds, Date firstMonth, Date lastMonth);
+
+}
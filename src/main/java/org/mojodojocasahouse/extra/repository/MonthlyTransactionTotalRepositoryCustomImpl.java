@@ -0,0 +1,78 @@
+package org.mojodojocasahouse.extra.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.criteria.*;
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.Expense;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.MonthlyTransactionTotal;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+public class MonthlyTransactionTotalRepositoryCustomImpl implements MonthlyTransactionTotalRepositoryCustom {
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public List<YearAmountDTO> getYearlySums(ExtraUser user, List<Long> categoryIds, Date firstMonth, Date lastMonth) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<YearAmountDTO> query = builder.createQuery(YearAmountDTO.class);
+        Root<MonthlyTransactionTotal> root = query.from(MonthlyTransactionTotal.class);
+        Expression<Integer> year = builder.function("year", Integer.class, root.get("monthStart"));
+
+        List<Predicate> predicates = filter(builder, root, user, categoryIds, firstMonth, lastMonth);
+        query.select(builder.construct(YearAmountDTO.class, year, builder.sum(root.<BigDecimal>get("signedAmount"))))
+                .where(predicates.toArray(Predicate[]::new))
+                .groupBy(year)
+                .orderBy(builder.asc(year));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    @Override
+    public List<CategoryAmountDTO> getSumsOfExpensesByCategory(ExtraUser user, List<Long> categoryIds,
+                                                               Date firstMonth, Date lastMonth) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<CategoryAmountDTO> query = builder.createQuery(CategoryAmountDTO.class);
+        Root<MonthlyTransactionTotal> root = query.from(MonthlyTransactionTotal.class);
+        Join<MonthlyTransactionTotal, Category> category = root.join("category");
+        // Expenses are stored with a negative sign but reported as spent amounts
+        Expression<BigDecimal> amount = builder.neg(builder.sum(root.<BigDecimal>get("signedAmount")));
+
+        List<Predicate> predicates = filter(builder, root, user, categoryIds, firstMonth, lastMonth);
+        predicates.add(builder.equal(root.get("transactionType"), Expense.TRANSACTION_TYPE));
+        query.select(builder.construct(CategoryAmountDTO.class, category.get("id"), category.get("name"), amount))
+                .where(predicates.toArray(Predicate[]::new))
+                .groupBy(category.get("id"), category.get("name"))
+                .orderBy(builder.desc(amount));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static List<Predicate> filter(CriteriaBuilder builder, Root<MonthlyTransactionTotal> root,
+                                          ExtraUser user, List<Long> categoryIds,
+                                          Date firstMonth, Date lastMonth) {
+        List<Predicate> predicates = new ArrayList<>();
+        predicates.add(builder.equal(root.get("user"), user));
+        if (categoryIds != null) {
+            predicates.add(categoryIds.isEmpty()
+                    ? builder.disjunction()
+                    : root.get("category").get("id").in(categoryIds));
+        }
+        if (firstMonth != null) {
+            predicates.add(builder.greaterThanOrEqualTo(root.get("monthStart"), firstMonth));
+        }
+        if (lastMonth != null) {
+            predicates.add(builder.lessThanOrEqualTo(root.get("monthStart"), lastMonth));
+        }
+        return predicates;
+    }
+
+}
@@ -0,0 +1,30 @@
+package org.mojodojocasahouse.extra.repository;
+
+import jakarta.persistence.LockModeType;
+import jakarta.persistence.QueryHint;
+import org.hibernate.LockOptions;
+import org.mojodojocasahouse.extra.model.OutboxNotification;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.jpa.repository.QueryHints;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.sql.Timestamp;
+import java.util.List;
+
+@Repository
+public interface OutboxNotificationRepository extends JpaRepository<OutboxNotification, Long> {
+
+    // Locks the notifications due at the given time, oldest due first, skipping the ones
+    // another relay is claiming, like InvestmentRepository.claimDueInvestmentIds
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @QueryHints(@QueryHint(name = "jakarta.persistence.lock.timeout", value = "" + LockOptions.SKIP_LOCKED))
+    @Query( "SELECT n FROM OutboxNotification n " +
+            "WHERE n.nextAttemptAt <= :now " +
+            "ORDER BY n.nextAttemptAt ASC, n.id ASC")
+    List<OutboxNotification> findDue(@Param("now") Timestamp now, Pageable page);
+
+}
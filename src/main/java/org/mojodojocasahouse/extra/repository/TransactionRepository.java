@@ -1,110 +1,65 @@
 package org.mojodojocasahouse.extra.repository;
 
+import org.mojodojocasahouse.extra.dto.model.DailyAmountDTO;
+import org.mojodojocasahouse.extra.dto.model.TransactionConceptDTO;
+import org.mojodojocasahouse.extra.model.Budget;
 import org.mojodojocasahouse.extra.model.Category;
-import org.mojodojocasahouse.extra.model.Expense;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.model.Transaction;
+import org.springframework.data.jpa.repository.EntityGraph;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.data.repository.query.Param;
 
+import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 
-public interface TransactionRepository extends JpaRepository<Transaction, Long> {
+public interface TransactionRepository extends JpaRepository<Transaction, Long>, TransactionRepositoryCustom {
 
-    @Query( "SELECT " +
-                "YEAR(t.date) AS year, " +
-                "SUM(t.signedAmount) AS amount " +
-            "FROM Transaction t " +
-                "WHERE t.user = :user " +
-                "AND t.category.name IN :categories " +
-            "AND t.date BETWEEN :minDate AND :maxDate " +
-            "GROUP BY YEAR(t.date) " +
-            "ORDER BY YEAR(t.date) ASC")
-    List<Map<String, String>> getYearlySumOfTransactionsOfUserByCategoryAndDateInterval(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories,
-            @Param("minDate") Date minDate,
-            @Param("maxDate") Date maxDate);
-
-    @Query( "SELECT YEAR(t.date) AS year, SUM(t.signedAmount) AS amount FROM Transaction t " +
-            "WHERE t.user = :user " +
-            "AND t.category.name IN :categories " +
-            "GROUP BY YEAR(t.date) " +
-            "ORDER BY YEAR(t.date) ASC")
-    List<Map<String, String>> getYearlySumOfTransactionsByCategories(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories);
-
-    @Query( "SELECT YEAR(t.date) AS year, SUM(t.signedAmount) AS amount FROM Transaction t " +
-            "WHERE t.user = :user " +
-            "AND t.category.name IN :categories " +
-            "AND t.date >= :minDate " +
-            "GROUP BY YEAR(t.date) " +
-            "ORDER BY YEAR(t.date) ASC")
-    List<Map<String, String>> getYearlySumOfTransactionsOfUserAfterGivenDate(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories,
-            @Param("minDate") Date minDate);
-
-    @Query( "SELECT YEAR(t.date) AS year, SUM(t.signedAmount) AS amount FROM Transaction t " +
-            "WHERE t.user = :user " +
-            "AND t.category.name IN :categories " +
-            "AND t.date <= :maxDate " +
-            "GROUP BY YEAR(t.date) " +
-            "ORDER BY YEAR(t.date) ASC")
-    List<Map<String, String>> getYearlySumOfTransactionsOfUserBeforeGivenDate(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories,
-            @Param("maxDate") Date maxDate);
-
-    @Query( "SELECT t FROM Transaction t " +
-            "WHERE t.user = :user " +
-            "AND t.category.name IN :categories " +
-            "AND t.date BETWEEN :minDate AND :maxDate")
-    List<Transaction> getTransactionsOfUserByCategoriesAndDateInterval(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories,
-            @Param("minDate") Date minDate,
-            @Param("maxDate") Date maxDate);
-
-    @Query( "SELECT t FROM Transaction t " +
+    // Links every unlinked transaction of the user and category within the dates in a
+    // single statement, instead of loading and dirty checking each one. Pending changes
+    // are flushed first and the persistence context is cleared afterwards, so no managed
+    // transaction keeps a stale budget.
+    @Modifying(flushAutomatically = true, clearAutomatically = true)
+    @Query( "UPDATE Transaction t " +
+            "SET t.linkedBudget = :budget " +
             "WHERE t.user = :user " +
             "AND t.category = :category " +
-            "AND t.date BETWEEN :minDate AND :maxDate")
-    List<Transaction> getTransactionsByUserAndCategoryAndDateInterval(
+            "AND t.date BETWEEN :minDate AND :maxDate " +
+            "AND t.linkedBudget IS NULL")
+    int linkUnlinkedTransactionsToBudget(
+            @Param("budget") Budget budget,
             @Param("user") ExtraUser user,
             @Param("category") Category category,
             @Param("minDate") Date minDate,
             @Param("maxDate") Date maxDate
     );
 
+    // One row per day with linked transactions, so a budget's history can be walked without
+    // loading the transactions themselves
+    @Query( "SELECT new org.mojodojocasahouse.extra.dto.model.DailyAmountDTO(t.date, SUM(t.signedAmount)) " +
+            "FROM Transaction t " +
+            "WHERE t.linkedBudget.id = :budgetId " +
+            "GROUP BY t.date " +
+            "ORDER BY t.date ASC")
+    List<DailyAmountDTO> sumSignedAmountsByDayByLinkedBudgetId(@Param("budgetId") Long budgetId);
 
-    @Query( "SELECT t FROM Transaction t " +
-            "WHERE t.user = :user " +
-            "AND t.category.name IN :categories")
-    List<Transaction> getTransactionsOfUserByCategory(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories);
+    @Query( "SELECT COALESCE(SUM(t.signedAmount), 0) FROM Transaction t " +
+            "WHERE t.linkedBudget.id = :budgetId")
+    BigDecimal sumSignedAmountsByLinkedBudgetId(@Param("budgetId") Long budgetId);
 
-    @Query( "SELECT t FROM Transaction t " +
-            "WHERE t.user = :user " +
-            "AND t.category.name IN :categories " +
-            "AND t.date >= :minDate")
-    List<Transaction> getTransactionsOfUserAfterGivenDate(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories,
-            @Param("minDate") Date minDate);
+    // Just what the concept search index needs of each of the user's transactions
+    @Query( "SELECT new org.mojodojocasahouse.extra.dto.model.TransactionConceptDTO(t.id, t.concept, t.date, t.category.id) " +
+            "FROM Transaction t " +
+            "WHERE t.user.id = :userId")
+    List<TransactionConceptDTO> findConceptsByUserId(@Param("userId") Long userId);
 
-    @Query( "SELECT t FROM Expense t " +
-            "WHERE t.user = :user " +
-            "AND t.category.name IN :categories " +
-            "AND t.date <= :maxDate")
-    List<Transaction> getTransactionsOfUserBeforeGivenDate(
-            @Param("user") ExtraUser user,
-            @Param("categories") List<String> categories,
-            @Param("maxDate") Date maxDate);
+    // What the transactions load eagerly is fetched along with them, instead of with a
+    // query per association
+    @EntityGraph(attributePaths = {"user.authorities", "category", "linkedBudget"})
+    List<Transaction> findAllByIdInAndUser(Collection<Long> ids, ExtraUser user);
 
 }
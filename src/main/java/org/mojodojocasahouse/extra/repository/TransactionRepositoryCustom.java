@@ -0,0 +1,17 @@
+package org.mojodojocasahouse.extra.repository;
+
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.model.Transaction;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.util.List;
+import java.util.stream.Stream;
+
+public interface TransactionRepositoryCustom {
+
+    Stream<Transaction> streamNewestFirst(Specification<Transaction> specification, Pageable page);
+
+    List<YearAmountDTO> getYearlySumOfTransactions(Specification<Transaction> specification);
+
+}
@@ -0,0 +1,67 @@
+package org.mojodojocasahouse.extra.repository;
+
+import jakarta.persistence.EntityManager;
+import jakarta.persistence.PersistenceContext;
+import jakarta.persistence.TypedQuery;
+import jakarta.persistence.criteria.*;
+import org.hibernate.jpa.HibernateHints;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.model.Transaction;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.stream.Stream;
+
+public class TransactionRepositoryCustomImpl implements TransactionRepositoryCustom {
+
+    // Rows are pulled from the JDBC cursor in chunks of this size while streaming
+    private static final int STREAM_FETCH_SIZE = 256;
+
+    @PersistenceContext
+    private EntityManager entityManager;
+
+    @Override
+    public Stream<Transaction> streamNewestFirst(Specification<Transaction> specification, Pageable page) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<Transaction> query = builder.createQuery(Transaction.class);
+        Root<Transaction> root = query.from(Transaction.class);
+        // Every row is rendered with its category, which would otherwise be loaded one by one
+        root.fetch("category");
+
+        where(query, specification.toPredicate(root, query, builder));
+        query.select(root).orderBy(builder.desc(root.get("date")), builder.desc(root.get("id")));
+
+        TypedQuery<Transaction> typedQuery = entityManager.createQuery(query)
+                .setHint(HibernateHints.HINT_FETCH_SIZE, STREAM_FETCH_SIZE)
+                .setHint(HibernateHints.HINT_READ_ONLY, true);
+        if (page.isPaged()) {
+            typedQuery.setFirstResult((int) page.getOffset()).setMaxResults(page.getPageSize());
+        }
+        return typedQuery.getResultStream();
+    }
+
+    @Override
+    public List<YearAmountDTO> getYearlySumOfTransactions(Specification<Transaction> specification) {
+        CriteriaBuilder builder = entityManager.getCriteriaBuilder();
+        CriteriaQuery<YearAmountDTO> query = builder.createQuery(YearAmountDTO.class);
+        Root<Transaction> root = query.from(Transaction.class);
+        Expression<Integer> year = builder.function("year", Integer.class, root.get("date"));
+        Expression<BigDecimal> amount = builder.sum(root.get("signedAmount"));
+
+        where(query, specification.toPredicate(root, query, builder));
+        query.select(builder.construct(YearAmountDTO.class, year, amount))
+                .groupBy(year)
+                .orderBy(builder.asc(year));
+
+        return entityManager.createQuery(query).getResultList();
+    }
+
+    private static void where(CriteriaQuery<?> query, Predicate predicate) {
+        if (predicate != null) {
+            query.where(predicate);
+        }
+    }
+
+}
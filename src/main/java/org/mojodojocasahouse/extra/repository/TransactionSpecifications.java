@@ -0,0 +1,73 @@
+package org.mojodojocasahouse.extra.repository;
+
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.Transaction;
+import org.springframework.data.jpa.domain.Specification;
+
+import java.sql.Date;
+import java.util.List;
+
+/**
+ * Building blocks for the filtered transaction queries. Filters that were not
+ * given produce no predicate at all, so the database only ever sees the
+ * conditions that actually restrict the result.
+ */
+public final class TransactionSpecifications {
+
+    private TransactionSpecifications() {}
+
+    public static <T extends Transaction> Specification<T> filteredBy(ExtraUser user,
+                                                                      List<Long> categoryIds,
+                                                                      Date from, Date until) {
+        return TransactionSpecifications.<T>ownedBy(user)
+                .and(inCategories(categoryIds))
+                .and(onOrAfter(from))
+                .and(onOrBefore(until));
+    }
+
+    public static <T extends Transaction> Specification<T> ownedBy(ExtraUser user) {
+        return (root, query, builder) -> builder.equal(root.get("user"), user);
+    }
+
+    // A null list does not filter by category, an empty one matches nothing.
+    // Compares the CATEGORY_ID column itself, without joining the categories.
+    public static <T extends Transaction> Specification<T> inCategories(List<Long> categoryIds) {
+        if (categoryIds == null) {
+            return (root, query, builder) -> null;
+        }
+        if (categoryIds.isEmpty()) {
+            return (root, query, builder) -> builder.disjunction();
+        }
+        return (root, query, builder) -> root.get("category").get("id").in(categoryIds);
+    }
+
+    public static <T extends Transaction> Specification<T> onOrAfter(Date from) {
+        if (from == null) {
+            return (root, query, builder) -> null;
+        }
+        return (root, query, builder) -> builder.greaterThanOrEqualTo(root.get("date"), from);
+    }
+
+    public static <T extends Transaction> Specification<T> onOrBefore(Date until) {
+        if (until == null) {
+            return (root, query, builder) -> null;
+        }
+        return (root, query, builder) -> builder.lessThanOrEqualTo(root.get("date"), until);
+    }
+
+    // Keyset condition for listings ordered by (date, id) descending: rows strictly after the cursor.
+    // The leading date bound is redundant but gives the index a range to seek to.
+    public static <T extends Transaction> Specification<T> after(Date cursorDate, Long cursorId) {
+        if (cursorDate == null || cursorId == null) {
+            return (root, query, builder) -> null;
+        }
+        return (root, query, builder) -> builder.and(
+                builder.lessThanOrEqualTo(root.get("date"), cursorDate),
+                builder.or(
+                        builder.lessThan(root.get("date"), cursorDate),
+                        builder.lessThan(root.get("id"), cursorId)
+                )
+        );
+    }
+
+}
@@ -1,11 +1,15 @@
 package org.mojodojocasahouse.extra.repository;
 
+import jakarta.transaction.Transactional;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.model.UserDevice;
 import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
 import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
 import org.springframework.stereotype.Repository;
 
+import java.util.Collection;
 import java.util.List;
 import java.util.Optional;
 
@@ -15,6 +19,16 @@ public interface UserDeviceRepository extends JpaRepository<UserDevice, Long> {
     @Query("SELECT d FROM UserDevice d WHERE d.user = :user")
     List<UserDevice> getDevicesOfUser(ExtraUser user);
 
+    // Devices of many users at once, with their users fetched in the same statement
+    @Query("SELECT d FROM UserDevice d JOIN FETCH d.user u WHERE u.id IN :userIds")
+    List<UserDevice> getDevicesOfUserIds(Collection<Long> userIds);
+
     Optional<UserDevice> findByFcmToken(String token);
 
+    // Tokens FCM reported as no longer valid, in a single statement
+    @Transactional(Transactional.TxType.REQUIRED)
+    @Modifying
+    @Query("DELETE FROM UserDevice d WHERE d.fcmToken IN :tokens")
+    int deleteByFcmTokenIn(@Param("tokens") Collection<String> tokens);
+
 }
@@ -0,0 +1,25 @@
+package org.mojodojocasahouse.extra.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.service.BudgetService;
+import org.quartz.DisallowConcurrentExecution;
+import org.quartz.JobExecutionContext;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.scheduling.quartz.QuartzJobBean;
+import org.springframework.stereotype.Component;
+
+@Slf4j
+@Component
+@DisallowConcurrentExecution
+public class BudgetReconciliationJob extends QuartzJobBean {
+
+    @Autowired
+    private BudgetService budgetService;
+
+    @Override
+    public void executeInternal(JobExecutionContext context) {
+        log.debug("Reconciling current amount of budgets");
+        budgetService.reconcileCurrentAmounts();
+    }
+
+}
@@ -0,0 +1,83 @@
+package org.mojodojocasahouse.extra.scheduling;
+
+import jakarta.annotation.PreDestroy;
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.model.DepositSweepNode;
+import org.mojodojocasahouse.extra.repository.DepositSweepNodeRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.List;
+import java.util.UUID;
+
+// This instance's lease in deposit_sweep_nodes. Every live instance sweeps its own partition
+// of the due investments; an instance that stops renewing its lease drops out of the count
+// once it expires, and its partition is taken over on the next sweeps. Instances should agree
+// on the time to within a small part of the lease duration.
+@Slf4j
+@Component
+public class DepositSweepNodeLease {
+
+    // Rows of instances gone for longer are deleted, the throughput of recent ones is kept
+    private static final Duration RETENTION = Duration.ofDays(1);
+
+    private final DepositSweepNodeRepository nodeRepository;
+
+    private final Duration leaseDuration;
+
+    private final String nodeId = UUID.randomUUID().toString();
+
+    public DepositSweepNodeLease(DepositSweepNodeRepository nodeRepository,
+                                 @Value("${extra.investment-deposits.lease-duration:30s}") Duration leaseDuration) {
+        this.nodeRepository = nodeRepository;
+        this.leaseDuration = leaseDuration;
+    }
+
+    public String getNodeId() {
+        return nodeId;
+    }
+
+    @Scheduled(fixedDelayString = "${extra.investment-deposits.heartbeat-interval:10s}")
+    @Transactional(Transactional.TxType.REQUIRED)
+    public void heartbeat() {
+        long now = System.currentTimeMillis();
+        DepositSweepNode node = nodeRepository
+                .findById(nodeId)
+                .orElseGet(() -> new DepositSweepNode(nodeId, new Timestamp(now)));
+        node.renewLease(new Timestamp(now + leaseDuration.toMillis()));
+        nodeRepository.save(node);
+        nodeRepository.deleteExpiredBefore(new Timestamp(now - RETENTION.toMillis()));
+    }
+
+    // Renews the lease first, so this instance always counts itself
+    @Transactional(Transactional.TxType.REQUIRED)
+    public Partition currentPartition() {
+        heartbeat();
+        List<String> liveNodeIds = nodeRepository.findLiveNodeIds(new Timestamp(System.currentTimeMillis()));
+        return new Partition(liveNodeIds.indexOf(nodeId), liveNodeIds.size());
+    }
+
+    @Transactional(Transactional.TxType.REQUIRED)
+    public void recordSweep(int deposits, long millis) {
+        nodeRepository
+                .findById(nodeId)
+                .ifPresent(node -> node.recordSweep(deposits, millis));
+    }
+
+    // Lets the other instances take over right away instead of once the lease expires
+    @PreDestroy
+    public void release() {
+        try {
+            nodeRepository.deleteById(nodeId);
+        } catch (RuntimeException e) {
+            log.error("There was an error releasing the deposit sweep lease: " + e.getMessage());
+        }
+    }
+
+    public record Partition(int index, int count) {}
+
+}
@@ -0,0 +1,51 @@
+package org.mojodojocasahouse.extra.scheduling;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.InvestmentSweepDTO;
+import org.mojodojocasahouse.extra.service.DepositService;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+
+// Deposits the returns of the due investments of this instance's partition, a chunk of
+// investments per transaction, until a chunk comes back short. Runs on every instance.
+@Slf4j
+@Component
+public class InvestmentDepositSweeper {
+
+    private final DepositService depositService;
+
+    private final DepositSweepNodeLease lease;
+
+    private final int chunkSize;
+
+    public InvestmentDepositSweeper(DepositService depositService,
+                                    DepositSweepNodeLease lease,
+                                    @Value("${extra.investment-deposits.sweep-chunk-size:1000}") int chunkSize) {
+        this.depositService = depositService;
+        this.lease = lease;
+        this.chunkSize = chunkSize;
+    }
+
+    @Scheduled(fixedDelayString = "${extra.investment-deposits.sweep-interval:1m}")
+    public void sweep() {
+        long start = System.currentTimeMillis();
+        Timestamp now = new Timestamp(start);
+        DepositSweepNodeLease.Partition partition = lease.currentPartition();
+
+        int deposits = 0;
+        InvestmentSweepDTO chunk;
+        do {
+            chunk = depositService.depositDueInvestmentReturns(now, partition.index(), partition.count(), chunkSize);
+            deposits += chunk.getDeposits();
+        } while (chunk.getClaimedInvestments() == chunkSize);
+
+        long millis = System.currentTimeMillis() - start;
+        lease.recordSweep(deposits, millis);
+        log.debug("Swept " + deposits + " investment deposits of partition " + partition.index() +
+                " of " + partition.count() + " in " + millis + " ms");
+    }
+
+}
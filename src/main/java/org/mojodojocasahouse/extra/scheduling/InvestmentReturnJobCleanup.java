@@ -0,0 +1,44 @@
+package org.mojodojocasahouse.extra.scheduling;
+
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.quartz.JobKey;
+import org.quartz.Scheduler;
+import org.quartz.SchedulerException;
+import org.quartz.impl.matchers.GroupMatcher;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.stereotype.Component;
+
+import java.util.ArrayList;
+import java.util.List;
+
+// Investments used to be deposited by a job of their own, stored in the job store under the
+// INVESTMENTS group, and later by a single sweep job in the INVESTMENT_DEPOSITS group.
+// InvestmentDepositSweeper does their work on every instance now, so any left are removed.
+@Slf4j
+@Component
+@RequiredArgsConstructor
+public class InvestmentReturnJobCleanup {
+
+    private static final List<String> LEGACY_JOB_GROUPS = List.of("INVESTMENTS", "INVESTMENT_DEPOSITS");
+
+    private final Scheduler scheduler;
+
+    @EventListener(ApplicationReadyEvent.class)
+    public void removeInvestmentReturnJobs() {
+        try {
+            List<JobKey> jobs = new ArrayList<>();
+            for (String group : LEGACY_JOB_GROUPS) {
+                jobs.addAll(scheduler.getJobKeys(GroupMatcher.jobGroupEquals(group)));
+            }
+            if (!jobs.isEmpty()) {
+                scheduler.deleteJobs(jobs);
+                log.info("Removed " + jobs.size() + " investment return jobs replaced by the deposit sweeper");
+            }
+        } catch (SchedulerException e) {
+            log.error("There was an error removing the investment return jobs: " + e.getMessage());
+        }
+    }
+
+}
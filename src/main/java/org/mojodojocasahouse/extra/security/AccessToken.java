@@ -0,0 +1,16 @@
+package org.mojodojocasahouse.extra.security;
+
+import lombok.AllArgsConstructor;
+import lombok.Getter;
+
+import java.time.Instant;
+
+@Getter
+@AllArgsConstructor
+public class AccessToken {
+
+    private final String token;
+
+    private final Instant expiresAt;
+
+}
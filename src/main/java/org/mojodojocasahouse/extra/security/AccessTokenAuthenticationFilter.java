@@ -0,0 +1,51 @@
+package org.mojodojocasahouse.extra.security;
+
+import jakarta.servlet.FilterChain;
+import jakarta.servlet.ServletException;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import lombok.RequiredArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.springframework.http.HttpHeaders;
+import org.springframework.lang.NonNull;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.core.context.SecurityContext;
+import org.springframework.security.core.context.SecurityContextHolder;
+import org.springframework.web.filter.OncePerRequestFilter;
+
+import java.io.IOException;
+
+// Authenticates "Authorization: Bearer <token>" requests. Invalid tokens are ignored, leaving the
+// request unauthenticated so protected endpoints answer through the usual entry point.
+@Slf4j
+@RequiredArgsConstructor
+public class AccessTokenAuthenticationFilter extends OncePerRequestFilter {
+
+    private static final String BEARER_PREFIX = "Bearer ";
+
+    private final AccessTokenService accessTokenService;
+
+    @Override
+    protected void doFilterInternal(@NonNull HttpServletRequest request,
+                                    @NonNull HttpServletResponse response,
+                                    @NonNull FilterChain filterChain) throws ServletException, IOException {
+        String header = request.getHeader(HttpHeaders.AUTHORIZATION);
+
+        if (header != null && header.regionMatches(true, 0, BEARER_PREFIX, 0, BEARER_PREFIX.length())) {
+            accessTokenService
+                    .verify(header.substring(BEARER_PREFIX.length()).trim())
+                    .ifPresentOrElse(
+                            details -> {
+                                SecurityContext context = SecurityContextHolder.createEmptyContext();
+                                context.setAuthentication(UsernamePasswordAuthenticationToken.authenticated(
+                                        details, null, details.getAuthorities()));
+                                SecurityContextHolder.setContext(context);
+                            },
+                            () -> log.debug("Rejected an invalid or expired access token")
+                    );
+        }
+
+        filterChain.doFilter(request, response);
+    }
+
+}
@@ -0,0 +1,173 @@
+package org.mojodojocasahouse.extra.security;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import lombok.AllArgsConstructor;
+import lombok.Data;
+import lombok.NoArgsConstructor;
+import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.model.Authority;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.security.core.authority.SimpleGrantedAuthority;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.core.userdetails.UsernameNotFoundException;
+import org.springframework.stereotype.Component;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.io.IOException;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.MessageDigest;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.time.Instant;
+import java.util.Arrays;
+import java.util.Base64;
+import java.util.List;
+import java.util.Optional;
+import java.util.Set;
+import java.util.stream.Collectors;
+
+// Issues and verifies short-lived bearer tokens: base64url(claims) "." base64url(HMAC-SHA256(claims)).
+// Verifying one is a single HMAC, with no password hashing. The claims carry a fingerprint of the
+// user's password hash, checked against the cached user, so changing the password revokes the
+// tokens issued before; the database is only read when the user is not cached.
+@Slf4j
+@Component
+public class AccessTokenService {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private static final Base64.Encoder ENCODER = Base64.getUrlEncoder().withoutPadding();
+
+    private static final Base64.Decoder DECODER = Base64.getUrlDecoder();
+
+    private static final int CREDENTIAL_FINGERPRINT_BYTES = 16;
+
+    private final ObjectMapper objectMapper = new ObjectMapper();
+
+    private final SecretKeySpec key;
+
+    private final Duration timeToLive;
+
+    private final UserDetailsService userDetailsService;
+
+    public AccessTokenService(@Value("${extra.security.access-token.secret:}") String secret,
+                              @Value("${extra.security.access-token.time-to-live:15m}") Duration timeToLive,
+                              UserDetailsService userDetailsService) {
+        this.key = new SecretKeySpec(secretBytes(secret), ALGORITHM);
+        this.timeToLive = timeToLive;
+        this.userDetailsService = userDetailsService;
+    }
+
+    public AccessToken issue(ExtraUser user) {
+        Instant expiresAt = Instant.now().plus(timeToLive);
+        Set<Authority> authorities = user.getAuthorities() == null ? Set.of() : user.getAuthorities();
+        Claims claims = new Claims(
+                user.getId(),
+                user.getEmail(),
+                authorities.stream().map(Authority::getRole).collect(Collectors.toList()),
+                expiresAt.getEpochSecond(),
+                credentialFingerprint(user.getPassword())
+        );
+
+        try {
+            String payload = ENCODER.encodeToString(objectMapper.writeValueAsBytes(claims));
+            return new AccessToken(payload + "." + ENCODER.encodeToString(sign(payload)), expiresAt);
+        } catch (IOException e) {
+            throw new IllegalStateException("Could not write access token claims", e);
+        }
+    }
+
+    // Empty when the token is malformed, tampered with, expired or issued before a password change
+    public Optional<ExtraUserDetails> verify(String token) {
+        int separator = token.indexOf('.');
+        if (separator < 0) {
+            return Optional.empty();
+        }
+        String payload = token.substring(0, separator);
+
+        try {
+            byte[] signature = DECODER.decode(token.substring(separator + 1));
+            if (!MessageDigest.isEqual(signature, sign(payload))) {
+                return Optional.empty();
+            }
+
+            Claims claims = objectMapper.readValue(DECODER.decode(payload), Claims.class);
+            if (Instant.now().getEpochSecond() >= claims.getExpiresAt() || !isCurrentCredential(claims)) {
+                return Optional.empty();
+            }
+
+            return Optional.of(new ExtraUserDetails(
+                    claims.getUserId(),
+                    claims.getEmail(),
+                    claims.getRoles().stream().map(SimpleGrantedAuthority::new).collect(Collectors.toSet())
+            ));
+        } catch (IllegalArgumentException | IOException e) {
+            return Optional.empty();
+        }
+    }
+
+    private boolean isCurrentCredential(Claims claims) {
+        if (claims.getCredential() == null) {
+            return false;
+        }
+
+        try {
+            String current = credentialFingerprint(userDetailsService.loadUserByUsername(claims.getEmail()).getPassword());
+            return MessageDigest.isEqual(
+                    claims.getCredential().getBytes(StandardCharsets.US_ASCII),
+                    current.getBytes(StandardCharsets.US_ASCII)
+            );
+        } catch (UsernameNotFoundException e) {
+            return false;
+        }
+    }
+
+    // Keyed, so that the readable claims give nothing away about the password hash
+    private String credentialFingerprint(String passwordHash) {
+        byte[] digest = sign("credential:" + (passwordHash == null ? "" : passwordHash));
+        return ENCODER.encodeToString(Arrays.copyOf(digest, CREDENTIAL_FINGERPRINT_BYTES));
+    }
+
+    private byte[] sign(String payload) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(key);
+            return mac.doFinal(payload.getBytes(StandardCharsets.US_ASCII));
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not sign access token", e);
+        }
+    }
+
+    private static byte[] secretBytes(String secret) {
+        if (secret != null && !secret.isBlank()) {
+            return Base64.getDecoder().decode(secret);
+        }
+
+        // Tokens then only verify on this instance and until it restarts
+        log.warn("No access token secret configured, using a random one");
+        byte[] randomSecret = new byte[32];
+        new SecureRandom().nextBytes(randomSecret);
+        return randomSecret;
+    }
+
+    @Data
+    @NoArgsConstructor
+    @AllArgsConstructor
+    static class Claims {
+
+        private Long userId;
+
+        private String email;
+
+        private List<String> roles;
+
+        private long expiresAt;
+
+        private String credential;
+
+    }
+
+}
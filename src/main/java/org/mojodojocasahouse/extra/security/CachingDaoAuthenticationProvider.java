@@ -0,0 +1,83 @@
+package org.mojodojocasahouse.extra.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.AuthenticationException;
+import org.springframework.security.core.userdetails.UserDetails;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.password.PasswordEncoder;
+
+import javax.crypto.Mac;
+import javax.crypto.spec.SecretKeySpec;
+import java.nio.charset.StandardCharsets;
+import java.security.GeneralSecurityException;
+import java.security.SecureRandom;
+import java.time.Duration;
+import java.util.Base64;
+
+// Remembers credentials that already passed the (deliberately slow) password check, so HTTP Basic
+// clients sending the same credentials on every request only pay for it once per time-to-live.
+// Entries are keyed by a keyed fast hash of username, password and stored hash; raw passwords are
+// never kept, and changing the password changes the stored hash and so misses the cache.
+public class CachingDaoAuthenticationProvider extends DaoAuthenticationProvider {
+
+    private static final String ALGORITHM = "HmacSHA256";
+
+    private final Cache<String, Boolean> verifiedCredentials;
+
+    private final SecretKeySpec salt;
+
+    public CachingDaoAuthenticationProvider(UserDetailsService userDetailsService,
+                                            PasswordEncoder passwordEncoder,
+                                            long maximumSize,
+                                            Duration timeToLive) {
+        super(passwordEncoder);
+        setUserDetailsService(userDetailsService);
+
+        byte[] randomSalt = new byte[32];
+        new SecureRandom().nextBytes(randomSalt);
+        this.salt = new SecretKeySpec(randomSalt, ALGORITHM);
+        this.verifiedCredentials = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(timeToLive)
+                .build();
+    }
+
+    @Override
+    protected void additionalAuthenticationChecks(UserDetails userDetails,
+                                                  UsernamePasswordAuthenticationToken authentication)
+            throws AuthenticationException {
+        if (authentication.getCredentials() == null || userDetails.getPassword() == null) {
+            super.additionalAuthenticationChecks(userDetails, authentication);
+            return;
+        }
+
+        String key = fingerprint(userDetails, authentication.getCredentials().toString());
+        if (verifiedCredentials.getIfPresent(key) != null) {
+            return;
+        }
+
+        super.additionalAuthenticationChecks(userDetails, authentication);
+        verifiedCredentials.put(key, Boolean.TRUE);
+    }
+
+    private String fingerprint(UserDetails userDetails, String presentedPassword) {
+        try {
+            Mac mac = Mac.getInstance(ALGORITHM);
+            mac.init(salt);
+            // Length-prefixed so no two different triples hash the same input
+            for (String part : new String[]{userDetails.getUsername(), presentedPassword, userDetails.getPassword()}) {
+                byte[] bytes = part.getBytes(StandardCharsets.UTF_8);
+                mac.update(Integer.toString(bytes.length).getBytes(StandardCharsets.US_ASCII));
+                mac.update((byte) ':');
+                mac.update(bytes);
+            }
+            return Base64.getEncoder().encodeToString(mac.doFinal());
+        } catch (GeneralSecurityException e) {
+            throw new IllegalStateException("Could not fingerprint credentials", e);
+        }
+    }
+
+}
@@ -0,0 +1,56 @@
+package org.mojodojocasahouse.extra.security;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.function.Function;
+
+// Users resolved by email, shared by authentication and by the controllers that look up
+// the authenticated user. Entries must be invalidated whenever the user's password changes;
+// the expiry only bounds staleness of changes made by other instances. Each caller gets a
+// copy of its own, so that changes made by one request never reach the cached user.
+@Component
+public class ExtraUserCache {
+
+    private final Cache<String, ExtraUser> users;
+
+    public ExtraUserCache(@Value("${extra.security.user-cache.maximum-size:10000}") long maximumSize,
+                          @Value("${extra.security.user-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.users = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    // Unknown users (loader returning null) are not cached, so they can register afterwards
+    public ExtraUser get(String email, Function<String, ExtraUser> loader) {
+        ExtraUser cached = users.get(email, missing -> {
+            ExtraUser loaded = loader.apply(missing);
+            return loaded == null ? null : loaded.copy();
+        });
+        return cached == null ? null : cached.copy();
+    }
+
+    // Deferred until the surrounding transaction commits, so that a concurrent request cannot
+    // cache the user from before the change again
+    public void invalidate(String email) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            users.invalidate(email);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                users.invalidate(email);
+            }
+        });
+    }
+
+}
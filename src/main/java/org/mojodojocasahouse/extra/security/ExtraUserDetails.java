@@ -13,6 +13,8 @@ import java.util.stream.Collectors;
 
 public class ExtraUserDetails implements UserDetails {
 
+    private Long userId;
+
     private String email;
 
     private String password;
@@ -21,13 +23,26 @@ public class ExtraUserDetails implements UserDetails {
 
     private Boolean active;
 
-    public ExtraUserDetails(String email, String password, Set<Authority> authorities, Boolean active){
+    public ExtraUserDetails(Long userId, String email, String password, Set<Authority> authorities, Boolean active){
+        this.userId = userId;
         this.email = email;
         this.password = password;
         this.authorities = convertToSpringAuthorities(authorities);
         this.active = active;
     }
 
+    // Authenticated by access token, so there is no password to check
+    public ExtraUserDetails(Long userId, String email, Collection<? extends GrantedAuthority> authorities){
+        this.userId = userId;
+        this.email = email;
+        this.authorities = authorities;
+        this.active = true;
+    }
+
+    public Long getUserId() {
+        return this.userId;
+    }
+
     @Override
     public Collection<? extends GrantedAuthority> getAuthorities() {
         return this.authorities;
@@ -65,6 +80,7 @@ public class ExtraUserDetails implements UserDetails {
 
     public static ExtraUserDetails from(ExtraUser user){
         return new ExtraUserDetails(
+                user.getId(),
                 user.getEmail(),
                 user.getPassword(),
                 user.getAuthorities(),
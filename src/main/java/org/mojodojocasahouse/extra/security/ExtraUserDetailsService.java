@@ -14,13 +14,14 @@ public class ExtraUserDetailsService implements UserDetailsService {
 
     private final ExtraUserRepository userRepository;
 
+    private final ExtraUserCache userCache;
+
     @Override
     public UserDetails loadUserByUsername(String username) throws UsernameNotFoundException {
-        ExtraUser foundUser = userRepository
-                .findByEmail(username)
-                .orElseThrow(
-                        () -> new UsernameNotFoundException("User email: " + username + " not found.")
-                );
+        ExtraUser foundUser = userCache.get(username, email -> userRepository.findByEmail(email).orElse(null));
+        if (foundUser == null) {
+            throw new UsernameNotFoundException("User email: " + username + " not found.");
+        }
 
         return ExtraUserDetails.from(foundUser);
     }
@@ -0,0 +1,135 @@
+package org.mojodojocasahouse.extra.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.mojodojocasahouse.extra.dto.model.BudgetIntervalDTO;
+import org.mojodojocasahouse.extra.model.Budget;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.BudgetRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.*;
+
+// Date ranges of every budget, per user and category, answering which budget covers a date.
+// A user and category's budgets are loaded on first use; budgets created here are added once
+// their transaction commits. Budgets cannot be edited or deleted, so creation is the only change
+// to track. A budget created by another instance may be missing until the entry expires, so a
+// date no budget covers is checked against the database before it is trusted, at most once per
+// user and category in each transaction. Only dates a budget covers are answered without
+// querying: a category without budgets costs one query in every transaction writing to it.
+@Component
+public class ActiveBudgetIndex {
+
+    private final BudgetRepository budgetRepository;
+
+    private final Cache<Key, BudgetIntervals> intervals;
+
+    public ActiveBudgetIndex(BudgetRepository budgetRepository,
+                             @Value("${extra.active-budget-index.maximum-size:50000}") long maximumSize,
+                             @Value("${extra.active-budget-index.expire-after-write:5m}") Duration expireAfterWrite) {
+        this.budgetRepository = budgetRepository;
+        this.intervals = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    public Optional<Long> findActiveBudgetId(ExtraUser user, Category category, Date date) {
+        Key key = new Key(user.getId(), category.getId());
+        boolean[] loaded = {false};
+        Optional<BudgetIntervalDTO> covering = intervals
+                .get(key, missing -> {
+                    loaded[0] = true;
+                    return load(missing);
+                })
+                .findCovering(date);
+        boolean firstCheck = markChecked(key);
+        if (covering.isEmpty() && firstCheck && !loaded[0]) {
+            BudgetIntervals reloaded = load(key);
+            intervals.put(key, reloaded);
+            covering = reloaded.findCovering(date);
+        }
+        return covering.map(BudgetIntervalDTO::getId);
+    }
+
+    public void add(Budget budget) {
+        Key key = new Key(budget.getUser().getId(), budget.getCategory().getId());
+        BudgetIntervalDTO interval = new BudgetIntervalDTO(budget.getId(), budget.getStartingDate(), budget.getLimitDate());
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            addInterval(key, interval);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                addInterval(key, interval);
+            }
+        });
+    }
+
+    // Pairs that are not loaded yet will read the new budget from the database anyway
+    private void addInterval(Key key, BudgetIntervalDTO interval) {
+        intervals.asMap().computeIfPresent(key, (k, current) -> current.with(interval));
+    }
+
+    // Whether the user and category were not checked against the database yet in the current
+    // transaction. Within one, a repeated check would not see budgets committed since anyway.
+    @SuppressWarnings("unchecked")
+    private boolean markChecked(Key key) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            return true;
+        }
+
+        Set<Key> checked = (Set<Key>) TransactionSynchronizationManager.getResource(this);
+        if (checked == null) {
+            checked = new HashSet<>();
+            TransactionSynchronizationManager.bindResource(this, checked);
+            TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+                @Override
+                public void afterCompletion(int status) {
+                    TransactionSynchronizationManager.unbindResourceIfPossible(ActiveBudgetIndex.this);
+                }
+            });
+        }
+        return checked.add(key);
+    }
+
+    private BudgetIntervals load(Key key) {
+        return new BudgetIntervals(budgetRepository.findBudgetIntervalsByUserIdAndCategoryId(key.userId(), key.categoryId()));
+    }
+
+    private record Key(Long userId, Long categoryId) {}
+
+    // Immutable, so readers never see a half-applied change. Budgets of the same user and
+    // category do not overlap, so only the latest one starting on or before a date can cover it.
+    private static final class BudgetIntervals {
+
+        private final TreeMap<Date, BudgetIntervalDTO> byStartingDate = new TreeMap<>();
+
+        private BudgetIntervals(Iterable<BudgetIntervalDTO> intervals) {
+            intervals.forEach(interval -> byStartingDate.put(interval.getStartingDate(), interval));
+        }
+
+        private BudgetIntervals with(BudgetIntervalDTO interval) {
+            BudgetIntervals copy = new BudgetIntervals(byStartingDate.values());
+            copy.byStartingDate.put(interval.getStartingDate(), interval);
+            return copy;
+        }
+
+        private Optional<BudgetIntervalDTO> findCovering(Date date) {
+            return Optional
+                    .ofNullable(byStartingDate.floorEntry(date))
+                    .map(Map.Entry::getValue)
+                    .filter(interval -> interval.covers(date));
+        }
+
+    }
+
+}
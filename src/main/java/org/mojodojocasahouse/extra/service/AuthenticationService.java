@@ -7,7 +7,6 @@ import jakarta.validation.Valid;
 
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.checkerframework.checker.units.qual.A;
 import org.mojodojocasahouse.extra.dto.requests.*;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
 import org.mojodojocasahouse.extra.exception.EmailException;
@@ -17,16 +16,22 @@ import org.mojodojocasahouse.extra.model.*;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
 import org.mojodojocasahouse.extra.repository.PasswordResetTokenRepository;
 import org.mojodojocasahouse.extra.repository.UserDeviceRepository;
+import org.mojodojocasahouse.extra.security.AccessToken;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
+import org.mojodojocasahouse.extra.security.ExtraUserDetails;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mail.MailException;
 import org.springframework.mail.javamail.JavaMailSender;
 import org.springframework.mail.javamail.MimeMessageHelper;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.core.Authentication;
 import org.springframework.security.crypto.password.PasswordEncoder;
 import org.springframework.stereotype.Service;
 
 import java.security.Principal;
 import java.sql.Timestamp;
+import java.util.List;
 import java.util.Optional;
 
 @Slf4j
@@ -42,6 +47,12 @@ public class AuthenticationService {
     private final PasswordResetTokenRepository tokenRepository;
     private final UserDeviceRepository deviceRepository;
 
+    private final ExtraUserCache userCache;
+
+    private final DeviceTokenCache deviceTokenCache;
+
+    private final AccessTokenService accessTokenService;
+
 
     public ApiResponse registerUser(UserRegistrationRequest userRegistrationRequest)
         throws ExistingUserEmailException {
@@ -62,7 +73,25 @@ public class AuthenticationService {
     }
 
     public ExtraUser getUserByPrincipal(Principal principal) throws RuntimeException{
-        return userRepository.findByEmail(principal.getName()).orElseThrow(RuntimeException::new);
+        ExtraUser user = userCache.get(principal.getName(), email -> loadUserOf(principal));
+        if (user == null) {
+            throw new RuntimeException();
+        }
+        return user;
+    }
+
+    public AccessToken issueAccessToken(ExtraUser user) {
+        return accessTokenService.issue(user);
+    }
+
+    private ExtraUser loadUserOf(Principal principal) {
+        // Principals authenticated by us already carry the user's id
+        if (principal instanceof Authentication authentication
+                && authentication.getPrincipal() instanceof ExtraUserDetails details
+                && details.getUserId() != null) {
+            return userRepository.findById(details.getUserId()).orElse(null);
+        }
+        return userRepository.findByEmail(principal.getName()).orElse(null);
     }
 
 
@@ -72,6 +101,7 @@ public class AuthenticationService {
                 .ifPresent(s -> {throw new ExistingUserEmailException();});
     }
 
+    @Transactional(Transactional.TxType.REQUIRED)
     public ApiResponse changePassword(ExtraUser user, @Valid UserChangePasswordRequest userChangePasswordRequest) {
         // Function that given the correct old password, sets a new one for the given user
         // if the old password is incorrect, it returns an error
@@ -85,6 +115,7 @@ public class AuthenticationService {
         log.debug("Authentication success, changing password...");
         user.setPassword(newPassword);
         userRepository.save(user);
+        userCache.invalidate(user.getEmail());
 
         return new ApiResponse("Password changed successfully");
     }
@@ -204,6 +235,7 @@ public class AuthenticationService {
         mailSender.send(message);
     }
 
+    @Transactional(Transactional.TxType.REQUIRED)
     public ApiResponse resetPassword(PasswordResetRequest request) throws InvalidPasswordResetTokenException{
         PasswordResetToken
                 token = tokenRepository
@@ -215,6 +247,7 @@ public class AuthenticationService {
         ExtraUser changingUser = token.getUser();
         changingUser.setPassword(newPassword);
         userRepository.save(changingUser);
+        userCache.invalidate(changingUser.getEmail());
 
         return new ApiResponse("Password changed successfully");
     }
@@ -226,6 +259,7 @@ public class AuthenticationService {
         if (foundDevice.isPresent()) {
             log.debug("Device is already registered, updating user information");
             UserDevice device = foundDevice.get();
+            deviceTokenCache.invalidateAll(List.of(device.getUser().getId(), user.getId()));
             device.setUser(user);
             device.setModified(new Timestamp(System.currentTimeMillis()));
         } else {
@@ -233,6 +267,7 @@ public class AuthenticationService {
             deviceRepository.save(
                     new UserDevice(request.getToken(), user)
             );
+            deviceTokenCache.invalidateAll(List.of(user.getId()));
         }
 
         return new ApiResponse("Device registered successfully");
@@ -251,6 +286,7 @@ public class AuthenticationService {
         }
 
         deviceRepository.delete(foundDevice.get());
+        deviceTokenCache.invalidateAll(List.of(foundDevice.get().getUser().getId()));
         return new ApiResponse("Device was removed successfully");
     }
 
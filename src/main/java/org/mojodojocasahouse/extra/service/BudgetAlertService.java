@@ -0,0 +1,75 @@
+package org.mojodojocasahouse.extra.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.BudgetSpendingDTO;
+import org.mojodojocasahouse.extra.repository.BudgetRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Optional;
+
+// Detects when spending added to a budget crosses one of the alert thresholds, given as
+// percentages of its limit amount. The budget's running total is already up to date, so
+// the total before the change is just the added amount less.
+@Slf4j
+@Service
+public class BudgetAlertService {
+
+    private static final BigDecimal ONE_HUNDRED = BigDecimal.valueOf(100);
+
+    private final BudgetRepository budgetRepository;
+
+    private final NotificationOutbox notificationOutbox;
+
+    // Highest first
+    private final List<Integer> thresholds;
+
+    public BudgetAlertService(BudgetRepository budgetRepository,
+                              NotificationOutbox notificationOutbox,
+                              @Value("${extra.budget-alerts.thresholds:80,100}") List<Integer> thresholds) {
+        this.budgetRepository = budgetRepository;
+        this.notificationOutbox = notificationOutbox;
+        this.thresholds = thresholds.stream().sorted(Comparator.reverseOrder()).toList();
+    }
+
+    public void checkThresholds(Long budgetId, BigDecimal addedAmount) {
+        if (addedAmount.signum() <= 0) {
+            return;
+        }
+
+        budgetRepository
+                .findBudgetSpendingById(budgetId)
+                .ifPresent(spending -> highestCrossedThreshold(spending, addedAmount)
+                        .ifPresent(threshold -> enqueue(new BudgetAlertDTO(
+                                spending.getUserId(),
+                                spending.getBudgetId(),
+                                spending.getName(),
+                                threshold
+                        ))));
+    }
+
+    private Optional<Integer> highestCrossedThreshold(BudgetSpendingDTO spending, BigDecimal addedAmount) {
+        BigDecimal after = spending.getCurrentAmount();
+        BigDecimal before = after.subtract(addedAmount);
+        return thresholds
+                .stream()
+                .filter(threshold -> {
+                    BigDecimal amount = spending.getLimitAmount()
+                            .multiply(BigDecimal.valueOf(threshold))
+                            .divide(ONE_HUNDRED);
+                    return before.compareTo(amount) < 0 && after.compareTo(amount) >= 0;
+                })
+                .findFirst();
+    }
+
+    // In the transaction of the spending, so only alerts of committed spending are sent
+    private void enqueue(BudgetAlertDTO alert) {
+        log.debug("Budget " + alert.getBudgetId() + " reached " + alert.getThreshold() + "% of its limit");
+        notificationOutbox.addBudgetAlert(alert);
+    }
+
+}
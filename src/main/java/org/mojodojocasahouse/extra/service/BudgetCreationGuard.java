@@ -0,0 +1,50 @@
+package org.mojodojocasahouse.extra.service;
+
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.repository.CategoryRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.locks.ReentrantLock;
+
+// Serializes budget creation per category (categories belong to a single user), so the
+// overlap check and the insert of one request cannot interleave with another's.
+// Requests on the same instance queue on one of a fixed set of striped locks, and
+// requests across instances on a row lock of the category. Both are held until the
+// surrounding transaction ends, so the next request sees the committed budget.
+@Component
+public class BudgetCreationGuard {
+
+    private final CategoryRepository categoryRepository;
+
+    private final ReentrantLock[] stripes;
+
+    public BudgetCreationGuard(CategoryRepository categoryRepository,
+                               @Value("${extra.budget-creation.lock-stripes:64}") int stripeCount) {
+        this.categoryRepository = categoryRepository;
+        this.stripes = new ReentrantLock[stripeCount];
+        for (int i = 0; i < stripeCount; i++) {
+            stripes[i] = new ReentrantLock();
+        }
+    }
+
+    public void acquire(Category category) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            throw new IllegalStateException("Budget creation must run inside a transaction");
+        }
+
+        ReentrantLock lock = stripes[Math.floorMod(category.getId().hashCode(), stripes.length)];
+        lock.lock();
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCompletion(int status) {
+                lock.unlock();
+            }
+        });
+
+        categoryRepository.lockById(category.getId());
+    }
+
+}
@@ -3,14 +3,26 @@ package org.mojodojocasahouse.extra.service;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 
+import java.math.BigDecimal;
+import java.math.RoundingMode;
 import java.sql.Date;
+import java.time.LocalDate;
+import java.time.temporal.ChronoUnit;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.ActiveBudgetLookupDTO;
 import org.mojodojocasahouse.extra.dto.model.BudgetDTO;
+import org.mojodojocasahouse.extra.dto.model.CategoryDTO;
+import org.mojodojocasahouse.extra.dto.model.BudgetForecastDTO;
+import org.mojodojocasahouse.extra.dto.model.DailyAmountDTO;
+import org.mojodojocasahouse.extra.dto.requests.ActiveBudgetRequest;
 import org.mojodojocasahouse.extra.dto.requests.BudgetAddingRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.exception.BudgetAccessDeniedException;
 import org.mojodojocasahouse.extra.exception.BudgetNotFoundException;
 import org.mojodojocasahouse.extra.exception.ConflictingBudgetException;
 import org.mojodojocasahouse.extra.model.*;
@@ -28,6 +40,10 @@ public class BudgetService {
 
     private final CategoryService categoryService;
 
+    private final ActiveBudgetIndex activeBudgetIndex;
+
+    private final BudgetCreationGuard budgetCreationGuard;
+
     @Transactional(Transactional.TxType.REQUIRED)
     public ApiResponse addBudget(
             ExtraUser user,
@@ -42,10 +58,14 @@ public class BudgetService {
         // Create budget entity from request data
         Budget newBudget = Budget.from(budgetAddingRequest, category, user);
 
+        // Held until commit, so a concurrent request for the same category checks for
+        // overlaps only after this budget is visible
+        budgetCreationGuard.acquire(category);
         this.verifyNoOverlappingBudgets(newBudget);
 
         // Save new budget
         Budget savedBudget = budgetRepository.save(newBudget);
+        activeBudgetIndex.add(savedBudget);
 
         this.updateTransactionsWithBudget(savedBudget);
 
@@ -53,11 +73,7 @@ public class BudgetService {
     }
 
     public List<BudgetDTO> getAllBudgetsByUserId(ExtraUser user) {
-        List<Budget> budgetObjects = budgetRepository.findAllBudgetsByUser(user);
-        return budgetObjects
-                .stream()
-                .map(Budget::asDto)
-                .collect(Collectors.toList());
+        return budgetRepository.findAllBudgetDtosByUser(user);
     }
 
     public BudgetDTO getBudgetById(Long id) throws BudgetNotFoundException {
@@ -67,6 +83,62 @@ public class BudgetService {
                 .asDto();
     }
 
+    // Spend so far and its projection to the end of the budget, from the per-day totals of the
+    // linked transactions. Spend is counted up to today, or the limit date once it has passed.
+    public BudgetForecastDTO getBudgetForecast(ExtraUser user, Long id, LocalDate today)
+            throws BudgetNotFoundException, BudgetAccessDeniedException {
+        Budget budget = budgetRepository
+                .findById(id)
+                .orElseThrow(BudgetNotFoundException::new);
+        if (!budget.getUser().getId().equals(user.getId())) {
+            throw new BudgetAccessDeniedException();
+        }
+
+        LocalDate startingDate = budget.getStartingDate().toLocalDate();
+        LocalDate limitDate = budget.getLimitDate().toLocalDate();
+        LocalDate lastCountedDay = today.isAfter(limitDate) ? limitDate : today;
+        long elapsedDays = Math.max(0, ChronoUnit.DAYS.between(startingDate, lastCountedDay) + 1);
+        long remainingDays = ChronoUnit.DAYS.between(lastCountedDay, limitDate);
+
+        BigDecimal spentToDate = BigDecimal.ZERO;
+        LocalDate reachedLimitOn = null;
+        for (DailyAmountDTO day : transactionRepository.sumSignedAmountsByDayByLinkedBudgetId(id)) {
+            if (day.getDate().toLocalDate().isAfter(lastCountedDay)) {
+                break;
+            }
+            spentToDate = spentToDate.subtract(day.getAmount());
+            if (reachedLimitOn == null && spentToDate.compareTo(budget.getLimitAmount()) >= 0) {
+                reachedLimitOn = day.getDate().toLocalDate();
+            }
+        }
+
+        BigDecimal dailyBurnRate = elapsedDays == 0
+                ? BigDecimal.ZERO
+                : spentToDate.divide(BigDecimal.valueOf(elapsedDays), 2, RoundingMode.HALF_UP);
+        BigDecimal projectedTotal = spentToDate
+                .add(dailyBurnRate.multiply(BigDecimal.valueOf(remainingDays)))
+                .setScale(2, RoundingMode.HALF_UP);
+
+        LocalDate projectedExhaustionDate = reachedLimitOn;
+        if (projectedExhaustionDate == null && dailyBurnRate.signum() > 0) {
+            long daysToExhaustion = budget.getLimitAmount()
+                    .subtract(spentToDate)
+                    .divide(dailyBurnRate, 0, RoundingMode.CEILING)
+                    .longValueExact();
+            LocalDate exhaustion = lastCountedDay.plusDays(daysToExhaustion);
+            projectedExhaustionDate = exhaustion.isAfter(limitDate) ? null : exhaustion;
+        }
+
+        return new BudgetForecastDTO(
+                budget.getId(),
+                budget.getLimitAmount(),
+                spentToDate,
+                dailyBurnRate,
+                projectedTotal,
+                projectedExhaustionDate == null ? null : projectedExhaustionDate.toString()
+        );
+    }
+
     public BudgetDTO getActiveBudgetByCategoryAndDate(ExtraUser user, Category category, Date date){
         Budget activeBudget = budgetRepository
                 .findActiveBudgetByUserAndCategoryAndDate(user, category, date)
@@ -81,6 +153,41 @@ public class BudgetService {
         return activeBudget.asDto();
     }
 
+    // Resolves every lookup with a single query, answering them in the order they were given
+    public List<ActiveBudgetLookupDTO> getActiveBudgetsByCategoriesAndDates(ExtraUser user,
+                                                                           List<ActiveBudgetRequest> lookups) {
+        Set<String> categoryNames = lookups
+                .stream()
+                .map(lookup -> lookup.getCategory().getName())
+                .collect(Collectors.toSet());
+        Map<CategoryDTO, List<BudgetDTO>> budgetsByCategory = budgetRepository
+                .findBudgetDtosByUserAndCategoryNamesOverlapping(
+                        user,
+                        categoryNames,
+                        lookups.stream().map(ActiveBudgetRequest::getDate).min(Date::compareTo).orElseThrow(),
+                        lookups.stream().map(ActiveBudgetRequest::getDate).max(Date::compareTo).orElseThrow())
+                .stream()
+                .collect(Collectors.groupingBy(BudgetDTO::getCategory));
+
+        return lookups
+                .stream()
+                .map(lookup -> new ActiveBudgetLookupDTO(
+                        lookup.getCategory(),
+                        lookup.getDate(),
+                        budgetsByCategory
+                                .getOrDefault(lookup.getCategory(), List.of())
+                                .stream()
+                                .filter(budget -> covers(budget, lookup.getDate()))
+                                .findFirst()
+                                .orElse(null)))
+                .toList();
+    }
+
+    private static boolean covers(BudgetDTO budget, Date date) {
+        return !date.before(Date.valueOf(budget.getCreationDate()))
+                && !date.after(Date.valueOf(budget.getLimitDate()));
+    }
+
     public void verifyNoOverlappingBudgets(Budget budget) {
         List<Budget> overlaps = budgetRepository.findOverlappingBudgetsByUserAndCategory(
                 budget.getUser(),
@@ -94,17 +201,26 @@ public class BudgetService {
     }
 
     public void updateTransactionsWithBudget(Budget budget) {
-        List<Transaction> unlinkedTransactions = transactionRepository.getTransactionsByUserAndCategoryAndDateInterval(
+        int linkedTransactions = transactionRepository.linkUnlinkedTransactionsToBudget(
+                budget,
                 budget.getUser(),
                 budget.getCategory(),
                 budget.getStartingDate(),
                 budget.getLimitDate()
         );
 
-        log.debug("Found " + unlinkedTransactions.size() + " unlinked transactions");
+        log.debug("Linked " + linkedTransactions + " unlinked transactions");
 
-        for( Transaction transaction: unlinkedTransactions){
-            transaction.setLinkedBudget(budget);
+        if (linkedTransactions > 0) {
+            BigDecimal signedTotal = transactionRepository.sumSignedAmountsByLinkedBudgetId(budget.getId());
+            budgetRepository.addToCurrentAmount(budget.getId(), signedTotal.negate());
         }
     }
+
+    @Transactional(Transactional.TxType.REQUIRED)
+    public int reconcileCurrentAmounts() {
+        int reconciledBudgets = budgetRepository.reconcileCurrentAmounts();
+        log.debug("Reconciled current amount of " + reconciledBudgets + " budgets");
+        return reconciledBudgets;
+    }
 }
@@ -0,0 +1,47 @@
+package org.mojodojocasahouse.extra.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+// Ids of categories by owner, name and icon. Categories are never renamed or deleted,
+// so an entry stays valid for as long as the category exists.
+@Component
+public class CategoryIdCache {
+
+    private final Cache<Key, Long> ids;
+
+    public CategoryIdCache(@Value("${extra.category-cache.maximum-size:50000}") long maximumSize) {
+        this.ids = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .build();
+    }
+
+    public Long get(ExtraUser owner, String name, Short iconId) {
+        return ids.getIfPresent(new Key(owner.getId(), name, iconId));
+    }
+
+    // Deferred until the surrounding transaction commits, so a category whose
+    // creation is rolled back never ends up cached
+    public void put(ExtraUser owner, String name, Short iconId, Long id) {
+        Key key = new Key(owner.getId(), name, iconId);
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            ids.put(key, id);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                ids.put(key, id);
+            }
+        });
+    }
+
+    private record Key(Long ownerId, String name, Short iconId) {}
+
+}
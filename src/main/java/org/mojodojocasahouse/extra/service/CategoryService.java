@@ -1,5 +1,9 @@
 package org.mojodojocasahouse.extra.service;
 
+import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.ConstraintViolationException;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
 import org.mojodojocasahouse.extra.dto.model.CategoryDTO;
@@ -8,8 +12,10 @@ import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.CategoryRepository;
 import org.springframework.stereotype.Service;
 
+import java.util.ArrayList;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 @Slf4j
@@ -19,6 +25,10 @@ public class CategoryService {
 
     private final CategoryRepository repository;
 
+    private final CategoryIdCache categoryIdCache;
+
+    private final Validator validator;
+
     public List<CategoryDTO> getAllCategoriesOfUser(ExtraUser user) {
         return repository
                 .getCategoriesByOwner(user)
@@ -32,15 +42,58 @@ public class CategoryService {
                 .getCategoryNamesByUser(user);
     }
 
+    // Ids of the categories a filter refers to, or null when it does not filter by category at all.
+    // Names are only unique together with their icon, so a name may stand for several categories.
+    public List<Long> getFilteringCategoryIdsOfUser(ExtraUser user, List<Long> categoryIds, List<String> categoryNames) {
+        boolean hasIds = categoryIds != null && !categoryIds.isEmpty();
+        boolean hasNames = categoryNames != null && !categoryNames.isEmpty();
+        if (!hasIds && !hasNames) {
+            return null;
+        }
+
+        List<Long> result = new ArrayList<>();
+        if (hasIds) {
+            result.addAll(categoryIds);
+        }
+        if (hasNames) {
+            result.addAll(repository.getCategoryIdsByUserAndNameIn(user, categoryNames));
+        }
+        return result;
+    }
+
     public Optional<Category> getCategoryByUserAndNameAndIconId(ExtraUser user, String name, Short iconId){
         return repository.getCategoryByOwnerAndNameAndIconId(user, name, iconId);
     }
 
+    // Callers only need the category to reference it, so a cached id is returned as an
+    // uninitialized reference and the common case runs no SQL at all
+    @Transactional(Transactional.TxType.REQUIRED)
     public Category fetchOrCreateCategoryFromUserAndNameAndIconId(ExtraUser user, String name, Short iconId){
-        Category result =  repository
-                .getCategoryByOwnerAndNameAndIconId(user, name, iconId)
-                .orElseGet(() -> new Category(name, iconId, user));
-        return repository.save(result); // For good measure
+        Long categoryId = categoryIdCache.get(user, name, iconId);
+        if (categoryId == null) {
+            categoryId = fetchOrCreateCategoryId(user, name, iconId);
+            categoryIdCache.put(user, name, iconId, categoryId);
+        }
+        return repository.getReferenceById(categoryId);
+    }
+
+    private Long fetchOrCreateCategoryId(ExtraUser user, String name, Short iconId) {
+        Optional<Long> existingId = repository.getCategoryIdByOwnerAndNameAndIconId(user, name, iconId);
+        if (existingId.isPresent()) {
+            return existingId.get();
+        }
+
+        // Same checks persisting the entity would have run
+        Set<ConstraintViolation<Category>> violations = validator.validate(new Category(name, iconId, user));
+        if (!violations.isEmpty()) {
+            throw new ConstraintViolationException(violations);
+        }
+
+        // A concurrent request may have created it since, in which case the insert does nothing
+        repository.insertIfAbsent(user.getId(), name, iconId);
+        return repository
+                .getCurrentCategoryIdByOwnerAndNameAndIconId(user.getId(), name, iconId)
+                .orElseThrow();
     }
 
 }
@@ -3,7 +3,10 @@ package org.mojodojocasahouse.extra.service;
 import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.DepositSequenceDTO;
 import org.mojodojocasahouse.extra.dto.model.InvestmentDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentSweepDTO;
 import org.mojodojocasahouse.extra.dto.requests.InvestmentAddingRequest;
 import org.mojodojocasahouse.extra.exception.CategoryNotFoundException;
 import org.mojodojocasahouse.extra.model.*;
@@ -11,12 +14,16 @@ import org.mojodojocasahouse.extra.repository.BudgetRepository;
 import org.mojodojocasahouse.extra.repository.CategoryRepository;
 import org.mojodojocasahouse.extra.repository.DepositRepository;
 import org.mojodojocasahouse.extra.repository.InvestmentRepository;
-import org.mojodojocasahouse.extra.scheduling.InvestmentReturnJob;
-import org.quartz.*;
+import org.springframework.data.domain.PageRequest;
 import org.springframework.stereotype.Service;
 
+import java.math.BigDecimal;
 import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.LinkedHashMap;
 import java.util.List;
+import java.util.Map;
 import java.util.stream.Collectors;
 
 
@@ -27,31 +34,83 @@ public class DepositService {
 
     private final CategoryService categoryService;
     private final ExpenseService expenseService;
+    private final TransactionTotalsService totalsService;
+    private final ActiveBudgetIndex activeBudgetIndex;
+    private final BudgetAlertService budgetAlertService;
+    private final TransactionSearchIndex searchIndex;
+    private final NotificationOutbox notificationOutbox;
 
     private final DepositRepository depositRepository;
     private final InvestmentRepository investmentRepository;
     private final BudgetRepository budgetRepository;
     private final CategoryRepository categoryRepository;
 
-    private final Scheduler scheduler;
 
+    // Deposits every return that fell due by the given time of up to limit investments, all in
+    // one batch. Returns missed while the application was down are made with the dates they
+    // were due on. Each is numbered within its investment, starting after the last one found,
+    // so a refire never deposits the same return twice. Only investments of the given partition
+    // out of the given number of them are claimed, see InvestmentRepository.claimDueInvestmentIds.
+    @Transactional(Transactional.TxType.REQUIRED)
+    public InvestmentSweepDTO depositDueInvestmentReturns(Timestamp now, int partition, int partitions, int limit) {
+        List<Long> claimedIds = investmentRepository.claimDueInvestmentIds(now, partition, partitions, PageRequest.of(0, limit));
+        if (claimedIds.isEmpty()) {
+            return new InvestmentSweepDTO(0, 0);
+        }
 
-    public void depositInvestmentReturn(Investment investment) throws CategoryNotFoundException {
-
-        // Create expense entity from request data
-        Deposit savedDeposit = depositRepository.save(
-                new Deposit(
+        List<Investment> investments = investmentRepository.findAllWithUserAndCategoryByIdIn(claimedIds);
+        Map<Long, Integer> lastSequences = depositRepository
+                .findLastDepositSequences(claimedIds)
+                .stream()
+                .collect(Collectors.toMap(DepositSequenceDTO::getInvestmentId, DepositSequenceDTO::getLastSequence));
+        List<Deposit> deposits = new ArrayList<>(investments.size());
+        for (Investment investment : investments) {
+            int lastSequence = Math.max(investment.getDepositsMade(), lastSequences.getOrDefault(investment.getId(), 0));
+            int dueSequence = investment.depositsDueAt(now);
+            for (int sequence = lastSequence + 1; sequence <= dueSequence; sequence++) {
+                deposits.add(new Deposit(
                         investment.getName(),
                         investment.getDepositAmount(),
-                        new Date(System.currentTimeMillis()),
+                        Date.valueOf(investment.depositTimestamp(sequence).toLocalDateTime().toLocalDate()),
                         investment.getUser(),
                         investment.getCategory(),
                         null,
-                        investment
-                )
-        );
+                        investment,
+                        sequence
+                ));
+            }
+            investment.advanceTo(Math.max(lastSequence, dueSequence));
+        }
+
+        // Deposits give money back to their budgets, lowering their spent amount
+        Map<Long, BigDecimal> budgetReturns = new LinkedHashMap<>();
+        for (Deposit deposit : deposits) {
+            activeBudgetIndex
+                    .findActiveBudgetId(deposit.getUser(), deposit.getCategory(), deposit.getDate())
+                    .ifPresent(budgetId -> {
+                        deposit.setLinkedBudget(budgetRepository.getReferenceById(budgetId));
+                        budgetReturns.merge(budgetId, deposit.getSignedAmount().negate(), BigDecimal::add);
+                    });
+        }
 
-        addDepositToActiveBudget(savedDeposit);
+        depositRepository.saveAll(deposits);
+        totalsService.addAllToTotals(deposits);
+        searchIndex.putAll(deposits);
+        budgetReturns.forEach((budgetId, returned) -> {
+            budgetRepository.addToCurrentAmount(budgetId, returned);
+            budgetAlertService.checkThresholds(budgetId, returned);
+        });
+        notificationOutbox.addInvestmentReturns(deposits.stream()
+                .map(deposit -> new InvestmentReturnDTO(
+                        deposit.getUser().getId(),
+                        deposit.getSourceInvestment().getId(),
+                        deposit.getConcept(),
+                        deposit.getAmount()
+                ))
+                .collect(Collectors.toList()));
+
+        log.debug("Deposited " + deposits.size() + " returns of " + investments.size() + " investments");
+        return new InvestmentSweepDTO(claimedIds.size(), deposits.size());
     }
 
     @Transactional(Transactional.TxType.REQUIRED)
@@ -59,7 +118,6 @@ public class DepositService {
         Category category = getCategoryFromUserAndInvestmentRequest(user, request);
         Investment savedInvestment = createNewInvestmentFromRequestWithCategory(user, request, category);
         expenseService.createDownPaymentExpense(savedInvestment);
-        scheduleRecurrentDepositsOf(savedInvestment);
         return savedInvestment.asDto();
     }
 
@@ -89,42 +147,6 @@ public class DepositService {
         );
     }
 
-    private void scheduleRecurrentDepositsOf(Investment investment) {
-        JobDetail job = JobBuilder.newJob()
-                .ofType(InvestmentReturnJob.class)
-                .usingJobData("investmentId", investment.getId().toString())
-                .withIdentity("JOB_INV_" + investment.getId().toString(), "INVESTMENTS")
-                .withDescription("Job to regularly deposit income of investment")
-                .storeDurably(true)
-                .build();
-
-        Trigger trigger = TriggerBuilder.newTrigger()
-                .withIdentity("TGR_INV_" + investment.getId().toString(), "INVESTMENTS")
-                .withDescription("Trigger to deposit income of investment")
-                .withSchedule(SimpleScheduleBuilder.simpleSchedule()
-                        .withIntervalInHours(24 * investment.getDepositIntervalInDays())
-                        .withMisfireHandlingInstructionNowWithRemainingCount()
-                        .withRepeatCount(investment.getMaxNumberOfDeposits() - 1))
-                .startAt(investment.getDepositStartTimestamp())
-                .build();
-
-        try {
-            scheduler.scheduleJob(job, trigger);
-        } catch (SchedulerException e) {
-            log.error("There was an error scheduling a recurrentDepositJob: " + e.getMessage());
-        }
-    }
-
-    private void addDepositToActiveBudget(Deposit deposit) {
-        List<Budget> activeBudget = budgetRepository
-                .findActiveBudgetByUserAndCategoryAndDate(deposit.getUser(), deposit.getCategory(), deposit.getDate());
-        if (!activeBudget.isEmpty()){
-            Budget foundBudget = activeBudget.stream().findFirst().get();
-            deposit.setLinkedBudget(foundBudget);
-        }
-    }
-
-
     public List<InvestmentDTO> getInvestmentsOfUser(ExtraUser user) {
         return investmentRepository
                 .findByUser(user)
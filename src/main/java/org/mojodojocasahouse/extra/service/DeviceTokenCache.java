@@ -0,0 +1,57 @@
+package org.mojodojocasahouse.extra.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.time.Duration;
+import java.util.*;
+import java.util.function.Function;
+
+// FCM tokens of the devices of each user, users without devices included. Entries must be
+// invalidated whenever a device of the user is registered or removed; the expiry only bounds
+// staleness of registrations made on other instances.
+@Component
+public class DeviceTokenCache {
+
+    private final Cache<Long, List<String>> tokens;
+
+    public DeviceTokenCache(@Value("${extra.notifications.device-cache.maximum-size:100000}") long maximumSize,
+                            @Value("${extra.notifications.device-cache.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.tokens = Caffeine.newBuilder()
+                .maximumSize(maximumSize)
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    // Users missing from the cache are loaded all at once. Those the loader has no tokens
+    // for are cached with none.
+    public Map<Long, List<String>> getAll(Collection<Long> userIds,
+                                          Function<Set<Long>, Map<Long, List<String>>> loader) {
+        return tokens.getAll(userIds, missingUserIds -> {
+            Map<Long, List<String>> loaded = new HashMap<>(loader.apply(Set.copyOf(missingUserIds)));
+            missingUserIds.forEach(userId -> loaded.putIfAbsent(userId, List.of()));
+            return loaded;
+        });
+    }
+
+    // Deferred until the surrounding transaction commits, so that a concurrent send cannot
+    // cache the devices from before the change again
+    public void invalidateAll(Collection<Long> userIds) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            tokens.invalidateAll(userIds);
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                tokens.invalidateAll(userIds);
+            }
+        });
+    }
+
+}
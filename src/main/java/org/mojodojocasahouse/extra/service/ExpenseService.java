@@ -1,18 +1,24 @@
 package org.mojodojocasahouse.extra.service;
 
+import java.math.BigDecimal;
 import java.sql.Date;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
 import java.util.stream.Collectors;
 
 import jakarta.transaction.Transactional;
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
 import lombok.RequiredArgsConstructor;
 
 import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
 import org.mojodojocasahouse.extra.dto.model.ExpenseDTO;
+import org.mojodojocasahouse.extra.dto.model.RejectedExpenseDTO;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseAddingRequest;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseEditingRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.dto.responses.ExpenseBulkAddingResponse;
+import org.mojodojocasahouse.extra.exception.ExpenseAccessDeniedException;
 import org.mojodojocasahouse.extra.exception.ExpenseNotFoundException;
 import org.mojodojocasahouse.extra.model.*;
 import org.mojodojocasahouse.extra.repository.BudgetRepository;
@@ -30,6 +36,11 @@ public class ExpenseService {
     private final BudgetRepository budgetRepository;
 
     private final CategoryService categoryService;
+    private final TransactionTotalsService totalsService;
+    private final ActiveBudgetIndex activeBudgetIndex;
+    private final BudgetAlertService budgetAlertService;
+    private final TransactionSearchIndex searchIndex;
+    private final Validator validator;
 
     @Transactional(Transactional.TxType.REQUIRED)
     public ApiResponse addExpense(ExtraUser user, ExpenseAddingRequest request) {
@@ -49,11 +60,81 @@ public class ExpenseService {
                 )
         );
 
+        totalsService.addToTotals(savedExpense);
         this.addExpenseToActiveBudget(savedExpense);
+        searchIndex.put(savedExpense);
 
         return new ApiResponse("Expense added successfully!");
     }
 
+    // Invalid expenses are reported back by their position and the rest are added. Categories
+    // are resolved once per name and icon, and each budget and monthly total is updated once
+    // with the sum of its expenses. The expenses themselves are inserted in JDBC batches.
+    @Transactional(Transactional.TxType.REQUIRED)
+    public ExpenseBulkAddingResponse addExpenses(ExtraUser user, List<ExpenseAddingRequest> requests) {
+        Map<CategoryKey, Category> categories = new HashMap<>();
+        List<Expense> expenses = new ArrayList<>(requests.size());
+        List<RejectedExpenseDTO> rejected = new ArrayList<>();
+
+        for (int index = 0; index < requests.size(); index++) {
+            ExpenseAddingRequest request = requests.get(index);
+            List<String> errors = violationsOf(request);
+            if (errors.isEmpty()) {
+                // Same checks persisting the entity would have run, which would otherwise fail them all
+                errors = violationsOf(new Expense(user, request.getConcept(), request.getAmount(), request.getDate(), null));
+            }
+            if (errors.isEmpty()) {
+                // Checked here, as the category service failing them would roll back every expense
+                errors = violationsOf(new Category(request.getCategory(), request.getIconId(), user));
+            }
+            if (!errors.isEmpty()) {
+                rejected.add(new RejectedExpenseDTO(index, errors));
+                continue;
+            }
+
+            Category category = categories.computeIfAbsent(
+                    new CategoryKey(request.getCategory(), request.getIconId()),
+                    key -> categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(user, key.name(), key.iconId())
+            );
+            expenses.add(new Expense(user, request.getConcept(), request.getAmount(), request.getDate(), category));
+        }
+
+        Map<Long, BigDecimal> budgetSpending = new LinkedHashMap<>();
+        for (Expense expense : expenses) {
+            activeBudgetIndex
+                    .findActiveBudgetId(expense.getUser(), expense.getCategory(), expense.getDate())
+                    .ifPresent(budgetId -> {
+                        expense.setLinkedBudget(budgetRepository.getReferenceById(budgetId));
+                        budgetSpending.merge(budgetId, expense.getSignedAmount().negate(), BigDecimal::add);
+                    });
+        }
+
+        expenseRepository.saveAll(expenses);
+        totalsService.addAllToTotals(expenses);
+        searchIndex.putAll(expenses);
+        budgetSpending.forEach((budgetId, spent) -> {
+            budgetRepository.addToCurrentAmount(budgetId, spent);
+            budgetAlertService.checkThresholds(budgetId, spent);
+        });
+
+        log.debug("Added " + expenses.size() + " expenses, rejected " + rejected.size());
+        return new ExpenseBulkAddingResponse(expenses.size(), rejected);
+    }
+
+    private List<String> violationsOf(Object object) {
+        return messagesOf(validator.validate(object));
+    }
+
+    private static List<String> messagesOf(Set<? extends ConstraintViolation<?>> violations) {
+        return violations
+                .stream()
+                .map(ConstraintViolation::getMessage)
+                .sorted()
+                .collect(Collectors.toList());
+    }
+
+    private record CategoryKey(String name, Short iconId) {}
+
     public List<ExpenseDTO> getAllExpensesByUserId(ExtraUser user) {
         List<Expense> expenseObjects = expenseRepository.findAllExpensesByUser(user);
         return expenseObjects
@@ -62,13 +143,12 @@ public class ExpenseService {
                 .collect(Collectors.toList());
     }
 
-    public ApiResponse editExpense(Long expenseId,
+    @Transactional(Transactional.TxType.REQUIRED)
+    public ApiResponse editExpense(ExtraUser user, Long expenseId,
                                    @Valid ExpenseEditingRequest request) throws ExpenseNotFoundException {
 
         // Get the existing expense.
-        Expense existingExpense = expenseRepository
-                .findById(expenseId)
-                .orElseThrow(ExpenseNotFoundException::new);
+        Expense existingExpense = findOwnedExpense(user, expenseId);
 
         // Get the new (or existing) category. Does not matter if category changes or not.
         Category category = categoryService
@@ -76,6 +156,7 @@ public class ExpenseService {
                         existingExpense.getUser(), request.getCategory(), request.getIconId());
 
         this.removeExpenseFromActiveBudget(existingExpense);
+        totalsService.removeFromTotals(existingExpense);
 
         // Update the properties of the existing expense with the new data.
         existingExpense.update(
@@ -85,61 +166,64 @@ public class ExpenseService {
                 category
         );
 
+        totalsService.addToTotals(existingExpense);
         this.addExpenseToActiveBudget(existingExpense);
+        searchIndex.put(existingExpense);
 
         return new ApiResponse("Expense edited successfully!");
     }
 
-    public boolean existsById(Long id) {
-        return expenseRepository.existsById(id);
-    }
-
-    public void deleteById(Long id) throws ExpenseNotFoundException{
-        Expense existingExpense = expenseRepository.findById(id).orElseThrow(ExpenseNotFoundException::new);
+    @Transactional(Transactional.TxType.REQUIRED)
+    public void deleteExpense(ExtraUser user, Long id) throws ExpenseNotFoundException {
+        Expense existingExpense = findOwnedExpense(user, id);
         this.removeExpenseFromActiveBudget(existingExpense);
-        expenseRepository.deleteById(id);
+        totalsService.removeFromTotals(existingExpense);
+
+        // Already loaded, so it is deleted without being read again
+        expenseRepository.delete(existingExpense);
+        searchIndex.remove(existingExpense);
     }
 
-    public boolean isOwner(ExtraUser user, Long id) {
-        return expenseRepository.existsByIdAndUser(id, user);
+    // Only when the expense is not found for the user is it checked whether it exists at all
+    private Expense findOwnedExpense(ExtraUser user, Long id) {
+        return expenseRepository
+                .findByIdAndUser(id, user)
+                .orElseThrow(() -> expenseRepository.existsById(id)
+                        ? new ExpenseAccessDeniedException()
+                        : new ExpenseNotFoundException());
     }
 
-    public List<Map<String, String>> getSumOfExpensesOfUserByCategoriesAndDateRanges(ExtraUser user,
-                                                                                         List<String> categories,
-                                                                                         Date from, Date until) {
-        List<String> filteringCategories = categories;
+    public List<CategoryAmountDTO> getSumOfExpensesOfUserByCategoriesAndDateRanges(ExtraUser user,
+                                                                                   List<String> categories,
+                                                                                   List<Long> categoryIds,
+                                                                                   Date from, Date until) {
+        List<Long> filteringCategoryIds = categoryService.getFilteringCategoryIdsOfUser(user, categoryIds, categories);
+        return totalsService.getSumsOfExpensesByCategory(user, filteringCategoryIds, from, until);
+    }
 
-        if(filteringCategories == null || filteringCategories.isEmpty()){
-            filteringCategories = categoryService.getAllCategoryNamesOfUser(user);
+    public void addExpenseToActiveBudget(Expense expense) {
+        Optional<Long> activeBudgetId = activeBudgetIndex
+                .findActiveBudgetId(expense.getUser(), expense.getCategory(), expense.getDate());
+        if (activeBudgetId.isEmpty()){
+            log.debug("No active budget found");
+            return;
         }
 
-        if (from == null && until == null){
-            return expenseRepository
-                    .getSumOfExpensesByCategories(user, filteringCategories);
-        } else if (from == null) {
-            return expenseRepository
-                    .getSumOfExpensesOfUserBeforeGivenDate(user, filteringCategories, until);
-        } else if (until == null) {
-            return expenseRepository
-                    .getSumOfExpensesOfUserAfterGivenDate(user, filteringCategories, from);
-        }
+        log.debug("Found an active budget");
+        expense.setLinkedBudget(budgetRepository.getReferenceById(activeBudgetId.get()));
 
-        return expenseRepository
-                .getSumOfExpensesOfUserByCategoryAndDateInterval(user, filteringCategories, from, until);
+        // Budgets track spending as a positive amount, hence the negated signed amount
+        budgetRepository.addToCurrentAmount(activeBudgetId.get(), expense.getSignedAmount().negate());
+        budgetAlertService.checkThresholds(activeBudgetId.get(), expense.getSignedAmount().negate());
     }
 
-    public void addExpenseToActiveBudget(Expense expense) {
-        List<Budget> activeBudget = budgetRepository
-                .findActiveBudgetByUserAndCategoryAndDate(expense.getUser(), expense.getCategory(),expense.getDate());
-        if (!activeBudget.isEmpty()){
-            log.debug("Found an active budget");
-            Budget foundBudget = activeBudget.stream().findFirst().get();
-            expense.setLinkedBudget(foundBudget);
+    public void removeExpenseFromActiveBudget(Expense expense) {
+        Budget linkedBudget = expense.getLinkedBudget();
+        if (linkedBudget == null) {
+            return;
         }
-        log.debug("No active budget found");
-    }
 
-    public void removeExpenseFromActiveBudget(Expense expense) {
+        budgetRepository.addToCurrentAmount(linkedBudget.getId(), expense.getSignedAmount());
         expense.setLinkedBudget(null);
     }
 
@@ -156,6 +240,8 @@ public class ExpenseService {
                 )
         );
 
+        totalsService.addToTotals(savedExpense);
         this.addExpenseToActiveBudget(savedExpense);
+        searchIndex.put(savedExpense);
     }
 }
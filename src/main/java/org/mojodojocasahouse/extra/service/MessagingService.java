@@ -1,79 +1,194 @@
 package org.mojodojocasahouse.extra.service;
 
+import com.google.firebase.ErrorCode;
 import com.google.firebase.messaging.*;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.mojodojocasahouse.extra.model.ExtraUser;
-import org.mojodojocasahouse.extra.model.Investment;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
 import org.mojodojocasahouse.extra.model.UserDevice;
 import org.mojodojocasahouse.extra.repository.UserDeviceRepository;
 import org.springframework.stereotype.Service;
 
 import java.math.BigDecimal;
-import java.util.List;
-import java.util.Map;
+import java.util.*;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
+// Sends notifications through Firebase Cloud Messaging. Each device gets a message of its
+// own, and the messages of all the users are sent together, as many per request as FCM
+// accepts. Devices whose token FCM reports as unregistered or invalid are removed.
 @Slf4j
 @Service
 @RequiredArgsConstructor
-public class MessagingService {
+public class MessagingService implements PushNotificationTransport {
 
     private final UserDeviceRepository deviceRepository;
+    private final DeviceTokenCache deviceTokenCache;
     private final FirebaseMessaging fcm;
 
+    private static final int MAX_BATCH_MESSAGES = 500;
 
-    public void sendPushNotificationToDevicesOfUser(Investment investment) {
-        List<String> tokens = getFCMTokensOfUser(investment.getUser());
-        MulticastMessage msg = buildInvestmentReturnMessage(tokens, investment);
+    // Errors of a single device that may go away by sending again later
+    private static final Set<MessagingErrorCode> TRANSIENT_ERRORS = EnumSet.of(
+            MessagingErrorCode.INTERNAL,
+            MessagingErrorCode.UNAVAILABLE,
+            MessagingErrorCode.QUOTA_EXCEEDED
+    );
+
+    // The same, for failures FCM gives no messaging code of its own
+    private static final Set<ErrorCode> TRANSIENT_PLATFORM_ERRORS = EnumSet.of(
+            ErrorCode.UNAVAILABLE,
+            ErrorCode.INTERNAL,
+            ErrorCode.DEADLINE_EXCEEDED,
+            ErrorCode.RESOURCE_EXHAUSTED
+    );
+
+    // Ids listed in the data of a message, which FCM limits to 4KB along with the rest of it
+    private static final int MAX_DATA_IDS = 100;
+
+
+    // One notification of all their returns to each user
+    @Override
+    public Set<Long> sendInvestmentReturns(Map<Long, List<InvestmentReturnDTO>> returnsByUserId) {
+        return sendToUsers(returnsByUserId, this::buildInvestmentReturnMessage);
+    }
+
+    // One notification of all their alerts to each user
+    @Override
+    public Set<Long> sendBudgetAlerts(Map<Long, List<BudgetAlertDTO>> alertsByUserId) {
+        return sendToUsers(alertsByUserId, this::buildBudgetAlertMessage);
+    }
+
+    // Returns the users that had a device fail with a transient error
+    private <T> Set<Long> sendToUsers(Map<Long, List<T>> contentByUserId,
+                                      Function<List<T>, Message.Builder> messageBuilder) {
+        List<Delivery> deliveries = new ArrayList<>();
+        getFCMTokensOfUserIds(contentByUserId.keySet()).forEach((userId, tokens) -> {
+            Message.Builder message = messageBuilder.apply(contentByUserId.get(userId));
+            tokens.forEach(token -> deliveries.add(new Delivery(userId, token, message.setToken(token).build())));
+        });
+
+        Set<Long> failedUserIds = new HashSet<>();
+        Map<String, Long> userIdsByDeadToken = new HashMap<>();
+        for (int from = 0; from < deliveries.size(); from += MAX_BATCH_MESSAGES) {
+            List<Delivery> batch = deliveries.subList(from, Math.min(from + MAX_BATCH_MESSAGES, deliveries.size()));
+            sendBatch(batch, failedUserIds, userIdsByDeadToken);
+        }
+        removeDeadTokens(userIdsByDeadToken);
+        return failedUserIds;
+    }
+
+    private void sendBatch(List<Delivery> batch, Set<Long> failedUserIds, Map<String, Long> userIdsByDeadToken) {
         BatchResponse batchResponse;
         try {
-            log.debug("Sending " + tokens.size() + " messages to user devices.");
-            batchResponse = fcm.sendEachForMulticast(msg);
+            batchResponse = fcm.sendEach(batch.stream().map(Delivery::message).toList());
         } catch (FirebaseMessagingException fcmException) {
             log.debug("Send operation failed.");
             handleFirebaseMessagingException(fcmException);
+            batch.forEach(delivery -> failedUserIds.add(delivery.userId()));
+            return;
+        }
+
+        // In the order of the messages
+        List<SendResponse> responses = batchResponse.getResponses();
+        for (int i = 0; i < responses.size(); i++) {
+            if (responses.get(i).isSuccessful()) {
+                continue;
+            }
+            Delivery delivery = batch.get(i);
+            FirebaseMessagingException exception = responses.get(i).getException();
+            handleFirebaseMessagingException(exception);
+            if (isTransient(exception)) {
+                failedUserIds.add(delivery.userId());
+            } else if (isDeadToken(exception)) {
+                userIdsByDeadToken.put(delivery.token(), delivery.userId());
+            }
+        }
+    }
+
+    // A failure without a messaging code is sent again even when its platform code is not a
+    // known transient one, rather than counted as delivered
+    private static boolean isTransient(FirebaseMessagingException exception) {
+        if (exception.getMessagingErrorCode() != null) {
+            return TRANSIENT_ERRORS.contains(exception.getMessagingErrorCode());
+        }
+        if (!TRANSIENT_PLATFORM_ERRORS.contains(exception.getErrorCode())) {
+            log.warn("Retrying send that failed without a messaging code: " + exception.getErrorCode());
+        }
+        return true;
+    }
+
+    // FCM also answers INVALID_ARGUMENT to a malformed message, which says nothing of the
+    // token it was sent to
+    private static boolean isDeadToken(FirebaseMessagingException exception) {
+        if (exception.getMessagingErrorCode() == MessagingErrorCode.UNREGISTERED) {
+            return true;
+        }
+        return exception.getMessagingErrorCode() == MessagingErrorCode.INVALID_ARGUMENT
+                && exception.getMessage() != null
+                && exception.getMessage().toLowerCase().contains("registration token");
+    }
+
+    private void removeDeadTokens(Map<String, Long> userIdsByDeadToken) {
+        if (userIdsByDeadToken.isEmpty()) {
             return;
         }
-        log.debug("Send operation success.");
-        handleBatchSendResponse(batchResponse);
+
+        log.debug("Removing " + userIdsByDeadToken.size() + " devices with invalid tokens");
+        deviceRepository.deleteByFcmTokenIn(userIdsByDeadToken.keySet());
+        deviceTokenCache.invalidateAll(Set.copyOf(userIdsByDeadToken.values()));
     }
 
-    private List<String> getFCMTokensOfUser(ExtraUser user) {
-        return deviceRepository
-                .getDevicesOfUser(user).stream()
-                .map(UserDevice::getFcmToken)
-                .collect(Collectors.toList());
+    private Map<Long, List<String>> getFCMTokensOfUserIds(Collection<Long> userIds) {
+        return deviceTokenCache.getAll(userIds, missingUserIds -> deviceRepository
+                .getDevicesOfUserIds(missingUserIds).stream()
+                .collect(Collectors.groupingBy(
+                        device -> device.getUser().getId(),
+                        Collectors.mapping(UserDevice::getFcmToken, Collectors.toList())
+                )));
     }
 
-    private MulticastMessage buildInvestmentReturnMessage(List<String> tokens,
-                                                          Investment investment) {
-        return MulticastMessage.builder()
+    private Message.Builder buildInvestmentReturnMessage(List<InvestmentReturnDTO> returns) {
+        BigDecimal total = returns.stream()
+                .map(InvestmentReturnDTO::getAmount)
+                .reduce(BigDecimal.ZERO, BigDecimal::add);
+        String body = returns.size() == 1
+                ? "Accredited return of $" + total + " from investment \"" + returns.get(0).getInvestmentName() + "\""
+                : "Accredited " + returns.size() + " investment returns for a total of $" + total;
+        return Message.builder()
                 .setNotification(Notification.builder()
                         .setTitle("Investment return accredited")
-                        .setBody("Accredited return of $" + investment.getDepositAmount() +
-                                 " from investment \"" + investment.getName() + "\"")
+                        .setBody(body)
                         .build())
-                .putData("investmentName", investment.getName())
-                .putData("amount", investment.getDepositAmount().toPlainString())
-                .addAllTokens(tokens)
-                .build();
+                .putData("investmentIds", joinIds(returns.stream().map(InvestmentReturnDTO::getInvestmentId)))
+                .putData("amount", total.toPlainString());
     }
 
-    private void handleBatchSendResponse(BatchResponse batchResponse) {
-        batchResponse
-                .getResponses()
-                .forEach(this::handleSendResponse);
+    private Message.Builder buildBudgetAlertMessage(List<BudgetAlertDTO> alerts) {
+        String body = alerts.size() == 1
+                ? "Budget \"" + alerts.get(0).getBudgetName() + "\" reached " +
+                  alerts.get(0).getThreshold() + "% of its limit"
+                : alerts.size() + " of your budgets reached an alert threshold";
+        return Message.builder()
+                .setNotification(Notification.builder()
+                        .setTitle("Budget alert")
+                        .setBody(body)
+                        .build())
+                .putData("budgetIds", joinIds(alerts.stream().map(BudgetAlertDTO::getBudgetId)));
     }
 
-    private void handleSendResponse(SendResponse response) {
-        if(!response.isSuccessful()) {
-            handleFirebaseMessagingException(response.getException());
-        }
+    private static String joinIds(Stream<Long> ids) {
+        return ids
+                .distinct()
+                .limit(MAX_DATA_IDS)
+                .map(Object::toString)
+                .collect(Collectors.joining(","));
     }
 
     private void handleFirebaseMessagingException(FirebaseMessagingException e) {
-        log.debug("Firebase: " + e.getErrorCode().name());
+        log.debug("Firebase: " + e.getErrorCode());
 
         if(e.getMessagingErrorCode() == null) {
             return;
@@ -82,4 +197,6 @@ public class MessagingService {
         log.debug("FCM: " + e.getMessagingErrorCode().name());
     }
 
+    private record Delivery(Long userId, String token, Message message) {}
+
 }
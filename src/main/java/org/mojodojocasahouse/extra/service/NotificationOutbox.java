@@ -0,0 +1,112 @@
+package org.mojodojocasahouse.extra.service;
+
+import jakarta.transaction.Transactional;
+import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
+import org.mojodojocasahouse.extra.model.OutboxNotification;
+import org.mojodojocasahouse.extra.repository.OutboxNotificationRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.stereotype.Service;
+
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Collection;
+import java.util.List;
+
+// Push notifications are added in the transaction of the change they report, so a change
+// that is rolled back notifies no one, and sent by NotificationOutboxRelay once committed.
+// Failed sends are retried with exponential backoff, until extra.notifications.max-attempts.
+@Slf4j
+@Service
+public class NotificationOutbox {
+
+    private final OutboxNotificationRepository notificationRepository;
+
+    private final Duration claimTimeout;
+
+    private final Duration retryBackoff;
+
+    private final Duration maxRetryBackoff;
+
+    private final int maxAttempts;
+
+    public NotificationOutbox(OutboxNotificationRepository notificationRepository,
+                              @Value("${extra.notifications.claim-timeout:5m}") Duration claimTimeout,
+                              @Value("${extra.notifications.retry-backoff:30s}") Duration retryBackoff,
+                              @Value("${extra.notifications.max-retry-backoff:1h}") Duration maxRetryBackoff,
+                              @Value("${extra.notifications.max-attempts:10}") int maxAttempts) {
+        this.notificationRepository = notificationRepository;
+        this.claimTimeout = claimTimeout;
+        this.retryBackoff = retryBackoff;
+        this.maxRetryBackoff = maxRetryBackoff;
+        this.maxAttempts = maxAttempts;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRED)
+    public void addBudgetAlert(BudgetAlertDTO alert) {
+        notificationRepository.save(new OutboxNotification(alert, new Timestamp(System.currentTimeMillis())));
+    }
+
+    @Transactional(Transactional.TxType.REQUIRED)
+    public void addInvestmentReturns(Collection<InvestmentReturnDTO> returns) {
+        Timestamp now = new Timestamp(System.currentTimeMillis());
+        notificationRepository.saveAll(returns.stream()
+                .map(investmentReturn -> new OutboxNotification(investmentReturn, now))
+                .toList());
+    }
+
+    // Claimed notifications are due again once the claim times out, so those of a relay that
+    // stopped before reporting back are sent by another one
+    @Transactional(Transactional.TxType.REQUIRED)
+    public List<OutboxNotification> claimDue(Timestamp now, int limit) {
+        List<OutboxNotification> due = notificationRepository.findDue(now, PageRequest.of(0, limit));
+        Timestamp claimExpiresAt = new Timestamp(now.getTime() + claimTimeout.toMillis());
+        due.forEach(notification -> notification.claimUntil(claimExpiresAt));
+        return due;
+    }
+
+    @Transactional(Transactional.TxType.REQUIRED)
+    public void delivered(Collection<OutboxNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        notificationRepository.deleteAllByIdInBatch(ids(notifications));
+    }
+
+    @Transactional(Transactional.TxType.REQUIRED)
+    public void failed(Collection<OutboxNotification> notifications, Timestamp now) {
+        if (notifications.isEmpty()) {
+            return;
+        }
+
+        List<OutboxNotification> abandoned = new ArrayList<>();
+        for (OutboxNotification notification : notificationRepository.findAllById(ids(notifications))) {
+            if (notification.getAttempts() + 1 >= maxAttempts) {
+                abandoned.add(notification);
+                continue;
+            }
+            notification.retryAt(new Timestamp(now.getTime() + backoff(notification.getAttempts()).toMillis()));
+        }
+        if (!abandoned.isEmpty()) {
+            log.warn("Giving up on " + abandoned.size() + " notifications after " + maxAttempts + " attempts");
+            notificationRepository.deleteAllInBatch(abandoned);
+        }
+    }
+
+    // Doubled for every earlier failure
+    private Duration backoff(int attempts) {
+        long millis = retryBackoff.toMillis() << Math.min(attempts, 20);
+        return Duration.ofMillis(Math.min(millis, maxRetryBackoff.toMillis()));
+    }
+
+    private static List<Long> ids(Collection<OutboxNotification> notifications) {
+        return notifications.stream()
+                .map(OutboxNotification::getId)
+                .toList();
+    }
+
+}
@@ -0,0 +1,120 @@
+package org.mojodojocasahouse.extra.service;
+
+import lombok.extern.slf4j.Slf4j;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
+import org.mojodojocasahouse.extra.model.OutboxNotification;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.sql.Timestamp;
+import java.util.*;
+import java.util.function.Supplier;
+
+// Sends the due notifications of the outbox a batch per claim, until a claim comes back short,
+// without holding a transaction while sending. Runs on every instance. Delivery is at least
+// once: a user whose send failed, or was claimed by an instance that stopped, is sent all of
+// the notifications again.
+@Slf4j
+@Component
+public class NotificationOutboxRelay {
+
+    private final NotificationOutbox outbox;
+
+    private final PushNotificationTransport transport;
+
+    // Also bounds the users of each send
+    private final int batchSize;
+
+    public NotificationOutboxRelay(NotificationOutbox outbox,
+                                   PushNotificationTransport transport,
+                                   @Value("${extra.notifications.relay-batch-size:1000}") int batchSize) {
+        this.outbox = outbox;
+        this.transport = transport;
+        this.batchSize = batchSize;
+    }
+
+    @Scheduled(fixedDelayString = "${extra.notifications.relay-interval:10s}")
+    public void relay() {
+        relayDue(new Timestamp(System.currentTimeMillis()));
+    }
+
+    // Returns how many notifications were delivered
+    public int relayDue(Timestamp now) {
+        int delivered = 0;
+        List<OutboxNotification> claimed;
+        do {
+            claimed = outbox.claimDue(now, batchSize);
+            delivered += send(claimed, now);
+        } while (claimed.size() == batchSize);
+        return delivered;
+    }
+
+    private int send(List<OutboxNotification> claimed, Timestamp now) {
+        if (claimed.isEmpty()) {
+            return 0;
+        }
+
+        List<OutboxNotification> alerts = new ArrayList<>();
+        List<OutboxNotification> returns = new ArrayList<>();
+        claimed.forEach(notification ->
+                (notification.getKind() == OutboxNotification.Kind.BUDGET_ALERT ? alerts : returns).add(notification));
+        Set<Long> failedAlertUserIds = sendBudgetAlerts(alerts);
+        Set<Long> failedReturnUserIds = sendInvestmentReturns(returns);
+
+        List<OutboxNotification> delivered = new ArrayList<>();
+        List<OutboxNotification> failed = new ArrayList<>();
+        alerts.forEach(alert -> (failedAlertUserIds.contains(alert.getUserId()) ? failed : delivered).add(alert));
+        returns.forEach(investmentReturn ->
+                (failedReturnUserIds.contains(investmentReturn.getUserId()) ? failed : delivered).add(investmentReturn));
+        outbox.delivered(delivered);
+        outbox.failed(failed, now);
+
+        log.debug("Relayed " + delivered.size() + " notifications, " + failed.size() + " to be retried");
+        return delivered.size();
+    }
+
+    // A budget that crossed several thresholds before being sent is only reported at the highest
+    private Set<Long> sendBudgetAlerts(List<OutboxNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<Long, Map<Long, BudgetAlertDTO>> alertsByBudgetIdByUserId = new HashMap<>();
+        for (OutboxNotification notification : notifications) {
+            alertsByBudgetIdByUserId
+                    .computeIfAbsent(notification.getUserId(), userId -> new HashMap<>())
+                    .merge(notification.getSubjectId(), notification.asBudgetAlertDto(), (sent, crossed) ->
+                            crossed.getThreshold() > sent.getThreshold() ? crossed : sent);
+        }
+        Map<Long, List<BudgetAlertDTO>> alertsByUserId = new HashMap<>();
+        alertsByBudgetIdByUserId.forEach((userId, alerts) -> alertsByUserId.put(userId, new ArrayList<>(alerts.values())));
+        return trySend(() -> transport.sendBudgetAlerts(alertsByUserId), alertsByUserId.keySet());
+    }
+
+    private Set<Long> sendInvestmentReturns(List<OutboxNotification> notifications) {
+        if (notifications.isEmpty()) {
+            return Set.of();
+        }
+
+        Map<Long, List<InvestmentReturnDTO>> returnsByUserId = new HashMap<>();
+        for (OutboxNotification notification : notifications) {
+            returnsByUserId
+                    .computeIfAbsent(notification.getUserId(), userId -> new ArrayList<>())
+                    .add(notification.asInvestmentReturnDto());
+        }
+        return trySend(() -> transport.sendInvestmentReturns(returnsByUserId), returnsByUserId.keySet());
+    }
+
+    // A send that throws failed for all of its users
+    private Set<Long> trySend(Supplier<Set<Long>> send, Set<Long> userIds) {
+        try {
+            return send.get();
+        } catch (RuntimeException e) {
+            log.error("There was an error sending notifications: " + e.getMessage());
+            return userIds;
+        }
+    }
+
+}
@@ -0,0 +1,19 @@
+package org.mojodojocasahouse.extra.service;
+
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
+
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+
+// Delivers the notifications of NotificationOutboxRelay to the devices of their users, a
+// single notification per user. Both return the ids of the users whose notification should
+// be sent again later.
+public interface PushNotificationTransport {
+
+    Set<Long> sendBudgetAlerts(Map<Long, List<BudgetAlertDTO>> alertsByUserId);
+
+    Set<Long> sendInvestmentReturns(Map<Long, List<InvestmentReturnDTO>> returnsByUserId);
+
+}
@@ -0,0 +1,104 @@
+package org.mojodojocasahouse.extra.service;
+
+import lombok.RequiredArgsConstructor;
+import org.dhatim.fastexcel.Workbook;
+import org.dhatim.fastexcel.Worksheet;
+import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.springframework.stereotype.Service;
+
+import java.io.*;
+import java.nio.charset.StandardCharsets;
+import java.sql.Date;
+import java.util.List;
+
+// Writes the user's filtered transactions as spreadsheets. Rows go from the database cursor
+// straight to the output, so memory stays flat regardless of how many are exported.
+@Service
+@RequiredArgsConstructor
+public class TransactionExportService {
+
+    private static final String[] HEADER = {"Id", "Date", "Type", "Concept", "Category", "Amount"};
+
+    // The XLSX writer keeps the rows written since its last flush
+    private static final int XLSX_ROWS_PER_FLUSH = 1000;
+
+    private final TransactionService transactionService;
+
+    // RFC 4180: comma separated, CRLF terminated, UTF-8 encoded
+    public long writeCsv(ExtraUser user, List<String> categories, List<Long> categoryIds,
+                         Date from, Date until, OutputStream outputStream) throws IOException {
+        Writer writer = new BufferedWriter(new OutputStreamWriter(outputStream, StandardCharsets.UTF_8));
+        writeCsvRow(writer, HEADER);
+        long exported = transactionService.forEachTransactionOfUserByCategoriesAndDateRanges(
+                user, categories, categoryIds, from, until,
+                transaction -> writeCsvRow(writer,
+                        transaction.getId().toString(),
+                        transaction.getDate().toString(),
+                        transaction.getType(),
+                        transaction.getConcept(),
+                        transaction.getCategory().getName(),
+                        transaction.getAmount().toPlainString())
+        );
+        writer.flush();
+        return exported;
+    }
+
+    // Strings are written inline, fastexcel would otherwise keep every distinct one in memory
+    public long writeXlsx(ExtraUser user, List<String> categories, List<Long> categoryIds,
+                          Date from, Date until, OutputStream outputStream) throws IOException {
+        Workbook workbook = new Workbook(outputStream, "Extra", "1.0");
+        Worksheet worksheet = workbook.newWorksheet("Transactions");
+        for (int column = 0; column < HEADER.length; column++) {
+            worksheet.inlineString(0, column, HEADER[column]);
+        }
+
+        int[] row = {0};
+        long exported = transactionService.forEachTransactionOfUserByCategoriesAndDateRanges(
+                user, categories, categoryIds, from, until,
+                transaction -> writeXlsxRow(worksheet, ++row[0], transaction)
+        );
+        worksheet.finish();
+        workbook.finish();
+        return exported;
+    }
+
+    private static void writeCsvRow(Writer writer, String... fields) {
+        try {
+            for (int i = 0; i < fields.length; i++) {
+                if (i > 0) {
+                    writer.write(',');
+                }
+                writer.write(csvField(fields[i]));
+            }
+            writer.write("\r\n");
+        } catch (IOException e) {
+            throw new UncheckedIOException(e);
+        }
+    }
+
+    private static String csvField(String field) {
+        if (field.indexOf(',') < 0 && field.indexOf('"') < 0 && field.indexOf('\r') < 0 && field.indexOf('\n') < 0) {
+            return field;
+        }
+        return '"' + field.replace("\"", "\"\"") + '"';
+    }
+
+    private static void writeXlsxRow(Worksheet worksheet, int row, TransactionDTO transaction) {
+        worksheet.value(row, 0, transaction.getId());
+        worksheet.value(row, 1, transaction.getDate().toLocalDate());
+        worksheet.style(row, 1).format("yyyy-mm-dd").set();
+        worksheet.inlineString(row, 2, transaction.getType());
+        worksheet.inlineString(row, 3, transaction.getConcept());
+        worksheet.inlineString(row, 4, transaction.getCategory().getName());
+        worksheet.value(row, 5, transaction.getAmount());
+        if (row % XLSX_ROWS_PER_FLUSH == 0) {
+            try {
+                worksheet.flush();
+            } catch (IOException e) {
+                throw new UncheckedIOException(e);
+            }
+        }
+    }
+
+}
@@ -0,0 +1,276 @@
+package org.mojodojocasahouse.extra.service;
+
+import com.github.benmanes.caffeine.cache.Cache;
+import com.github.benmanes.caffeine.cache.Caffeine;
+import org.mojodojocasahouse.extra.dto.model.TransactionConceptDTO;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.Transaction;
+import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.util.*;
+import java.util.concurrent.locks.ReadWriteLock;
+import java.util.concurrent.locks.ReentrantReadWriteLock;
+import java.util.function.Consumer;
+import java.util.function.Predicate;
+import java.util.stream.Collectors;
+
+// Words of every transaction concept, per user, answering concept searches without scanning
+// the user's transactions. A user's transactions are loaded on their first search; transactions
+// written here are applied once their transaction commits. Changes made by other instances are
+// only picked up after the entry expires. Entries are weighed by their number of transactions,
+// weighed again after every change, so users whose transactions grow are evicted accordingly.
+@Component
+public class TransactionSearchIndex {
+
+    private static final Comparator<Entry> NEWEST_FIRST = Comparator
+            .comparing(Entry::date)
+            .thenComparing(Entry::id)
+            .reversed();
+
+    private final TransactionRepository transactionRepository;
+
+    private final Cache<Long, UserIndex> indexes;
+
+    private final long expireAfterWriteNanos;
+
+    public TransactionSearchIndex(TransactionRepository transactionRepository,
+                                  @Value("${extra.transaction-search-index.maximum-transactions:5000000}") long maximumTransactions,
+                                  @Value("${extra.transaction-search-index.expire-after-write:10m}") Duration expireAfterWrite) {
+        this.transactionRepository = transactionRepository;
+        this.expireAfterWriteNanos = expireAfterWrite.toNanos();
+        this.indexes = Caffeine.newBuilder()
+                .maximumWeight(maximumTransactions)
+                .weigher((Long userId, UserIndex index) -> index.size())
+                .expireAfterWrite(expireAfterWrite)
+                .build();
+    }
+
+    // Ids of the user's transactions whose concept has a word starting with each word of the
+    // query, newest first. Only those within the filters and after the cursor, at most limit.
+    public List<Long> search(ExtraUser user, String query, List<Long> categoryIds,
+                             Date from, Date until, Date cursorDate, Long cursorId, int limit) {
+        Set<Long> categories = categoryIds == null ? null : new HashSet<>(categoryIds);
+        Predicate<Entry> filter = entry -> (categories == null || categories.contains(entry.categoryId()))
+                && (from == null || entry.date().compareTo(from) >= 0)
+                && (until == null || entry.date().compareTo(until) <= 0)
+                && (cursorDate == null || cursorId == null || isAfter(entry, cursorDate, cursorId));
+        return indexes
+                .get(user.getId(), this::load)
+                .search(wordsOf(query), filter, limit);
+    }
+
+    public void put(Transaction transaction) {
+        putAll(List.of(transaction));
+    }
+
+    public void putAll(Collection<? extends Transaction> transactions) {
+        if (transactions.isEmpty()) {
+            return;
+        }
+        // Read now, the entities may change before the transaction commits
+        Long userId = transactions.iterator().next().getUser().getId();
+        List<Entry> entries = transactions
+                .stream()
+                .map(transaction -> entryOf(
+                        transaction.getId(), transaction.getConcept(), transaction.getDate(), transaction.getCategory().getId()
+                ))
+                .collect(Collectors.toList());
+        afterCommit(() -> applyTo(userId, index -> entries.forEach(index::put)));
+    }
+
+    public void remove(Transaction transaction) {
+        Long userId = transaction.getUser().getId();
+        Long id = transaction.getId();
+        afterCommit(() -> applyTo(userId, index -> index.remove(id)));
+    }
+
+    // Users that are not loaded yet will read the change from the database anyway. The index is
+    // replaced by itself so that it is weighed again, which also restarts its expiry: one loaded
+    // longer ago than that is dropped instead, or other instances' changes would never be read.
+    private void applyTo(Long userId, Consumer<UserIndex> change) {
+        indexes.asMap().computeIfPresent(userId, (id, index) -> {
+            if (System.nanoTime() - index.loadedAt >= expireAfterWriteNanos) {
+                return null;
+            }
+            change.accept(index);
+            return index;
+        });
+    }
+
+    private static void afterCommit(Runnable change) {
+        if (!TransactionSynchronizationManager.isSynchronizationActive()) {
+            change.run();
+            return;
+        }
+
+        TransactionSynchronizationManager.registerSynchronization(new TransactionSynchronization() {
+            @Override
+            public void afterCommit() {
+                change.run();
+            }
+        });
+    }
+
+    private UserIndex load(Long userId) {
+        return new UserIndex(transactionRepository.findConceptsByUserId(userId));
+    }
+
+    // Same order as the keyset listings: by date, then id, both descending
+    private static boolean isAfter(Entry entry, Date cursorDate, Long cursorId) {
+        int byDate = entry.date().compareTo(cursorDate);
+        return byDate < 0 || (byDate == 0 && entry.id() < cursorId);
+    }
+
+    private static Entry entryOf(Long id, String concept, Date date, Long categoryId) {
+        return new Entry(id, date, categoryId, wordsOf(concept));
+    }
+
+    private static List<String> wordsOf(String text) {
+        return Arrays
+                .stream(text.toLowerCase(Locale.ROOT).split("\\s+"))
+                .filter(word -> !word.isEmpty())
+                .distinct()
+                .collect(Collectors.toList());
+    }
+
+    private record Entry(Long id, Date date, Long categoryId, List<String> words) {
+
+        private boolean matches(List<String> prefixes) {
+            for (String prefix : prefixes) {
+                if (!hasWordStartingWith(prefix)) {
+                    return false;
+                }
+            }
+            return true;
+        }
+
+        private boolean hasWordStartingWith(String prefix) {
+            for (String word : words) {
+                if (word.startsWith(prefix)) {
+                    return true;
+                }
+            }
+            return false;
+        }
+
+    }
+
+    // Postings are kept sorted by word so that every word starting with a prefix is one range.
+    // They hold the entries themselves, so walking them needs no lookups by id.
+    private static final class UserIndex {
+
+        private final ReadWriteLock lock = new ReentrantReadWriteLock();
+        private final Map<Long, Entry> entries = new HashMap<>();
+        private final NavigableMap<String, Map<Long, Entry>> postings = new TreeMap<>();
+        private final long loadedAt = System.nanoTime();
+
+        private UserIndex(List<TransactionConceptDTO> transactions) {
+            transactions.forEach(transaction -> put(entryOf(
+                    transaction.getId(), transaction.getConcept(), transaction.getDate(), transaction.getCategoryId()
+            )));
+        }
+
+        // At least one, an empty index still takes room
+        private int size() {
+            lock.readLock().lock();
+            try {
+                return Math.max(1, entries.size());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private List<Long> search(List<String> prefixes, Predicate<Entry> filter, int limit) {
+            if (prefixes.isEmpty()) {
+                return List.of();
+            }
+
+            lock.readLock().lock();
+            try {
+                // Only the postings of the least common prefix are walked, the other prefixes
+                // are checked against the words of each transaction found there
+                Collection<Map<Long, Entry>> rarest = null;
+                int rarestSize = Integer.MAX_VALUE;
+                for (String prefix : prefixes) {
+                    Collection<Map<Long, Entry>> matching = postings
+                            .subMap(prefix, true, prefix + Character.MAX_VALUE, false)
+                            .values();
+                    int size = 0;
+                    for (Map<Long, Entry> posting : matching) {
+                        size += posting.size();
+                    }
+                    if (size < rarestSize) {
+                        rarest = matching;
+                        rarestSize = size;
+                    }
+                }
+                if (rarestSize == 0) {
+                    return List.of();
+                }
+
+                // Keeps only the newest limit matches, with the oldest of them at the head
+                PriorityQueue<Entry> newest = new PriorityQueue<>(limit + 1, NEWEST_FIRST.reversed());
+                // A transaction with several words starting with the prefix is in several postings
+                Set<Long> seen = rarest.size() > 1 ? new HashSet<>() : null;
+                for (Map<Long, Entry> posting : rarest) {
+                    for (Entry entry : posting.values()) {
+                        if (seen != null && !seen.add(entry.id())) {
+                            continue;
+                        }
+                        if (entry.matches(prefixes) && filter.test(entry)) {
+                            newest.add(entry);
+                            if (newest.size() > limit) {
+                                newest.poll();
+                            }
+                        }
+                    }
+                }
+                return newest
+                        .stream()
+                        .sorted(NEWEST_FIRST)
+                        .map(Entry::id)
+                        .collect(Collectors.toList());
+            } finally {
+                lock.readLock().unlock();
+            }
+        }
+
+        private void put(Entry entry) {
+            lock.writeLock().lock();
+            try {
+                remove(entry.id());
+                entries.put(entry.id(), entry);
+                entry.words().forEach(word -> postings.computeIfAbsent(word, w -> new HashMap<>()).put(entry.id(), entry));
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+        private void remove(Long id) {
+            lock.writeLock().lock();
+            try {
+                Entry removed = entries.remove(id);
+                if (removed == null) {
+                    return;
+                }
+                for (String word : removed.words()) {
+                    Map<Long, Entry> posting = postings.get(word);
+                    posting.remove(id);
+                    if (posting.isEmpty()) {
+                        postings.remove(word);
+                    }
+                }
+            } finally {
+                lock.writeLock().unlock();
+            }
+        }
+
+    }
+
+}
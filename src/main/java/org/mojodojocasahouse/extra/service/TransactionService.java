@@ -1,19 +1,29 @@
 package org.mojodojocasahouse.extra.service;
 
+import jakarta.persistence.EntityManager;
+import jakarta.transaction.Transactional;
 import lombok.RequiredArgsConstructor;
 import lombok.extern.slf4j.Slf4j;
-import org.mojodojocasahouse.extra.dto.model.ExpenseDTO;
 import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
-import org.mojodojocasahouse.extra.model.Expense;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.dto.responses.TransactionPageResponse;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.model.Transaction;
 import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.repository.TransactionSpecifications;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
 import org.springframework.stereotype.Service;
 
 import java.sql.Date;
+import java.util.Iterator;
 import java.util.List;
 import java.util.Map;
+import java.util.Objects;
+import java.util.function.Consumer;
+import java.util.function.Function;
 import java.util.stream.Collectors;
+import java.util.stream.Stream;
 
 @Slf4j
 @Service
@@ -22,68 +32,138 @@ public class TransactionService {
 
     private final CategoryService categoryService;
 
+    private final TransactionTotalsService totalsService;
+
+    private final TransactionSearchIndex searchIndex;
+
     private final TransactionRepository transactionRepository;
 
+    private final EntityManager entityManager;
+
+    @Transactional(Transactional.TxType.REQUIRED)
     public List<TransactionDTO> getTransactionsOfUserByCategoriesAndDateRanges(ExtraUser user,
                                                                                List<String> categories,
+                                                                               List<Long> categoryIds,
                                                                                Date from, Date until) {
-        List<String> filteringCategories = categories;
+        try (Stream<Transaction> transactions = streamTransactionsOfUser(
+                user, categories, categoryIds, from, until, null, null, Pageable.unpaged())) {
+            return transactions
+                    .map(Transaction::asDto)
+                    .collect(Collectors.toList());
+        }
+    }
 
-        if(filteringCategories == null || filteringCategories.isEmpty()){
-            filteringCategories = categoryService.getAllCategoryNamesOfUser(user);
+    @Transactional(Transactional.TxType.REQUIRED)
+    public TransactionPageResponse getTransactionPageOfUserByCategoriesAndDateRanges(ExtraUser user,
+                                                                                    List<String> categories,
+                                                                                    List<Long> categoryIds,
+                                                                                    Date from, Date until,
+                                                                                    Date cursorDate, Long cursorId,
+                                                                                    int pageSize) {
+        // Fetch one extra row to know whether there is a next page without counting
+        List<Transaction> transactions;
+        try (Stream<Transaction> stream = streamTransactionsOfUser(
+                user, categories, categoryIds, from, until, cursorDate, cursorId, PageRequest.of(0, pageSize + 1))) {
+            transactions = stream.collect(Collectors.toList());
         }
 
-        if (from == null && until == null){
-            return transactionRepository
-                    .getTransactionsOfUserByCategory(user, filteringCategories)
-                    .stream()
-                    .map(Transaction::asDto)
-                    .collect(Collectors.toList());
-        } else if (from == null) {
-            return transactionRepository
-                    .getTransactionsOfUserBeforeGivenDate(user, filteringCategories, until)
-                    .stream()
-                    .map(Transaction::asDto)
-                    .collect(Collectors.toList());
-        } else if (until == null) {
-            return transactionRepository
-                    .getTransactionsOfUserAfterGivenDate(user, filteringCategories, from)
-                    .stream()
-                    .map(Transaction::asDto)
-                    .collect(Collectors.toList());
+        if (transactions.size() <= pageSize) {
+            return new TransactionPageResponse(asDtos(transactions), null, null);
         }
 
-        return transactionRepository
-                .getTransactionsOfUserByCategoriesAndDateInterval(user, filteringCategories, from, until)
-                .stream()
-                .map(Transaction::asDto)
-                .collect(Collectors.toList());
+        List<Transaction> page = transactions.subList(0, pageSize);
+        Transaction last = page.get(pageSize - 1);
+        return new TransactionPageResponse(asDtos(page), last.getDate(), last.getId());
     }
 
-    public List<Map<String, String>> getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(ExtraUser user,
-                                                                                           List<String> categories,
-                                                                                           Date from,
-                                                                                           Date until) {
-        List<String> filteringCategories = categories;
+    // Same paging as the listing, but the matching ids come from the concept index and only
+    // the transactions of the page itself are read from the database
+    @Transactional(Transactional.TxType.REQUIRED)
+    public TransactionPageResponse searchTransactionsOfUserByConceptAndCategoriesAndDateRanges(ExtraUser user,
+                                                                                              String query,
+                                                                                              List<String> categories,
+                                                                                              List<Long> categoryIds,
+                                                                                              Date from, Date until,
+                                                                                              Date cursorDate, Long cursorId,
+                                                                                              int pageSize) {
+        List<Long> filteringCategoryIds = categoryService.getFilteringCategoryIdsOfUser(user, categoryIds, categories);
+        List<Long> ids = searchIndex.search(
+                user, query, filteringCategoryIds, from, until, cursorDate, cursorId, pageSize + 1
+        );
+        if (ids.isEmpty()) {
+            return new TransactionPageResponse(List.of(), null, null);
+        }
+
+        // Put back in the order of the index. Ids another instance has just deleted are skipped.
+        Map<Long, Transaction> byId = transactionRepository
+                .findAllByIdInAndUser(ids, user)
+                .stream()
+                .collect(Collectors.toMap(Transaction::getId, Function.identity()));
+        List<Transaction> page = ids
+                .subList(0, Math.min(pageSize, ids.size()))
+                .stream()
+                .map(byId::get)
+                .filter(Objects::nonNull)
+                .collect(Collectors.toList());
 
-        if(filteringCategories == null || filteringCategories.isEmpty()){
-            filteringCategories = categoryService.getAllCategoryNamesOfUser(user);
+        if (ids.size() <= pageSize || page.isEmpty()) {
+            return new TransactionPageResponse(asDtos(page), null, null);
         }
 
-        if (from == null && until == null){
-            return transactionRepository
-                    .getYearlySumOfTransactionsByCategories(user, filteringCategories);
-        } else if (from == null) {
-            return transactionRepository
-                    .getYearlySumOfTransactionsOfUserBeforeGivenDate(user, filteringCategories, until);
-        } else if (until == null) {
-            return transactionRepository
-                    .getYearlySumOfTransactionsOfUserAfterGivenDate(user, filteringCategories, from);
+        Transaction last = page.get(page.size() - 1);
+        return new TransactionPageResponse(asDtos(page), last.getDate(), last.getId());
+    }
+
+    // Hands every matching transaction to the consumer as it is read from the database cursor.
+    // Rows are detached once consumed, so memory stays flat regardless of the result size.
+    @Transactional(Transactional.TxType.REQUIRED)
+    public long forEachTransactionOfUserByCategoriesAndDateRanges(ExtraUser user,
+                                                                 List<String> categories,
+                                                                 List<Long> categoryIds,
+                                                                 Date from, Date until,
+                                                                 Consumer<TransactionDTO> consumer) {
+        long count = 0;
+        try (Stream<Transaction> transactions = streamTransactionsOfUser(
+                user, categories, categoryIds, from, until, null, null, Pageable.unpaged())) {
+            Iterator<Transaction> iterator = transactions.iterator();
+            while (iterator.hasNext()) {
+                Transaction transaction = iterator.next();
+                consumer.accept(transaction.asDto());
+                entityManager.detach(transaction);
+                count++;
+            }
         }
+        return count;
+    }
+
+    private Stream<Transaction> streamTransactionsOfUser(ExtraUser user,
+                                                         List<String> categories,
+                                                         List<Long> categoryIds,
+                                                         Date from, Date until,
+                                                         Date cursorDate, Long cursorId,
+                                                         Pageable page) {
+        List<Long> filteringCategoryIds = categoryService.getFilteringCategoryIdsOfUser(user, categoryIds, categories);
+        return transactionRepository.streamNewestFirst(
+                TransactionSpecifications.<Transaction>filteredBy(user, filteringCategoryIds, from, until)
+                        .and(TransactionSpecifications.after(cursorDate, cursorId)),
+                page
+        );
+    }
 
-        return transactionRepository
-                .getYearlySumOfTransactionsOfUserByCategoryAndDateInterval(user, filteringCategories, from, until);
+    private List<TransactionDTO> asDtos(List<Transaction> transactions) {
+        return transactions
+                .stream()
+                .map(Transaction::asDto)
+                .collect(Collectors.toList());
+    }
 
+    public List<YearAmountDTO> getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(ExtraUser user,
+                                                                                      List<String> categories,
+                                                                                      List<Long> categoryIds,
+                                                                                      Date from,
+                                                                                      Date until) {
+        List<Long> filteringCategoryIds = categoryService.getFilteringCategoryIdsOfUser(user, categoryIds, categories);
+        return totalsService.getYearlySums(user, filteringCategoryIds, from, until);
     }
 
 }
@@ -0,0 +1,166 @@
+package org.mojodojocasahouse.extra.service;
+
+import lombok.RequiredArgsConstructor;
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.Transaction;
+import org.mojodojocasahouse.extra.repository.ExpenseRepository;
+import org.mojodojocasahouse.extra.repository.MonthlyTransactionTotalRepository;
+import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.repository.TransactionSpecifications;
+import org.springframework.stereotype.Service;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.*;
+import java.util.stream.Collectors;
+
+// Keeps the monthly rollup of transactions in step with them and answers sums from it.
+// Whole months are read from the rollup; only the partial months at the ends of the
+// requested range are summed from the transactions themselves.
+@Service
+@RequiredArgsConstructor
+public class TransactionTotalsService {
+
+    private final MonthlyTransactionTotalRepository totalRepository;
+    private final TransactionRepository transactionRepository;
+    private final ExpenseRepository expenseRepository;
+
+    // Both must run in the transaction that writes the transaction itself
+
+    public void addToTotals(Transaction transaction) {
+        addToTotal(transaction, transaction.getSignedAmount());
+    }
+
+    public void removeFromTotals(Transaction transaction) {
+        addToTotal(transaction, transaction.getSignedAmount().negate());
+    }
+
+    // One update per user, category, month and type instead of one per transaction
+    public void addAllToTotals(Collection<? extends Transaction> transactions) {
+        Map<TotalKey, BigDecimal> sums = new LinkedHashMap<>();
+        for (Transaction transaction : transactions) {
+            TotalKey key = new TotalKey(
+                    transaction.getUser().getId(),
+                    transaction.getCategory().getId(),
+                    monthOf(transaction),
+                    transaction.getTransactionType()
+            );
+            sums.merge(key, transaction.getSignedAmount(), BigDecimal::add);
+        }
+        sums.forEach((key, signedAmount) -> totalRepository.addToTotal(
+                key.userId(), key.categoryId(), key.month(), key.transactionType(), signedAmount
+        ));
+    }
+
+    private void addToTotal(Transaction transaction, BigDecimal signedAmount) {
+        totalRepository.addToTotal(
+                transaction.getUser().getId(),
+                transaction.getCategory().getId(),
+                monthOf(transaction),
+                transaction.getTransactionType(),
+                signedAmount
+        );
+    }
+
+    private static Date monthOf(Transaction transaction) {
+        return Date.valueOf(transaction.getDate().toLocalDate().withDayOfMonth(1));
+    }
+
+    private record TotalKey(Long userId, Long categoryId, Date month, String transactionType) {}
+
+    public List<YearAmountDTO> getYearlySums(ExtraUser user, List<Long> categoryIds, Date from, Date until) {
+        MonthSplit split = new MonthSplit(from, until);
+        Map<Integer, BigDecimal> sums = new TreeMap<>();
+
+        if (split.hasWholeMonths()) {
+            totalRepository
+                    .getYearlySums(user, categoryIds, split.firstMonth, split.lastMonth)
+                    .forEach(sum -> sums.merge(sum.getYear(), sum.getAmount(), BigDecimal::add));
+        }
+        for (Date[] edge : split.partialMonths) {
+            transactionRepository
+                    .getYearlySumOfTransactions(TransactionSpecifications.filteredBy(user, categoryIds, edge[0], edge[1]))
+                    .forEach(sum -> sums.merge(sum.getYear(), sum.getAmount(), BigDecimal::add));
+        }
+
+        return sums
+                .entrySet()
+                .stream()
+                .map(sum -> new YearAmountDTO(sum.getKey(), sum.getValue()))
+                .collect(Collectors.toList());
+    }
+
+    public List<CategoryAmountDTO> getSumsOfExpensesByCategory(ExtraUser user, List<Long> categoryIds,
+                                                               Date from, Date until) {
+        MonthSplit split = new MonthSplit(from, until);
+        Map<Long, CategoryAmountDTO> sums = new LinkedHashMap<>();
+
+        if (split.hasWholeMonths()) {
+            totalRepository
+                    .getSumsOfExpensesByCategory(user, categoryIds, split.firstMonth, split.lastMonth)
+                    .forEach(sum -> sums.merge(sum.getCategoryId(), sum, TransactionTotalsService::add));
+        }
+        for (Date[] edge : split.partialMonths) {
+            expenseRepository
+                    .getSumOfExpensesByCategory(TransactionSpecifications.filteredBy(user, categoryIds, edge[0], edge[1]))
+                    .forEach(sum -> sums.merge(sum.getCategoryId(), sum, TransactionTotalsService::add));
+        }
+
+        return sums
+                .values()
+                .stream()
+                .sorted(Comparator.comparing(CategoryAmountDTO::getAmount).reversed())
+                .collect(Collectors.toList());
+    }
+
+    private static CategoryAmountDTO add(CategoryAmountDTO sum, CategoryAmountDTO other) {
+        return new CategoryAmountDTO(sum.getCategoryId(), sum.getCategory(), sum.getAmount().add(other.getAmount()));
+    }
+
+    // Splits [from, until] into the whole months it covers and the partial months at its ends.
+    // A null bound is open, so the months on that side are all whole.
+    private static class MonthSplit {
+
+        private Date firstMonth;
+        private Date lastMonth;
+        private boolean wholeMonths = true;
+        private final List<Date[]> partialMonths = new ArrayList<>();
+
+        private MonthSplit(Date from, Date until) {
+            LocalDate first = from == null ? null : from.toLocalDate();
+            LocalDate last = until == null ? null : until.toLocalDate();
+
+            LocalDate firstWholeMonth = first == null || first.getDayOfMonth() == 1
+                    ? first
+                    : first.withDayOfMonth(1).plusMonths(1);
+            LocalDate lastWholeMonth = last == null || last.equals(last.withDayOfMonth(last.lengthOfMonth()))
+                    ? (last == null ? null : last.withDayOfMonth(1))
+                    : last.withDayOfMonth(1).minusMonths(1);
+
+            if (firstWholeMonth != null && lastWholeMonth != null && firstWholeMonth.isAfter(lastWholeMonth)) {
+                // Not a single whole month in between
+                wholeMonths = false;
+                partialMonths.add(new Date[]{from, until});
+                return;
+            }
+
+            firstMonth = firstWholeMonth == null ? null : Date.valueOf(firstWholeMonth);
+            lastMonth = lastWholeMonth == null ? null : Date.valueOf(lastWholeMonth);
+            if (first != null && !first.equals(firstWholeMonth)) {
+                partialMonths.add(new Date[]{from, Date.valueOf(first.withDayOfMonth(first.lengthOfMonth()))});
+            }
+            if (last != null && !last.withDayOfMonth(1).equals(lastWholeMonth)) {
+                partialMonths.add(new Date[]{Date.valueOf(last.withDayOfMonth(1)), until});
+            }
+        }
+
+        private boolean hasWholeMonths() {
+            return wholeMonths;
+        }
+
+    }
+
+}
@@ -0,0 +1,161 @@
+-- Schema as previously generated by Hibernate (ddl-auto=update).
+-- Databases created that way are baselined at this version and skip it.
+-- ${uuid_type} is the column type Hibernate maps java.util.UUID to on the target database.
+
+create table authorities (
+    id bigint not null auto_increment,
+    role varchar(255),
+    primary key (id)
+);
+
+create table budgets (
+    creationdate date not null,
+    current_amount decimal(14,2) not null,
+    limitamount decimal(14,2) not null,
+    limitdate date not null,
+    category_id bigint not null,
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    name varchar(100) not null,
+    primary key (id)
+);
+
+create table categories (
+    icon_id smallint not null,
+    id bigint not null auto_increment,
+    owner_id bigint not null,
+    name varchar(50) not null,
+    primary key (id)
+);
+
+create table investment (
+    deposit_amount decimal(38,2) not null,
+    deposit_interval_in_days integer not null,
+    downpayment_amount decimal(38,2) not null,
+    number_of_deposits integer not null,
+    category_id bigint not null,
+    deposit_start_timestamp datetime(6) not null,
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    name varchar(255) not null,
+    primary key (id)
+);
+
+create table password_reset_tokens (
+    user_id bigint,
+    valid_until datetime(6),
+    id ${uuid_type} not null,
+    dtype varchar(31) not null,
+    primary key (id)
+);
+
+create table transaction (
+    amount decimal(14,2) not null,
+    date date not null,
+    signed_amount decimal(38,2),
+    budget_id bigint,
+    category_id bigint not null,
+    id bigint not null auto_increment,
+    source_investment_id bigint,
+    user_id bigint not null,
+    transaction_type varchar(31) not null,
+    concept varchar(100) not null,
+    primary key (id)
+);
+
+create table user_authorities (
+    authority_id bigint not null,
+    user_id bigint not null,
+    primary key (authority_id, user_id)
+);
+
+create table user_device (
+    id bigint not null auto_increment,
+    modified_timestamp datetime(6) not null,
+    user_id bigint not null,
+    fcm_token varchar(255) not null,
+    primary key (id)
+);
+
+create table users (
+    id bigint not null auto_increment,
+    first_name varchar(100) not null,
+    last_name varchar(100) not null,
+    email varchar(255) not null,
+    password varchar(255) not null,
+    primary key (id)
+);
+
+alter table categories
+   add constraint UniqueNameAndIconPerUser unique (name, icon_id, owner_id);
+
+alter table user_device
+   add constraint UK_mhlsk593ok8p9chicoicy95ji unique (fcm_token);
+
+alter table users
+   add constraint UK_6dotkott2kjsp8vw4d0m25fb7 unique (email);
+
+alter table budgets
+   add constraint FKn7qib00712y8dwelmqfwis6ka
+   foreign key (category_id)
+   references categories (id);
+
+alter table budgets
+   add constraint FKln0tm5tgf3f9q3sp9sa5m8m7b
+   foreign key (user_id)
+   references users (id);
+
+alter table categories
+   add constraint FKpl6qisipoxopuit3vb44cu4oc
+   foreign key (owner_id)
+   references users (id);
+
+alter table investment
+   add constraint FKpdvpxylr5w8xm73pptn7pmew5
+   foreign key (category_id)
+   references categories (id);
+
+alter table investment
+   add constraint FKfvtkedh96dreyblqi2mwyd63
+   foreign key (user_id)
+   references users (id);
+
+alter table password_reset_tokens
+   add constraint FKk3ndxg5xp6v7wd4gjyusp15gq
+   foreign key (user_id)
+   references users (id);
+
+alter table transaction
+   add constraint FKp46xgbp28n5kcq69xsw53qgnp
+   foreign key (category_id)
+   references categories (id);
+
+alter table transaction
+   add constraint FKg97ww9cs24afeg9vnkw4i9v43
+   foreign key (budget_id)
+   references budgets (id);
+
+alter table transaction
+   add constraint FKanjpo5tiapru7an6cw4cu37y4
+   foreign key (user_id)
+   references users (id);
+
+alter table transaction
+   add constraint FKgvcf9hionqctgllfmlexeqep0
+   foreign key (source_investment_id)
+   references investment (id);
+
+alter table user_authorities
+   add constraint FK6y0u41do0gynbgvlwnqngjudf
+   foreign key (authority_id)
+   references authorities (id);
+
+alter table user_authorities
+   add constraint FKhiiib540jf74gksgb87oofni
+   foreign key (user_id)
+   references users (id);
+
+alter table user_device
+   add constraint FKnnbvbh186cbm7wqvp89ffsfqg
+   foreign key (user_id)
+   references users (id);
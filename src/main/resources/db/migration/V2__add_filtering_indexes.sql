@@ -0,0 +1,17 @@
+-- Listings, sums and budget linking filter by user, category and date. Leading with the
+-- user and category lets the date range and ordering be read straight from the index,
+-- and carrying the signed amount lets the sums be answered without touching the rows.
+create index idx_transaction_user_category_date
+    on transaction (user_id, category_id, date, signed_amount);
+
+-- Listings without a category filter, ordered newest first
+create index idx_transaction_user_date
+    on transaction (user_id, date);
+
+-- Expense-only queries filter on the single table discriminator
+create index idx_transaction_user_type_date
+    on transaction (user_id, transaction_type, date);
+
+-- Active and overlapping budget lookups
+create index idx_budgets_user_category_dates
+    on budgets (user_id, category_id, creationdate, limitdate);
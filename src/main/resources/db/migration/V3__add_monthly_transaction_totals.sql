@@ -0,0 +1,40 @@
+-- Per-month rollup of transactions that the sum endpoints read instead of every transaction
+create table monthly_transaction_totals (
+    id bigint not null auto_increment,
+    user_id bigint not null,
+    category_id bigint not null,
+    month_start date not null,
+    transaction_type varchar(31) not null,
+    signed_amount decimal(38,2) not null,
+    primary key (id)
+);
+
+alter table monthly_transaction_totals
+   add constraint UniqueTotalPerUserCategoryMonthAndType
+   unique (user_id, category_id, month_start, transaction_type);
+
+alter table monthly_transaction_totals
+   add constraint fk_monthly_transaction_totals_user
+   foreign key (user_id)
+   references users (id);
+
+alter table monthly_transaction_totals
+   add constraint fk_monthly_transaction_totals_category
+   foreign key (category_id)
+   references categories (id);
+
+-- Totals of all the months spanned by a user's transactions, whatever the category
+create index idx_monthly_transaction_totals_user_month
+    on monthly_transaction_totals (user_id, month_start);
+
+insert into monthly_transaction_totals (user_id, category_id, month_start, transaction_type, signed_amount)
+select user_id, category_id, month_start, transaction_type, sum(signed_amount)
+from (
+    select user_id,
+           category_id,
+           cast(concat(year(date), '-', lpad(month(date), 2, '0'), '-01') as date) as month_start,
+           transaction_type,
+           coalesce(signed_amount, case when transaction_type = 'expense' then -amount else amount end) as signed_amount
+    from transaction
+) monthly
+group by user_id, category_id, month_start, transaction_type;
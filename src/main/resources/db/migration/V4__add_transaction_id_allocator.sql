@@ -0,0 +1,9 @@
+-- Transaction ids are handed out by Hibernate in blocks read from this single row table, so
+-- that inserts can be batched, which IDENTITY ids prevent. The id column keeps its
+-- auto_increment for rows inserted outside of Hibernate.
+create table transaction_ids (
+    next_val bigint
+);
+
+insert into transaction_ids (next_val)
+select coalesce(max(id), 0) + 1 from transaction;
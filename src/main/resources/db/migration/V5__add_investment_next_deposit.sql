@@ -0,0 +1,17 @@
+-- Investment returns are deposited by a periodic sweep over the investments that are due,
+-- instead of by a Quartz job per investment. Existing investments resume after the deposits
+-- they already made.
+alter table investment add column deposits_made integer not null default 0;
+
+alter table investment add column next_deposit_timestamp datetime(6);
+
+update investment
+set deposits_made = (
+    select count(*) from transaction t where t.source_investment_id = investment.id
+);
+
+update investment
+set next_deposit_timestamp = timestampadd(day, deposits_made * deposit_interval_in_days, deposit_start_timestamp)
+where deposits_made < number_of_deposits;
+
+create index investment_next_deposit_idx on investment (next_deposit_timestamp);
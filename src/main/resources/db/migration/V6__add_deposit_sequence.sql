@@ -0,0 +1,31 @@
+-- Deposits are numbered within their investment, so that catching up on the deposits missed
+-- while the application was down can never make the same deposit twice. Existing deposits
+-- are numbered in the order they were made.
+alter table transaction add column deposit_sequence integer;
+
+-- Numbered into a table of their own first: MySQL rejects an update of transaction reading
+-- transaction in a subquery (error 1093), and H2 has no multi-table update to join them
+create table deposit_sequence_backfill (
+    id bigint not null,
+    deposit_sequence integer not null,
+    primary key (id)
+);
+
+insert into deposit_sequence_backfill (id, deposit_sequence)
+select id, row_number() over (partition by source_investment_id order by date, id)
+from transaction
+where source_investment_id is not null;
+
+update transaction
+set deposit_sequence = (
+    select backfill.deposit_sequence
+    from deposit_sequence_backfill backfill
+    where backfill.id = transaction.id
+)
+where source_investment_id is not null;
+
+drop table deposit_sequence_backfill;
+
+alter table transaction
+   add constraint UniqueDepositSequencePerInvestment
+   unique (source_investment_id, deposit_sequence);
@@ -0,0 +1,14 @@
+-- Instances sweeping investment deposits. Each one renews its lease while it is alive, and
+-- the due investments are split between the instances whose lease has not expired. Each
+-- row also records how many deposits its instance made, for comparing their throughput.
+create table deposit_sweep_nodes (
+    node_id varchar(36) not null,
+    lease_expires_at datetime(6) not null,
+    deposits_made bigint not null,
+    last_sweep_deposits integer not null,
+    last_sweep_millis bigint not null,
+    primary key (node_id)
+);
+
+create index idx_deposit_sweep_nodes_lease
+    on deposit_sweep_nodes (lease_expires_at);
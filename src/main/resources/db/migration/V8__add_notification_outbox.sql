@@ -0,0 +1,28 @@
+-- Push notifications are written here in the transaction of the change they report, and
+-- delivered in the background by a relay that deletes them once sent. A row is sent again
+-- at next_attempt_at until then: after a failed send, or when a relay claimed it but never
+-- reported back. There is no foreign key to users, a user's pending notifications are
+-- simply sent to no devices once the user is gone.
+create table notification_outbox (
+    id bigint not null auto_increment,
+    kind varchar(20) not null,
+    user_id bigint not null,
+    subject_id bigint not null,
+    subject_name varchar(255) not null,
+    amount decimal(14,2),
+    threshold integer,
+    attempts integer not null,
+    next_attempt_at datetime(6) not null,
+    primary key (id)
+);
+
+create index idx_notification_outbox_next_attempt
+    on notification_outbox (next_attempt_at);
+
+-- Handed out in blocks like transaction ids, so that a sweep's notifications are inserted
+-- in batches
+create table notification_outbox_ids (
+    next_val bigint
+);
+
+insert into notification_outbox_ids (next_val) values (1);
@@ -11,7 +11,9 @@ import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -32,7 +34,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         DelegatingBasicAuthenticationEntryPoint.class,
         SecurityConfiguration.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class DeviceRegistrationTest {
 
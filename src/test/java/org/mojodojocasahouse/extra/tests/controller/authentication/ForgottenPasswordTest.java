@@ -11,7 +11,9 @@ import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
 import org.mojodojocasahouse.extra.dto.requests.ForgotPasswordRequest;
 import org.mojodojocasahouse.extra.exception.EmailException;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -34,7 +36,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         DelegatingBasicAuthenticationEntryPoint.class,
         SecurityConfiguration.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class ForgottenPasswordTest {
 
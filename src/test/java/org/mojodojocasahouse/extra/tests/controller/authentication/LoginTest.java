@@ -11,7 +11,10 @@ import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessToken;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.springframework.beans.factory.annotation.Autowired;
@@ -28,6 +31,7 @@ import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.security.Principal;
+import java.time.Instant;
 import java.util.HashMap;
 import java.util.Map;
 
@@ -38,7 +42,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         DelegatingBasicAuthenticationEntryPoint.class,
         SecurityConfiguration.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class LoginTest {
 
@@ -79,6 +85,8 @@ public class LoginTest {
         Map<String, String> expectedCredentials = new HashMap<>();
         expectedCredentials.put("firstName", "michael");
         expectedCredentials.put("lastName", "jackson");
+        expectedCredentials.put("accessToken", "a.token");
+        expectedCredentials.put("accessTokenExpiresAt", "2023-01-01T00:15:00Z");
         ApiResponse expectedResponse = new ApiResponse(
                 "Login successful",
                 expectedCredentials
@@ -87,6 +95,8 @@ public class LoginTest {
 
         // Setup - expectations
         given(authenticationService.getUserByPrincipal(any())).willReturn(user);
+        given(authenticationService.issueAccessToken(user))
+                .willReturn(new AccessToken("a.token", Instant.parse("2023-01-01T00:15:00Z")));
 
         // exercise
         MockHttpServletResponse response = loginWithPrincipal(principal);
@@ -0,0 +1,151 @@
+package org.mojodojocasahouse.extra.tests.controller.budgets;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.configuration.SecurityConfiguration;
+import org.mojodojocasahouse.extra.controller.BudgetController;
+import org.mojodojocasahouse.extra.dto.responses.ApiError;
+import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.dto.model.BudgetForecastDTO;
+import org.mojodojocasahouse.extra.exception.BudgetAccessDeniedException;
+import org.mojodojocasahouse.extra.exception.BudgetNotFoundException;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
+import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
+import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
+import org.mojodojocasahouse.extra.service.AuthenticationService;
+import org.mojodojocasahouse.extra.service.BudgetService;
+import org.mojodojocasahouse.extra.service.CategoryService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.test.context.support.WithMockUser;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.math.BigDecimal;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.BDDMockito.given;
+
+@WebMvcTest(BudgetController.class)
+@Import({
+        DelegatingBasicAuthenticationEntryPoint.class,
+        SecurityConfiguration.class,
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
+})
+public class BudgetForecastTests {
+
+    @Autowired
+    private MockMvc mvc;
+
+    private JacksonTester<ApiError> jsonApiError;
+
+    private JacksonTester<ApiResponse> jsonApiResponse;
+
+    @MockBean
+    public AuthenticationService authService;
+
+    @MockBean
+    public ExtraUserRepository userRepository;
+
+    @MockBean
+    public BudgetService budgetService;
+
+    @MockBean
+    public CategoryService categoryService;
+
+    @Autowired
+    public BudgetController controller;
+
+    @BeforeEach
+    public void setup() {
+        JacksonTester.initFields(this, new ObjectMapper());
+    }
+
+
+    @Test
+    @WithMockUser
+    public void testGettingForecastOfOwnBudgetReturnsIt() throws Exception {
+        // Setup - data
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        BudgetForecastDTO expectedResponse = new BudgetForecastDTO(
+                1L,
+                new BigDecimal("300.00"),
+                new BigDecimal("100.00"),
+                new BigDecimal("10.00"),
+                new BigDecimal("300.00"),
+                "2023-01-30"
+        );
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
+        given(budgetService.getBudgetForecast(any(), eq(1L), any())).willReturn(expectedResponse);
+
+        // exercise
+        MockHttpServletResponse response = getForecast(1L);
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(response.getContentAsString()).isEqualTo(asJsonString(expectedResponse));
+    }
+
+    @Test
+    @WithMockUser
+    public void testGettingForecastOfNonExistingBudgetReturnsNotFound() throws Exception {
+        // Setup - Expectations
+        given(budgetService.getBudgetForecast(any(), eq(1L), any())).willThrow(new BudgetNotFoundException());
+
+        // exercise
+        MockHttpServletResponse response = getForecast(1L);
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.NOT_FOUND.value());
+    }
+
+    @Test
+    @WithMockUser
+    public void testGettingForecastOfAnotherUsersBudgetReturnsForbidden() throws Exception {
+        // Setup - Expectations
+        given(budgetService.getBudgetForecast(any(), eq(1L), any())).willThrow(new BudgetAccessDeniedException());
+
+        // exercise
+        MockHttpServletResponse response = getForecast(1L);
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.FORBIDDEN.value());
+    }
+
+    private MockHttpServletResponse getForecast(Long id) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.
+                        get("/budgets/" + id + "/forecast")
+                        .accept(MediaType.ALL))
+                .andReturn().getResponse();
+    }
+
+    public static String asJsonString(final Object obj) {
+        try {
+            return new ObjectMapper().writeValueAsString(obj);
+        } catch (Exception e) {
+            throw new RuntimeException(e);
+        }
+    }
+
+}
@@ -7,13 +7,17 @@ import org.junit.jupiter.api.Test;
 import org.mojodojocasahouse.extra.configuration.SecurityConfiguration;
 import org.mojodojocasahouse.extra.controller.BudgetController;
 import org.mojodojocasahouse.extra.dto.requests.ActiveBudgetRequest;
+import org.mojodojocasahouse.extra.dto.requests.ActiveBudgetsRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.dto.model.ActiveBudgetLookupDTO;
 import org.mojodojocasahouse.extra.dto.model.BudgetDTO;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.BudgetService;
@@ -32,6 +36,7 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.List;
 import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -41,7 +46,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         DelegatingBasicAuthenticationEntryPoint.class,
         SecurityConfiguration.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class BudgetListingActiveTests {
 
@@ -168,6 +175,52 @@ public class BudgetListingActiveTests {
         Assertions.assertThat(response.getContentLength()).isEqualTo(0);
     }
 
+    @Test
+    @WithMockUser
+    public void testListingActiveBudgetsInBatchReturnsOneResultPerLookup() throws Exception {
+        // Setup - data
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        Category customCategory = new Category("test", (short) 1, linkedUser);
+        Category otherCategory = new Category("other", (short) 2, linkedUser);
+        ActiveBudgetsRequest request = new ActiveBudgetsRequest(List.of(
+                new ActiveBudgetRequest(customCategory.asDto(), Date.valueOf("2020-12-09")),
+                new ActiveBudgetRequest(otherCategory.asDto(), Date.valueOf("2020-12-09"))
+        ));
+        List<ActiveBudgetLookupDTO> expectedResponse = List.of(
+                new ActiveBudgetLookupDTO(customCategory.asDto(), Date.valueOf("2020-12-09"), new BudgetDTO(
+                        1L,
+                        "test",
+                        new BigDecimal(100),
+                        BigDecimal.ZERO,
+                        Date.valueOf("2018-12-09"),
+                        Date.valueOf("2024-12-09"),
+                        customCategory.asDto()
+                )),
+                new ActiveBudgetLookupDTO(otherCategory.asDto(), Date.valueOf("2020-12-09"), null)
+        );
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
+        given(budgetService.getActiveBudgetsByCategoriesAndDates(any(), any())).willReturn(expectedResponse);
+
+        // exercise
+        MockHttpServletResponse response = mvc.perform(MockMvcRequestBuilders.
+                        post("/getActiveBudgets/batch")
+                        .content(asJsonString(request))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.ALL))
+                .andReturn().getResponse();
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(response.getContentAsString()).isEqualTo(asJsonString(expectedResponse));
+    }
+
     private MockHttpServletResponse getAllBudgets(ActiveBudgetRequest request) throws Exception {
         return mvc.perform(MockMvcRequestBuilders.
                         post("/getActiveBudgets")
@@ -7,6 +7,7 @@ import static org.mockito.BDDMockito.given;
 
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.List;
 
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -14,16 +15,22 @@ import org.junit.jupiter.api.Test;
 import org.mojodojocasahouse.extra.configuration.SecurityConfiguration;
 import org.mojodojocasahouse.extra.controller.TransactionController;
 import org.mojodojocasahouse.extra.dto.responses.ApiError;
+import org.mojodojocasahouse.extra.dto.model.RejectedExpenseDTO;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseAddingRequest;
+import org.mojodojocasahouse.extra.dto.requests.ExpenseBulkAddingRequest;
+import org.mojodojocasahouse.extra.dto.responses.ExpenseBulkAddingResponse;
 import org.mojodojocasahouse.extra.model.Budget;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -41,7 +48,9 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 @Import({
         DelegatingBasicAuthenticationEntryPoint.class,
         SecurityConfiguration.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class ExpensesAddingTest {
 
@@ -52,6 +61,8 @@ public class ExpensesAddingTest {
 
     private JacksonTester<ApiResponse> jsonApiResponse;
 
+    private JacksonTester<ExpenseBulkAddingResponse> jsonBulkResponse;
+
     @MockBean
     public AuthenticationService authService;
 
@@ -64,6 +75,9 @@ public class ExpensesAddingTest {
     @MockBean
     public TransactionService transactionService;
 
+    @MockBean
+    public TransactionExportService exportService;
+
     @Autowired
     public TransactionController controller;
 
@@ -107,6 +121,85 @@ public class ExpensesAddingTest {
     }
 
 
+    @Test
+    @WithMockUser
+    public void testAddingManyExpensesReturnsAddedCountAndRejectedExpenses() throws Exception {
+        // Setup - data
+        ExpenseBulkAddingRequest request = new ExpenseBulkAddingRequest(List.of(
+                new ExpenseAddingRequest("test", new BigDecimal(100), Date.valueOf("2018-12-09"), "test", (short) 1),
+                new ExpenseAddingRequest("test", new BigDecimal(-1), Date.valueOf("2018-12-09"), "test", (short) 1)
+        ));
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        ExpenseBulkAddingResponse expectedResponse = new ExpenseBulkAddingResponse(
+                1,
+                List.of(new RejectedExpenseDTO(1, List.of("Amount must be greater than 0.01")))
+        );
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
+        given(expenseService.addExpenses(any(), any())).willReturn(expectedResponse);
+
+        // exercise
+        MockHttpServletResponse response = postToController("/addExpenses", request);
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.CREATED.value());
+        Assertions.assertThat(response.getContentAsString()).isEqualTo(jsonBulkResponse.write(expectedResponse).getJson());
+    }
+
+    @Test
+    @WithMockUser
+    public void testAddingManyExpensesWithoutAddingAnyReturnsBadRequest() throws Exception {
+        // Setup - data
+        ExpenseBulkAddingRequest request = new ExpenseBulkAddingRequest(List.of(
+                new ExpenseAddingRequest("test", new BigDecimal(-1), Date.valueOf("2018-12-09"), "test", (short) 1)
+        ));
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        ExpenseBulkAddingResponse expectedResponse = new ExpenseBulkAddingResponse(
+                0,
+                List.of(new RejectedExpenseDTO(0, List.of("Amount must be greater than 0.01")))
+        );
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
+        given(expenseService.addExpenses(any(), any())).willReturn(expectedResponse);
+
+        // exercise
+        MockHttpServletResponse response = postToController("/addExpenses", request);
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    @WithMockUser
+    public void testAddingAnEmptyListOfExpensesReturnsBadRequest() throws Exception {
+        // exercise
+        MockHttpServletResponse response = postToController("/addExpenses", new ExpenseBulkAddingRequest(List.of()));
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    private MockHttpServletResponse postToController(String url, Object request) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.
+                        post(url)
+                        .content(asJsonString(request))
+                        .contentType(MediaType.APPLICATION_JSON)
+                        .accept(MediaType.ALL))
+                .andReturn().getResponse();
+    }
+
     private MockHttpServletResponse postExpenseAddToControllerNoCookie(ExpenseAddingRequest request) throws Exception {
         return mvc.perform(MockMvcRequestBuilders.
                         post("/addExpense")
@@ -8,13 +8,18 @@ import org.mojodojocasahouse.extra.configuration.SecurityConfiguration;
 import org.mojodojocasahouse.extra.controller.TransactionController;
 import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.exception.ExpenseAccessDeniedException;
+import org.mojodojocasahouse.extra.exception.ExpenseNotFoundException;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
 import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -30,12 +35,15 @@ import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.BDDMockito.willThrow;
 
 @WebMvcTest(TransactionController.class)
 @Import({
         DelegatingBasicAuthenticationEntryPoint.class,
         SecurityConfiguration.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class ExpensesDeletingTest {
 
@@ -58,6 +66,9 @@ public class ExpensesDeletingTest {
     @MockBean
     public TransactionService transactionService;
 
+    @MockBean
+    public TransactionExportService exportService;
+
     @Autowired
     public TransactionController controller;
 
@@ -82,8 +93,6 @@ public class ExpensesDeletingTest {
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
-        given(expenseService.existsById(any())).willReturn(true);
-        given(expenseService.isOwner(any(), any())).willReturn(true);
 
         // exercise
         MockHttpServletResponse response = postExpenseDeletingRequest(1L);
@@ -111,7 +120,7 @@ public class ExpensesDeletingTest {
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
-        given(expenseService.existsById(any())).willReturn(false);
+        willThrow(new ExpenseNotFoundException()).given(expenseService).deleteExpense(any(), any());
 
         // exercise
         MockHttpServletResponse response = postExpenseDeletingRequest(1L);
@@ -138,8 +147,7 @@ public class ExpensesDeletingTest {
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
-        given(expenseService.existsById(any())).willReturn(true);
-        given(expenseService.isOwner(any(), any())).willReturn(false);
+        willThrow(new ExpenseAccessDeniedException()).given(expenseService).deleteExpense(any(), any());
 
         // exercise
         MockHttpServletResponse response = postExpenseDeletingRequest(1L);
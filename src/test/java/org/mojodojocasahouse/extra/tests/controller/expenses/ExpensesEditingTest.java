@@ -8,14 +8,19 @@ import org.mojodojocasahouse.extra.configuration.SecurityConfiguration;
 import org.mojodojocasahouse.extra.controller.TransactionController;
 import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.exception.ExpenseAccessDeniedException;
+import org.mojodojocasahouse.extra.exception.ExpenseNotFoundException;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseEditingRequest;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
 import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -39,7 +44,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         DelegatingBasicAuthenticationEntryPoint.class,
         SecurityConfiguration.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class ExpensesEditingTest {
 
@@ -62,6 +69,9 @@ public class ExpensesEditingTest {
     @MockBean
     public TransactionService transactionService;
 
+    @MockBean
+    public TransactionExportService exportService;
+
     @Autowired
     public TransactionController controller;
 
@@ -93,9 +103,7 @@ public class ExpensesEditingTest {
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
-        given(expenseService.existsById(any())).willReturn(true);
-        given(expenseService.isOwner(any(), any())).willReturn(true);
-        given(expenseService.editExpense(any(), any())).willReturn(expectedResponse);
+        given(expenseService.editExpense(any(), any(), any())).willReturn(expectedResponse);
 
         // exercise
         MockHttpServletResponse response = postExpenseEditingRequest(request, 1L);
@@ -130,7 +138,7 @@ public class ExpensesEditingTest {
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
-        given(expenseService.existsById(any())).willReturn(false);
+        given(expenseService.editExpense(any(), any(), any())).willThrow(new ExpenseNotFoundException());
 
         // exercise
         MockHttpServletResponse response = postExpenseEditingRequest(request, 1L);
@@ -164,8 +172,7 @@ public class ExpensesEditingTest {
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any())).willReturn(linkedUser);
-        given(expenseService.existsById(any())).willReturn(true);
-        given(expenseService.isOwner(any(), any())).willReturn(false);
+        given(expenseService.editExpense(any(), any(), any())).willThrow(new ExpenseAccessDeniedException());
 
         // exercise
         MockHttpServletResponse response = postExpenseEditingRequest(request, 1L);
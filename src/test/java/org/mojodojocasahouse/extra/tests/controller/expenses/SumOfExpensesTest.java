@@ -1,5 +1,6 @@
 package org.mojodojocasahouse.extra.tests.controller.expenses;
 
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,10 +12,13 @@ import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.dto.model.ExpenseDTO;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,9 +32,9 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.math.BigDecimal;
 import java.sql.Date;
 import java.util.List;
-import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
@@ -40,7 +44,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         SecurityConfiguration.class,
         DelegatingBasicAuthenticationEntryPoint.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class SumOfExpensesTest {
 
@@ -63,6 +69,9 @@ public class SumOfExpensesTest {
     @MockBean
     public TransactionService transactionService;
 
+    @MockBean
+    public TransactionExportService exportService;
+
     @Autowired
     public TransactionController controller;
 
@@ -82,16 +91,16 @@ public class SumOfExpensesTest {
                 "mj@me.com",
                 "Somepassword"
         );
-        List<Map<String, String>> expectedResponse = List.of(
-                Map.of("category", "A category", "amount", "10000"),
-                Map.of("category", "Another category", "amount", "20000"),
-                Map.of("category", "A third category", "amount", "30000")
+        List<CategoryAmountDTO> expectedResponse = List.of(
+                new CategoryAmountDTO(1L, "A category", new BigDecimal("10000")),
+                new CategoryAmountDTO(2L, "Another category", new BigDecimal("20000")),
+                new CategoryAmountDTO(3L, "A third category", new BigDecimal("30000"))
         );
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any()))
                 .willReturn(linkedUser);
-        given(expenseService.getSumOfExpensesOfUserByCategoriesAndDateRanges(any(), any(), isNull(), isNull()))
+        given(expenseService.getSumOfExpensesOfUserByCategoriesAndDateRanges(any(), any(), any(), isNull(), isNull()))
                 .willReturn(expectedResponse);
 
         // exercise
@@ -112,16 +121,16 @@ public class SumOfExpensesTest {
                 "mj@me.com",
                 "Somepassword"
         );
-        List<Map<String, String>> expectedResponse = List.of(
-                Map.of("category", "A category", "amount", "10000"),
-                Map.of("category", "Another category", "amount", "20000"),
-                Map.of("category", "A third category", "amount", "30000")
+        List<CategoryAmountDTO> expectedResponse = List.of(
+                new CategoryAmountDTO(1L, "A category", new BigDecimal("10000")),
+                new CategoryAmountDTO(2L, "Another category", new BigDecimal("20000")),
+                new CategoryAmountDTO(3L, "A third category", new BigDecimal("30000"))
         );
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any()))
                 .willReturn(linkedUser);
-        given(expenseService.getSumOfExpensesOfUserByCategoriesAndDateRanges(any(), any(), any(Date.class), any(Date.class)))
+        given(expenseService.getSumOfExpensesOfUserByCategoriesAndDateRanges(any(), any(), any(), any(Date.class), any(Date.class)))
                 .willReturn(expectedResponse);
 
         // exercise
@@ -9,32 +9,44 @@ import org.mojodojocasahouse.extra.controller.TransactionController;
 import org.mojodojocasahouse.extra.dto.model.ExpenseDTO;
 import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
 import org.mojodojocasahouse.extra.dto.requests.FilteringRequest;
+import org.mojodojocasahouse.extra.dto.requests.TransactionPageRequest;
+import org.mojodojocasahouse.extra.dto.requests.TransactionSearchRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiError;
+import org.mojodojocasahouse.extra.dto.responses.TransactionPageResponse;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
 import org.springframework.boot.test.json.JacksonTester;
 import org.springframework.boot.test.mock.mockito.MockBean;
 import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpHeaders;
 import org.springframework.http.HttpStatus;
 import org.springframework.http.MediaType;
 import org.springframework.mock.web.MockHttpServletResponse;
 import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.MvcResult;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.io.OutputStream;
 import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
 import java.sql.Date;
 import java.util.List;
+import java.util.function.Consumer;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.ArgumentMatchers.isNull;
 import static org.mockito.BDDMockito.given;
 
@@ -42,7 +54,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         SecurityConfiguration.class,
         DelegatingBasicAuthenticationEntryPoint.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class TransactionListingTest {
 
@@ -62,6 +76,9 @@ public class TransactionListingTest {
     @MockBean
     public TransactionService transactionService;
 
+    @MockBean
+    public TransactionExportService exportService;
+
     @MockBean
     public ExtraUserRepository userRepository;
 
@@ -93,7 +110,7 @@ public class TransactionListingTest {
         // Setup - Expectations
         given(authService.getUserByPrincipal(any()))
                 .willReturn(linkedUser);
-        given(transactionService.getTransactionsOfUserByCategoriesAndDateRanges(any(), any(), isNull(), isNull()))
+        given(transactionService.getTransactionsOfUserByCategoriesAndDateRanges(any(), any(), any(), isNull(), isNull()))
                 .willReturn(expectedResponse);
 
         // exercise
@@ -122,7 +139,7 @@ public class TransactionListingTest {
         // Setup - Expectations
         given(authService.getUserByPrincipal(any()))
                 .willReturn(linkedUser);
-        given(transactionService.getTransactionsOfUserByCategoriesAndDateRanges(any(), any(), any(Date.class), any(Date.class)))
+        given(transactionService.getTransactionsOfUserByCategoriesAndDateRanges(any(), any(), any(), any(Date.class), any(Date.class)))
                 .willReturn(expectedResponse);
 
         // exercise
@@ -134,6 +151,214 @@ public class TransactionListingTest {
     }
 
 
+    @Test
+    @WithMockUser
+    public void testListingAPageOfTransactionsReturnsTheTransactionsAndTheNextCursor() throws Exception {
+        // Setup - data
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        Category customCategory = new Category("test1", (short) 1, linkedUser);
+        TransactionPageResponse expectedResponse = new TransactionPageResponse(
+                List.of(new ExpenseDTO(7L, "A concept", new BigDecimal("10.12"), Date.valueOf("2022-12-09"), customCategory.asDto())),
+                Date.valueOf("2022-12-09"),
+                7L
+        );
+        TransactionPageRequest request = new TransactionPageRequest(
+                null, null, List.of(), Date.valueOf("2022-12-10"), 9L, 1
+        );
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any()))
+                .willReturn(linkedUser);
+        given(transactionService.getTransactionPageOfUserByCategoriesAndDateRanges(
+                any(), any(), any(), isNull(), isNull(), eq(Date.valueOf("2022-12-10")), eq(9L), eq(1)))
+                .willReturn(expectedResponse);
+
+        // exercise
+        MockHttpServletResponse response = mvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/getMyTransactionsPage")
+                                .content(asJsonString(request))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.ALL))
+                .andReturn()
+                .getResponse();
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(response.getContentAsString()).isEqualTo(asJsonString(expectedResponse));
+    }
+
+    @Test
+    @WithMockUser
+    public void testListingAPageOfTransactionsWithAnOversizedPageReturnsBadRequest() throws Exception {
+        TransactionPageRequest request = new TransactionPageRequest(
+                null, null, List.of(), null, null, 10000
+        );
+
+        MockHttpServletResponse response = mvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/getMyTransactionsPage")
+                                .content(asJsonString(request))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.ALL))
+                .andReturn()
+                .getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    @WithMockUser
+    public void testSearchingTransactionsReturnsTheMatchingPageAndTheNextCursor() throws Exception {
+        // Setup - data
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        Category customCategory = new Category("test1", (short) 1, linkedUser);
+        TransactionPageResponse expectedResponse = new TransactionPageResponse(
+                List.of(new ExpenseDTO(7L, "A concept", new BigDecimal("10.12"), Date.valueOf("2022-12-09"), customCategory.asDto())),
+                Date.valueOf("2022-12-09"),
+                7L
+        );
+        TransactionSearchRequest request = new TransactionSearchRequest(
+                "a con", null, null, List.of(), null, null, 1
+        );
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any()))
+                .willReturn(linkedUser);
+        given(transactionService.searchTransactionsOfUserByConceptAndCategoriesAndDateRanges(
+                any(), eq("a con"), any(), any(), isNull(), isNull(), isNull(), isNull(), eq(1)))
+                .willReturn(expectedResponse);
+
+        // exercise
+        MockHttpServletResponse response = mvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/searchMyTransactions")
+                                .content(asJsonString(request))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.ALL))
+                .andReturn()
+                .getResponse();
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(response.getContentAsString()).isEqualTo(asJsonString(expectedResponse));
+    }
+
+    @Test
+    @WithMockUser
+    public void testSearchingTransactionsWithABlankQueryReturnsBadRequest() throws Exception {
+        TransactionSearchRequest request = new TransactionSearchRequest(
+                " ", null, null, List.of(), null, null, 10
+        );
+
+        MockHttpServletResponse response = mvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/searchMyTransactions")
+                                .content(asJsonString(request))
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.ALL))
+                .andReturn()
+                .getResponse();
+
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.BAD_REQUEST.value());
+    }
+
+    @Test
+    @WithMockUser
+    public void testStreamingTransactionsWritesOneJsonDocumentPerLine() throws Exception {
+        // Setup - data
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        Category customCategory = new Category("test1", (short) 1, linkedUser);
+        List<TransactionDTO> storedTransactions = List.of(
+                new ExpenseDTO(2L, "A concept", new BigDecimal("10.12"), Date.valueOf("2022-12-09"), customCategory.asDto()),
+                new ExpenseDTO(1L, "Another concept", new BigDecimal("1.00"), Date.valueOf("2022-12-08"), customCategory.asDto())
+        );
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any()))
+                .willReturn(linkedUser);
+        given(transactionService.forEachTransactionOfUserByCategoriesAndDateRanges(any(), any(), any(), isNull(), isNull(), any()))
+                .willAnswer(invocation -> {
+                    Consumer<TransactionDTO> consumer = invocation.getArgument(5);
+                    storedTransactions.forEach(consumer);
+                    return (long) storedTransactions.size();
+                });
+
+        // exercise
+        MvcResult asyncResult = mvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/streamMyTransactions")
+                                .accept(MediaType.ALL))
+                .andReturn();
+        MockHttpServletResponse response = mvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andReturn()
+                .getResponse();
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(response.getContentType()).isEqualTo("application/x-ndjson");
+        Assertions.assertThat(response.getContentAsString()).isEqualTo(
+                asJsonString(storedTransactions.get(0)) + "\n" + asJsonString(storedTransactions.get(1)) + "\n"
+        );
+    }
+
+    @Test
+    @WithMockUser
+    public void testExportingTransactionsAsCsvStreamsAnAttachment() throws Exception {
+        // Setup - data
+        ExtraUser linkedUser = new ExtraUser(
+                "M",
+                "J",
+                "mj@me.com",
+                "Somepassword"
+        );
+        String csv = "Id,Date,Type,Concept,Category,Amount\r\n1,2022-12-08,expense,A concept,test1,1.00\r\n";
+
+        // Setup - Expectations
+        given(authService.getUserByPrincipal(any()))
+                .willReturn(linkedUser);
+        given(exportService.writeCsv(any(), any(), any(), isNull(), isNull(), any()))
+                .willAnswer(invocation -> {
+                    OutputStream outputStream = invocation.getArgument(5);
+                    outputStream.write(csv.getBytes(StandardCharsets.UTF_8));
+                    return 1L;
+                });
+
+        // exercise
+        MvcResult asyncResult = mvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/exportMyTransactions/csv")
+                                .accept(MediaType.ALL))
+                .andReturn();
+        MockHttpServletResponse response = mvc
+                .perform(MockMvcRequestBuilders.asyncDispatch(asyncResult))
+                .andReturn()
+                .getResponse();
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(response.getContentType()).isEqualTo("text/csv");
+        Assertions.assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION))
+                .isEqualTo("attachment; filename=\"transactions.csv\"");
+        Assertions.assertThat(response.getContentAsString()).isEqualTo(csv);
+    }
+
     private MockHttpServletResponse getExpenses() throws Exception {
         return mvc.perform(MockMvcRequestBuilders.
                         post("/getMyTransactions")
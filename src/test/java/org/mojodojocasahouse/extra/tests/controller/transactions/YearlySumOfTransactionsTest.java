@@ -1,5 +1,6 @@
 package org.mojodojocasahouse.extra.tests.controller.transactions;
 
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
 import com.fasterxml.jackson.databind.ObjectMapper;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
@@ -11,10 +12,13 @@ import org.mojodojocasahouse.extra.dto.requests.FilteringRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -28,9 +32,9 @@ import org.springframework.security.test.context.support.WithMockUser;
 import org.springframework.test.web.servlet.MockMvc;
 import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
 
+import java.math.BigDecimal;
 import java.sql.Date;
 import java.util.List;
-import java.util.Map;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.ArgumentMatchers.isNull;
@@ -40,7 +44,9 @@ import static org.mockito.BDDMockito.given;
 @Import({
         SecurityConfiguration.class,
         DelegatingBasicAuthenticationEntryPoint.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class YearlySumOfTransactionsTest {
 
@@ -60,6 +66,9 @@ public class YearlySumOfTransactionsTest {
     @MockBean
     public TransactionService transactionService;
 
+    @MockBean
+    public TransactionExportService exportService;
+
     @MockBean
     public ExtraUserRepository userRepository;
 
@@ -82,16 +91,16 @@ public class YearlySumOfTransactionsTest {
                 "mj@me.com",
                 "Somepassword"
         );
-        List<Map<String, String>> expectedResponse = List.of(
-                Map.of("year", "2020", "amount", "10000"),
-                Map.of("year", "2023", "amount", "20000"),
-                Map.of("year", "2022", "amount", "30000")
+        List<YearAmountDTO> expectedResponse = List.of(
+                new YearAmountDTO(2020, new BigDecimal("10000")),
+                new YearAmountDTO(2023, new BigDecimal("20000")),
+                new YearAmountDTO(2022, new BigDecimal("30000"))
         );
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any()))
                 .willReturn(linkedUser);
-        given(transactionService.getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(any(), any(), isNull(), isNull()))
+        given(transactionService.getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(any(), any(), any(), isNull(), isNull()))
                 .willReturn(expectedResponse);
 
         // exercise
@@ -115,16 +124,16 @@ public class YearlySumOfTransactionsTest {
         FilteringRequest request = new FilteringRequest(
                 Date.valueOf("2019-12-09"), Date.valueOf("2022-12-10"), List.of()
         );
-        List<Map<String, String>> expectedResponse = List.of(
-                Map.of("year", "2020", "amount", "10000"),
-                Map.of("year", "2023", "amount", "20000"),
-                Map.of("year", "2022", "amount", "30000")
+        List<YearAmountDTO> expectedResponse = List.of(
+                new YearAmountDTO(2020, new BigDecimal("10000")),
+                new YearAmountDTO(2023, new BigDecimal("20000")),
+                new YearAmountDTO(2022, new BigDecimal("30000"))
         );
 
         // Setup - Expectations
         given(authService.getUserByPrincipal(any()))
                 .willReturn(linkedUser);
-        given(transactionService.getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(any(), any(), any(Date.class), any(Date.class)))
+        given(transactionService.getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(any(), any(), any(), any(Date.class), any(Date.class)))
                 .willReturn(expectedResponse);
 
         // exercise
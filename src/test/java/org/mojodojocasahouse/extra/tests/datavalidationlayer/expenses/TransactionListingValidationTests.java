@@ -10,10 +10,13 @@ import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
 import org.mojodojocasahouse.extra.dto.requests.FilteringRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiError;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
 import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
 import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
@@ -34,7 +37,9 @@ import java.util.List;
 @Import({
         SecurityConfiguration.class,
         DelegatingBasicAuthenticationEntryPoint.class,
-        ExtraUserDetailsService.class
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
 })
 public class TransactionListingValidationTests {
 
@@ -57,6 +62,9 @@ public class TransactionListingValidationTests {
     @MockBean
     public TransactionService transactionService;
 
+    @MockBean
+    public TransactionExportService exportService;
+
     @Autowired
     public TransactionController controller;
 
@@ -107,7 +115,29 @@ public class TransactionListingValidationTests {
         assertThatResponseReturnsError(response, expectedResponse);
     }
 
+    @Test
+    @WithMockUser
+    public void testListingATransactionPageWithANullPageSizeReturnsErrorResponse() throws Exception {
+        // Setup - data
+        ApiError expectedResponse = new ApiError(
+                HttpStatus.BAD_REQUEST,
+                "Data validation error",
+                "pageSize: Page size is mandatory"
+        );
 
+        // exercise
+        MockHttpServletResponse response = mvc.perform(
+                        MockMvcRequestBuilders
+                                .post("/getMyTransactionsPage")
+                                .content("{\"pageSize\": null}")
+                                .contentType(MediaType.APPLICATION_JSON)
+                                .accept(MediaType.ALL))
+                .andReturn()
+                .getResponse();
+
+        // Verify
+        assertThatResponseReturnsError(response, expectedResponse);
+    }
 
     private MockHttpServletResponse getTransactionsWithArguments(Object request) throws Exception {
         return mvc.perform(
@@ -0,0 +1,117 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.model.Budget;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.service.ActiveBudgetIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(ActiveBudgetIndex.class)
+class ActiveBudgetIndexTest {
+
+    @Autowired
+    private ActiveBudgetIndex activeBudgetIndex;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testFindingActiveBudgetReturnsTheBudgetCoveringTheDate() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        persist(new Budget(
+                user, "2022 budget", BigDecimal.TEN, Date.valueOf("2022-01-01"), Date.valueOf("2022-12-31"), category
+        ));
+        Budget budget = persist(new Budget(
+                user, "2023 budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-06-30"), category
+        ));
+
+        // execute & verify
+        Assertions
+                .assertThat(activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf("2023-01-01")))
+                .contains(budget.getId());
+        Assertions
+                .assertThat(activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf("2023-06-30")))
+                .contains(budget.getId());
+        Assertions
+                .assertThat(activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf("2023-07-01")))
+                .isEmpty();
+        Assertions
+                .assertThat(activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf("2021-12-31")))
+                .isEmpty();
+    }
+
+    @Test
+    void testRepeatedLookupsOfTheSameUserAndCategoryAreAnsweredWithoutQuerying() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        persist(new Budget(
+                user, "test budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category
+        ));
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        // execute
+        for (int i = 1; i <= 12; i++) {
+            activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf(String.format("2023-%02d-15", i)));
+        }
+
+        // verify
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testAddedBudgetIsFoundOnceItsTransactionCommits() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Assertions
+                .assertThat(activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf("2023-02-01")))
+                .isEmpty();
+        Budget budget = persist(new Budget(
+                user, "test budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category
+        ));
+
+        // execute
+        activeBudgetIndex.add(budget);
+
+        // verify
+        Assertions
+                .assertThat(activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf("2023-02-01")))
+                .isEmpty();
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        Assertions
+                .assertThat(activeBudgetIndex.findActiveBudgetId(user, category, Date.valueOf("2023-02-01")))
+                .contains(budget.getId());
+    }
+
+    private Statistics statistics() {
+        return entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
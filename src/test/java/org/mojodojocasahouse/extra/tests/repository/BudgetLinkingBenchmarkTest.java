@@ -0,0 +1,150 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.model.Budget;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.Expense;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.Transaction;
+import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.LocalDate;
+import java.util.List;
+
+// Links a yearly budget over a category's transactions, once by loading and dirty checking
+// every transaction and once with the bulk update. The timing test runs with -Pbenchmarks.
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BudgetLinkingBenchmarkTest {
+
+    private static final int TRANSACTIONS = 200;
+
+    private static final int BENCHMARK_TRANSACTIONS = 10_000;
+
+    @Autowired
+    private TransactionRepository transactionRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testBulkLinkingIsASingleStatementWhereDirtyCheckingUpdatesEachTransaction() {
+        // Setup - data
+        List<Budget> budgets = budgetsOverCategoriesWithExpenses(TRANSACTIONS);
+        Statistics statistics = statistics();
+
+        // execute
+        statistics.clear();
+        linkByDirtyChecking(budgets.get(0));
+        long dirtyCheckingUpdates = statistics.getEntityUpdateCount();
+        entityManager.clear();
+        Budget bulkBudget = entityManager.find(Budget.class, budgets.get(1).getId());
+
+        statistics.clear();
+        int linked = linkInBulk(bulkBudget);
+        long bulkStatements = statistics.getPrepareStatementCount();
+
+        // verify
+        Assertions.assertThat(linked).isEqualTo(TRANSACTIONS);
+        Assertions.assertThat(bulkStatements).isEqualTo(1);
+        Assertions.assertThat(dirtyCheckingUpdates).isEqualTo(TRANSACTIONS);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testBulkLinkingOutperformsDirtyCheckingEachTransaction() {
+        // Setup - data
+        List<Budget> budgets = budgetsOverCategoriesWithExpenses(BENCHMARK_TRANSACTIONS);
+
+        // execute
+        long dirtyCheckingStart = System.nanoTime();
+        linkByDirtyChecking(budgets.get(0));
+        long dirtyCheckingNanos = System.nanoTime() - dirtyCheckingStart;
+        entityManager.clear();
+        Budget bulkBudget = entityManager.find(Budget.class, budgets.get(1).getId());
+
+        long bulkStart = System.nanoTime();
+        int linked = linkInBulk(bulkBudget);
+        long bulkNanos = System.nanoTime() - bulkStart;
+
+        // verify
+        Assertions.assertThat(linked).isEqualTo(BENCHMARK_TRANSACTIONS);
+        Assertions.assertThat(bulkNanos).isLessThan(dirtyCheckingNanos);
+    }
+
+    // A dirty checked budget and a bulk linked one, each over a category of its own
+    private List<Budget> budgetsOverCategoriesWithExpenses(int transactions) {
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category dirtyCheckedCategory = persist(new Category("dirty checked", (short) 1, user));
+        Category bulkCategory = persist(new Category("bulk", (short) 2, user));
+        Budget dirtyCheckedBudget = persist(yearlyBudget(user, dirtyCheckedCategory));
+        Budget bulkBudget = persist(yearlyBudget(user, bulkCategory));
+        insertExpenses(user, dirtyCheckedCategory, transactions);
+        insertExpenses(user, bulkCategory, transactions);
+        entityManager.flush();
+        entityManager.clear();
+        return List.of(
+                entityManager.find(Budget.class, dirtyCheckedBudget.getId()),
+                entityManager.find(Budget.class, bulkBudget.getId())
+        );
+    }
+
+    private int linkInBulk(Budget budget) {
+        return transactionRepo.linkUnlinkedTransactionsToBudget(
+                budget, budget.getUser(), budget.getCategory(), budget.getStartingDate(), budget.getLimitDate()
+        );
+    }
+
+    private Statistics statistics() {
+        return entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    // What BudgetService used to do
+    private void linkByDirtyChecking(Budget budget) {
+        List<Transaction> transactions = entityManager
+                .createQuery("SELECT t FROM Transaction t " +
+                        "WHERE t.user = :user AND t.category = :category " +
+                        "AND t.date BETWEEN :minDate AND :maxDate", Transaction.class)
+                .setParameter("user", budget.getUser())
+                .setParameter("category", budget.getCategory())
+                .setParameter("minDate", budget.getStartingDate())
+                .setParameter("maxDate", budget.getLimitDate())
+                .getResultList();
+        transactions.forEach(transaction -> transaction.setLinkedBudget(budget));
+        entityManager.flush();
+    }
+
+    private void insertExpenses(ExtraUser user, Category category, int transactions) {
+        LocalDate firstDay = LocalDate.of(2023, 1, 1);
+        for (int i = 0; i < transactions; i++) {
+            entityManager.persist(new Expense(
+                    user, "expense " + i, BigDecimal.ONE, Date.valueOf(firstDay.plusDays(i % 365)), category
+            ));
+        }
+    }
+
+    private static Budget yearlyBudget(ExtraUser user, Category category) {
+        return new Budget(
+                user, category.getName() + " budget", BigDecimal.TEN,
+                Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category
+        );
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
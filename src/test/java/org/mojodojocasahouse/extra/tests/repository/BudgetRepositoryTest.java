@@ -0,0 +1,180 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.mojodojocasahouse.extra.dto.model.BudgetDTO;
+import org.mojodojocasahouse.extra.model.*;
+import org.mojodojocasahouse.extra.repository.BudgetRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
+
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class BudgetRepositoryTest {
+
+    @Autowired
+    private BudgetRepository budgetRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testAddingToCurrentAmountIncrementsTheStoredRunningTotal() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Budget budget = persist(new Budget(
+                user, "test budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category
+        ));
+
+        // execute
+        budgetRepo.addToCurrentAmount(budget.getId(), new BigDecimal("10.50"));
+        budgetRepo.addToCurrentAmount(budget.getId(), new BigDecimal("-0.25"));
+        entityManager.clear();
+
+        // verify
+        Assertions
+                .assertThat(budgetRepo.findById(budget.getId()).orElseThrow().getCurrentAmount())
+                .isEqualByComparingTo("10.25");
+    }
+
+    @Test
+    void testReconcilingCurrentAmountsRederivesThemFromLinkedTransactions() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Budget budget = persist(new Budget(
+                user, "test budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category
+        ));
+        Budget emptyBudget = persist(new Budget(
+                user, "empty budget", BigDecimal.TEN, Date.valueOf("2024-01-01"), Date.valueOf("2024-12-31"), category
+        ));
+        Expense expense = new Expense(user, "expense", new BigDecimal("30.00"), Date.valueOf("2023-02-01"), category);
+        expense.setLinkedBudget(budget);
+        persist(expense);
+        Deposit deposit = new Deposit("deposit", new BigDecimal("5.00"), Date.valueOf("2023-03-01"), user, category, budget, null, null);
+        persist(deposit);
+        budgetRepo.addToCurrentAmount(budget.getId(), new BigDecimal("999"));
+        budgetRepo.addToCurrentAmount(emptyBudget.getId(), new BigDecimal("999"));
+
+        // execute
+        int reconciled = budgetRepo.reconcileCurrentAmounts();
+        entityManager.clear();
+
+        // verify
+        Assertions.assertThat(reconciled).isEqualTo(2);
+        Assertions
+                .assertThat(budgetRepo.findById(budget.getId()).orElseThrow().getCurrentAmount())
+                .isEqualByComparingTo("25.00");
+        Assertions
+                .assertThat(budgetRepo.findById(emptyBudget.getId()).orElseThrow().getCurrentAmount())
+                .isEqualByComparingTo("0");
+    }
+
+    @Test
+    void testListingBudgetDtosOfUserIsASingleStatement() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        for (int i = 0; i < 20; i++) {
+            Category category = persist(new Category("category " + i, (short) (i % 15), user));
+            Budget budget = persist(new Budget(
+                    user, "budget " + i, BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category
+            ));
+            for (int j = 0; j < 5; j++) {
+                Expense expense = new Expense(user, "expense " + j, BigDecimal.ONE, Date.valueOf("2023-02-01"), category);
+                expense.setLinkedBudget(budget);
+                persist(expense);
+            }
+            budgetRepo.addToCurrentAmount(budget.getId(), new BigDecimal("5"));
+        }
+        entityManager.clear();
+        Statistics statistics = entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        // execute
+        List<BudgetDTO> budgets = budgetRepo.findAllBudgetDtosByUser(user);
+
+        // verify
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+        Assertions.assertThat(budgets).hasSize(20);
+        Assertions.assertThat(budgets).allSatisfy(budget -> {
+            Assertions.assertThat(budget.getCurrentAmount()).isEqualByComparingTo("5");
+            Assertions.assertThat(budget.getCategory().getName()).startsWith("category ");
+        });
+    }
+
+    @Test
+    void testFindingOverlappingBudgetsMatchesEveryIntersectingRangeIncludingSharedEdges() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Category otherCategory = persist(new Category("other", (short) 1, user));
+        Budget budget = persist(new Budget(
+                user, "test budget", BigDecimal.TEN, Date.valueOf("2023-03-01"), Date.valueOf("2023-03-31"), category
+        ));
+        persist(new Budget(
+                user, "other budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), otherCategory
+        ));
+
+        // execute & verify
+        Assertions.assertThat(overlapping(user, category, "2023-02-01", "2023-03-01")).containsExactly(budget);
+        Assertions.assertThat(overlapping(user, category, "2023-03-31", "2023-04-30")).containsExactly(budget);
+        Assertions.assertThat(overlapping(user, category, "2023-03-10", "2023-03-20")).containsExactly(budget);
+        Assertions.assertThat(overlapping(user, category, "2023-01-01", "2023-12-31")).containsExactly(budget);
+        Assertions.assertThat(overlapping(user, category, "2023-02-01", "2023-02-28")).isEmpty();
+        Assertions.assertThat(overlapping(user, category, "2023-04-01", "2023-04-30")).isEmpty();
+    }
+
+    @Test
+    void testLookingUpBudgetsOfManyCategoriesIsASingleStatement() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        List<String> names = new ArrayList<>();
+        for (int i = 0; i < 10; i++) {
+            Category category = persist(new Category("category " + i, (short) 1, user));
+            persist(new Budget(
+                    user, "budget " + i, BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category
+            ));
+            names.add(category.getName());
+        }
+        entityManager.clear();
+        Statistics statistics = entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+        statistics.clear();
+
+        // execute
+        List<BudgetDTO> budgets = budgetRepo.findBudgetDtosByUserAndCategoryNamesOverlapping(
+                user, names, Date.valueOf("2023-02-01"), Date.valueOf("2023-03-01")
+        );
+
+        // verify
+        Assertions.assertThat(budgets).hasSize(10);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private List<Budget> overlapping(ExtraUser user, Category category, String startingDate, String limitDate) {
+        return budgetRepo.findOverlappingBudgetsByUserAndCategory(
+                user, category, Date.valueOf(startingDate), Date.valueOf(limitDate)
+        );
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
@@ -0,0 +1,63 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.CategoryRepository;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+import java.util.Optional;
+
+
+@DataJpaTest
+class CategoryRepositoryTest {
+
+    @Autowired
+    private CategoryRepository categoryRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testInsertingAnExistingCategoryAgainDoesNothing() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category existing = persist(new Category("food", (short) 1, user));
+
+        // execute
+        int inserted = categoryRepo.insertIfAbsent(user.getId(), "food", (short) 1);
+
+        // verify
+        Assertions.assertThat(inserted).isZero();
+        Assertions.assertThat(categoryRepo.findAll()).hasSize(1);
+        Assertions.assertThat(categoryRepo.getCurrentCategoryIdByOwnerAndNameAndIconId(user.getId(), "food", (short) 1))
+                .isEqualTo(Optional.of(existing.getId()));
+    }
+
+    @Test
+    void testInsertingANewCategoryMakesItVisibleToBothLookups() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        persist(new Category("food", (short) 1, user));
+
+        // execute
+        int inserted = categoryRepo.insertIfAbsent(user.getId(), "food", (short) 2);
+
+        // verify
+        Optional<Long> id = categoryRepo.getCategoryIdByOwnerAndNameAndIconId(user, "food", (short) 2);
+        Assertions.assertThat(inserted).isEqualTo(1);
+        Assertions.assertThat(id).isPresent();
+        Assertions.assertThat(categoryRepo.getCurrentCategoryIdByOwnerAndNameAndIconId(user.getId(), "food", (short) 2))
+                .isEqualTo(id);
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
@@ -0,0 +1,77 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.dto.requests.ExpenseAddingRequest;
+import org.mojodojocasahouse.extra.dto.responses.ExpenseBulkAddingResponse;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.ExpenseRepository;
+import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.service.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.autoconfigure.ImportAutoConfiguration;
+import org.springframework.boot.autoconfigure.validation.ValidationAutoConfiguration;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.annotation.Propagation;
+import org.springframework.transaction.annotation.Transactional;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+// Adding expenses in a transaction of the service's own, committed as it would be for a request
+@DataJpaTest
+@Transactional(propagation = Propagation.NOT_SUPPORTED)
+@ImportAutoConfiguration(ValidationAutoConfiguration.class)
+@Import({
+        ExpenseService.class, CategoryService.class, CategoryIdCache.class, TransactionTotalsService.class,
+        ActiveBudgetIndex.class, TransactionSearchIndex.class
+})
+class ExpenseBulkAddingTransactionTest {
+
+    @Autowired
+    private ExpenseService expenseService;
+
+    @Autowired
+    private ExtraUserRepository userRepository;
+
+    @Autowired
+    private ExpenseRepository expenseRepository;
+
+    @Autowired
+    private JdbcTemplate jdbc;
+
+    @MockBean
+    private BudgetAlertService budgetAlertService;
+
+    @AfterEach
+    void deleteRows() {
+        List.of("transaction", "monthly_transaction_totals", "categories", "users")
+                .forEach(table -> jdbc.update("DELETE FROM " + table));
+    }
+
+    @Test
+    void testAnExpenseWithAnInvalidCategoryNameIsRejectedWithoutLosingTheOthers() {
+        // Setup - data
+        ExtraUser user = userRepository.save(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        List<ExpenseAddingRequest> requests = List.of(
+                new ExpenseAddingRequest("ok", new BigDecimal("10.00"), Date.valueOf("2023-06-15"), "food", (short) 1),
+                new ExpenseAddingRequest("bad", new BigDecimal("10.00"), Date.valueOf("2023-06-15"), "food-drink", (short) 1)
+        );
+
+        // execute
+        ExpenseBulkAddingResponse response = expenseService.addExpenses(user, requests);
+
+        // verify
+        Assertions.assertThat(response.getAdded()).isEqualTo(1);
+        Assertions.assertThat(response.getRejected()).singleElement().satisfies(
+                rejected -> Assertions.assertThat(rejected.getIndex()).isEqualTo(1)
+        );
+        Assertions.assertThat(expenseRepository.count()).isEqualTo(1);
+    }
+
+}
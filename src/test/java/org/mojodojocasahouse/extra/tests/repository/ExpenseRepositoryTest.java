@@ -1,27 +1,37 @@
 package org.mojodojocasahouse.extra.tests.repository;
 
+import jakarta.persistence.EntityManager;
 import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
 import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
+import org.mojodojocasahouse.extra.model.Budget;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.Expense;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.ExpenseRepository;
 import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.repository.TransactionSpecifications;
 import org.springframework.beans.factory.annotation.Autowired;
 import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
 
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.ArrayList;
+import java.util.List;
 import java.util.Optional;
 
 
-@DataJpaTest
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
 class ExpenseRepositoryTest {
 
     @Autowired
     private ExpenseRepository repo;
     @Autowired
     private ExtraUserRepository userRepo;
+    @Autowired
+    private EntityManager entityManager;
 
     @Test
     void testFindingAnExpenseByConceptReturnsOne() {
@@ -50,4 +60,99 @@ class ExpenseRepositoryTest {
         Assertions.assertThat(foundExpense).isEqualTo(Optional.of(savedExpense));
     }
 
-}
\ No newline at end of file
+    @Test
+    void testSummingExpensesGroupsThemByCategoryLargestFirst() {
+        // Setup - data
+        ExtraUser user = userRepo.save(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category food = new Category("food", (short) 1, user);
+        Category rent = new Category("rent", (short) 2, user);
+        repo.save(new Expense(user, "lunch", new BigDecimal("10.00"), Date.valueOf("2023-01-01"), food));
+        repo.save(new Expense(user, "dinner", new BigDecimal("15.00"), Date.valueOf("2023-01-02"), food));
+        repo.save(new Expense(user, "rent", new BigDecimal("100.00"), Date.valueOf("2023-01-03"), rent));
+        repo.save(new Expense(user, "old rent", new BigDecimal("100.00"), Date.valueOf("2022-01-03"), rent));
+
+        // execute
+        List<CategoryAmountDTO> sums = repo.getSumOfExpensesByCategory(
+                TransactionSpecifications.filteredBy(user, null, Date.valueOf("2023-01-01"), null)
+        );
+
+        // verify
+        Assertions.assertThat(sums).hasSize(2);
+        Assertions.assertThat(sums.get(0).getCategory()).isEqualTo("rent");
+        Assertions.assertThat(sums.get(0).getAmount()).isEqualTo(new BigDecimal("100.00"));
+        Assertions.assertThat(sums.get(1).getCategory()).isEqualTo("food");
+        Assertions.assertThat(sums.get(1).getAmount()).isEqualTo(new BigDecimal("25.00"));
+    }
+
+    @Test
+    void testSavingManyExpensesInsertsThemInBatches() {
+        // Setup - data
+        ExtraUser user = userRepo.save(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = new Category("test", (short) 1, user);
+        entityManager.persist(category);
+        entityManager.flush();
+        List<Expense> expenses = new ArrayList<>();
+        for (int i = 0; i < 1000; i++) {
+            expenses.add(new Expense(user, "concept", BigDecimal.TEN, Date.valueOf("2023-01-01"), category));
+        }
+        Statistics statistics = entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        // execute
+        statistics.clear();
+        repo.saveAll(expenses);
+        entityManager.flush();
+
+        // verify
+        Assertions.assertThat(statistics.getEntityInsertCount()).isEqualTo(1000);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isLessThan(50);
+        Assertions.assertThat(expenses).extracting(Expense::getId).doesNotHaveDuplicates().doesNotContainNull();
+    }
+
+    @Test
+    void testFindingAnExpenseOfItsOwnerLoadsItInASingleStatement() {
+        // Setup - data
+        ExtraUser user = userRepo.save(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = new Category("test", (short) 1, user);
+        Budget budget = new Budget(user, "budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-12-31"), category);
+        entityManager.persist(category);
+        entityManager.persist(budget);
+        Expense expense = new Expense(user, "concept", BigDecimal.TEN, Date.valueOf("2023-01-01"), category);
+        expense.setLinkedBudget(budget);
+        repo.save(expense);
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        // execute
+        statistics.clear();
+        Optional<Expense> foundExpense = repo.findByIdAndUser(expense.getId(), user);
+
+        // verify
+        Assertions.assertThat(foundExpense).isPresent();
+        Assertions.assertThat(foundExpense.get().getLinkedBudget().getId()).isEqualTo(budget.getId());
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testFindingAnExpenseOfAnotherUserFindsNothing() {
+        // Setup - data
+        ExtraUser owner = userRepo.save(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        ExtraUser other = userRepo.save(new ExtraUser("Other", "User", "other@me.com", "a_password"));
+        Expense expense = repo.save(
+                new Expense(owner, "concept", BigDecimal.TEN, Date.valueOf("2023-01-01"), new Category("test", (short) 1, owner))
+        );
+
+        // execute
+        Optional<Expense> foundExpense = repo.findByIdAndUser(expense.getId(), other);
+
+        // verify
+        Assertions.assertThat(foundExpense).isEmpty();
+    }
+
+}
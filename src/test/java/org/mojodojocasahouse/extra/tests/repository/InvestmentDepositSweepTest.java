@@ -0,0 +1,208 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.exception.ConstraintViolationException;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.Deposit;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.Investment;
+import org.mojodojocasahouse.extra.repository.InvestmentRepository;
+import org.mojodojocasahouse.extra.service.*;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.domain.PageRequest;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.sql.Timestamp;
+import java.util.List;
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import({
+        DepositService.class, TransactionTotalsService.class, ActiveBudgetIndex.class, TransactionSearchIndex.class,
+        NotificationOutbox.class
+})
+class InvestmentDepositSweepTest {
+
+    private static final int USERS = 10;
+
+    private static final int INVESTMENTS_PER_USER = 100;
+
+    private static final Timestamp NOW = Timestamp.valueOf("2023-10-10 12:00:00");
+
+    @Autowired
+    private DepositService depositService;
+
+    @Autowired
+    private InvestmentRepository investmentRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @MockBean
+    private CategoryService categoryService;
+
+    @MockBean
+    private ExpenseService expenseService;
+
+    @MockBean
+    private BudgetAlertService budgetAlertService;
+
+    @Test
+    void testClaimingReturnsOnlyDueInvestmentsOldestDueFirst() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Investment dueLater = persist(investment(user, category, "2023-10-10 11:00:00", 10));
+        Investment dueFirst = persist(investment(user, category, "2023-10-01 00:00:00", 10));
+        persist(investment(user, category, "2023-10-11 00:00:00", 10));
+        Investment finished = persist(investment(user, category, "2023-10-01 00:00:00", 1));
+        finished.advanceTo(1);
+        entityManager.flush();
+
+        // execute
+        List<Long> claimed = investmentRepo.claimDueInvestmentIds(NOW, 0, 1, PageRequest.of(0, 10));
+
+        // verify
+        Assertions.assertThat(claimed).containsExactly(dueFirst.getId(), dueLater.getId());
+    }
+
+    @Test
+    void testClaimingSplitsTheDueInvestmentsBetweenPartitions() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        for (int i = 0; i < 10; i++) {
+            persist(investment(user, category, "2023-10-01 00:00:00", 10));
+        }
+
+        // execute
+        List<Long> first = investmentRepo.claimDueInvestmentIds(NOW, 0, 2, PageRequest.of(0, 10));
+        List<Long> second = investmentRepo.claimDueInvestmentIds(NOW, 1, 2, PageRequest.of(0, 10));
+
+        // verify
+        Assertions.assertThat(first).hasSize(5).doesNotContainAnyElementsOf(second);
+        Assertions.assertThat(second).hasSize(5);
+    }
+
+    @Test
+    void testSweepingAChunkTakesAFixedNumberOfStatementsAndLeavesNothingDue() {
+        // Setup - data
+        for (int u = 0; u < USERS; u++) {
+            ExtraUser user = persist(new ExtraUser("Some", "User", "user" + u + "@me.com", "a_password"));
+            Category category = persist(new Category("test", (short) 1, user));
+            for (int i = 0; i < INVESTMENTS_PER_USER; i++) {
+                entityManager.persist(investment(user, category, "2023-10-10 00:00:00", 10));
+            }
+        }
+        entityManager.flush();
+        entityManager.clear();
+        Statistics statistics = entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+
+        // execute
+        statistics.clear();
+        int claimed = depositService
+                .depositDueInvestmentReturns(NOW, 0, 1, USERS * INVESTMENTS_PER_USER)
+                .getClaimedInvestments();
+        entityManager.flush();
+        long statements = statistics.getPrepareStatementCount();
+
+        // verify
+        entityManager.clear();
+        Assertions.assertThat(claimed).isEqualTo(USERS * INVESTMENTS_PER_USER);
+        Assertions.assertThat(statements).isLessThan(100);
+        Assertions.assertThat(countDeposits()).isEqualTo(USERS * INVESTMENTS_PER_USER);
+        Assertions.assertThat(countOutboxNotifications()).isEqualTo(USERS * INVESTMENTS_PER_USER);
+        Assertions.assertThat(investmentRepo.claimDueInvestmentIds(NOW, 0, 1, PageRequest.of(0, 10))).isEmpty();
+        Assertions.assertThat(investmentRepo.findAll())
+                .extracting(Investment::getNextDepositTimestamp)
+                .containsOnly(Timestamp.valueOf("2023-10-11 00:00:00"));
+    }
+
+    @Test
+    void testSweepingAfterDowntimeMakesEveryMissedDepositWithItsDueDateOnlyOnce() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Investment investment = persist(new Investment(
+                "investment", BigDecimal.TEN, Timestamp.valueOf("2023-09-01 00:00:00"), BigDecimal.ONE, 20, 7, user, category
+        ));
+
+        // execute
+        depositService.depositDueInvestmentReturns(NOW, 0, 1, 10);
+        depositService.depositDueInvestmentReturns(NOW, 0, 1, 10);
+        entityManager.flush();
+        entityManager.clear();
+
+        // verify
+        List<Deposit> deposits = entityManager
+                .createQuery("SELECT d FROM Deposit d ORDER BY d.depositSequence", Deposit.class)
+                .getResultList();
+        Assertions.assertThat(deposits)
+                .extracting(Deposit::getDepositSequence)
+                .containsExactly(1, 2, 3, 4, 5, 6);
+        Assertions.assertThat(deposits)
+                .extracting(Deposit::getDate)
+                .containsExactly(
+                        Date.valueOf("2023-09-01"), Date.valueOf("2023-09-08"), Date.valueOf("2023-09-15"),
+                        Date.valueOf("2023-09-22"), Date.valueOf("2023-09-29"), Date.valueOf("2023-10-06")
+                );
+        Assertions.assertThat(investmentRepo.findById(investment.getId()).orElseThrow().getNextDepositTimestamp())
+                .isEqualTo(Timestamp.valueOf("2023-10-13 00:00:00"));
+    }
+
+    @Test
+    void testTheSameDepositOfAnInvestmentCannotBeMadeTwice() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Investment investment = persist(investment(user, category, "2023-10-10 00:00:00", 10));
+        persist(deposit(investment, 1));
+
+        // execute & verify
+        Assertions
+                .assertThatThrownBy(() -> persist(deposit(investment, 1)))
+                .isInstanceOf(ConstraintViolationException.class);
+    }
+
+    private long countDeposits() {
+        return entityManager
+                .createQuery("SELECT COUNT(d) FROM Deposit d", Long.class)
+                .getSingleResult();
+    }
+
+    private long countOutboxNotifications() {
+        return entityManager
+                .createQuery("SELECT COUNT(n) FROM OutboxNotification n", Long.class)
+                .getSingleResult();
+    }
+
+    private static Investment investment(ExtraUser user, Category category, String start, int deposits) {
+        return new Investment(
+                "investment", BigDecimal.TEN, Timestamp.valueOf(start), BigDecimal.ONE, deposits, 1, user, category
+        );
+    }
+
+    private static Deposit deposit(Investment investment, int sequence) {
+        return new Deposit(
+                investment.getName(), investment.getDepositAmount(), Date.valueOf("2023-10-10"),
+                investment.getUser(), investment.getCategory(), null, investment, sequence
+        );
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
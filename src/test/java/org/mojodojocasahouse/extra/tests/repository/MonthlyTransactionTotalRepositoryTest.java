@@ -0,0 +1,127 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.model.*;
+import org.mojodojocasahouse.extra.repository.ExpenseRepository;
+import org.mojodojocasahouse.extra.repository.MonthlyTransactionTotalRepository;
+import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.repository.TransactionSpecifications;
+import org.mojodojocasahouse.extra.service.TransactionTotalsService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+
+
+@DataJpaTest
+@Import(TransactionTotalsService.class)
+class MonthlyTransactionTotalRepositoryTest {
+
+    @Autowired
+    private MonthlyTransactionTotalRepository totalRepo;
+
+    @Autowired
+    private TransactionRepository transactionRepo;
+
+    @Autowired
+    private ExpenseRepository expenseRepo;
+
+    @Autowired
+    private TransactionTotalsService totalsService;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testAddingToAnExistingMonthAccumulatesIntoASingleRow() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Date month = Date.valueOf("2023-01-01");
+
+        // execute
+        totalRepo.addToTotal(user.getId(), category.getId(), month, Expense.TRANSACTION_TYPE, new BigDecimal("-10.00"));
+        totalRepo.addToTotal(user.getId(), category.getId(), month, Expense.TRANSACTION_TYPE, new BigDecimal("-2.50"));
+        totalRepo.addToTotal(user.getId(), category.getId(), month, Deposit.TRANSACTION_TYPE, new BigDecimal("4.00"));
+
+        // verify
+        List<MonthlyTransactionTotal> totals = totalRepo.findAll();
+        Assertions.assertThat(totals).hasSize(2);
+        Assertions.assertThat(totals)
+                .filteredOn(total -> total.getTransactionType().equals(Expense.TRANSACTION_TYPE))
+                .singleElement()
+                .extracting(MonthlyTransactionTotal::getSignedAmount)
+                .isEqualTo(new BigDecimal("-12.50"));
+    }
+
+    @Test
+    void testSumsOverPartialMonthsMatchSummingTheTransactionsThemselves() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category food = persist(new Category("food", (short) 1, user));
+        Category rent = persist(new Category("rent", (short) 2, user));
+        record(new Expense(user, "before", new BigDecimal("1.00"), Date.valueOf("2022-12-14"), food));
+        record(new Expense(user, "edge", new BigDecimal("2.00"), Date.valueOf("2022-12-15"), food));
+        record(new Expense(user, "end of year", new BigDecimal("3.00"), Date.valueOf("2022-12-31"), rent));
+        record(new Expense(user, "whole month", new BigDecimal("4.00"), Date.valueOf("2023-01-20"), food));
+        record(new Expense(user, "whole month", new BigDecimal("5.00"), Date.valueOf("2023-02-01"), rent));
+        record(new Expense(user, "edge", new BigDecimal("6.00"), Date.valueOf("2023-03-10"), rent));
+        record(new Expense(user, "after", new BigDecimal("7.00"), Date.valueOf("2023-03-11"), food));
+        Date from = Date.valueOf("2022-12-15");
+        Date until = Date.valueOf("2023-03-10");
+
+        // execute
+        List<YearAmountDTO> yearlySums = totalsService.getYearlySums(user, null, from, until);
+        List<CategoryAmountDTO> categorySums = totalsService.getSumsOfExpensesByCategory(user, null, from, until);
+
+        // verify
+        Assertions.assertThat(yearlySums).isEqualTo(
+                transactionRepo.getYearlySumOfTransactions(TransactionSpecifications.filteredBy(user, null, from, until))
+        );
+        Assertions.assertThat(categorySums).isEqualTo(
+                expenseRepo.getSumOfExpensesByCategory(TransactionSpecifications.filteredBy(user, null, from, until))
+        );
+        Assertions.assertThat(categorySums)
+                .extracting(CategoryAmountDTO::getCategory, CategoryAmountDTO::getAmount)
+                .containsExactly(
+                        Assertions.tuple("rent", new BigDecimal("14.00")),
+                        Assertions.tuple("food", new BigDecimal("6.00"))
+                );
+    }
+
+    @Test
+    void testRemovingATransactionTakesItBackOutOfTheTotals() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        record(new Expense(user, "kept", new BigDecimal("1.00"), Date.valueOf("2023-01-01"), category));
+        Expense removed = record(new Expense(user, "removed", new BigDecimal("2.00"), Date.valueOf("2023-01-02"), category));
+
+        // execute
+        totalsService.removeFromTotals(removed);
+
+        // verify
+        Assertions.assertThat(totalsService.getYearlySums(user, null, null, null))
+                .containsExactly(new YearAmountDTO(2023, new BigDecimal("-1.00")));
+    }
+
+    private Expense record(Expense expense) {
+        persist(expense);
+        totalsService.addToTotals(expense);
+        return expense;
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
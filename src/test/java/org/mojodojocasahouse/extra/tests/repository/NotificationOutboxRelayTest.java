@@ -0,0 +1,213 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
+import org.mojodojocasahouse.extra.model.OutboxNotification;
+import org.mojodojocasahouse.extra.service.NotificationOutbox;
+import org.mojodojocasahouse.extra.service.NotificationOutboxRelay;
+import org.mojodojocasahouse.extra.service.PushNotificationTransport;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.context.transaction.TestTransaction;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.*;
+
+@DataJpaTest(properties = "extra.notifications.max-attempts=3")
+@Import({NotificationOutbox.class, NotificationOutboxRelay.class, NotificationOutboxRelayTest.FakeTransport.class})
+class NotificationOutboxRelayTest {
+
+    @Autowired
+    private NotificationOutbox outbox;
+
+    @Autowired
+    private NotificationOutboxRelay relay;
+
+    @Autowired
+    private FakeTransport transport;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    // Notifications are added at the current time, so they are all due by then
+    private final long start = System.currentTimeMillis() + 1000;
+
+    @BeforeEach
+    void resetTransport() {
+        transport.reset();
+    }
+
+    @Test
+    void testRelayingSendsOneNotificationPerUserAndEmptiesTheOutbox() {
+        // Setup - data
+        outbox.addBudgetAlert(new BudgetAlertDTO(1L, 10L, "groceries", 80));
+        outbox.addBudgetAlert(new BudgetAlertDTO(1L, 10L, "groceries", 100));
+        outbox.addBudgetAlert(new BudgetAlertDTO(1L, 11L, "rent", 80));
+        outbox.addInvestmentReturns(List.of(
+                new InvestmentReturnDTO(1L, 20L, "bonds", BigDecimal.ONE),
+                new InvestmentReturnDTO(1L, 21L, "stocks", BigDecimal.TEN),
+                new InvestmentReturnDTO(2L, 22L, "bonds", BigDecimal.ONE)
+        ));
+
+        // execute
+        int delivered = relay.relayDue(later(Duration.ZERO));
+
+        // verify
+        Assertions.assertThat(delivered).isEqualTo(6);
+        Assertions.assertThat(transport.alertSends).hasSize(1);
+        Assertions.assertThat(transport.alertSends.get(0).get(1L)).containsExactlyInAnyOrder(
+                new BudgetAlertDTO(1L, 10L, "groceries", 100),
+                new BudgetAlertDTO(1L, 11L, "rent", 80)
+        );
+        Assertions.assertThat(transport.returnSends).hasSize(1);
+        Assertions.assertThat(transport.returnSends.get(0).get(1L)).hasSize(2);
+        Assertions.assertThat(transport.returnSends.get(0).get(2L)).hasSize(1);
+        Assertions.assertThat(pendingNotifications()).isEmpty();
+    }
+
+    @Test
+    void testNotificationsOfARolledBackTransactionAreNeverSent() {
+        // Setup - data
+        outbox.addBudgetAlert(new BudgetAlertDTO(1L, 10L, "groceries", 80));
+        TestTransaction.flagForRollback();
+        TestTransaction.end();
+        TestTransaction.start();
+
+        // execute
+        int delivered = relay.relayDue(later(Duration.ZERO));
+
+        // verify
+        Assertions.assertThat(delivered).isZero();
+        Assertions.assertThat(transport.alertSends).isEmpty();
+    }
+
+    @Test
+    void testAFailedSendIsRetriedOnlyOnceItsBackoffHasPassed() {
+        // Setup - data
+        outbox.addBudgetAlert(new BudgetAlertDTO(1L, 10L, "groceries", 80));
+        outbox.addBudgetAlert(new BudgetAlertDTO(2L, 20L, "travel", 80));
+        transport.failingUserIds.add(1L);
+
+        // execute
+        int deliveredFirst = relay.relayDue(later(Duration.ZERO));
+        transport.failingUserIds.clear();
+        int deliveredBeforeBackoff = relay.relayDue(later(Duration.ofSeconds(10)));
+        int deliveredAfterBackoff = relay.relayDue(later(Duration.ofSeconds(31)));
+
+        // verify
+        Assertions.assertThat(deliveredFirst).isEqualTo(1);
+        Assertions.assertThat(deliveredBeforeBackoff).isZero();
+        Assertions.assertThat(deliveredAfterBackoff).isEqualTo(1);
+        Assertions.assertThat(transport.alertSends).hasSize(2);
+        Assertions.assertThat(transport.alertSends.get(1)).containsOnlyKeys(1L);
+        Assertions.assertThat(pendingNotifications()).isEmpty();
+    }
+
+    @Test
+    void testATransportThatThrowsLeavesEveryNotificationForARetry() {
+        // Setup - data
+        outbox.addInvestmentReturns(List.of(new InvestmentReturnDTO(1L, 20L, "bonds", BigDecimal.ONE)));
+        transport.unavailable = true;
+
+        // execute
+        int delivered = relay.relayDue(later(Duration.ZERO));
+
+        // verify
+        Assertions.assertThat(delivered).isZero();
+        Assertions.assertThat(pendingNotifications())
+                .extracting(OutboxNotification::getAttempts)
+                .containsExactly(1);
+    }
+
+    @Test
+    void testBackoffDoublesAndNotificationsAreDroppedAfterTheMaximumAttempts() {
+        // Setup - data
+        outbox.addBudgetAlert(new BudgetAlertDTO(1L, 10L, "groceries", 80));
+        transport.failingUserIds.add(1L);
+
+        // execute
+        relay.relayDue(later(Duration.ZERO));
+        relay.relayDue(later(Duration.ofSeconds(31)));
+        Timestamp secondRetry = pendingNotifications().get(0).getNextAttemptAt();
+        relay.relayDue(later(Duration.ofSeconds(92)));
+
+        // verify
+        Assertions.assertThat(secondRetry).isAfter(later(Duration.ofSeconds(90)));
+        Assertions.assertThat(transport.alertSends).hasSize(3);
+        Assertions.assertThat(pendingNotifications()).isEmpty();
+    }
+
+    @Test
+    void testNotificationsClaimedByARelayThatStoppedAreSentOnceTheClaimTimesOut() {
+        // Setup - data
+        outbox.addBudgetAlert(new BudgetAlertDTO(1L, 10L, "groceries", 80));
+        outbox.claimDue(later(Duration.ZERO), 10);
+
+        // execute
+        int deliveredWhileClaimed = relay.relayDue(later(Duration.ofMinutes(1)));
+        int deliveredOnceTimedOut = relay.relayDue(later(Duration.ofMinutes(6)));
+
+        // verify
+        Assertions.assertThat(deliveredWhileClaimed).isZero();
+        Assertions.assertThat(deliveredOnceTimedOut).isEqualTo(1);
+        Assertions.assertThat(transport.alertSends).hasSize(1);
+    }
+
+    private List<OutboxNotification> pendingNotifications() {
+        return entityManager
+                .createQuery("SELECT n FROM OutboxNotification n", OutboxNotification.class)
+                .getResultList();
+    }
+
+    private Timestamp later(Duration duration) {
+        return new Timestamp(start + duration.toMillis());
+    }
+
+    // Records what would have been sent to the devices of each user
+    static class FakeTransport implements PushNotificationTransport {
+
+        private final List<Map<Long, List<BudgetAlertDTO>>> alertSends = new ArrayList<>();
+
+        private final List<Map<Long, List<InvestmentReturnDTO>>> returnSends = new ArrayList<>();
+
+        private final Set<Long> failingUserIds = new HashSet<>();
+
+        private boolean unavailable;
+
+        @Override
+        public Set<Long> sendBudgetAlerts(Map<Long, List<BudgetAlertDTO>> alertsByUserId) {
+            return send(alertSends, alertsByUserId);
+        }
+
+        @Override
+        public Set<Long> sendInvestmentReturns(Map<Long, List<InvestmentReturnDTO>> returnsByUserId) {
+            return send(returnSends, returnsByUserId);
+        }
+
+        private <T> Set<Long> send(List<Map<Long, List<T>>> sends, Map<Long, List<T>> contentByUserId) {
+            if (unavailable) {
+                throw new IllegalStateException("Transport unavailable");
+            }
+            sends.add(contentByUserId);
+            Set<Long> failed = new HashSet<>(contentByUserId.keySet());
+            failed.retainAll(failingUserIds);
+            return failed;
+        }
+
+        void reset() {
+            alertSends.clear();
+            returnSends.clear();
+            failingUserIds.clear();
+            unavailable = false;
+        }
+
+    }
+
+}
@@ -0,0 +1,86 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+
+
+// Checks that the statements issued by the repositories are planned on the indexes
+// created by the migrations. The SQL mirrors what Hibernate generates for each query.
+// H2 only seeks an IN list when it is the sole index condition, so category filters
+// use a single category here; MySQL range-scans each listed category the same way.
+@DataJpaTest
+class QueryPlanTest {
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testTransactionsOfACategoryWithinADateRangeUseTheUserCategoryDateIndex() {
+        String plan = explain(
+                "SELECT t.id, t.concept, t.amount, t.date, t.signed_amount " +
+                "FROM transaction t " +
+                "WHERE t.user_id = 1 AND t.category_id = 1 " +
+                "AND t.date BETWEEN DATE '2023-01-01' AND DATE '2023-12-31'"
+        );
+
+        Assertions.assertThat(plan).contains("idx_transaction_user_category_date");
+    }
+
+    @Test
+    void testListingWithoutFiltersUsesTheUserDateIndex() {
+        String plan = explain(
+                "SELECT t.id, t.concept, t.amount, t.date " +
+                "FROM transaction t " +
+                "WHERE t.user_id = 1 AND t.date <= DATE '2023-01-01' AND (t.date < DATE '2023-01-01' OR t.id < 10) " +
+                "ORDER BY t.date DESC, t.id DESC"
+        );
+
+        Assertions.assertThat(plan).contains("idx_transaction_user_date");
+    }
+
+    @Test
+    void testYearlySumByCategoriesIsCoveredByTheUserCategoryDateIndex() {
+        String plan = explain(
+                "SELECT YEAR(t.date), SUM(t.signed_amount) " +
+                "FROM transaction t " +
+                "WHERE t.user_id = 1 AND t.category_id IN (1) " +
+                "GROUP BY YEAR(t.date)"
+        );
+
+        Assertions.assertThat(plan).contains("idx_transaction_user_category_date");
+    }
+
+    @Test
+    void testSumOfExpensesOfADateRangeUsesTheUserTypeDateIndex() {
+        String plan = explain(
+                "SELECT t.category_id, SUM(t.amount) " +
+                "FROM transaction t " +
+                "WHERE t.transaction_type = 'EXPENSE' AND t.user_id = 1 " +
+                "AND t.date >= DATE '2023-01-01' AND t.date <= DATE '2023-12-31' " +
+                "GROUP BY t.category_id"
+        );
+
+        Assertions.assertThat(plan).contains("idx_transaction_user_type_date");
+    }
+
+    @Test
+    void testActiveBudgetLookupUsesTheBudgetDatesIndex() {
+        String plan = explain(
+                "SELECT b.id " +
+                "FROM budgets b " +
+                "WHERE b.user_id = 1 AND b.category_id = 1 " +
+                "AND DATE '2023-05-01' BETWEEN b.creationdate AND b.limitdate " +
+                "ORDER BY b.limitdate"
+        );
+
+        Assertions.assertThat(plan).contains("idx_budgets_user_category_dates");
+    }
+
+    private String explain(String sql) {
+        return entityManager.createNativeQuery("EXPLAIN " + sql).getSingleResult().toString();
+    }
+
+}
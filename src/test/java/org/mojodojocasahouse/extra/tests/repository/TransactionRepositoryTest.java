@@ -0,0 +1,218 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.dto.model.DailyAmountDTO;
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
+import org.mojodojocasahouse.extra.model.Budget;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.Expense;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.Transaction;
+import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.repository.TransactionSpecifications;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.List;
+import java.util.stream.Stream;
+
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+class TransactionRepositoryTest {
+
+    @Autowired
+    private TransactionRepository transactionRepo;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testKeysetPagesWalkTransactionsNewestFirstWithoutGapsOrRepeats() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Expense first = persist(new Expense(user, "first", BigDecimal.ONE, Date.valueOf("2023-01-01"), category));
+        Expense second = persist(new Expense(user, "second", BigDecimal.ONE, Date.valueOf("2023-01-02"), category));
+        Expense sameDayAsSecond = persist(new Expense(user, "third", BigDecimal.ONE, Date.valueOf("2023-01-02"), category));
+        Expense last = persist(new Expense(user, "fourth", BigDecimal.ONE, Date.valueOf("2023-01-03"), category));
+
+        // execute
+        List<Transaction> firstPage = page(user, null, null);
+        Transaction cursor = firstPage.get(firstPage.size() - 1);
+        List<Transaction> secondPage = page(user, cursor.getDate(), cursor.getId());
+
+        // verify
+        Assertions.assertThat(firstPage).containsExactly(last, sameDayAsSecond);
+        Assertions.assertThat(secondPage).containsExactly(second, first);
+    }
+
+    @Test
+    void testFilteringOnlyAppliesTheGivenBounds() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        ExtraUser anotherUser = persist(new ExtraUser("Another", "User", "another@me.com", "a_password"));
+        Category food = persist(new Category("food", (short) 1, user));
+        Category rent = persist(new Category("rent", (short) 2, user));
+        Category foreignFood = persist(new Category("food", (short) 1, anotherUser));
+        Expense oldFood = persist(new Expense(user, "old food", BigDecimal.ONE, Date.valueOf("2022-01-01"), food));
+        Expense newFood = persist(new Expense(user, "new food", BigDecimal.ONE, Date.valueOf("2023-06-01"), food));
+        Expense newRent = persist(new Expense(user, "new rent", BigDecimal.ONE, Date.valueOf("2023-07-01"), rent));
+        persist(new Expense(anotherUser, "foreign food", BigDecimal.ONE, Date.valueOf("2023-06-01"), foreignFood));
+
+        // execute & verify
+        Assertions.assertThat(list(user, null, null, null))
+                .containsExactly(newRent, newFood, oldFood);
+        Assertions.assertThat(list(user, List.of(), null, null))
+                .isEmpty();
+        Assertions.assertThat(list(user, null, Date.valueOf("2023-01-01"), null))
+                .containsExactly(newRent, newFood);
+        Assertions.assertThat(list(user, List.of(food.getId()), null, Date.valueOf("2023-06-30")))
+                .containsExactly(newFood, oldFood);
+        Assertions.assertThat(list(user, List.of(food.getId(), rent.getId()), Date.valueOf("2023-01-01"), Date.valueOf("2023-06-30")))
+                .containsExactly(newFood);
+        Assertions.assertThat(list(user, List.of(foreignFood.getId()), null, null))
+                .isEmpty();
+    }
+
+    @Test
+    void testYearlySumsAddSignedAmountsPerYear() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        persist(new Expense(user, "a", new BigDecimal("10.00"), Date.valueOf("2022-01-01"), category));
+        persist(new Expense(user, "b", new BigDecimal("5.50"), Date.valueOf("2022-12-31"), category));
+        persist(new Expense(user, "c", new BigDecimal("1.00"), Date.valueOf("2023-03-01"), category));
+
+        // execute
+        List<YearAmountDTO> sums = transactionRepo
+                .getYearlySumOfTransactions(TransactionSpecifications.filteredBy(user, null, null, null));
+
+        // verify
+        Assertions.assertThat(sums).hasSize(2);
+        Assertions.assertThat(sums.get(0).getYear()).isEqualTo(2022);
+        Assertions.assertThat(sums.get(0).getAmount()).isEqualTo(new BigDecimal("-15.50"));
+        Assertions.assertThat(sums.get(1).getYear()).isEqualTo(2023);
+        Assertions.assertThat(sums.get(1).getAmount()).isEqualTo(new BigDecimal("-1.00"));
+    }
+
+    @Test
+    void testListingWithoutCategoryFilterForAUserWithManyCategoriesIsASingleStatement() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        for (int i = 0; i < 500; i++) {
+            Category category = persist(new Category("category" + i, (short) 1, user));
+            persist(new Expense(user, "expense", BigDecimal.ONE, Date.valueOf("2023-01-01"), category));
+        }
+        entityManager.clear();
+        // The requesting user is already loaded by authentication when the listing runs
+        user = entityManager.find(ExtraUser.class, user.getId());
+        Statistics statistics = entityManager.getEntityManagerFactory().unwrap(SessionFactory.class).getStatistics();
+        statistics.clear();
+
+        // execute
+        List<Transaction> transactions = list(user, null, null, null);
+
+        // verify
+        Assertions.assertThat(transactions).hasSize(500);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testLinkingToABudgetOnlyTouchesUnlinkedTransactionsOfTheUserAndCategoryWithinTheDates() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Category otherCategory = persist(new Category("other", (short) 1, user));
+        Budget budget = persist(new Budget(
+                user, "test budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-01-31"), category
+        ));
+        Budget previousBudget = persist(new Budget(
+                user, "previous budget", BigDecimal.TEN, Date.valueOf("2022-12-01"), Date.valueOf("2022-12-31"), category
+        ));
+        Expense firstDay = persist(new Expense(user, "first day", new BigDecimal("2.00"), Date.valueOf("2023-01-01"), category));
+        Expense lastDay = persist(new Expense(user, "last day", new BigDecimal("3.00"), Date.valueOf("2023-01-31"), category));
+        Expense outside = persist(new Expense(user, "outside", BigDecimal.ONE, Date.valueOf("2023-02-01"), category));
+        Expense otherCategoryExpense = persist(new Expense(user, "other", BigDecimal.ONE, Date.valueOf("2023-01-10"), otherCategory));
+        Expense alreadyLinked = new Expense(user, "linked", BigDecimal.ONE, Date.valueOf("2023-01-10"), category);
+        alreadyLinked.setLinkedBudget(previousBudget);
+        persist(alreadyLinked);
+
+        // execute
+        int linked = transactionRepo.linkUnlinkedTransactionsToBudget(
+                budget, user, category, budget.getStartingDate(), budget.getLimitDate()
+        );
+
+        // verify
+        Assertions.assertThat(linked).isEqualTo(2);
+        Assertions.assertThat(linkedBudgetIdOf(firstDay)).isEqualTo(budget.getId());
+        Assertions.assertThat(linkedBudgetIdOf(lastDay)).isEqualTo(budget.getId());
+        Assertions.assertThat(linkedBudgetIdOf(outside)).isNull();
+        Assertions.assertThat(linkedBudgetIdOf(otherCategoryExpense)).isNull();
+        Assertions.assertThat(linkedBudgetIdOf(alreadyLinked)).isEqualTo(previousBudget.getId());
+        Assertions
+                .assertThat(transactionRepo.sumSignedAmountsByLinkedBudgetId(budget.getId()))
+                .isEqualByComparingTo("-5.00");
+    }
+
+    @Test
+    void testSummingByDayGroupsTheLinkedTransactionsOfABudgetOldestFirst() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Budget budget = persist(new Budget(
+                user, "test budget", BigDecimal.TEN, Date.valueOf("2023-01-01"), Date.valueOf("2023-01-31"), category
+        ));
+        persist(new Expense(user, "first", new BigDecimal("2.00"), Date.valueOf("2023-01-05"), category));
+        persist(new Expense(user, "second", new BigDecimal("3.00"), Date.valueOf("2023-01-05"), category));
+        persist(new Expense(user, "third", new BigDecimal("4.00"), Date.valueOf("2023-01-02"), category));
+        transactionRepo.linkUnlinkedTransactionsToBudget(
+                budget, user, category, budget.getStartingDate(), budget.getLimitDate()
+        );
+
+        // execute
+        List<DailyAmountDTO> dailyAmounts = transactionRepo.sumSignedAmountsByDayByLinkedBudgetId(budget.getId());
+
+        // verify
+        Assertions.assertThat(dailyAmounts).extracting(DailyAmountDTO::getDate)
+                .containsExactly(Date.valueOf("2023-01-02"), Date.valueOf("2023-01-05"));
+        Assertions.assertThat(dailyAmounts.get(0).getAmount()).isEqualByComparingTo("-4.00");
+        Assertions.assertThat(dailyAmounts.get(1).getAmount()).isEqualByComparingTo("-5.00");
+    }
+
+    // Read back from the database, since bulk updates bypass the persistence context
+    private Long linkedBudgetIdOf(Transaction transaction) {
+        Budget linkedBudget = transactionRepo.findById(transaction.getId()).orElseThrow().getLinkedBudget();
+        return linkedBudget == null ? null : linkedBudget.getId();
+    }
+
+    private List<Transaction> page(ExtraUser user, Date cursorDate, Long cursorId) {
+        try (Stream<Transaction> transactions = transactionRepo.streamNewestFirst(
+                TransactionSpecifications.<Transaction>filteredBy(user, null, null, null)
+                        .and(TransactionSpecifications.after(cursorDate, cursorId)),
+                PageRequest.of(0, 2))) {
+            return transactions.toList();
+        }
+    }
+
+    private List<Transaction> list(ExtraUser user, List<Long> categoryIds, Date from, Date until) {
+        try (Stream<Transaction> transactions = transactionRepo.streamNewestFirst(
+                TransactionSpecifications.filteredBy(user, categoryIds, from, until), Pageable.unpaged())) {
+            return transactions.toList();
+        }
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
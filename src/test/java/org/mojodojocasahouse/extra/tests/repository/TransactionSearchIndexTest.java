@@ -0,0 +1,166 @@
+package org.mojodojocasahouse.extra.tests.repository;
+
+import jakarta.persistence.EntityManager;
+import org.assertj.core.api.Assertions;
+import org.hibernate.SessionFactory;
+import com.github.benmanes.caffeine.cache.Cache;
+import org.hibernate.stat.Statistics;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.Expense;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.service.TransactionSearchIndex;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.orm.jpa.DataJpaTest;
+import org.springframework.context.annotation.Import;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.time.Duration;
+import java.util.List;
+
+
+@DataJpaTest(properties = "spring.jpa.properties.hibernate.generate_statistics=true")
+@Import(TransactionSearchIndex.class)
+class TransactionSearchIndexTest {
+
+    @Autowired
+    private TransactionSearchIndex searchIndex;
+
+    @Autowired
+    private TransactionRepository transactionRepository;
+
+    @Autowired
+    private EntityManager entityManager;
+
+    @Test
+    void testSearchingMatchesEveryWordOfTheQueryAsAPrefixNewestFirst() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Expense groceries = persist(expense(user, "Grocery supplies", "2023-01-01", category));
+        Expense moreGroceries = persist(expense(user, "supplies for the grocery", "2023-02-01", category));
+        persist(expense(user, "Grocery", "2023-03-01", category));
+        persist(expense(user, "Office supplies", "2023-04-01", category));
+
+        // execute
+        List<Long> ids = searchIndex.search(user, "gro SUP", null, null, null, null, null, 10);
+
+        // verify
+        Assertions.assertThat(ids).containsExactly(moreGroceries.getId(), groceries.getId());
+    }
+
+    @Test
+    void testSearchingAppliesTheFiltersAndTheCursor() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        ExtraUser other = persist(new ExtraUser("Other", "User", "other@me.com", "a_password"));
+        Category food = persist(new Category("food", (short) 1, user));
+        Category rent = persist(new Category("rent", (short) 2, user));
+        Category othersFood = persist(new Category("food", (short) 1, other));
+        Expense january = persist(expense(user, "lunch", "2023-01-10", food));
+        Expense february = persist(expense(user, "lunch", "2023-02-10", food));
+        Expense march = persist(expense(user, "lunch", "2023-03-10", food));
+        persist(expense(user, "lunch", "2023-02-11", rent));
+        persist(expense(user, "lunch", "2024-01-10", food));
+        persist(expense(other, "lunch", "2023-02-10", othersFood));
+        Date from = Date.valueOf("2023-01-01"), until = Date.valueOf("2023-12-31");
+
+        // execute
+        List<Long> firstPage = searchIndex.search(user, "lunch", List.of(food.getId()), from, until, null, null, 2);
+        List<Long> secondPage = searchIndex.search(
+                user, "lunch", List.of(food.getId()), from, until, february.getDate(), february.getId(), 2
+        );
+
+        // verify
+        Assertions.assertThat(firstPage).containsExactly(march.getId(), february.getId());
+        Assertions.assertThat(secondPage).containsExactly(january.getId());
+    }
+
+    @Test
+    void testRepeatedSearchesOfTheSameUserAreAnsweredWithoutQuerying() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        persist(expense(user, "lunch", "2023-01-01", category));
+        Statistics statistics = statistics();
+        statistics.clear();
+
+        // execute
+        for (String query : List.of("l", "lu", "lun", "lunch", "dinner")) {
+            searchIndex.search(user, query, null, null, null, null, null, 10);
+        }
+
+        // verify
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    @Test
+    void testWrittenTransactionsAreSearchableOnceTheirTransactionCommits() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        Expense lunch = persist(expense(user, "lunch", "2023-01-01", category));
+        Assertions.assertThat(searchIndex.search(user, "lunch", null, null, null, null, null, 10)).containsExactly(lunch.getId());
+        Expense dinner = persist(expense(user, "dinner", "2023-01-02", category));
+
+        // execute
+        searchIndex.put(dinner);
+        searchIndex.remove(lunch);
+
+        // verify
+        Assertions.assertThat(searchIndex.search(user, "dinner", null, null, null, null, null, 10)).isEmpty();
+        Assertions.assertThat(searchIndex.search(user, "lunch", null, null, null, null, null, 10)).containsExactly(lunch.getId());
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        Assertions.assertThat(searchIndex.search(user, "dinner", null, null, null, null, null, 10)).containsExactly(dinner.getId());
+        Assertions.assertThat(searchIndex.search(user, "lunch", null, null, null, null, null, 10)).isEmpty();
+    }
+
+    @Test
+    void testAnIndexGrownPastTheMaximumTransactionsIsEvicted() {
+        // Setup - data
+        ExtraUser user = persist(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        Category category = persist(new Category("test", (short) 1, user));
+        persist(expense(user, "lunch", "2023-01-01", category));
+        TransactionSearchIndex smallIndex = new TransactionSearchIndex(transactionRepository, 3, Duration.ofMinutes(10));
+        smallIndex.search(user, "lunch", null, null, null, null, null, 10);
+        List<Expense> dinners = List.of(
+                persist(expense(user, "dinner", "2023-01-02", category)),
+                persist(expense(user, "dinner", "2023-01-03", category)),
+                persist(expense(user, "dinner", "2023-01-04", category))
+        );
+        Statistics statistics = statistics();
+
+        // execute
+        smallIndex.putAll(dinners);
+        TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+        ((Cache<?, ?>) ReflectionTestUtils.getField(smallIndex, "indexes")).cleanUp();
+        statistics.clear();
+
+        // verify
+        Assertions.assertThat(smallIndex.search(user, "dinner", null, null, null, null, null, 10)).hasSize(3);
+        Assertions.assertThat(statistics.getPrepareStatementCount()).isEqualTo(1);
+    }
+
+    private static Expense expense(ExtraUser user, String concept, String date, Category category) {
+        return new Expense(user, concept, BigDecimal.TEN, Date.valueOf(date), category);
+    }
+
+    private Statistics statistics() {
+        return entityManager
+                .getEntityManagerFactory()
+                .unwrap(SessionFactory.class)
+                .getStatistics();
+    }
+
+    private <T> T persist(T entity) {
+        entityManager.persist(entity);
+        entityManager.flush();
+        return entity;
+    }
+
+}
@@ -0,0 +1,214 @@
+package org.mojodojocasahouse.extra.tests.scheduling;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterAll;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeAll;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.DepositSweepNode;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.model.Investment;
+import org.mojodojocasahouse.extra.repository.CategoryRepository;
+import org.mojodojocasahouse.extra.repository.DepositRepository;
+import org.mojodojocasahouse.extra.repository.DepositSweepNodeRepository;
+import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.repository.InvestmentRepository;
+import org.mojodojocasahouse.extra.scheduling.DepositSweepNodeLease;
+import org.mojodojocasahouse.extra.scheduling.InvestmentDepositSweeper;
+import org.mojodojocasahouse.extra.service.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Timestamp;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+import java.util.concurrent.CompletableFuture;
+
+import static org.mockito.Mockito.mock;
+
+// Two instances of the deposit sweep, each in an application context of its own, sharing
+// one database. The contexts are started once for all the tests, which start from empty tables.
+class InvestmentDepositSweeperNodesTest {
+
+    private static final int INVESTMENTS = 200;
+
+    private static final long LEASE_MILLIS = 2000;
+
+    private static String url;
+
+    private static ConfigurableApplicationContext first;
+
+    private static ConfigurableApplicationContext second;
+
+    @BeforeAll
+    static void startNodes() {
+        url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        first = startNode(url);
+        second = startNode(url);
+    }
+
+    @AfterAll
+    static void stopNodes() {
+        first.close();
+        second.close();
+    }
+
+    // A test may have stopped the second node
+    @BeforeEach
+    void restartStoppedNode() {
+        if (!second.isActive()) {
+            second = startNode(url);
+        }
+    }
+
+    @AfterEach
+    void deleteRows() {
+        first.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+            List.of(
+                    "transaction", "notification_outbox", "monthly_transaction_totals", "investment",
+                    "categories", "users", "deposit_sweep_nodes"
+            ).forEach(table -> jdbc.update("DELETE FROM " + table));
+        });
+    }
+
+    @Test
+    void testLiveNodesSplitTheDueInvestmentsWithoutDepositingAnyTwice() {
+        // Setup - data
+        insertDueInvestments(INVESTMENTS);
+        lease(first).heartbeat();
+        lease(second).heartbeat();
+
+        // execute
+        CompletableFuture.allOf(
+                CompletableFuture.runAsync(() -> sweeper(first).sweep()),
+                CompletableFuture.runAsync(() -> sweeper(second).sweep())
+        ).join();
+
+        // verify
+        DepositSweepNode firstNode = node(lease(first));
+        DepositSweepNode secondNode = node(lease(second));
+        Assertions.assertThat(first.getBean(DepositRepository.class).count()).isEqualTo(INVESTMENTS);
+        Assertions.assertThat(firstNode.getDepositsMade()).isPositive();
+        Assertions.assertThat(secondNode.getDepositsMade()).isPositive();
+        Assertions.assertThat(firstNode.getDepositsMade() + secondNode.getDepositsMade()).isEqualTo(INVESTMENTS);
+    }
+
+    @Test
+    void testTheSurvivingNodeTakesOverOnceTheLeaseOfADeadNodeExpires() throws InterruptedException {
+        // Setup - data
+        insertDueInvestments(INVESTMENTS);
+        lease(second).heartbeat();
+        sweeper(first).sweep();
+        long sweptWhileBothLive = node(lease(first)).getDepositsMade();
+
+        // The second node stops renewing its lease without releasing it
+        Thread.sleep(LEASE_MILLIS + 500);
+
+        // execute
+        sweeper(first).sweep();
+
+        // verify
+        Assertions.assertThat(sweptWhileBothLive).isLessThan(INVESTMENTS);
+        Assertions.assertThat(node(lease(first)).getDepositsMade()).isEqualTo(INVESTMENTS);
+        Assertions.assertThat(first.getBean(DepositRepository.class).count()).isEqualTo(INVESTMENTS);
+    }
+
+    @Test
+    void testAStoppedNodeReleasesItsLease() {
+        // Setup - data
+        lease(first).heartbeat();
+        lease(second).heartbeat();
+        String secondNodeId = lease(second).getNodeId();
+
+        // execute
+        second.close();
+
+        // verify
+        Assertions.assertThat(first.getBean(DepositSweepNodeRepository.class).findById(secondNodeId)).isEmpty();
+        Assertions.assertThat(lease(first).currentPartition()).isEqualTo(new DepositSweepNodeLease.Partition(0, 1));
+    }
+
+    private void insertDueInvestments(int count) {
+        first.getBean(TransactionTemplate.class).executeWithoutResult(status -> {
+            ExtraUser user = first.getBean(ExtraUserRepository.class)
+                    .save(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+            Category category = first.getBean(CategoryRepository.class)
+                    .save(new Category("test", (short) 1, user));
+            List<Investment> investments = new ArrayList<>();
+            for (int i = 0; i < count; i++) {
+                investments.add(new Investment(
+                        "investment", BigDecimal.TEN, Timestamp.valueOf("2023-10-10 00:00:00"), BigDecimal.ONE, 1, 1, user, category
+                ));
+            }
+            first.getBean(InvestmentRepository.class).saveAll(investments);
+        });
+    }
+
+    private DepositSweepNode node(DepositSweepNodeLease lease) {
+        return first.getBean(DepositSweepNodeRepository.class).findById(lease.getNodeId()).orElseThrow();
+    }
+
+    private static DepositSweepNodeLease lease(ConfigurableApplicationContext node) {
+        return node.getBean(DepositSweepNodeLease.class);
+    }
+
+    private static InvestmentDepositSweeper sweeper(ConfigurableApplicationContext node) {
+        return node.getBean(InvestmentDepositSweeper.class);
+    }
+
+    // Passed as arguments, which take precedence over application.properties
+    private static ConfigurableApplicationContext startNode(String url) {
+        return new SpringApplicationBuilder(SweepNode.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run(
+                        "--spring.datasource.url=" + url,
+                        "--extra.investment-deposits.lease-duration=" + LEASE_MILLIS + "ms",
+                        "--extra.investment-deposits.sweep-chunk-size=50"
+                );
+    }
+
+    // Only what sweeping needs, without scheduling so that the test drives the sweeps
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan("org.mojodojocasahouse.extra.model")
+    @EnableJpaRepositories("org.mojodojocasahouse.extra.repository")
+    @Import({
+            DepositService.class, TransactionTotalsService.class, ActiveBudgetIndex.class, TransactionSearchIndex.class,
+            NotificationOutbox.class, DepositSweepNodeLease.class, InvestmentDepositSweeper.class
+    })
+    static class SweepNode {
+
+        @Bean
+        CategoryService categoryService() {
+            return mock(CategoryService.class);
+        }
+
+        @Bean
+        ExpenseService expenseService() {
+            return mock(ExpenseService.class);
+        }
+
+        @Bean
+        BudgetAlertService budgetAlertService() {
+            return mock(BudgetAlertService.class);
+        }
+
+    }
+
+}
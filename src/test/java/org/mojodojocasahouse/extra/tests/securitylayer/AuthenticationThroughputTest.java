@@ -0,0 +1,114 @@
+package org.mojodojocasahouse.extra.tests.securitylayer;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
+import org.mojodojocasahouse.extra.security.CachingDaoAuthenticationProvider;
+import org.mojodojocasahouse.extra.security.ExtraUserDetails;
+import org.springframework.security.authentication.AuthenticationProvider;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
+import org.springframework.security.authentication.dao.DaoAuthenticationProvider;
+import org.springframework.security.core.userdetails.UserDetailsService;
+import org.springframework.security.crypto.bcrypt.BCryptPasswordEncoder;
+
+import java.time.Duration;
+
+// Password hash checks per authentication, and, with -Pbenchmarks, authentications per second.
+// Single-threaded, so each figure is authentications per second on one core.
+public class AuthenticationThroughputTest {
+
+    private static final int AUTHENTICATIONS = 100;
+
+    private static final Duration MEASUREMENT = Duration.ofMillis(500);
+
+    private final CountingPasswordEncoder passwordEncoder = new CountingPasswordEncoder();
+
+    private final ExtraUser user = new ExtraUser("Some", "User", "mj@me.com", passwordEncoder.encode("a_password"));
+
+    private final UserDetailsService userDetailsService = username -> ExtraUserDetails.from(user);
+
+    @Test
+    public void testCachedBasicCredentialsAndAccessTokensAreNotHashedOnEveryRequest() {
+        // Setup - data
+        AuthenticationProvider caching = new CachingDaoAuthenticationProvider(
+                userDetailsService, passwordEncoder, 100, Duration.ofMinutes(5));
+        AccessTokenService accessTokenService = new AccessTokenService("", Duration.ofMinutes(15), userDetailsService);
+        String token = accessTokenService.issue(user).getToken();
+
+        // execute
+        passwordEncoder.matches = 0;
+        for (int i = 0; i < AUTHENTICATIONS; i++) {
+            caching.authenticate(basicCredentials());
+        }
+        int cachedMatches = passwordEncoder.matches;
+
+        passwordEncoder.matches = 0;
+        for (int i = 0; i < AUTHENTICATIONS; i++) {
+            accessTokenService.verify(token).orElseThrow();
+        }
+        int tokenMatches = passwordEncoder.matches;
+
+        // verify
+        Assertions.assertThat(cachedMatches).isEqualTo(1);
+        Assertions.assertThat(tokenMatches).isZero();
+    }
+
+    @Test
+    @Tag("benchmark")
+    public void testCachedBasicCredentialsAndAccessTokensOutperformBCryptOnEveryRequest() {
+        // Setup - data
+        DaoAuthenticationProvider bcryptOnly = new DaoAuthenticationProvider(passwordEncoder);
+        bcryptOnly.setUserDetailsService(userDetailsService);
+        AuthenticationProvider caching = new CachingDaoAuthenticationProvider(
+                userDetailsService, passwordEncoder, 100, Duration.ofMinutes(5));
+        AccessTokenService accessTokenService = new AccessTokenService("", Duration.ofMinutes(15), userDetailsService);
+        String token = accessTokenService.issue(user).getToken();
+
+        // exercise
+        double bcryptPerSecond = perSecond(() -> bcryptOnly.authenticate(basicCredentials()));
+        double cachedPerSecond = perSecond(() -> caching.authenticate(basicCredentials()));
+        double tokenPerSecond = perSecond(() -> accessTokenService.verify(token).orElseThrow());
+
+        // verify
+        Assertions.assertThat(cachedPerSecond).isGreaterThan(bcryptPerSecond * 10);
+        Assertions.assertThat(tokenPerSecond).isGreaterThan(bcryptPerSecond * 10);
+    }
+
+    private UsernamePasswordAuthenticationToken basicCredentials() {
+        return UsernamePasswordAuthenticationToken.unauthenticated("mj@me.com", "a_password");
+    }
+
+    private static double perSecond(Runnable operation) {
+        // Warm up, which also fills the verified credential cache
+        for (int i = 0; i < 3; i++) {
+            operation.run();
+        }
+
+        long operations = 0;
+        long start = System.nanoTime();
+        long elapsed;
+        do {
+            operation.run();
+            operations++;
+            elapsed = System.nanoTime() - start;
+        } while (elapsed < MEASUREMENT.toNanos());
+
+        return operations * 1e9 / elapsed;
+    }
+
+    // BCrypt, counting the password hash checks
+    private static class CountingPasswordEncoder extends BCryptPasswordEncoder {
+
+        private int matches;
+
+        @Override
+        public boolean matches(CharSequence rawPassword, String encodedPassword) {
+            matches++;
+            return super.matches(rawPassword, encodedPassword);
+        }
+
+    }
+
+}
@@ -0,0 +1,220 @@
+package org.mojodojocasahouse.extra.tests.securitylayer.authenticationcontroller;
+
+import com.fasterxml.jackson.databind.ObjectMapper;
+import org.apache.commons.codec.binary.Base64;
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.configuration.SecurityConfiguration;
+import org.mojodojocasahouse.extra.controller.AuthenticationController;
+import org.mojodojocasahouse.extra.dto.responses.ApiError;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
+import org.mojodojocasahouse.extra.security.DelegatingBasicAuthenticationEntryPoint;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
+import org.mojodojocasahouse.extra.security.ExtraUserDetailsService;
+import org.mojodojocasahouse.extra.service.AuthenticationService;
+import org.springframework.beans.factory.annotation.Autowired;
+import org.springframework.boot.test.autoconfigure.web.servlet.WebMvcTest;
+import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.boot.test.mock.mockito.MockBean;
+import org.springframework.context.annotation.Import;
+import org.springframework.http.HttpStatus;
+import org.springframework.http.MediaType;
+import org.springframework.mock.web.MockHttpServletResponse;
+import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.web.servlet.MockMvc;
+import org.springframework.test.web.servlet.request.MockMvcRequestBuilders;
+
+import java.time.Duration;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+@WebMvcTest(
+        controllers = AuthenticationController.class,
+        properties = "extra.security.access-token.secret=" + AccessTokenSecurityTest.SECRET
+)
+@Import({
+        DelegatingBasicAuthenticationEntryPoint.class,
+        SecurityConfiguration.class,
+        ExtraUserDetailsService.class,
+        ExtraUserCache.class,
+        AccessTokenService.class
+})
+public class AccessTokenSecurityTest {
+
+    static final String SECRET = "c2VjcmV0LXVzZWQtb25seS1ieS1hY2Nlc3MtdG9rZW4tdGVzdHM=";
+
+    @Autowired
+    private MockMvc mvc;
+
+    private JacksonTester<ApiError> jsonApiError;
+
+    @MockBean
+    public ExtraUserRepository userRepository;
+
+    @MockBean
+    public AuthenticationService authenticationService;
+
+    @MockBean
+    public PasswordEncoder passwordEncoder;
+
+    @Autowired
+    public AccessTokenService accessTokenService;
+
+    @Autowired
+    public ExtraUserDetailsService userDetailsService;
+
+    @BeforeEach
+    public void setup() {
+        JacksonTester.initFields(this, new ObjectMapper());
+    }
+
+    @Test
+    public void testAccessingProtectedResourceWithAValidAccessTokenIsSuccessful() throws Exception {
+        // Setup - data
+        ExtraUser user = new ExtraUser("Some", "User", "mj@me.com", "hashed");
+        String token = accessTokenService.issue(user).getToken();
+
+        // Setup - expectations
+        given(userRepository.findByEmail("mj@me.com")).willReturn(Optional.of(user));
+
+        // exercise
+        MockHttpServletResponse first = getProtectedResourceWithBearer(token);
+        MockHttpServletResponse second = getProtectedResourceWithBearer(token);
+
+        // Verify
+        Assertions.assertThat(first.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(second.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(userRepository, times(1)).findByEmail(any());
+    }
+
+    @Test
+    public void testAccessingProtectedResourceWithAnAccessTokenIssuedBeforeAPasswordChangeThrowsError()
+            throws Exception {
+        // Setup - data
+        ExtraUser user = new ExtraUser("Some", "User", "changed@me.com", "hashed");
+        String token = accessTokenService.issue(user).getToken();
+        ExtraUser changedUser = new ExtraUser("Some", "User", "changed@me.com", "new_hashed");
+
+        // Setup - expectations
+        given(userRepository.findByEmail("changed@me.com")).willReturn(Optional.of(changedUser));
+
+        // exercise
+        MockHttpServletResponse response = getProtectedResourceWithBearer(token);
+
+        // Verify
+        assertThatResponseIsUnauthorized(response);
+    }
+
+    @Test
+    public void testAccessingProtectedResourceWithAnAccessTokenOfADeletedUserThrowsError() throws Exception {
+        // Setup - data
+        String token = accessTokenService.issue(new ExtraUser("Some", "User", "deleted@me.com", "hashed")).getToken();
+
+        // Setup - expectations
+        given(userRepository.findByEmail("deleted@me.com")).willReturn(Optional.empty());
+
+        // exercise
+        MockHttpServletResponse response = getProtectedResourceWithBearer(token);
+
+        // Verify
+        assertThatResponseIsUnauthorized(response);
+    }
+
+    @Test
+    public void testAccessingProtectedResourceWithATamperedAccessTokenThrowsError() throws Exception {
+        // Setup - data
+        String token = accessTokenService.issue(new ExtraUser("Some", "User", "mj@me.com", "hashed")).getToken();
+        String otherToken = accessTokenService.issue(new ExtraUser("Other", "User", "other@me.com", "hashed")).getToken();
+        String tampered = otherToken.substring(0, otherToken.indexOf('.')) + token.substring(token.indexOf('.'));
+
+        // exercise
+        MockHttpServletResponse response = getProtectedResourceWithBearer(tampered);
+
+        // Verify
+        assertThatResponseIsUnauthorized(response);
+    }
+
+    @Test
+    public void testAccessingProtectedResourceWithAnExpiredAccessTokenThrowsError() throws Exception {
+        // Setup - data
+        AccessTokenService expiringService = new AccessTokenService(SECRET, Duration.ofSeconds(-1), userDetailsService);
+        String token = expiringService.issue(new ExtraUser("Some", "User", "mj@me.com", "hashed")).getToken();
+
+        // exercise
+        MockHttpServletResponse response = getProtectedResourceWithBearer(token);
+
+        // Verify
+        assertThatResponseIsUnauthorized(response);
+    }
+
+    @Test
+    public void testRepeatedBasicCredentialsAreOnlyHashedOnce() throws Exception {
+        // Setup - data
+        ExtraUser user = new ExtraUser("Some", "User", "basic@me.com", "hashed_pass");
+
+        // Setup - expectations
+        given(userRepository.findByEmail("basic@me.com")).willReturn(Optional.of(user));
+        given(passwordEncoder.matches("pass", "hashed_pass")).willReturn(true);
+
+        // exercise
+        MockHttpServletResponse first = getProtectedResourceWithUsernameAndPassword("basic@me.com", "pass");
+        MockHttpServletResponse second = getProtectedResourceWithUsernameAndPassword("basic@me.com", "pass");
+
+        // Verify
+        Assertions.assertThat(first.getStatus()).isEqualTo(HttpStatus.OK.value());
+        Assertions.assertThat(second.getStatus()).isEqualTo(HttpStatus.OK.value());
+        verify(passwordEncoder, times(1)).matches("pass", "hashed_pass");
+    }
+
+    @Test
+    public void testAWrongPasswordIsNotAcceptedFromTheVerifiedCredentialCache() throws Exception {
+        // Setup - data
+        ExtraUser user = new ExtraUser("Some", "User", "wrong@me.com", "hashed_pass");
+
+        // Setup - expectations
+        given(userRepository.findByEmail("wrong@me.com")).willReturn(Optional.of(user));
+        given(passwordEncoder.matches("pass", "hashed_pass")).willReturn(true);
+        given(passwordEncoder.matches("not_pass", "hashed_pass")).willReturn(false);
+
+        // exercise
+        getProtectedResourceWithUsernameAndPassword("wrong@me.com", "pass");
+        MockHttpServletResponse response = getProtectedResourceWithUsernameAndPassword("wrong@me.com", "not_pass");
+
+        // Verify
+        Assertions.assertThat(response.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED.value());
+    }
+
+    private MockHttpServletResponse getProtectedResourceWithBearer(String token) throws Exception {
+        return mvc.perform(MockMvcRequestBuilders.
+                        get("/protected")
+                        .header("Authorization", "Bearer " + token)
+                        .accept(MediaType.ALL))
+                .andReturn().getResponse();
+    }
+
+    private MockHttpServletResponse getProtectedResourceWithUsernameAndPassword(String username,
+                                                                                String password) throws Exception{
+        return mvc.perform(MockMvcRequestBuilders.
+                        get("/protected")
+                        .header("Authorization",
+                                "Basic " + Base64
+                                        .encodeBase64String((username + ":" + password).getBytes()))
+                        .accept(MediaType.ALL))
+                .andReturn().getResponse();
+    }
+
+    private void assertThatResponseIsUnauthorized(MockHttpServletResponse response) throws Exception {
+        ApiError actualApiError = jsonApiError.parse(response.getContentAsString()).getObject();
+
+        Assertions.assertThat(actualApiError.getStatus()).isEqualTo(HttpStatus.UNAUTHORIZED);
+        Assertions.assertThat(actualApiError.getMessage()).isEqualTo("Authentication Error");
+    }
+
+}
@@ -0,0 +1,106 @@
+package org.mojodojocasahouse.extra.tests.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mojodojocasahouse.extra.dto.requests.BudgetAddingRequest;
+import org.mojodojocasahouse.extra.dto.requests.ExpenseAddingRequest;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.ExtraUserRepository;
+import org.mojodojocasahouse.extra.service.*;
+import org.springframework.boot.Banner;
+import org.springframework.boot.SpringBootConfiguration;
+import org.springframework.boot.WebApplicationType;
+import org.springframework.boot.autoconfigure.EnableAutoConfiguration;
+import org.springframework.boot.autoconfigure.domain.EntityScan;
+import org.springframework.boot.builder.SpringApplicationBuilder;
+import org.springframework.context.ConfigurableApplicationContext;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Import;
+import org.springframework.data.jpa.repository.config.EnableJpaRepositories;
+import org.springframework.jdbc.core.JdbcTemplate;
+
+import java.math.BigDecimal;
+import java.sql.Date;
+import java.util.UUID;
+
+import static org.mockito.Mockito.mock;
+
+// Budgets created on one instance, spending written on another, both sharing one database
+class ActiveBudgetIndexNodesTest {
+
+    private ConfigurableApplicationContext first;
+
+    private ConfigurableApplicationContext second;
+
+    @BeforeEach
+    void startNodes() {
+        String url = "jdbc:h2:mem:" + UUID.randomUUID() + ";MODE=MySQL;DATABASE_TO_LOWER=TRUE;DB_CLOSE_DELAY=-1";
+        first = startNode(url);
+        second = startNode(url);
+    }
+
+    @AfterEach
+    void stopNodes() {
+        first.close();
+        second.close();
+    }
+
+    @Test
+    void testExpenseWrittenOnAnotherInstanceIsLinkedToABudgetItHasNotIndexedYet() {
+        // Setup - data
+        ExtraUser user = first.getBean(ExtraUserRepository.class)
+                .save(new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        // The second instance indexes the category while it has no budgets
+        second.getBean(ExpenseService.class).addExpense(user, new ExpenseAddingRequest(
+                "before budget", new BigDecimal("5.00"), Date.valueOf("2023-05-01"), "food", (short) 1
+        ));
+        first.getBean(BudgetService.class).addBudget(user, new BudgetAddingRequest(
+                "food budget", new BigDecimal("100.00"), Date.valueOf("2023-12-31"), Date.valueOf("2023-06-01"), "food", (short) 1
+        ));
+
+        // execute
+        second.getBean(ExpenseService.class).addExpense(user, new ExpenseAddingRequest(
+                "after budget", new BigDecimal("10.00"), Date.valueOf("2023-06-15"), "food", (short) 1
+        ));
+
+        // verify
+        JdbcTemplate jdbc = first.getBean(JdbcTemplate.class);
+        Long budgetId = jdbc.queryForObject("SELECT id FROM budgets", Long.class);
+        Assertions.assertThat(jdbc.queryForObject(
+                "SELECT budget_id FROM transaction WHERE concept = 'after budget'", Long.class
+        )).isEqualTo(budgetId);
+        Assertions.assertThat(jdbc.queryForObject(
+                "SELECT current_amount FROM budgets", BigDecimal.class
+        )).isEqualByComparingTo("10.00");
+    }
+
+    // Passed as arguments, which take precedence over application.properties
+    private static ConfigurableApplicationContext startNode(String url) {
+        return new SpringApplicationBuilder(BudgetNode.class)
+                .web(WebApplicationType.NONE)
+                .bannerMode(Banner.Mode.OFF)
+                .run("--spring.datasource.url=" + url);
+    }
+
+    // Only what adding budgets and expenses needs
+    @SpringBootConfiguration
+    @EnableAutoConfiguration
+    @EntityScan("org.mojodojocasahouse.extra.model")
+    @EnableJpaRepositories("org.mojodojocasahouse.extra.repository")
+    @Import({
+            BudgetService.class, ExpenseService.class, CategoryService.class, CategoryIdCache.class,
+            BudgetCreationGuard.class, TransactionTotalsService.class, ActiveBudgetIndex.class,
+            TransactionSearchIndex.class
+    })
+    static class BudgetNode {
+
+        @Bean
+        BudgetAlertService budgetAlertService() {
+            return mock(BudgetAlertService.class);
+        }
+
+    }
+
+}
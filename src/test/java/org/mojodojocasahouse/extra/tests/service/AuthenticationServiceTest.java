@@ -17,19 +17,31 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mojodojocasahouse.extra.repository.PasswordResetTokenRepository;
 import org.mojodojocasahouse.extra.repository.UserDeviceRepository;
+import org.mojodojocasahouse.extra.security.AccessTokenService;
+import org.mojodojocasahouse.extra.security.ExtraUserCache;
+import org.mojodojocasahouse.extra.security.ExtraUserDetails;
 import org.mojodojocasahouse.extra.service.AuthenticationService;
+import org.mojodojocasahouse.extra.service.DeviceTokenCache;
 import org.mojodojocasahouse.extra.testmodels.TestPasswordResetToken;
 import org.springframework.dao.DataIntegrityViolationException;
 import org.springframework.mail.MailSendException;
 import org.springframework.mail.SimpleMailMessage;
 import org.springframework.mail.javamail.JavaMailSenderImpl;
 import org.springframework.security.authentication.BadCredentialsException;
+import org.springframework.security.authentication.UsernamePasswordAuthenticationToken;
 import org.springframework.security.crypto.password.PasswordEncoder;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 
 import java.security.Principal;
+import java.time.Duration;
+import java.util.List;
+import java.util.Set;
 import java.util.Optional;
 import java.util.UUID;
 
@@ -55,6 +67,15 @@ public class AuthenticationServiceTest {
     @Mock
     private UserDeviceRepository deviceRepository;
 
+    @Mock
+    private AccessTokenService accessTokenService;
+
+    @Spy
+    private ExtraUserCache userCache = new ExtraUserCache(100, Duration.ofMinutes(10));
+
+    @Mock
+    private DeviceTokenCache deviceTokenCache;
+
     @InjectMocks
     private AuthenticationService serv;
 
@@ -135,7 +156,7 @@ public class AuthenticationServiceTest {
         ExtraUser foundUser = serv.getUserByPrincipal(mockPrincipal);
 
         // exercise and verify
-        Assertions.assertThat(foundUser).isEqualTo(existingUser);
+        Assertions.assertThat(foundUser).usingRecursiveComparison().isEqualTo(existingUser);
     }
 
     @Test
@@ -155,6 +176,140 @@ public class AuthenticationServiceTest {
                 .isInstanceOf(RuntimeException.class);
     }
 
+    @Test
+    public void testGettingUserByTheSamePrincipalTwiceOnlyLooksItUpOnce() {
+        // Setup - data
+        ExtraUser existingUser = new ExtraUser(
+                "Some",
+                "User",
+                "mj@me.com",
+                "a_hashed_password"
+        );
+        Principal mockPrincipal = Mockito.mock(Principal.class);
+
+        // Setup - expectations
+        given(mockPrincipal.getName()).willReturn("mj@me.com");
+        given(repo.findByEmail("mj@me.com")).willReturn(Optional.of(existingUser));
+
+        // exercise
+        serv.getUserByPrincipal(mockPrincipal);
+        ExtraUser foundUser = serv.getUserByPrincipal(mockPrincipal);
+
+        // verify
+        Assertions.assertThat(foundUser).usingRecursiveComparison().isEqualTo(existingUser);
+        verify(repo, times(1)).findByEmail(any());
+    }
+
+    @Test
+    public void testChangesToAUserGottenByPrincipalDoNotReachTheCachedUser() {
+        // Setup - data
+        ExtraUser existingUser = new ExtraUser(
+                "Some",
+                "User",
+                "mj@me.com",
+                "a_hashed_password"
+        );
+        Principal mockPrincipal = Mockito.mock(Principal.class);
+
+        // Setup - expectations
+        given(mockPrincipal.getName()).willReturn("mj@me.com");
+        given(repo.findByEmail("mj@me.com")).willReturn(Optional.of(existingUser));
+
+        // exercise
+        serv.getUserByPrincipal(mockPrincipal).setPassword("another_hashed_password");
+        existingUser.setPassword("another_hashed_password");
+        ExtraUser foundUser = serv.getUserByPrincipal(mockPrincipal);
+
+        // verify
+        Assertions.assertThat(foundUser.getPassword()).isEqualTo("a_hashed_password");
+    }
+
+    @Test
+    public void testGettingUserByAnAuthenticatedPrincipalLooksItUpById() {
+        // Setup - data
+        ExtraUser existingUser = new ExtraUser(
+                "Some",
+                "User",
+                "mj@me.com",
+                "a_hashed_password"
+        );
+        ExtraUserDetails details = new ExtraUserDetails(1L, "mj@me.com", "a_hashed_password", Set.of(), true);
+        Principal principal = new UsernamePasswordAuthenticationToken(details, null, details.getAuthorities());
+
+        // Setup - expectations
+        given(repo.findById(1L)).willReturn(Optional.of(existingUser));
+
+        // exercise
+        ExtraUser foundUser = serv.getUserByPrincipal(principal);
+
+        // verify
+        Assertions.assertThat(foundUser).usingRecursiveComparison().isEqualTo(existingUser);
+        verify(repo, never()).findByEmail(any());
+    }
+
+    @Test
+    public void testChangingPasswordDropsTheCachedUser() {
+        // Setup - data
+        ExtraUser existingUser = new ExtraUser(
+                "Some",
+                "User",
+                "mj@me.com",
+                "curr_pass_hashed"
+        );
+        UserChangePasswordRequest request = new UserChangePasswordRequest(
+                "curr_pass",
+                "new_pass",
+                "new_pass"
+        );
+
+        // Setup - expectations
+        given(passwordEncoder.matches("curr_pass","curr_pass_hashed")).willReturn(true);
+        given(passwordEncoder.encode("new_pass")).willReturn("new_pass_hashed");
+
+        // exercise
+        serv.changePassword(existingUser, request);
+
+        // verify
+        verify(userCache).invalidate("mj@me.com");
+    }
+
+    @Test
+    public void testChangingPasswordDropsTheCachedUserOnlyOnceTheTransactionCommits() {
+        // Setup - data
+        ExtraUser existingUser = new ExtraUser(
+                "Some",
+                "User",
+                "mj@me.com",
+                "curr_pass_hashed"
+        );
+        UserChangePasswordRequest request = new UserChangePasswordRequest(
+                "curr_pass",
+                "new_pass",
+                "new_pass"
+        );
+        Principal mockPrincipal = Mockito.mock(Principal.class);
+
+        // Setup - expectations
+        given(mockPrincipal.getName()).willReturn("mj@me.com");
+        given(repo.findByEmail("mj@me.com")).willReturn(Optional.of(existingUser));
+        given(passwordEncoder.matches("curr_pass","curr_pass_hashed")).willReturn(true);
+        given(passwordEncoder.encode("new_pass")).willReturn("new_pass_hashed");
+
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            // exercise
+            serv.changePassword(serv.getUserByPrincipal(mockPrincipal), request);
+            String passwordBeforeCommit = serv.getUserByPrincipal(mockPrincipal).getPassword();
+            TransactionSynchronizationManager.getSynchronizations().forEach(TransactionSynchronization::afterCommit);
+
+            // verify
+            Assertions.assertThat(passwordBeforeCommit).isEqualTo("curr_pass_hashed");
+            Assertions.assertThat(userCache.get("mj@me.com", email -> null)).isNull();
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
     @Test
     public void testChangingPasswordIsSuccessful() {
         // Setup - data
@@ -299,6 +454,7 @@ public class AuthenticationServiceTest {
         given(repo.save(any(ExtraUser.class))).willReturn(null);
 
         Assertions.assertThatNoException().isThrownBy(() -> serv.resetPassword(request));
+        verify(userCache).invalidate("mj@me.com");
 
     }
 
@@ -332,6 +488,7 @@ public class AuthenticationServiceTest {
                 "mj@me.com",
                 "curr_pass_hashed"
         );
+        ReflectionTestUtils.setField(user, "id", 1L);
         ApiResponse expectedResponse = new ApiResponse("Device registered successfully");
 
         given(deviceRepository.findByFcmToken(any())).willReturn(Optional.empty());
@@ -340,6 +497,7 @@ public class AuthenticationServiceTest {
         ApiResponse response = serv.registerUserDevice(user, request);
 
         Assertions.assertThat(response).isEqualTo(expectedResponse);
+        verify(deviceTokenCache).invalidateAll(List.of(1L));
     }
 
     @Test
@@ -359,6 +517,8 @@ public class AuthenticationServiceTest {
                 "new@me.com",
                 "hashed_pass_2"
         );
+        ReflectionTestUtils.setField(oldUser, "id", 1L);
+        ReflectionTestUtils.setField(newUser, "id", 2L);
         UserDevice existingDevice = new UserDevice(
                 request.getToken(),
                 oldUser
@@ -371,6 +531,7 @@ public class AuthenticationServiceTest {
         ApiResponse response = serv.registerUserDevice(newUser, request);
 
         Assertions.assertThat(response).isEqualTo(expectedResponse);
+        verify(deviceTokenCache).invalidateAll(List.of(1L, 2L));
     }
 
     @Test
@@ -412,6 +573,7 @@ public class AuthenticationServiceTest {
                 "mj@me.com",
                 "curr_pass_hashed"
         );
+        ReflectionTestUtils.setField(user, "id", 1L);
         Optional<UserDevice> existingDevice = Optional.of(
                 new UserDevice("some_used_token", user)
         );
@@ -422,6 +584,7 @@ public class AuthenticationServiceTest {
         ApiResponse response = serv.unregisterUserDevice(request);
 
         Assertions.assertThat(response).isEqualTo(expectedResponse);
+        verify(deviceTokenCache).invalidateAll(List.of(1L));
     }
 
 }
@@ -0,0 +1,90 @@
+package org.mojodojocasahouse.extra.tests.service;
+
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.BudgetSpendingDTO;
+import org.mojodojocasahouse.extra.repository.BudgetRepository;
+import org.mojodojocasahouse.extra.service.NotificationOutbox;
+import org.mojodojocasahouse.extra.service.BudgetAlertService;
+
+import java.math.BigDecimal;
+import java.util.List;
+import java.util.Optional;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
+
+@ExtendWith(MockitoExtension.class)
+public class BudgetAlertServiceTest {
+
+    @Mock
+    private BudgetRepository budgetRepository;
+
+    @Mock
+    private NotificationOutbox notificationOutbox;
+
+    private BudgetAlertService budgetAlertService;
+
+    @BeforeEach
+    public void setup() {
+        budgetAlertService = new BudgetAlertService(budgetRepository, notificationOutbox, List.of(100, 80));
+    }
+
+    @Test
+    public void testSpendingThatCrossesAThresholdEnqueuesAnAlert() {
+        // Setup - expectations
+        given(budgetRepository.findBudgetSpendingById(1L)).willReturn(spending("85.00"));
+
+        // exercise
+        budgetAlertService.checkThresholds(1L, new BigDecimal("10.00"));
+
+        // verify
+        verify(notificationOutbox).addBudgetAlert(new BudgetAlertDTO(2L, 1L, "test budget", 80));
+    }
+
+    @Test
+    public void testSpendingThatCrossesSeveralThresholdsEnqueuesOnlyTheHighest() {
+        // Setup - expectations
+        given(budgetRepository.findBudgetSpendingById(1L)).willReturn(spending("120.00"));
+
+        // exercise
+        budgetAlertService.checkThresholds(1L, new BigDecimal("50.00"));
+
+        // verify
+        verify(notificationOutbox).addBudgetAlert(new BudgetAlertDTO(2L, 1L, "test budget", 100));
+        verifyNoMoreInteractions(notificationOutbox);
+    }
+
+    @Test
+    public void testSpendingAboveAnAlreadyCrossedThresholdDoesNotEnqueueAnAlert() {
+        // Setup - expectations
+        given(budgetRepository.findBudgetSpendingById(1L)).willReturn(spending("95.00"));
+
+        // exercise
+        budgetAlertService.checkThresholds(1L, new BigDecimal("5.00"));
+
+        // verify
+        verify(notificationOutbox, never()).addBudgetAlert(any());
+    }
+
+    @Test
+    public void testLoweringSpendingNeitherLooksUpTheBudgetNorEnqueuesAnAlert() {
+        // exercise
+        budgetAlertService.checkThresholds(1L, new BigDecimal("-5.00"));
+
+        // verify
+        verifyNoInteractions(budgetRepository, notificationOutbox);
+    }
+
+    private static Optional<BudgetSpendingDTO> spending(String currentAmount) {
+        return Optional.of(new BudgetSpendingDTO(
+                1L, 2L, "test budget", new BigDecimal("100.00"), new BigDecimal(currentAmount)
+        ));
+    }
+
+}
@@ -0,0 +1,105 @@
+package org.mojodojocasahouse.extra.tests.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.CategoryRepository;
+import org.mojodojocasahouse.extra.service.BudgetCreationGuard;
+import org.springframework.test.util.ReflectionTestUtils;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.TimeUnit;
+import java.util.concurrent.TimeoutException;
+
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+public class BudgetCreationGuardTest {
+
+    @Mock
+    private CategoryRepository categoryRepository;
+
+    @Test
+    public void testAcquiringTheGuardLocksTheCategoryRow() {
+        // Setup - data
+        BudgetCreationGuard guard = new BudgetCreationGuard(categoryRepository, 4);
+        Category category = category(1L);
+
+        // exercise
+        runInTransaction(() -> guard.acquire(category));
+
+        // verify
+        verify(categoryRepository).lockById(1L);
+    }
+
+    @Test
+    public void testAcquiringTheGuardOfACategoryWaitsUntilTheHoldingTransactionCompletes() throws Exception {
+        // Setup - data
+        BudgetCreationGuard guard = new BudgetCreationGuard(categoryRepository, 4);
+        Category category = category(1L);
+        CountDownLatch firstAcquired = new CountDownLatch(1);
+        CountDownLatch releaseFirst = new CountDownLatch(1);
+
+        // exercise
+        CompletableFuture<Void> first = CompletableFuture.runAsync(() -> runInTransaction(() -> {
+            guard.acquire(category);
+            firstAcquired.countDown();
+            await(releaseFirst);
+        }));
+        Assertions.assertThat(firstAcquired.await(5, TimeUnit.SECONDS)).isTrue();
+        CompletableFuture<Void> second = CompletableFuture.runAsync(() -> runInTransaction(() -> guard.acquire(category)));
+
+        // verify
+        Assertions.assertThatThrownBy(() -> second.get(200, TimeUnit.MILLISECONDS))
+                .isInstanceOf(TimeoutException.class);
+        releaseFirst.countDown();
+        first.get(5, TimeUnit.SECONDS);
+        second.get(5, TimeUnit.SECONDS);
+    }
+
+    @Test
+    public void testAcquiringTheGuardOutsideATransactionThrowsIllegalStateException() {
+        // Setup - data
+        BudgetCreationGuard guard = new BudgetCreationGuard(categoryRepository, 4);
+
+        // exercise & verify
+        Assertions
+                .assertThatThrownBy(() -> guard.acquire(category(1L)))
+                .isInstanceOf(IllegalStateException.class);
+    }
+
+    private static Category category(Long id) {
+        Category category = new Category("test", (short) 1, new ExtraUser("Some", "User", "mj@me.com", "a_password"));
+        ReflectionTestUtils.setField(category, "id", id);
+        return category;
+    }
+
+    // Stands in for the transaction manager, completing the transaction once the work is done
+    private static void runInTransaction(Runnable work) {
+        TransactionSynchronizationManager.initSynchronization();
+        try {
+            work.run();
+            TransactionSynchronizationManager
+                    .getSynchronizations()
+                    .forEach(sync -> sync.afterCompletion(TransactionSynchronization.STATUS_COMMITTED));
+        } finally {
+            TransactionSynchronizationManager.clearSynchronization();
+        }
+    }
+
+    private static void await(CountDownLatch latch) {
+        try {
+            latch.await(5, TimeUnit.SECONDS);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        }
+    }
+
+}
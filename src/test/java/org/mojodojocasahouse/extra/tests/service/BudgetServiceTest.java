@@ -7,30 +7,44 @@ import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.InOrder;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mojodojocasahouse.extra.dto.model.ActiveBudgetLookupDTO;
 import org.mojodojocasahouse.extra.dto.model.BudgetDTO;
+import org.mojodojocasahouse.extra.dto.model.BudgetForecastDTO;
+import org.mojodojocasahouse.extra.dto.model.CategoryDTO;
+import org.mojodojocasahouse.extra.dto.model.DailyAmountDTO;
+import org.mojodojocasahouse.extra.dto.requests.ActiveBudgetRequest;
 import org.mojodojocasahouse.extra.dto.requests.BudgetAddingRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.exception.BudgetAccessDeniedException;
 import org.mojodojocasahouse.extra.exception.BudgetNotFoundException;
 import org.mojodojocasahouse.extra.exception.ConflictingBudgetException;
 import org.mojodojocasahouse.extra.model.*;
 import org.mojodojocasahouse.extra.repository.BudgetRepository;
 import org.mojodojocasahouse.extra.repository.ExpenseRepository;
 import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.service.ActiveBudgetIndex;
+import org.mojodojocasahouse.extra.service.BudgetCreationGuard;
 import org.mojodojocasahouse.extra.service.BudgetService;
 import org.mojodojocasahouse.extra.service.CategoryService;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.sql.Date;
-import java.util.ArrayList;
+import java.time.LocalDate;
 import java.util.List;
 import java.util.Optional;
+import java.util.Set;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.eq;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.inOrder;
+import static org.mockito.Mockito.verify;
 
 @ExtendWith(MockitoExtension.class)
 public class BudgetServiceTest {
@@ -45,6 +59,12 @@ public class BudgetServiceTest {
     @Mock
     private CategoryService categoryService;
 
+    @Mock
+    private ActiveBudgetIndex activeBudgetIndex;
+
+    @Mock
+    private BudgetCreationGuard budgetCreationGuard;
+
     @Mock
     private TransactionRepository transactionRepository;
 
@@ -70,12 +90,12 @@ public class BudgetServiceTest {
         Budget savedBudget1 = new Budget(user,"Name", new BigDecimal("10.11"), Date.valueOf("2023-09-11"), Date.valueOf("2023-09-11"), new Category("test",(short) 1, user));
         Budget savedBudget2 = new Budget(user,"Name", new BigDecimal("10.11"), Date.valueOf("2023-09-11"), Date.valueOf("2023-09-11"), new Category("test",(short) 1, user));
 
-        List<Budget> expectedBudget = List.of(
-                savedBudget1, savedBudget2
+        List<BudgetDTO> expectedBudget = List.of(
+                savedBudget1.asDto(), savedBudget2.asDto()
         );
 
         // Setup - expectations
-        given(budgetRepository.findAllBudgetsByUser(any())).willReturn(expectedBudget);
+        given(budgetRepository.findAllBudgetDtosByUser(any())).willReturn(expectedBudget);
 
         // exercise
         List<BudgetDTO> foundBudgetDtos = budgetService.getAllBudgetsByUserId(user);
@@ -97,7 +117,7 @@ public class BudgetServiceTest {
         );
 
         // Setup - expectations
-        given(budgetRepository.findAllBudgetsByUser(any())).willReturn(List.of());
+        given(budgetRepository.findAllBudgetDtosByUser(any())).willReturn(List.of());
 
         // exercise
         List<BudgetDTO> foundBudget = budgetService.getAllBudgetsByUserId(user);
@@ -124,7 +144,6 @@ public class BudgetServiceTest {
                 "Somepassword1!"
         );
         Category existingOrNewCategory = new Category("test", (short) 1, user);
-        List<Transaction> overlappingExpenses = new ArrayList<>();
         Budget savedBudget = new Budget(
                 user,
                 "test budget",
@@ -142,8 +161,8 @@ public class BudgetServiceTest {
                 categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(any(), any(), any())
         ).willReturn(existingOrNewCategory);
         given(
-                transactionRepository.getTransactionsByUserAndCategoryAndDateInterval(any(), any(), any(), any())
-        ).willReturn(overlappingExpenses);
+                transactionRepository.linkUnlinkedTransactionsToBudget(any(), any(), any(), any(), any())
+        ).willReturn(0);
         given(
                 budgetRepository.save(any())
         ).willReturn(savedBudget);
@@ -173,12 +192,6 @@ public class BudgetServiceTest {
                 "Somepassword1!"
         );
         Category existingOrNewCategory = new Category("test", (short) 1, user);
-        Expense existingExpense1 = new Expense(user, "test1", BigDecimal.TEN, Date.valueOf("2023-09-11"), existingOrNewCategory);
-        Expense existingExpense2 = new Expense(user, "test2", BigDecimal.TWO, Date.valueOf("2023-09-11"), existingOrNewCategory);
-        List<Transaction> overlappingExpenses = List.of(
-                existingExpense1,
-                existingExpense2
-        );
         Budget savedBudget = new Budget(
                 user,
                 "test budget",
@@ -196,8 +209,11 @@ public class BudgetServiceTest {
                 categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(any(), any(), any())
         ).willReturn(existingOrNewCategory);
         given(
-                transactionRepository.getTransactionsByUserAndCategoryAndDateInterval(any(), any(), any(), any())
-        ).willReturn(overlappingExpenses);
+                transactionRepository.linkUnlinkedTransactionsToBudget(any(), any(), any(), any(), any())
+        ).willReturn(2);
+        given(
+                transactionRepository.sumSignedAmountsByLinkedBudgetId(any())
+        ).willReturn(new BigDecimal("-12"));
         given(
                 budgetRepository.save(any())
         ).willReturn(savedBudget);
@@ -207,8 +223,10 @@ public class BudgetServiceTest {
 
         // verify
         Assertions.assertThat(actualResponse).isEqualTo(expectedResponse);
-        Assertions.assertThat(existingExpense1.getLinkedBudget()).isNotNull();
-        Assertions.assertThat(existingExpense2.getLinkedBudget()).isNotNull();
+        verify(transactionRepository).linkUnlinkedTransactionsToBudget(
+                savedBudget, user, existingOrNewCategory, Date.valueOf("2023-09-11"), Date.valueOf("2023-09-11")
+        );
+        verify(budgetRepository).addToCurrentAmount(any(), eq(new BigDecimal("12")));
     }
 
     @Test
@@ -240,6 +258,52 @@ public class BudgetServiceTest {
                 .isInstanceOf(ConflictingBudgetException.class);
     }
 
+    @Test
+    public void testAddingABudgetChecksForOverlapsOnlyAfterAcquiringTheCategoryGuard() {
+        // Setup - data
+        BudgetAddingRequest request = new BudgetAddingRequest(
+                "Name",
+                new BigDecimal("10.11"),
+                Date.valueOf("2023-09-11"),
+                Date.valueOf("2023-09-11"),
+                "test",
+                (short) 1
+        );
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category existingOrNewCategory = new Category("test", (short) 1, user);
+        Budget savedBudget = new Budget(
+                user,
+                "test budget",
+                BigDecimal.TEN,
+                Date.valueOf("2023-09-11"),
+                Date.valueOf("2023-09-11"),
+                existingOrNewCategory
+        );
+
+        // Setup - expectations
+        given(
+                categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(any(), any(), any())
+        ).willReturn(existingOrNewCategory);
+        given(
+                transactionRepository.linkUnlinkedTransactionsToBudget(any(), any(), any(), any(), any())
+        ).willReturn(0);
+        given(budgetRepository.save(any())).willReturn(savedBudget);
+
+        // exercise
+        budgetService.addBudget(user, request);
+
+        // verify
+        InOrder inOrder = inOrder(budgetCreationGuard, budgetRepository);
+        inOrder.verify(budgetCreationGuard).acquire(existingOrNewCategory);
+        inOrder.verify(budgetRepository).findOverlappingBudgetsByUserAndCategory(any(), any(), any(), any());
+        inOrder.verify(budgetRepository).save(any());
+    }
+
     @Test
     public void testGettingAllBudgetsByCategoryAndUserReturnsAListOfBudgets(){
         ExtraUser user = new ExtraUser(
@@ -258,7 +322,7 @@ public class BudgetServiceTest {
         );
         List<BudgetDTO> expectedDtos = List.of(savedBudget1.asDto());
 
-        given(budgetRepository.findAllBudgetsByUser(any())).willReturn(List.of(savedBudget1));
+        given(budgetRepository.findAllBudgetDtosByUser(any())).willReturn(expectedDtos);
 
         List<BudgetDTO> foundBudget = budgetService.getAllBudgetsByUserId(user);
 
@@ -355,4 +419,159 @@ public class BudgetServiceTest {
         Assertions.assertThat(result).isNull();
     }
 
+    @Test
+    public void testForecastingABudgetProjectsSpendToDateAtItsDailyBurnRate() {
+        // Setup - data
+        ExtraUser user = userWithId(1L);
+        Budget budget = budgetWithId(1L, user, "300.00", "2023-01-01", "2023-01-30");
+        List<DailyAmountDTO> dailyAmounts = List.of(
+                new DailyAmountDTO(Date.valueOf("2023-01-01"), new BigDecimal("-40.00")),
+                new DailyAmountDTO(Date.valueOf("2023-01-05"), new BigDecimal("-60.00")),
+                new DailyAmountDTO(Date.valueOf("2023-01-20"), new BigDecimal("-500.00"))
+        );
+
+        // Setup - expectations
+        given(budgetRepository.findById(1L)).willReturn(Optional.of(budget));
+        given(transactionRepository.sumSignedAmountsByDayByLinkedBudgetId(1L)).willReturn(dailyAmounts);
+
+        // exercise
+        BudgetForecastDTO forecast = budgetService.getBudgetForecast(user, 1L, LocalDate.of(2023, 1, 10));
+
+        // verify
+        Assertions.assertThat(forecast.getSpentToDate()).isEqualByComparingTo("100.00");
+        Assertions.assertThat(forecast.getDailyBurnRate()).isEqualByComparingTo("10.00");
+        Assertions.assertThat(forecast.getProjectedTotal()).isEqualByComparingTo("300.00");
+        Assertions.assertThat(forecast.getProjectedExhaustionDate()).isEqualTo("2023-01-30");
+    }
+
+    @Test
+    public void testForecastingAnOverspentBudgetReportsTheDayItsLimitWasReached() {
+        // Setup - data
+        ExtraUser user = userWithId(1L);
+        Budget budget = budgetWithId(1L, user, "300.00", "2023-01-01", "2023-01-30");
+        List<DailyAmountDTO> dailyAmounts = List.of(
+                new DailyAmountDTO(Date.valueOf("2023-01-02"), new BigDecimal("-200.00")),
+                new DailyAmountDTO(Date.valueOf("2023-01-04"), new BigDecimal("-150.00"))
+        );
+
+        // Setup - expectations
+        given(budgetRepository.findById(1L)).willReturn(Optional.of(budget));
+        given(transactionRepository.sumSignedAmountsByDayByLinkedBudgetId(1L)).willReturn(dailyAmounts);
+
+        // exercise
+        BudgetForecastDTO forecast = budgetService.getBudgetForecast(user, 1L, LocalDate.of(2023, 1, 10));
+
+        // verify
+        Assertions.assertThat(forecast.getSpentToDate()).isEqualByComparingTo("350.00");
+        Assertions.assertThat(forecast.getProjectedExhaustionDate()).isEqualTo("2023-01-04");
+    }
+
+    @Test
+    public void testForecastingABudgetThatWillNotRunOutHasNoExhaustionDate() {
+        // Setup - data
+        ExtraUser user = userWithId(1L);
+        Budget budget = budgetWithId(1L, user, "300.00", "2023-01-01", "2023-01-30");
+        List<DailyAmountDTO> dailyAmounts = List.of(
+                new DailyAmountDTO(Date.valueOf("2023-01-02"), new BigDecimal("-50.00"))
+        );
+
+        // Setup - expectations
+        given(budgetRepository.findById(1L)).willReturn(Optional.of(budget));
+        given(transactionRepository.sumSignedAmountsByDayByLinkedBudgetId(1L)).willReturn(dailyAmounts);
+
+        // exercise
+        BudgetForecastDTO forecast = budgetService.getBudgetForecast(user, 1L, LocalDate.of(2023, 1, 10));
+
+        // verify
+        Assertions.assertThat(forecast.getProjectedTotal()).isEqualByComparingTo("150.00");
+        Assertions.assertThat(forecast.getProjectedExhaustionDate()).isNull();
+    }
+
+    @Test
+    public void testForecastingANonExistingBudgetThrowsBudgetNotFoundException() {
+        // Setup - expectations
+        given(budgetRepository.findById(1L)).willReturn(Optional.empty());
+
+        // exercise & verify
+        Assertions
+                .assertThatThrownBy(() -> budgetService.getBudgetForecast(userWithId(1L), 1L, LocalDate.of(2023, 1, 10)))
+                .isInstanceOf(BudgetNotFoundException.class);
+    }
+
+    @Test
+    public void testForecastingAnotherUsersBudgetThrowsBudgetAccessDeniedException() {
+        // Setup - data
+        Budget budget = budgetWithId(1L, userWithId(2L), "300.00", "2023-01-01", "2023-01-30");
+
+        // Setup - expectations
+        given(budgetRepository.findById(1L)).willReturn(Optional.of(budget));
+
+        // exercise & verify
+        Assertions
+                .assertThatThrownBy(() -> budgetService.getBudgetForecast(userWithId(1L), 1L, LocalDate.of(2023, 1, 10)))
+                .isInstanceOf(BudgetAccessDeniedException.class);
+    }
+
+    @Test
+    public void testLookingUpManyActiveBudgetsAnswersEachLookupInOrder() {
+        // Setup - data
+        ExtraUser user = userWithId(1L);
+        CategoryDTO food = new CategoryDTO("food", (short) 1);
+        CategoryDTO rent = new CategoryDTO("rent", (short) 2);
+        CategoryDTO travel = new CategoryDTO("travel", (short) 3);
+        BudgetDTO januaryFood = new BudgetDTO(
+                1L, "january food", BigDecimal.TEN, BigDecimal.ZERO,
+                Date.valueOf("2023-01-31"), Date.valueOf("2023-01-01"), food
+        );
+        BudgetDTO februaryFood = new BudgetDTO(
+                2L, "february food", BigDecimal.TEN, BigDecimal.ZERO,
+                Date.valueOf("2023-02-28"), Date.valueOf("2023-02-01"), food
+        );
+        BudgetDTO yearlyRent = new BudgetDTO(
+                3L, "yearly rent", BigDecimal.TEN, BigDecimal.ZERO,
+                Date.valueOf("2023-12-31"), Date.valueOf("2023-01-01"), rent
+        );
+        List<ActiveBudgetRequest> lookups = List.of(
+                new ActiveBudgetRequest(food, Date.valueOf("2023-02-10")),
+                new ActiveBudgetRequest(travel, Date.valueOf("2023-02-10")),
+                new ActiveBudgetRequest(rent, Date.valueOf("2023-01-15")),
+                new ActiveBudgetRequest(food, Date.valueOf("2023-01-31"))
+        );
+
+        // Setup - expectations
+        given(budgetRepository.findBudgetDtosByUserAndCategoryNamesOverlapping(
+                user, Set.of("food", "rent", "travel"), Date.valueOf("2023-01-15"), Date.valueOf("2023-02-10")
+        )).willReturn(List.of(januaryFood, februaryFood, yearlyRent));
+
+        // exercise
+        List<ActiveBudgetLookupDTO> results = budgetService.getActiveBudgetsByCategoriesAndDates(user, lookups);
+
+        // verify
+        Assertions.assertThat(results).containsExactly(
+                new ActiveBudgetLookupDTO(food, Date.valueOf("2023-02-10"), februaryFood),
+                new ActiveBudgetLookupDTO(travel, Date.valueOf("2023-02-10"), null),
+                new ActiveBudgetLookupDTO(rent, Date.valueOf("2023-01-15"), yearlyRent),
+                new ActiveBudgetLookupDTO(food, Date.valueOf("2023-01-31"), januaryFood)
+        );
+    }
+
+    private static ExtraUser userWithId(Long id) {
+        ExtraUser user = new ExtraUser("Michael", "Jackson", "mj@me.com", "Somepassword1!");
+        ReflectionTestUtils.setField(user, "id", id);
+        return user;
+    }
+
+    private static Budget budgetWithId(Long id, ExtraUser user, String limitAmount, String startingDate, String limitDate) {
+        Budget budget = new Budget(
+                user,
+                "test budget",
+                new BigDecimal(limitAmount),
+                Date.valueOf(startingDate),
+                Date.valueOf(limitDate),
+                new Category("test", (short) 1, user)
+        );
+        ReflectionTestUtils.setField(budget, "id", id);
+        return budget;
+    }
+
 }
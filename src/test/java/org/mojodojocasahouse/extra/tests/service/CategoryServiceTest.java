@@ -5,19 +5,24 @@ import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mojodojocasahouse.extra.dto.model.CategoryDTO;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.ExtraUser;
 import org.mojodojocasahouse.extra.repository.CategoryRepository;
+import org.mojodojocasahouse.extra.service.CategoryIdCache;
 import org.mojodojocasahouse.extra.service.CategoryService;
 
+import jakarta.validation.Validator;
+
 import java.util.List;
 import java.util.Optional;
 import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
 public class CategoryServiceTest {
@@ -25,6 +30,12 @@ public class CategoryServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
 
+    @Mock
+    private Validator validator;
+
+    @Spy
+    private CategoryIdCache categoryIdCache = new CategoryIdCache(100);
+
     @InjectMocks
     private CategoryService categoryService;
 
@@ -73,6 +84,53 @@ public class CategoryServiceTest {
 
     }
 
+    @Test
+    public void testResolvingFilteringCategoriesWithoutIdsOrNamesDoesNotFilter() {
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+
+        List<Long> response = categoryService.getFilteringCategoryIdsOfUser(user, List.of(), null);
+
+        Assertions.assertThat(response).isNull();
+        verifyNoInteractions(categoryRepository);
+    }
+
+    @Test
+    public void testResolvingFilteringCategoriesMergesGivenIdsWithTheIdsOfTheNamedCategories() {
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+
+        given(categoryRepository.getCategoryIdsByUserAndNameIn(user, List.of("food"))).willReturn(List.of(3L, 4L));
+
+        List<Long> response = categoryService.getFilteringCategoryIdsOfUser(user, List.of(1L), List.of("food"));
+
+        Assertions.assertThat(response).containsExactlyInAnyOrder(1L, 3L, 4L);
+    }
+
+    @Test
+    public void testResolvingFilteringCategoriesByUnknownNamesMatchesNothing() {
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+
+        given(categoryRepository.getCategoryIdsByUserAndNameIn(user, List.of("unknown"))).willReturn(List.of());
+
+        List<Long> response = categoryService.getFilteringCategoryIdsOfUser(user, null, List.of("unknown"));
+
+        Assertions.assertThat(response).isEmpty();
+    }
+
     @Test
     public void testGettingCategoryByUserAndNameAndIconId() {
         ExtraUser user = new ExtraUser(
@@ -109,15 +167,61 @@ public class CategoryServiceTest {
                 new Category("test cat 2", (short) 2, user)
         );
 
-        given(categoryRepository.getCategoryByOwnerAndNameAndIconId(any(), any(), any()))
-                .willReturn(Optional.of(existingCategories.get(1)));
-        given(categoryRepository.save(any())).willReturn(existingCategories.get(1));
+        given(categoryRepository.getCategoryIdByOwnerAndNameAndIconId(any(), any(), any()))
+                .willReturn(Optional.of(2L));
+        given(categoryRepository.getReferenceById(2L)).willReturn(existingCategories.get(1));
 
         Category response = categoryService
                 .fetchOrCreateCategoryFromUserAndNameAndIconId(user, "test cat 2", (short) 2);
 
         Assertions.assertThat(response).isEqualTo(existingCategories.get(1));
+        verify(categoryRepository, never()).save(any());
+        verify(categoryRepository, never()).insertIfAbsent(any(), any(), any());
+    }
+
+    @Test
+    public void testFetchingTheSameCategoryAgainIsServedFromTheCache() {
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category existingCategory = new Category("test cat", (short) 1, user);
+
+        given(categoryRepository.getCategoryIdByOwnerAndNameAndIconId(any(), any(), any()))
+                .willReturn(Optional.of(1L));
+        given(categoryRepository.getReferenceById(1L)).willReturn(existingCategory);
+
+        categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(user, "test cat", (short) 1);
+        Category response = categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(user, "test cat", (short) 1);
+
+        Assertions.assertThat(response).isEqualTo(existingCategory);
+        verify(categoryRepository, times(1)).getCategoryIdByOwnerAndNameAndIconId(any(), any(), any());
+    }
+
+    @Test
+    public void testFetchingOrCreatingAnUnknownCategoryInsertsItIfStillAbsent() {
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category newCategory = new Category("new cat", (short) 3, user);
+
+        given(categoryRepository.getCategoryIdByOwnerAndNameAndIconId(any(), any(), any()))
+                .willReturn(Optional.empty());
+        given(categoryRepository.getCurrentCategoryIdByOwnerAndNameAndIconId(any(), any(), any()))
+                .willReturn(Optional.of(3L));
+        given(categoryRepository.getReferenceById(3L)).willReturn(newCategory);
+
+        Category response = categoryService
+                .fetchOrCreateCategoryFromUserAndNameAndIconId(user, "new cat", (short) 3);
 
+        Assertions.assertThat(response).isEqualTo(newCategory);
+        verify(categoryRepository).insertIfAbsent(user.getId(), "new cat", (short) 3);
+        verify(categoryIdCache).put(user, "new cat", (short) 3, 3L);
     }
 
 }
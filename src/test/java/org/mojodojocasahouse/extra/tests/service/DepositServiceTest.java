@@ -3,10 +3,14 @@ package org.mojodojocasahouse.extra.tests.service;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
+import org.mojodojocasahouse.extra.dto.model.DepositSequenceDTO;
 import org.mojodojocasahouse.extra.dto.model.InvestmentDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentSweepDTO;
 import org.mojodojocasahouse.extra.dto.requests.InvestmentAddingRequest;
 import org.mojodojocasahouse.extra.model.*;
 import org.mojodojocasahouse.extra.repository.BudgetRepository;
@@ -15,9 +19,14 @@ import org.mojodojocasahouse.extra.repository.DepositRepository;
 import org.mojodojocasahouse.extra.repository.InvestmentRepository;
 import org.mojodojocasahouse.extra.service.CategoryService;
 import org.mojodojocasahouse.extra.service.DepositService;
+import org.mojodojocasahouse.extra.service.ActiveBudgetIndex;
+import org.mojodojocasahouse.extra.service.BudgetAlertService;
+import org.mojodojocasahouse.extra.service.TransactionSearchIndex;
 import org.mojodojocasahouse.extra.service.ExpenseService;
-import org.quartz.Scheduler;
-import org.quartz.SchedulerException;
+import org.mojodojocasahouse.extra.service.NotificationOutbox;
+import org.mojodojocasahouse.extra.service.TransactionTotalsService;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.sql.Date;
@@ -27,10 +36,10 @@ import java.util.Optional;
 
 import static org.mockito.ArgumentMatchers.any;
 import static org.mockito.BDDMockito.given;
-import static org.mockito.Mockito.doAnswer;
-import static org.mockito.Mockito.mock;
+import static org.mockito.Mockito.*;
 
 @ExtendWith(MockitoExtension.class)
+@SuppressWarnings("unchecked")
 public class DepositServiceTest {
 
     @Mock
@@ -38,6 +47,16 @@ public class DepositServiceTest {
     @Mock
     private ExpenseService expenseService;
     @Mock
+    private TransactionTotalsService totalsService;
+
+    @Mock
+    private ActiveBudgetIndex activeBudgetIndex;
+
+    @Mock
+    private BudgetAlertService budgetAlertService;
+    @Mock
+    private TransactionSearchIndex searchIndex;
+    @Mock
     private DepositRepository depositRepository;
     @Mock
     private InvestmentRepository investmentRepository;
@@ -46,13 +65,14 @@ public class DepositServiceTest {
     @Mock
     private CategoryRepository categoryRepository;
     @Mock
-    private Scheduler scheduler;
+    private NotificationOutbox notificationOutbox;
     @InjectMocks
     private DepositService depositService;
 
 
     @Test
-    public void testDepositingAnInvestmentReturnWhereNoBudgetsAreActive_DoesNotLinkTheDepositToAnything() {
+    public void testSweepingDueInvestmentsWhereNoBudgetsAreActive_DepositsUnlinkedReturnsAndAdvancesInvestments() {
+        // Setup - data
         ExtraUser user = new ExtraUser(
                 "Michael",
                 "Jackson",
@@ -70,28 +90,33 @@ public class DepositServiceTest {
                 user,
                 category
         );
-        Deposit savedDeposit = new Deposit(
-                investment.getName(),
-                investment.getDepositAmount(),
-                new Date(System.currentTimeMillis()),
-                investment.getUser(),
-                investment.getCategory(),
-                null,
-                investment
-        );
+        Timestamp now = Timestamp.valueOf("2023-10-10 12:00:00");
+        ReflectionTestUtils.setField(investment, "id", 1L);
 
-        given(depositRepository.save(any()))
-                .willReturn(savedDeposit);
-        given(budgetRepository.findActiveBudgetByUserAndCategoryAndDate(any(), any(), any()))
-                .willReturn(List.of());
+        // Setup - expectations
+        given(investmentRepository.claimDueInvestmentIds(now, 0, 1, PageRequest.of(0, 100)))
+                .willReturn(List.of(1L));
+        given(investmentRepository.findAllWithUserAndCategoryByIdIn(List.of(1L)))
+                .willReturn(List.of(investment));
+        ArgumentCaptor<List<Deposit>> deposits = ArgumentCaptor.forClass(List.class);
 
-        depositService.depositInvestmentReturn(investment);
+        // exercise
+        InvestmentSweepDTO swept = depositService.depositDueInvestmentReturns(now, 0, 1, 100);
 
-        Assertions.assertThat(savedDeposit.getLinkedBudget()).isNull();
+        // verify
+        verify(depositRepository).saveAll(deposits.capture());
+        Assertions.assertThat(swept).isEqualTo(new InvestmentSweepDTO(1, 1));
+        Assertions.assertThat(deposits.getValue()).hasSize(1);
+        Assertions.assertThat(deposits.getValue().get(0).getDate()).isEqualTo(Date.valueOf("2023-10-10"));
+        Assertions.assertThat(deposits.getValue().get(0).getLinkedBudget()).isNull();
+        Assertions.assertThat(investment.getDepositsMade()).isEqualTo(1);
+        Assertions.assertThat(investment.getNextDepositTimestamp()).isEqualTo(Timestamp.valueOf("2023-10-11 00:00:00"));
+        verify(notificationOutbox).addInvestmentReturns(List.of(new InvestmentReturnDTO(null, 1L, "test investment", BigDecimal.ONE)));
     }
 
     @Test
-    public void testDepositingAnInvestmentReturnWhereABudgetIsActive_LinkTheDepositToTheBudget() {
+    public void testSweepingDueInvestmentsWhereABudgetIsActive_LinksTheReturnsAndReturnsTheirSumToTheBudgetOnce() {
+        // Setup - data
         ExtraUser user = new ExtraUser(
                 "Michael",
                 "Jackson",
@@ -99,25 +124,14 @@ public class DepositServiceTest {
                 "Somepass1!"
         );
         Category category = new Category("test category", (short) 1, user);
-        Investment investment = new Investment(
-                "test investment",
-                BigDecimal.TEN,
-                Timestamp.valueOf("2023-10-10 00:00:00"),
-                BigDecimal.ONE,
-                10,
-                1,
-                user,
-                category
-        );
-        Deposit savedDeposit = new Deposit(
-                investment.getName(),
-                investment.getDepositAmount(),
-                Date.valueOf("2023-10-10"),
-                investment.getUser(),
-                investment.getCategory(),
-                null,
-                investment
+        List<Investment> investments = List.of(
+                new Investment("first", BigDecimal.TEN, Timestamp.valueOf("2023-10-10 00:00:00"),
+                        BigDecimal.ONE, 1, 1, user, category),
+                new Investment("second", BigDecimal.TEN, Timestamp.valueOf("2023-10-10 00:00:00"),
+                        BigDecimal.TEN, 1, 1, user, category)
         );
+        ReflectionTestUtils.setField(investments.get(0), "id", 1L);
+        ReflectionTestUtils.setField(investments.get(1), "id", 2L);
         Budget activeBudget = new Budget(
                 user,
                 "test budget",
@@ -126,19 +140,36 @@ public class DepositServiceTest {
                 Date.valueOf("2024-01-01"),
                 category
         );
+        Timestamp now = Timestamp.valueOf("2023-10-10 12:00:00");
 
-        given(depositRepository.save(any()))
-                .willReturn(savedDeposit);
-        given(budgetRepository.findActiveBudgetByUserAndCategoryAndDate(any(), any(), any()))
-                .willReturn(List.of(activeBudget));
+        // Setup - expectations
+        given(investmentRepository.claimDueInvestmentIds(now, 0, 1, PageRequest.of(0, 100)))
+                .willReturn(List.of(1L, 2L));
+        given(investmentRepository.findAllWithUserAndCategoryByIdIn(List.of(1L, 2L)))
+                .willReturn(investments);
+        given(activeBudgetIndex.findActiveBudgetId(any(), any(), any()))
+                .willReturn(Optional.of(1L));
+        given(budgetRepository.getReferenceById(1L))
+                .willReturn(activeBudget);
+        ArgumentCaptor<List<Deposit>> deposits = ArgumentCaptor.forClass(List.class);
 
-        depositService.depositInvestmentReturn(investment);
+        // exercise
+        depositService.depositDueInvestmentReturns(now, 0, 1, 100);
 
-        Assertions.assertThat(savedDeposit.getLinkedBudget()).isEqualTo(activeBudget);
+        // verify
+        verify(depositRepository).saveAll(deposits.capture());
+        Assertions.assertThat(deposits.getValue())
+                .extracting(Deposit::getLinkedBudget)
+                .containsExactly(activeBudget, activeBudget);
+        verify(budgetRepository, times(1)).addToCurrentAmount(1L, new BigDecimal("-11"));
+        Assertions.assertThat(investments)
+                .extracting(Investment::getNextDepositTimestamp)
+                .containsOnlyNulls();
     }
 
     @Test
-    public void testCreatingNewInvestmentWithSuccessfulScheduling() throws SchedulerException {
+    public void testSweepingAnInvestmentThatMissedDeposits_MakesThemAllAfterTheLastOneFound() {
+        // Setup - data
         ExtraUser user = new ExtraUser(
                 "Michael",
                 "Jackson",
@@ -146,47 +177,62 @@ public class DepositServiceTest {
                 "Somepass1!"
         );
         Category category = new Category("test category", (short) 1, user);
-        InvestmentAddingRequest request = new InvestmentAddingRequest(
+        Investment investment = new Investment(
                 "test investment",
                 BigDecimal.TEN,
-                Timestamp.valueOf("2023-10-10 00:00:00"),
+                Timestamp.valueOf("2023-10-01 00:00:00"),
                 BigDecimal.ONE,
-                10,
-                1,
-                category.getName(),
-                category.getIconId()
-        );
-        Investment savedInvestment = new Investment(
-                request.getName(),
-                request.getDownPaymentAmount(),
-                request.getDepositStartTimestamp(),
-                request.getDepositAmount(),
-                request.getMaxNumberOfDeposits(),
-                request.getDepositIntervalInDays(),
+                4,
+                2,
                 user,
                 category
         );
-        Investment mockInvestment = mock(Investment.class);
+        Timestamp now = Timestamp.valueOf("2023-10-10 12:00:00");
+        ReflectionTestUtils.setField(investment, "id", 1L);
 
-        given(categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(any(), any(), any()))
-                .willReturn(category);
-        given(investmentRepository.save(any()))
-                .willReturn(mockInvestment);
-        given(scheduler.scheduleJob(any(), any())).willReturn(null);
+        // Setup - expectations
+        given(investmentRepository.claimDueInvestmentIds(now, 0, 1, PageRequest.of(0, 100)))
+                .willReturn(List.of(1L));
+        given(investmentRepository.findAllWithUserAndCategoryByIdIn(List.of(1L)))
+                .willReturn(List.of(investment));
+        given(depositRepository.findLastDepositSequences(List.of(1L)))
+                .willReturn(List.of(new DepositSequenceDTO(1L, 1)));
+        ArgumentCaptor<List<Deposit>> deposits = ArgumentCaptor.forClass(List.class);
 
-        doAnswer(invocation -> 1L).when(mockInvestment).getId();
-        doAnswer(invocation -> savedInvestment.getDepositStartTimestamp()).when(mockInvestment).getDepositStartTimestamp();
-        doAnswer(invocation -> savedInvestment.getMaxNumberOfDeposits()).when(mockInvestment).getMaxNumberOfDeposits();
-        doAnswer(invocation -> savedInvestment.getDepositIntervalInDays()).when(mockInvestment).getDepositIntervalInDays();
-        doAnswer(invocation -> savedInvestment.asDto()).when(mockInvestment).asDto();
+        // exercise
+        depositService.depositDueInvestmentReturns(now, 0, 1, 100);
 
-        InvestmentDTO response = depositService.createNewInvestment(user, request);
+        // verify
+        verify(depositRepository).saveAll(deposits.capture());
+        Assertions.assertThat(deposits.getValue())
+                .extracting(Deposit::getDepositSequence)
+                .containsExactly(2, 3, 4);
+        Assertions.assertThat(deposits.getValue())
+                .extracting(Deposit::getDate)
+                .containsExactly(Date.valueOf("2023-10-03"), Date.valueOf("2023-10-05"), Date.valueOf("2023-10-07"));
+        Assertions.assertThat(investment.getDepositsMade()).isEqualTo(4);
+        Assertions.assertThat(investment.getNextDepositTimestamp()).isNull();
+    }
 
-        Assertions.assertThat(response).isEqualTo(savedInvestment.asDto());
+    @Test
+    public void testSweepingWhenNothingIsDue_DepositsNothing() {
+        // Setup - data
+        Timestamp now = Timestamp.valueOf("2023-10-10 12:00:00");
+
+        // Setup - expectations
+        given(investmentRepository.claimDueInvestmentIds(now, 0, 1, PageRequest.of(0, 100)))
+                .willReturn(List.of());
+
+        // exercise
+        InvestmentSweepDTO swept = depositService.depositDueInvestmentReturns(now, 0, 1, 100);
+
+        // verify
+        Assertions.assertThat(swept).isEqualTo(new InvestmentSweepDTO(0, 0));
+        verifyNoInteractions(depositRepository, notificationOutbox);
     }
 
     @Test
-    public void testCreatingNewInvestmentWithUnsuccessfulSchedulingWillJustNotScheduleJob() throws SchedulerException {
+    public void testCreatingNewInvestmentStartsItsDepositsAtItsStart() {
         ExtraUser user = new ExtraUser(
                 "Michael",
                 "Jackson",
@@ -204,33 +250,19 @@ public class DepositServiceTest {
                 category.getName(),
                 category.getIconId()
         );
-        Investment savedInvestment = new Investment(
-                request.getName(),
-                request.getDownPaymentAmount(),
-                request.getDepositStartTimestamp(),
-                request.getDepositAmount(),
-                request.getMaxNumberOfDeposits(),
-                request.getDepositIntervalInDays(),
-                user,
-                category
-        );
-        Investment mockInvestment = mock(Investment.class);
+        ArgumentCaptor<Investment> savedInvestment = ArgumentCaptor.forClass(Investment.class);
 
         given(categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(any(), any(), any()))
                 .willReturn(category);
-        given(investmentRepository.save(any()))
-                .willReturn(mockInvestment);
-        given(scheduler.scheduleJob(any(), any())).willThrow(SchedulerException.class);
-
-        doAnswer(invocation -> 1L).when(mockInvestment).getId();
-        doAnswer(invocation -> savedInvestment.getDepositStartTimestamp()).when(mockInvestment).getDepositStartTimestamp();
-        doAnswer(invocation -> savedInvestment.getMaxNumberOfDeposits()).when(mockInvestment).getMaxNumberOfDeposits();
-        doAnswer(invocation -> savedInvestment.getDepositIntervalInDays()).when(mockInvestment).getDepositIntervalInDays();
-        doAnswer(invocation -> savedInvestment.asDto()).when(mockInvestment).asDto();
+        given(investmentRepository.save(savedInvestment.capture()))
+                .willAnswer(invocation -> invocation.getArgument(0));
 
         InvestmentDTO response = depositService.createNewInvestment(user, request);
 
-        Assertions.assertThat(response).isEqualTo(savedInvestment.asDto());
+        Assertions.assertThat(response).isEqualTo(savedInvestment.getValue().asDto());
+        Assertions.assertThat(savedInvestment.getValue().getNextDepositTimestamp())
+                .isEqualTo(Timestamp.valueOf("2023-10-10 00:00:00"));
+        Assertions.assertThat(savedInvestment.getValue().getDepositsMade()).isZero();
     }
 
     @Test
@@ -1,8 +1,12 @@
 package org.mojodojocasahouse.extra.tests.service;
 
 
+import org.mojodojocasahouse.extra.dto.model.CategoryAmountDTO;
 import com.fasterxml.jackson.databind.ObjectMapper;
 
+import jakarta.validation.ConstraintViolation;
+import jakarta.validation.Validator;
+
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -11,23 +15,33 @@ import org.mockito.InjectMocks;
 import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mojodojocasahouse.extra.dto.model.ExpenseDTO;
+import org.mojodojocasahouse.extra.dto.model.RejectedExpenseDTO;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseAddingRequest;
 import org.mojodojocasahouse.extra.dto.requests.ExpenseEditingRequest;
 import org.mojodojocasahouse.extra.dto.responses.ApiResponse;
+import org.mojodojocasahouse.extra.dto.responses.ExpenseBulkAddingResponse;
+import org.mojodojocasahouse.extra.exception.ExpenseAccessDeniedException;
+import org.mojodojocasahouse.extra.exception.ExpenseNotFoundException;
 import org.mojodojocasahouse.extra.model.*;
 import org.mojodojocasahouse.extra.repository.BudgetRepository;
 import org.mojodojocasahouse.extra.repository.ExpenseRepository;
 import org.mojodojocasahouse.extra.service.BudgetService;
+import org.mojodojocasahouse.extra.service.ActiveBudgetIndex;
+import org.mojodojocasahouse.extra.service.BudgetAlertService;
 import org.mojodojocasahouse.extra.service.CategoryService;
+import org.mojodojocasahouse.extra.service.TransactionSearchIndex;
+import org.mojodojocasahouse.extra.service.TransactionTotalsService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.sql.Date;
 import java.sql.Timestamp;
+import java.util.Collection;
 import java.util.List;
-import java.util.Map;
 import java.util.Optional;
+import java.util.Set;
 import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -47,9 +61,24 @@ public class ExpensesServiceTest {
     @Mock
     private CategoryService categoryService;
 
+    @Mock
+    private TransactionTotalsService totalsService;
+
+    @Mock
+    private ActiveBudgetIndex activeBudgetIndex;
+
+    @Mock
+    private BudgetAlertService budgetAlertService;
+
+    @Mock
+    private TransactionSearchIndex searchIndex;
+
     @Mock
     private BudgetService budgetService;
 
+    @Mock
+    private Validator validator;
+
     @InjectMocks
     private ExpenseService expenseService;
 
@@ -144,6 +173,7 @@ public class ExpensesServiceTest {
 
         // verify
         Assertions.assertThat(actualResponse).isEqualTo(expectedResponse);
+        verify(totalsService).addToTotals(savedExpense);
     }
 
     @Test
@@ -187,15 +217,17 @@ public class ExpensesServiceTest {
         // Setup - expectations
         given(expenseRepository.save(any()))
                 .willReturn(savedExpense);
-        given(budgetRepository.findActiveBudgetByUserAndCategoryAndDate(any(),any(),any()))
-                .willReturn(activeBudgets);
+        given(activeBudgetIndex.findActiveBudgetId(any(),any(),any()))
+                .willReturn(Optional.of(1L));
+        given(budgetRepository.getReferenceById(1L))
+                .willReturn(activeBudgets.get(0));
 
         // exercise
         ApiResponse actualResponse = expenseService.addExpense(user, request);
 
         // verify
         Assertions.assertThat(actualResponse).isEqualTo(expectedResponse);
-        Assertions.assertThat(savedExpense.getLinkedBudget()).isNotNull();
+        Assertions.assertThat(savedExpense.getLinkedBudget()).isNotNull();        verify(budgetAlertService).checkThresholds(1L, new BigDecimal("10.12"));
     }
 
     @Test
@@ -208,7 +240,7 @@ public class ExpensesServiceTest {
         );
         Category customCategory = new Category("test", (short) 1, user);
         Expense savedExpense1 = new Expense(user,"Another Concept", new BigDecimal("10.11"), Date.valueOf("2023-09-11"), customCategory);
-        given(expenseRepository.findById(any())).willReturn(java.util.Optional.of(savedExpense1));
+        given(expenseRepository.findByIdAndUser(any(), any())).willReturn(java.util.Optional.of(savedExpense1));
         Long id = (long) 0;
         ExpenseEditingRequest request = new ExpenseEditingRequest(
                 "Another concept",
@@ -220,7 +252,7 @@ public class ExpensesServiceTest {
         ApiResponse expectedResponse = new ApiResponse(
                 "Expense edited successfully!"
         );
-        ApiResponse actualResponse = expenseService.editExpense(id, request);
+        ApiResponse actualResponse = expenseService.editExpense(user, id, request);
         
         Assertions.assertThat(actualResponse).isEqualTo(expectedResponse);
     }  
@@ -237,12 +269,13 @@ public class ExpensesServiceTest {
         Expense savedExpense1 = new Expense(user,"Another Concept", new BigDecimal("10.11"), Date.valueOf("2023-09-11"), customCategory);
         Long expense_id = savedExpense1.getId();
 
-        given(expenseRepository.findById(any())).willReturn(Optional.of(savedExpense1));
+        given(expenseRepository.findByIdAndUser(any(), any())).willReturn(Optional.of(savedExpense1));
 
-        Assertions.assertThatNoException().isThrownBy(() -> expenseService.deleteById(expense_id));
+        Assertions.assertThatNoException().isThrownBy(() -> expenseService.deleteExpense(user, expense_id));
+        verify(expenseRepository).delete(savedExpense1);
     }
     @Test
-    public void testExpenseHaveOwner(){
+    public void testDeletingAnExpenseLinkedToABudgetSubtractsItFromTheBudgetCurrentAmount(){
         ExtraUser user = new ExtraUser(
                 "Michael",
                 "Jackson",
@@ -250,28 +283,60 @@ public class ExpensesServiceTest {
                 "Somepassword1!"
         );
         Category customCategory = new Category("test", (short) 1, user);
+        Budget linkedBudget = new Budget(
+                user,
+                "test budget",
+                BigDecimal.TEN,
+                Date.valueOf("2023-01-01"),
+                Date.valueOf("2024-01-01"),
+                customCategory
+        );
         Expense savedExpense1 = new Expense(user,"Another Concept", new BigDecimal("10.11"), Date.valueOf("2023-09-11"), customCategory);
-        expenseRepository.save(savedExpense1);
-        Long id = (long) 0;
-        Assertions.assertThat(expenseService.isOwner(user, id)).isEqualTo(false);
+        savedExpense1.setLinkedBudget(linkedBudget);
+
+        given(expenseRepository.findByIdAndUser(any(), any())).willReturn(Optional.of(savedExpense1));
+
+        expenseService.deleteExpense(user, 1L);
+
+        verify(budgetRepository).addToCurrentAmount(linkedBudget.getId(), new BigDecimal("-10.11"));
+        verify(totalsService).removeFromTotals(savedExpense1);
+        Assertions.assertThat(savedExpense1.getLinkedBudget()).isNull();
     }
 
     @Test
-    public void testExpenseExistsReturnsExactlyWhatTheDatabaseSays() {
+    public void testEditingAnExpenseOfAnotherUserThrowsAccessDenied() {
         ExtraUser user = new ExtraUser(
                 "Michael",
                 "Jackson",
                 "mj@me.com",
                 "Somepassword1!"
         );
-        Category customCategory = new Category("test", (short) 1, user);
-        Expense savedExpense1 = new Expense(user,"Another Concept", new BigDecimal("10.11"), Date.valueOf("2023-09-11"), customCategory);
+        ExpenseEditingRequest request = new ExpenseEditingRequest("Another concept", null, null, null, null);
 
-        given(expenseRepository.existsById(any())).willReturn(true);
+        given(expenseRepository.findByIdAndUser(1L, user)).willReturn(Optional.empty());
+        given(expenseRepository.existsById(1L)).willReturn(true);
 
-        Boolean exists = expenseService.existsById(savedExpense1.getId());
+        Assertions
+                .assertThatThrownBy(() -> expenseService.editExpense(user, 1L, request))
+                .isInstanceOf(ExpenseAccessDeniedException.class);
+    }
 
-        Assertions.assertThat(exists).isEqualTo(true);
+    @Test
+    public void testDeletingANonExistingExpenseThrowsNotFound() {
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+
+        given(expenseRepository.findByIdAndUser(1L, user)).willReturn(Optional.empty());
+        given(expenseRepository.existsById(1L)).willReturn(false);
+
+        Assertions
+                .assertThatThrownBy(() -> expenseService.deleteExpense(user, 1L))
+                .isInstanceOf(ExpenseNotFoundException.class);
+        verify(expenseRepository, never()).delete(any());
     }
 
     @Test
@@ -287,24 +352,22 @@ public class ExpensesServiceTest {
         Date fromParameter = null;
         Date untilParameter = null;
 
-        List<String> existingCategoryNames = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat1", "amount", "100"),
-                Map.of("category", "cat2", "amount", "200"),
-                Map.of("category", "cat3", "amount", "300")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(1L, "cat1", new BigDecimal("100")),
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200")),
+                new CategoryAmountDTO(3L, "cat3", new BigDecimal("300"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategoryNames);
-        given(expenseRepository.getSumOfExpensesByCategories(any(ExtraUser.class), any()))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
+        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -320,23 +383,21 @@ public class ExpensesServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = null;
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat1", "amount", "100"),
-                Map.of("category", "cat2", "amount", "200")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(1L, "cat1", new BigDecimal("100")),
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(expenseRepository.getSumOfExpensesOfUserBeforeGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
+        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -353,22 +414,20 @@ public class ExpensesServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat2", "amount", "200")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(expenseRepository.getSumOfExpensesOfUserByCategoryAndDateInterval(any(ExtraUser.class), any(), any(Date.class), any(Date.class)))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
+        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -385,19 +444,17 @@ public class ExpensesServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = null;
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat2", "amount", "200")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(expenseRepository.getSumOfExpensesOfUserAfterGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
         verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
@@ -417,20 +474,18 @@ public class ExpensesServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = null;
         Date untilParameter = null;
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat1", "amount", "100"),
-                Map.of("category", "cat2", "amount", "200")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(1L, "cat1", new BigDecimal("100")),
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(expenseRepository.getSumOfExpensesByCategories(any(ExtraUser.class), any()))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
         verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
@@ -450,25 +505,21 @@ public class ExpensesServiceTest {
         List<String> categoriesParameter = List.of();
         Date fromParameter = null;
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat1", "amount", "100"),
-                Map.of("category", "cat2", "amount", "200")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(1L, "cat1", new BigDecimal("100")),
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(expenseRepository.getSumOfExpensesOfUserBeforeGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
+        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -485,24 +536,20 @@ public class ExpensesServiceTest {
         List<String> categoriesParameter = List.of();
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat2", "amount", "200")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(expenseRepository.getSumOfExpensesOfUserByCategoryAndDateInterval(any(ExtraUser.class), any(), any(Date.class), any(Date.class)))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
+        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -519,25 +566,21 @@ public class ExpensesServiceTest {
         List<String> categoriesParameter = List.of();
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = null;
-
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("category", "cat2", "amount", "200"),
-                Map.of("category", "cat3", "amount", "300")
+        List<CategoryAmountDTO> expectedResults = List.of(
+                new CategoryAmountDTO(2L, "cat2", new BigDecimal("200")),
+                new CategoryAmountDTO(3L, "cat3", new BigDecimal("300"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(expenseRepository.getSumOfExpensesOfUserAfterGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getSumsOfExpensesByCategory(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = expenseService
-                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<CategoryAmountDTO> results = expenseService
+                .getSumOfExpensesOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
+        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -583,8 +626,10 @@ public class ExpensesServiceTest {
         // Setup - expectations
         given(expenseRepository.save(any()))
                 .willReturn(savedExpense);
-        given(budgetRepository.findActiveBudgetByUserAndCategoryAndDate(any(),any(),any()))
-                .willReturn(activeBudgets);
+        given(activeBudgetIndex.findActiveBudgetId(any(),any(),any()))
+                .willReturn(Optional.of(1L));
+        given(budgetRepository.getReferenceById(1L))
+                .willReturn(activeBudgets.get(0));
 
         // exercise
         expenseService.createDownPaymentExpense(investment);
@@ -595,4 +640,89 @@ public class ExpensesServiceTest {
 
     }
 
+    @Test
+    public void testAddingManyExpensesResolvesEachCategoryOnceAndUpdatesEachBudgetOnce() {
+        // Setup - data
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category customCategory = new Category("test", (short) 1, user);
+        ReflectionTestUtils.setField(customCategory, "id", 1L);
+        Budget budget = new Budget(
+                user,
+                "test budget",
+                new BigDecimal("100"),
+                Date.valueOf("2023-01-01"),
+                Date.valueOf("2024-01-01"),
+                customCategory
+        );
+        List<ExpenseAddingRequest> requests = List.of(
+                new ExpenseAddingRequest("A Concept", new BigDecimal("10.00"), Date.valueOf("2023-09-19"), "test", (short) 1),
+                new ExpenseAddingRequest("B Concept", new BigDecimal("20.00"), Date.valueOf("2023-09-20"), "test", (short) 1),
+                new ExpenseAddingRequest("C Concept", new BigDecimal("30.00"), Date.valueOf("2023-10-21"), "test", (short) 1)
+        );
+
+        // Setup - expectations
+        given(categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(user, "test", (short) 1))
+                .willReturn(customCategory);
+        given(activeBudgetIndex.findActiveBudgetId(any(), any(), any())).willReturn(Optional.of(1L));
+        given(budgetRepository.getReferenceById(1L)).willReturn(budget);
+
+        // exercise
+        ExpenseBulkAddingResponse response = expenseService.addExpenses(user, requests);
+
+        // verify
+        Assertions.assertThat(response.getAdded()).isEqualTo(3);
+        Assertions.assertThat(response.getRejected()).isEmpty();
+        verify(categoryService, times(1)).fetchOrCreateCategoryFromUserAndNameAndIconId(any(), any(), any());
+        verify(expenseRepository).saveAll(argThat(expenses -> ((Collection<?>) expenses).size() == 3));
+        verify(totalsService).addAllToTotals(argThat(expenses -> expenses.size() == 3));
+        verify(budgetRepository, times(1)).addToCurrentAmount(1L, new BigDecimal("60.00"));
+        verify(budgetAlertService, times(1)).checkThresholds(1L, new BigDecimal("60.00"));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testAddingManyExpensesReportsInvalidOnesByPositionAndAddsTheRest() {
+        // Setup - data
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category customCategory = new Category("test", (short) 1, user);
+        ReflectionTestUtils.setField(customCategory, "id", 1L);
+        ExpenseAddingRequest invalidRequest = new ExpenseAddingRequest(
+                "A Concept", new BigDecimal("-10.00"), Date.valueOf("2023-09-19"), "test", (short) 1
+        );
+        List<ExpenseAddingRequest> requests = List.of(
+                new ExpenseAddingRequest("B Concept", new BigDecimal("20.00"), Date.valueOf("2023-09-20"), "test", (short) 1),
+                invalidRequest
+        );
+        ConstraintViolation<Object> violation = mock(ConstraintViolation.class);
+
+        // Setup - expectations
+        given(validator.validate(any())).willAnswer(invocation ->
+                invocation.getArgument(0) == invalidRequest ? Set.of(violation) : Set.of()
+        );
+        given(violation.getMessage()).willReturn("Amount must be greater than 0.01");
+        given(categoryService.fetchOrCreateCategoryFromUserAndNameAndIconId(user, "test", (short) 1))
+                .willReturn(customCategory);
+        given(activeBudgetIndex.findActiveBudgetId(any(), any(), any())).willReturn(Optional.empty());
+
+        // exercise
+        ExpenseBulkAddingResponse response = expenseService.addExpenses(user, requests);
+
+        // verify
+        Assertions.assertThat(response.getAdded()).isEqualTo(1);
+        Assertions.assertThat(response.getRejected()).containsExactly(
+                new RejectedExpenseDTO(1, List.of("Amount must be greater than 0.01"))
+        );
+        verify(budgetRepository, never()).addToCurrentAmount(any(), any());
+    }
+
 }
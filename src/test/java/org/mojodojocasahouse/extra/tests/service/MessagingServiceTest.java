@@ -1,28 +1,35 @@
 package org.mojodojocasahouse.extra.tests.service;
 
 import com.google.firebase.ErrorCode;
-import com.google.firebase.messaging.BatchResponse;
-import com.google.firebase.messaging.FirebaseMessaging;
-import com.google.firebase.messaging.FirebaseMessagingException;
-import com.google.firebase.messaging.SendResponse;
+import com.google.firebase.messaging.*;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.Test;
 import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
 import org.mockito.InjectMocks;
 import org.mockito.Mock;
+import org.mockito.Spy;
 import org.mockito.junit.jupiter.MockitoExtension;
-import org.mojodojocasahouse.extra.model.Category;
+import org.mojodojocasahouse.extra.dto.model.BudgetAlertDTO;
+import org.mojodojocasahouse.extra.dto.model.InvestmentReturnDTO;
 import org.mojodojocasahouse.extra.model.ExtraUser;
-import org.mojodojocasahouse.extra.model.Investment;
 import org.mojodojocasahouse.extra.model.UserDevice;
 import org.mojodojocasahouse.extra.repository.UserDeviceRepository;
+import org.mojodojocasahouse.extra.service.DeviceTokenCache;
 import org.mojodojocasahouse.extra.service.MessagingService;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
-import java.sql.Timestamp;
+import java.time.Duration;
+import java.util.ArrayList;
 import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.stream.IntStream;
+import java.util.stream.LongStream;
 
 import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyList;
 import static org.mockito.BDDMockito.given;
 import static org.mockito.Mockito.*;
 
@@ -33,46 +40,262 @@ public class MessagingServiceTest {
     private UserDeviceRepository deviceRepository;
     @Mock
     private FirebaseMessaging fcm;
+    @Spy
+    private DeviceTokenCache deviceTokenCache = new DeviceTokenCache(100, Duration.ofMinutes(10));
     @InjectMocks
     private MessagingService messagingService;
 
 
     @Test
-    public void testSendingPushNotificationsToDevicesOfUserIsSuccessful() throws FirebaseMessagingException {
+    public void testSendingInvestmentReturnsSendsOneNotificationPerDevice() throws FirebaseMessagingException {
+        ExtraUser user = user(1L, "mj@me.com");
+        List<UserDevice> devices = List.of(new UserDevice("token", user), new UserDevice("other token", user));
+        Map<Long, List<InvestmentReturnDTO>> returns = Map.of(
+                1L, List.of(
+                        new InvestmentReturnDTO(1L, 10L, "bonds", BigDecimal.ONE),
+                        new InvestmentReturnDTO(1L, 11L, "stocks", BigDecimal.TEN)
+                )
+        );
+        BatchResponse mockBatchResponse = mock(BatchResponse.class);
+        SendResponse mockResponse = mock(SendResponse.class);
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(devices);
+        given(fcm.sendEach(anyList())).willReturn(mockBatchResponse);
+        given(mockBatchResponse.getResponses()).willReturn(List.of(mockResponse, mockResponse));
+        given(mockResponse.isSuccessful()).willReturn(true);
+
+        Set<Long> failedUserIds = messagingService.sendInvestmentReturns(returns);
+
+        Assertions.assertThat(failedUserIds).isEmpty();
+        verify(deviceRepository, times(1)).getDevicesOfUserIds(any());
+        verify(fcm, times(1)).sendEach(argThat(messages -> messages.size() == 2));
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testSendingBudgetAlertsSendsTheMessagesOfAllUsersTogetherUpToTheBatchLimit()
+            throws FirebaseMessagingException {
+        List<UserDevice> devices = new ArrayList<>();
+        for (long userId = 1; userId <= 3; userId++) {
+            ExtraUser user = user(userId, "user" + userId + "@me.com");
+            IntStream.range(0, 200)
+                    .mapToObj(i -> new UserDevice("token " + user.getId() + " " + i, user))
+                    .forEach(devices::add);
+        }
+        Map<Long, List<BudgetAlertDTO>> alerts = Map.of(
+                1L, List.of(new BudgetAlertDTO(1L, 10L, "groceries", 80)),
+                2L, List.of(new BudgetAlertDTO(2L, 20L, "travel", 80)),
+                3L, List.of(new BudgetAlertDTO(3L, 30L, "rent", 100))
+        );
+        BatchResponse mockBatchResponse = mock(BatchResponse.class);
+        ArgumentCaptor<List<Message>> batches = ArgumentCaptor.forClass(List.class);
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(devices);
+        given(fcm.sendEach(anyList())).willReturn(mockBatchResponse);
+
+        messagingService.sendBudgetAlerts(alerts);
+
+        verify(deviceRepository, times(1)).getDevicesOfUserIds(any());
+        verify(fcm, times(2)).sendEach(batches.capture());
+        Assertions.assertThat(batches.getAllValues())
+                .extracting(List::size)
+                .containsExactly(500, 100);
+    }
+
+    @Test
+    public void testSendingReportsOnlyUsersWithTransientlyFailingDevicesForRetry() throws FirebaseMessagingException {
+        ExtraUser user = user(1L, "mj@me.com");
+        ExtraUser otherUser = user(2L, "jj@me.com");
+        List<UserDevice> devices = List.of(new UserDevice("token", user), new UserDevice("other token", otherUser));
+        Map<Long, List<BudgetAlertDTO>> alerts = Map.of(
+                1L, List.of(new BudgetAlertDTO(1L, 10L, "groceries", 80)),
+                2L, List.of(new BudgetAlertDTO(2L, 20L, "travel", 80))
+        );
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(devices);
+        given(fcm.sendEach(anyList())).willAnswer(invocation -> batchResponseFailingWith(
+                invocation.getArgument(0), Map.of("token", fcmException(MessagingErrorCode.UNAVAILABLE, "Unavailable"))
+        ));
+
+        Set<Long> failedUserIds = messagingService.sendBudgetAlerts(alerts);
+
+        Assertions.assertThat(failedUserIds).containsExactly(1L);
+        verify(deviceRepository, never()).deleteByFcmTokenIn(any());
+    }
+
+    @Test
+    public void testDevicesWithDeadTokensAreRemovedTogetherAndTheirUsersLookedUpAgain()
+            throws FirebaseMessagingException {
+        ExtraUser user = user(1L, "mj@me.com");
+        ExtraUser otherUser = user(2L, "jj@me.com");
+        List<UserDevice> devices = List.of(
+                new UserDevice("token", user),
+                new UserDevice("unregistered token", user),
+                new UserDevice("invalid token", otherUser)
+        );
+        Map<Long, List<BudgetAlertDTO>> alerts = Map.of(
+                1L, List.of(new BudgetAlertDTO(1L, 10L, "groceries", 80)),
+                2L, List.of(new BudgetAlertDTO(2L, 20L, "travel", 80))
+        );
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(devices);
+        given(fcm.sendEach(anyList())).willAnswer(invocation -> batchResponseFailingWith(
+                invocation.getArgument(0), Map.of(
+                        "unregistered token", fcmException(
+                                MessagingErrorCode.UNREGISTERED, "Requested entity was not found."
+                        ),
+                        "invalid token", fcmException(
+                                MessagingErrorCode.INVALID_ARGUMENT,
+                                "The registration token is not a valid FCM registration token"
+                        )
+                )
+        ));
+
+        Set<Long> failedUserIds = messagingService.sendBudgetAlerts(alerts);
+        messagingService.sendBudgetAlerts(alerts);
+
+        Assertions.assertThat(failedUserIds).isEmpty();
+        verify(deviceRepository, times(2)).deleteByFcmTokenIn(Set.of("unregistered token", "invalid token"));
+        verify(deviceRepository, times(2)).getDevicesOfUserIds(any());
+    }
+
+    @Test
+    public void testSendsFailingWithoutAMessagingCodeAreRetried() throws FirebaseMessagingException {
+        ExtraUser user = user(1L, "mj@me.com");
+        ExtraUser otherUser = user(2L, "jj@me.com");
+        ExtraUser thirdUser = user(3L, "pp@me.com");
+        List<UserDevice> devices = List.of(
+                new UserDevice("token", user),
+                new UserDevice("other token", otherUser),
+                new UserDevice("third token", thirdUser)
+        );
+        Map<Long, List<BudgetAlertDTO>> alerts = Map.of(
+                1L, List.of(new BudgetAlertDTO(1L, 10L, "groceries", 80)),
+                2L, List.of(new BudgetAlertDTO(2L, 20L, "travel", 80)),
+                3L, List.of(new BudgetAlertDTO(3L, 30L, "rent", 80))
+        );
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(devices);
+        given(fcm.sendEach(anyList())).willAnswer(invocation -> batchResponseFailingWith(
+                invocation.getArgument(0), Map.of(
+                        "token", fcmException(ErrorCode.DEADLINE_EXCEEDED),
+                        "other token", fcmException(ErrorCode.UNKNOWN)
+                )
+        ));
+
+        Set<Long> failedUserIds = messagingService.sendBudgetAlerts(alerts);
+
+        Assertions.assertThat(failedUserIds).containsExactlyInAnyOrder(1L, 2L);
+        verify(deviceRepository, never()).deleteByFcmTokenIn(any());
+    }
+
+    @Test
+    public void testDevicesAreKeptWhenTheMessageItselfIsInvalid() throws FirebaseMessagingException {
+        ExtraUser user = user(1L, "mj@me.com");
+        List<UserDevice> devices = List.of(new UserDevice("token", user), new UserDevice("other token", user));
+        Map<Long, List<BudgetAlertDTO>> alerts = Map.of(
+                1L, List.of(new BudgetAlertDTO(1L, 10L, "groceries", 80))
+        );
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(devices);
+        given(fcm.sendEach(anyList())).willAnswer(invocation -> batchResponseFailingWith(
+                invocation.getArgument(0), Map.of(
+                        "token", fcmException(MessagingErrorCode.INVALID_ARGUMENT, "Message is too big"),
+                        "other token", fcmException(MessagingErrorCode.INVALID_ARGUMENT, "Message is too big")
+                )
+        ));
+
+        messagingService.sendBudgetAlerts(alerts);
+
+        verify(deviceRepository, never()).deleteByFcmTokenIn(any());
+    }
+
+    @Test
+    @SuppressWarnings("unchecked")
+    public void testInvestmentIdsOfAMessageAreListedOnceAndUpToALimit() throws FirebaseMessagingException {
+        ExtraUser user = user(1L, "mj@me.com");
+        List<InvestmentReturnDTO> returns = new ArrayList<>();
+        returns.add(new InvestmentReturnDTO(1L, 1L, "bonds", BigDecimal.ONE));
+        LongStream.rangeClosed(1, 300)
+                .mapToObj(id -> new InvestmentReturnDTO(1L, id, "stocks", BigDecimal.ONE))
+                .forEach(returns::add);
+        ArgumentCaptor<List<Message>> batches = ArgumentCaptor.forClass(List.class);
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(List.of(new UserDevice("token", user)));
+        given(fcm.sendEach(anyList())).willReturn(mock(BatchResponse.class));
+
+        messagingService.sendInvestmentReturns(Map.of(1L, returns));
+
+        verify(fcm).sendEach(batches.capture());
+        Map<String, String> data = (Map<String, String>) ReflectionTestUtils.getField(
+                batches.getValue().get(0), "data"
+        );
+        List<String> investmentIds = List.of(data.get("investmentIds").split(","));
+        Assertions.assertThat(investmentIds).hasSize(100).doesNotHaveDuplicates().startsWith("1", "2", "3");
+        Assertions.assertThat(data.get("amount")).isEqualTo("301");
+    }
+
+    @Test
+    public void testDevicesOfUsersAreLookedUpOnceForConsecutiveSends() throws FirebaseMessagingException {
+        ExtraUser user = user(1L, "mj@me.com");
+        Map<Long, List<BudgetAlertDTO>> alerts = Map.of(
+                1L, List.of(new BudgetAlertDTO(1L, 10L, "groceries", 80)),
+                2L, List.of(new BudgetAlertDTO(2L, 20L, "travel", 80))
+        );
+        BatchResponse mockBatchResponse = mock(BatchResponse.class);
+
+        given(deviceRepository.getDevicesOfUserIds(any())).willReturn(List.of(new UserDevice("token", user)));
+        given(fcm.sendEach(anyList())).willReturn(mockBatchResponse);
+
+        messagingService.sendBudgetAlerts(alerts);
+        messagingService.sendBudgetAlerts(alerts);
+
+        // User 2 has no devices, which is cached too
+        verify(deviceRepository, times(1)).getDevicesOfUserIds(any());
+        verify(fcm, times(2)).sendEach(anyList());
+    }
+
+    private static ExtraUser user(Long id, String email) {
         ExtraUser user = new ExtraUser(
                 "Michael",
                 "Jackson",
-                "mj@me.com",
+                email,
                 "Somepassword1!"
         );
-        List<UserDevice> devices = List.of(new UserDevice("token", user));
-        Category category = new Category("test category", (short) 1, user);
-        Investment investment = new Investment(
-                "test investment",
-                BigDecimal.TEN,
-                Timestamp.valueOf("2023-10-10 00:00:00"),
-                BigDecimal.ONE,
-                10,
-                1,
-                user,
-                category
-        );
-        BatchResponse mockBatchResponse = mock(BatchResponse.class);
-        SendResponse mockResponse = mock(SendResponse.class);
-        List<SendResponse> mockResponses = List.of(mockResponse);
-
-        given(deviceRepository.getDevicesOfUser(any())).willReturn(devices);
-        given(fcm.sendEachForMulticast(any())).willReturn(mockBatchResponse);
-        doAnswer(invocation -> mockResponses).when(mockBatchResponse).getResponses();
-        doAnswer(invocation -> true).when(mockResponse).isSuccessful();
+        ReflectionTestUtils.setField(user, "id", id);
+        return user;
+    }
 
-        messagingService.sendPushNotificationToDevicesOfUser(investment);
+    private static FirebaseMessagingException fcmException(MessagingErrorCode messagingErrorCode, String message) {
+        FirebaseMessagingException exception = mock(FirebaseMessagingException.class);
+        lenient().when(exception.getErrorCode()).thenReturn(ErrorCode.UNAVAILABLE);
+        lenient().when(exception.getMessagingErrorCode()).thenReturn(messagingErrorCode);
+        lenient().when(exception.getMessage()).thenReturn(message);
+        return exception;
+    }
 
-        verify(deviceRepository).getDevicesOfUser(any());
-        verify(fcm).sendEachForMulticast(any());
-        verify(mockBatchResponse).getResponses();
-        verify(mockResponse).isSuccessful();
+    private static FirebaseMessagingException fcmException(ErrorCode errorCode) {
+        FirebaseMessagingException exception = mock(FirebaseMessagingException.class);
+        lenient().when(exception.getErrorCode()).thenReturn(errorCode);
+        return exception;
+    }
 
+    // Responses in the order of the messages, failing those sent to the given tokens
+    private static BatchResponse batchResponseFailingWith(List<Message> messages,
+                                                          Map<String, FirebaseMessagingException> errorsByToken) {
+        List<SendResponse> responses = new ArrayList<>();
+        for (Message message : messages) {
+            FirebaseMessagingException exception = errorsByToken.get((String) ReflectionTestUtils.getField(message, "token"));
+            SendResponse response = mock(SendResponse.class);
+            given(response.isSuccessful()).willReturn(exception == null);
+            if (exception != null) {
+                given(response.getException()).willReturn(exception);
+            }
+            responses.add(response);
+        }
+        BatchResponse batchResponse = mock(BatchResponse.class);
+        given(batchResponse.getResponses()).willReturn(responses);
+        return batchResponse;
     }
 
 }
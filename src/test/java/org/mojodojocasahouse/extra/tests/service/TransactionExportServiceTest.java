@@ -0,0 +1,173 @@
+package org.mojodojocasahouse.extra.tests.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mojodojocasahouse.extra.dto.model.CategoryDTO;
+import org.mojodojocasahouse.extra.dto.model.DepositDTO;
+import org.mojodojocasahouse.extra.dto.model.ExpenseDTO;
+import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.service.TransactionExportService;
+import org.mojodojocasahouse.extra.service.TransactionService;
+
+import java.io.ByteArrayOutputStream;
+import java.io.OutputStream;
+import java.math.BigDecimal;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.sql.Date;
+import java.util.List;
+import java.util.function.Consumer;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipFile;
+
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.isNull;
+import static org.mockito.BDDMockito.given;
+
+@ExtendWith(MockitoExtension.class)
+public class TransactionExportServiceTest {
+
+    private static final int LARGE_EXPORT_ROWS = 500_000;
+
+    // Far below what 500k rows would take if they were buffered
+    private static final long MAXIMUM_HEAP_GROWTH = 16L * 1024 * 1024;
+
+    @Mock
+    private TransactionService transactionService;
+
+    @InjectMocks
+    private TransactionExportService exportService;
+
+    @TempDir
+    private Path temporaryDirectory;
+
+    private final ExtraUser user = new ExtraUser("M", "J", "mj@me.com", "Somepassword");
+
+    @Test
+    public void testCsvExportQuotesOnlyFieldsThatNeedIt() throws Exception {
+        // Setup - data
+        CategoryDTO category = new CategoryDTO("Food", (short) 1);
+        List<TransactionDTO> transactions = List.of(
+                new ExpenseDTO(2L, "Pizza, beer", new BigDecimal("10.50"), Date.valueOf("2023-01-02"), category),
+                new DepositDTO(1L, "Salary \"bonus\"", new BigDecimal("1000.00"), Date.valueOf("2023-01-01"), category, null)
+        );
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Setup - expectations
+        givenTransactions(transactions);
+
+        // exercise
+        long exported = exportService.writeCsv(user, List.of(), List.of(), null, null, outputStream);
+
+        // verify
+        Assertions.assertThat(exported).isEqualTo(2);
+        Assertions.assertThat(outputStream.toString(StandardCharsets.UTF_8)).isEqualTo(
+                "Id,Date,Type,Concept,Category,Amount\r\n" +
+                "2,2023-01-02,expense,\"Pizza, beer\",Food,10.50\r\n" +
+                "1,2023-01-01,deposit,\"Salary \"\"bonus\"\"\",Food,1000.00\r\n"
+        );
+    }
+
+    @Test
+    public void testXlsxExportWritesOneRowPerTransaction() throws Exception {
+        // Setup - data
+        CategoryDTO category = new CategoryDTO("Food", (short) 1);
+        List<TransactionDTO> transactions = List.of(
+                new ExpenseDTO(2L, "Pizza", new BigDecimal("10.50"), Date.valueOf("2023-01-02"), category)
+        );
+        ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+
+        // Setup - expectations
+        givenTransactions(transactions);
+
+        // exercise
+        long exported = exportService.writeXlsx(user, List.of(), List.of(), null, null, outputStream);
+
+        // verify
+        String sheet = readZipEntry(outputStream.toByteArray(), "xl/worksheets/sheet1.xml");
+        Assertions.assertThat(exported).isEqualTo(1);
+        Assertions.assertThat(sheet)
+                .contains("<t>Concept</t>")
+                .contains("<t>Pizza</t>")
+                .contains("<t>Food</t>")
+                .contains("<v>10.50</v>");
+    }
+
+    @Test
+    public void testLargeCsvExportKeepsHeapFlat() throws Exception {
+        // Setup - expectations
+        long[] heapGrowth = givenLargeExportMeasuringHeap();
+
+        // exercise
+        long exported = exportService.writeCsv(user, List.of(), List.of(), null, null, OutputStream.nullOutputStream());
+
+        // verify
+        Assertions.assertThat(exported).isEqualTo(LARGE_EXPORT_ROWS);
+        Assertions.assertThat(heapGrowth[0]).isLessThan(MAXIMUM_HEAP_GROWTH);
+    }
+
+    @Test
+    public void testLargeXlsxExportKeepsHeapFlat() throws Exception {
+        // Setup - expectations
+        long[] heapGrowth = givenLargeExportMeasuringHeap();
+
+        // exercise
+        long exported = exportService.writeXlsx(user, List.of(), List.of(), null, null, OutputStream.nullOutputStream());
+
+        // verify
+        Assertions.assertThat(exported).isEqualTo(LARGE_EXPORT_ROWS);
+        Assertions.assertThat(heapGrowth[0]).isLessThan(MAXIMUM_HEAP_GROWTH);
+    }
+
+    private void givenTransactions(List<TransactionDTO> transactions) {
+        given(transactionService.forEachTransactionOfUserByCategoriesAndDateRanges(any(), any(), any(), isNull(), isNull(), any()))
+                .willAnswer(invocation -> {
+                    Consumer<TransactionDTO> consumer = invocation.getArgument(5);
+                    transactions.forEach(consumer);
+                    return (long) transactions.size();
+                });
+    }
+
+    // Rows are made up one at a time, like a cursor would, and the heap is measured after the
+    // last of them has been written
+    private long[] givenLargeExportMeasuringHeap() {
+        long[] heapGrowth = {0};
+        CategoryDTO category = new CategoryDTO("Food", (short) 1);
+        Date date = Date.valueOf("2023-01-01");
+        given(transactionService.forEachTransactionOfUserByCategoriesAndDateRanges(any(), any(), any(), isNull(), isNull(), any()))
+                .willAnswer(invocation -> {
+                    Consumer<TransactionDTO> consumer = invocation.getArgument(5);
+                    long before = usedHeap();
+                    for (long id = 1; id <= LARGE_EXPORT_ROWS; id++) {
+                        consumer.accept(new ExpenseDTO(id, "Concept number " + id, BigDecimal.valueOf(id, 2), date, category));
+                    }
+                    heapGrowth[0] = usedHeap() - before;
+                    return (long) LARGE_EXPORT_ROWS;
+                });
+        return heapGrowth;
+    }
+
+    private static long usedHeap() {
+        Runtime runtime = Runtime.getRuntime();
+        System.gc();
+        return runtime.totalMemory() - runtime.freeMemory();
+    }
+
+    // Entries are streamed with their sizes after the data, only the central directory has them
+    private String readZipEntry(byte[] zip, String name) throws Exception {
+        Path file = Files.write(temporaryDirectory.resolve("export.xlsx"), zip);
+        try (ZipFile zipFile = new ZipFile(file.toFile())) {
+            ZipEntry entry = zipFile.getEntry(name);
+            Assertions.assertThat(entry).isNotNull();
+            return new String(zipFile.getInputStream(entry).readAllBytes(), StandardCharsets.UTF_8);
+        }
+    }
+
+}
@@ -0,0 +1,143 @@
+package org.mojodojocasahouse.extra.tests.service;
+
+import org.assertj.core.api.Assertions;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.Mock;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mojodojocasahouse.extra.dto.model.TransactionConceptDTO;
+import org.mojodojocasahouse.extra.model.ExtraUser;
+import org.mojodojocasahouse.extra.repository.TransactionRepository;
+import org.mojodojocasahouse.extra.service.TransactionSearchIndex;
+import org.springframework.test.util.ReflectionTestUtils;
+
+import java.sql.Date;
+import java.time.Duration;
+import java.time.LocalDate;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Comparator;
+import java.util.List;
+import java.util.Locale;
+import java.util.stream.Collectors;
+
+import static org.mockito.BDDMockito.given;
+import static org.mockito.Mockito.times;
+import static org.mockito.Mockito.verify;
+
+// Searches through the index against scanning every concept. The timing test runs with
+// -Pbenchmarks.
+@ExtendWith(MockitoExtension.class)
+class TransactionSearchIndexBenchmarkTest {
+
+    private static final int TRANSACTIONS = 2_000;
+
+    private static final int BENCHMARK_TRANSACTIONS = 100_000;
+
+    private static final List<String> WORDS = List.of(
+            "grocery", "supplies", "rent", "lunch", "dinner", "coffee", "fuel", "gym", "books", "cinema",
+            "taxi", "train", "pharmacy", "insurance", "gift", "phone", "internet", "water", "power", "repairs"
+    );
+
+    @Mock
+    private TransactionRepository transactionRepository;
+
+    @Test
+    void testRepeatedSearchesQueryTheConceptsOnceAndMatchScanningEveryConcept() {
+        // Setup - data
+        ExtraUser user = user();
+        List<TransactionConceptDTO> concepts = concepts(TRANSACTIONS);
+        TransactionSearchIndex searchIndex = new TransactionSearchIndex(transactionRepository, 1_000_000, Duration.ofMinutes(10));
+
+        // Setup - expectations
+        given(transactionRepository.findConceptsByUserId(1L)).willReturn(concepts);
+
+        // execute
+        List<List<Long>> results = new ArrayList<>();
+        for (String query : List.of("gro sup", "rent", "tax 1", "pharmacy insurance")) {
+            results.add(searchIndex.search(user, query, List.of(1L, 2L, 3L), null, null, null, null, 51));
+        }
+
+        // verify
+        Assertions.assertThat(results).containsExactly(
+                scan(concepts, "gro sup", List.of(1L, 2L, 3L), 51),
+                scan(concepts, "rent", List.of(1L, 2L, 3L), 51),
+                scan(concepts, "tax 1", List.of(1L, 2L, 3L), 51),
+                scan(concepts, "pharmacy insurance", List.of(1L, 2L, 3L), 51)
+        );
+        verify(transactionRepository, times(1)).findConceptsByUserId(1L);
+    }
+
+    @Test
+    @Tag("benchmark")
+    void testSearchingAHundredThousandTransactionsOutperformsScanningEveryConcept() {
+        // Setup - data
+        ExtraUser user = user();
+        List<TransactionConceptDTO> concepts = concepts(BENCHMARK_TRANSACTIONS);
+        TransactionSearchIndex searchIndex = new TransactionSearchIndex(transactionRepository, 1_000_000, Duration.ofMinutes(10));
+
+        // Setup - expectations
+        given(transactionRepository.findConceptsByUserId(1L)).willReturn(concepts);
+
+        // execute
+        for (int i = 0; i < 500; i++) {
+            searchIndex.search(user, "gro sup", List.of(1L, 2L, 3L), null, null, null, null, 51);
+        }
+        for (int i = 0; i < 20; i++) {
+            scan(concepts, "gro sup", List.of(1L, 2L, 3L), 51);
+        }
+        long indexMicros = medianMicros(() -> searchIndex.search(user, "gro sup", List.of(1L, 2L, 3L), null, null, null, null, 51));
+        long scanMicros = medianMicros(() -> scan(concepts, "gro sup", List.of(1L, 2L, 3L), 51));
+
+        // verify
+        Assertions.assertThat(indexMicros).isLessThan(scanMicros);
+    }
+
+    private static ExtraUser user() {
+        ExtraUser user = new ExtraUser("Some", "User", "mj@me.com", "a_password");
+        ReflectionTestUtils.setField(user, "id", 1L);
+        return user;
+    }
+
+    private static List<TransactionConceptDTO> concepts(int transactions) {
+        List<TransactionConceptDTO> concepts = new ArrayList<>(transactions);
+        LocalDate firstDay = LocalDate.of(2000, 1, 1);
+        for (int i = 0; i < transactions; i++) {
+            String concept = WORDS.get(i % WORDS.size()) + " " + WORDS.get((i / WORDS.size()) % WORDS.size()) + " " + i;
+            concepts.add(new TransactionConceptDTO((long) i, concept, Date.valueOf(firstDay.plusDays(i % 8000)), (long) (i % 10)));
+        }
+        return concepts;
+    }
+
+    private static long medianMicros(Runnable search) {
+        long[] nanos = new long[21];
+        for (int i = 0; i < nanos.length; i++) {
+            long start = System.nanoTime();
+            search.run();
+            nanos[i] = System.nanoTime() - start;
+        }
+        Arrays.sort(nanos);
+        return nanos[nanos.length / 2] / 1_000;
+    }
+
+    // What searching without the index would take: every concept, every time
+    private static List<Long> scan(List<TransactionConceptDTO> concepts, String query, List<Long> categoryIds, int limit) {
+        List<String> prefixes = Arrays.asList(query.toLowerCase(Locale.ROOT).split("\\s+"));
+        return concepts
+                .stream()
+                .filter(concept -> categoryIds.contains(concept.getCategoryId()))
+                .filter(concept -> {
+                    List<String> words = Arrays.asList(concept.getConcept().toLowerCase(Locale.ROOT).split("\\s+"));
+                    return prefixes.stream().allMatch(prefix -> words.stream().anyMatch(word -> word.startsWith(prefix)));
+                })
+                .sorted(Comparator
+                        .comparing(TransactionConceptDTO::getDate)
+                        .thenComparing(TransactionConceptDTO::getId)
+                        .reversed())
+                .limit(limit)
+                .map(TransactionConceptDTO::getId)
+                .collect(Collectors.toList());
+    }
+
+}
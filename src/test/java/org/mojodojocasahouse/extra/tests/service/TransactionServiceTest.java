@@ -1,6 +1,8 @@
 package org.mojodojocasahouse.extra.tests.service;
 
+import org.mojodojocasahouse.extra.dto.model.YearAmountDTO;
 import com.fasterxml.jackson.databind.ObjectMapper;
+import jakarta.persistence.EntityManager;
 import org.assertj.core.api.Assertions;
 import org.junit.jupiter.api.BeforeEach;
 import org.junit.jupiter.api.Test;
@@ -10,6 +12,7 @@ import org.mockito.Mock;
 import org.mockito.junit.jupiter.MockitoExtension;
 import org.mojodojocasahouse.extra.dto.model.ExpenseDTO;
 import org.mojodojocasahouse.extra.dto.model.TransactionDTO;
+import org.mojodojocasahouse.extra.dto.responses.TransactionPageResponse;
 import org.mojodojocasahouse.extra.model.Category;
 import org.mojodojocasahouse.extra.model.Expense;
 import org.mojodojocasahouse.extra.model.ExtraUser;
@@ -19,14 +22,17 @@ import org.mojodojocasahouse.extra.repository.ExpenseRepository;
 import org.mojodojocasahouse.extra.repository.TransactionRepository;
 import org.mojodojocasahouse.extra.service.BudgetService;
 import org.mojodojocasahouse.extra.service.CategoryService;
+import org.mojodojocasahouse.extra.service.TransactionSearchIndex;
+import org.mojodojocasahouse.extra.service.TransactionTotalsService;
 import org.mojodojocasahouse.extra.service.ExpenseService;
 import org.mojodojocasahouse.extra.service.TransactionService;
 import org.springframework.boot.test.json.JacksonTester;
+import org.springframework.test.util.ReflectionTestUtils;
 
 import java.math.BigDecimal;
 import java.sql.Date;
+import java.util.ArrayList;
 import java.util.List;
-import java.util.Map;
 import java.util.stream.Collectors;
 
 import static org.mockito.ArgumentMatchers.any;
@@ -42,6 +48,15 @@ public class TransactionServiceTest {
     @Mock
     private CategoryService categoryService;
 
+    @Mock
+    private TransactionTotalsService totalsService;
+
+    @Mock
+    private EntityManager entityManager;
+
+    @Mock
+    private TransactionSearchIndex searchIndex;
+
     @InjectMocks
     private TransactionService transactionService;
 
@@ -68,7 +83,6 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 1", new BigDecimal("100.0"), Date.valueOf("2020-09-12"), cat1),
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2),
@@ -80,20 +94,111 @@ public class TransactionServiceTest {
                 .collect(Collectors.toList());
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getTransactionsOfUserByCategory(any(ExtraUser.class), any()))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
+    @Test
+    public void testGettingAPageOfTransactions_WithMoreRowsThanThePageSize_ReturnsCursorOfLastRowOfThePage() {
+        // Setup - data
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category cat1 = new Category("cat1", (short) 1, user);
+        List<Transaction> storedTransactions = List.of(
+                new Expense(user, "Expense 3", new BigDecimal("300.0"), Date.valueOf("2023-09-12"), cat1),
+                new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat1),
+                new Expense(user, "Expense 1", new BigDecimal("100.0"), Date.valueOf("2020-09-12"), cat1)
+        );
+
+        // Setup - expectations
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(storedTransactions.stream());
+
+        // Execute
+        TransactionPageResponse page = transactionService
+                .getTransactionPageOfUserByCategoriesAndDateRanges(user, List.of("cat1"), List.of(), null, null, null, null, 2);
+
+        // Verify
+        Assertions.assertThat(page.getTransactions()).containsExactly(
+                storedTransactions.get(0).asDto(),
+                storedTransactions.get(1).asDto()
+        );
+        Assertions.assertThat(page.getNextCursorDate()).isEqualTo(Date.valueOf("2022-09-12"));
+    }
+
+    @Test
+    public void testGettingTheLastPageOfTransactions_ReturnsNoCursor() {
+        // Setup - data
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category cat1 = new Category("cat1", (short) 1, user);
+        List<Transaction> storedTransactions = List.of(
+                new Expense(user, "Expense 1", new BigDecimal("100.0"), Date.valueOf("2020-09-12"), cat1)
+        );
+
+        // Setup - expectations
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(storedTransactions.stream());
+
+        // Execute
+        TransactionPageResponse page = transactionService
+                .getTransactionPageOfUserByCategoriesAndDateRanges(
+                        user, List.of("cat1"), List.of(), null, null, Date.valueOf("2022-09-12"), 2L, 2);
+
+        // Verify
+        Assertions.assertThat(page.getTransactions()).containsExactly(storedTransactions.get(0).asDto());
+        Assertions.assertThat(page.getNextCursorDate()).isNull();
+        Assertions.assertThat(page.getNextCursorId()).isNull();
+    }
+
+    @Test
+    public void testStreamingTransactionsHandsEveryRowToTheConsumerAndDetachesIt() {
+        // Setup - data
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category cat1 = new Category("cat1", (short) 1, user);
+        List<Transaction> storedTransactions = List.of(
+                new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat1),
+                new Expense(user, "Expense 1", new BigDecimal("100.0"), Date.valueOf("2020-09-12"), cat1)
+        );
+        List<TransactionDTO> consumed = new ArrayList<>();
+
+        // Setup - expectations
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(storedTransactions.stream());
+
+        // Execute
+        long streamed = transactionService
+                .forEachTransactionOfUserByCategoriesAndDateRanges(user, List.of("cat1"), List.of(), null, null, consumed::add);
+
+        // Verify
+        Assertions.assertThat(streamed).isEqualTo(2);
+        Assertions.assertThat(consumed).containsExactly(
+                storedTransactions.get(0).asDto(),
+                storedTransactions.get(1).asDto()
+        );
+        verify(entityManager, times(2)).detach(any());
+    }
+
     @Test
     public void testGettingExpenses_WithNoFromDateButWithUntilDateAndWithCategoryParameters_ReturnsSumOfAllCategoryExpensesUntilGivenDate() {
         // Setup - data
@@ -110,7 +215,6 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 1", new BigDecimal("100.0"), Date.valueOf("2020-09-12"), cat1),
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2)
@@ -121,15 +225,14 @@ public class TransactionServiceTest {
                 .collect(Collectors.toList());
 
         // Setup - expectations
-        given(transactionRepository.getTransactionsOfUserBeforeGivenDate(any(ExtraUser.class), any(), any(Date.class)))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -149,22 +252,20 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2)
         );
         List<TransactionDTO> expectedResults = expectedExpenseResults.stream().map(Transaction::asDto).collect(Collectors.toList());
 
         // Setup - expectations
-        given(transactionRepository.getTransactionsOfUserByCategoriesAndDateInterval(any(ExtraUser.class), any(), any(Date.class), any(Date.class)))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -184,22 +285,20 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2)
         );
         List<TransactionDTO> expectedResults = expectedExpenseResults.stream().map(Transaction::asDto).collect(Collectors.toList());
 
         // Setup - expectations
-        given(transactionRepository.getTransactionsOfUserAfterGivenDate(any(ExtraUser.class), any(), any(Date.class)))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -219,7 +318,6 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 1", new BigDecimal("100.0"), Date.valueOf("2020-09-12"), cat1),
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2)
@@ -227,15 +325,14 @@ public class TransactionServiceTest {
         List<TransactionDTO> expectedResults = expectedExpenseResults.stream().map(Transaction::asDto).collect(Collectors.toList());
 
         // Setup - expectations
-        given(transactionRepository.getTransactionsOfUserByCategory(any(ExtraUser.class), any()))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -255,7 +352,6 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 1", new BigDecimal("100.0"), Date.valueOf("2020-09-12"), cat1),
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2)
@@ -263,17 +359,14 @@ public class TransactionServiceTest {
         List<TransactionDTO> expectedResults = expectedExpenseResults.stream().map(Transaction::asDto).collect(Collectors.toList());
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getTransactionsOfUserBeforeGivenDate(any(ExtraUser.class), any(), any(Date.class)))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -293,24 +386,20 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2)
         );
         List<TransactionDTO> expectedResults = expectedExpenseResults.stream().map(Transaction::asDto).collect(Collectors.toList());
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getTransactionsOfUserByCategoriesAndDateInterval(any(ExtraUser.class), any(), any(Date.class), any(Date.class)))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -330,7 +419,6 @@ public class TransactionServiceTest {
         Category cat1 = new Category("cat1", (short) 1, user);
         Category cat2 = new Category("cat2", (short) 2, user);
         Category cat3 = new Category("cat3", (short) 3, user);
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
         List<Transaction> expectedExpenseResults = List.of(
                 new Expense(user, "Expense 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat2),
                 new Expense(user, "Expense 3", new BigDecimal("300.0"), Date.valueOf("2023-09-12"), cat2)
@@ -338,17 +426,14 @@ public class TransactionServiceTest {
         List<TransactionDTO> expectedResults = expectedExpenseResults.stream().map(Transaction::asDto).collect(Collectors.toList());
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getTransactionsOfUserAfterGivenDate(any(ExtraUser.class), any(), any(Date.class)))
-                .willReturn(expectedExpenseResults);
+        given(transactionRepository.streamNewestFirst(any(), any()))
+                .willReturn(expectedExpenseResults.stream());
 
         // Execute
         List<TransactionDTO> results = transactionService
-                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+                .getTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
     }
 
@@ -371,23 +456,19 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of();
         Date fromParameter = null;
         Date untilParameter = null;
-
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2020", "amount", "100"),
-                Map.of("year", "2021", "amount", "200"),
-                Map.of("year", "2022", "amount", "300")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2020, new BigDecimal("100")),
+                new YearAmountDTO(2021, new BigDecimal("200")),
+                new YearAmountDTO(2022, new BigDecimal("300"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getYearlySumOfTransactionsByCategories(any(ExtraUser.class), any()))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
         Assertions.assertThat(results).isEqualTo(expectedResults);
@@ -405,23 +486,20 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = null;
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2020", "amount", "100"),
-                Map.of("year", "2021", "amount", "200")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2020, new BigDecimal("100")),
+                new YearAmountDTO(2021, new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(transactionRepository.getYearlySumOfTransactionsOfUserBeforeGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -438,22 +516,19 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2021", "amount", "200")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2021, new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(transactionRepository.getYearlySumOfTransactionsOfUserByCategoryAndDateInterval(any(ExtraUser.class), any(), any(Date.class), any(Date.class)))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(0)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -470,22 +545,19 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = null;
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2021", "amount", "200")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2021, new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(transactionRepository.getYearlySumOfTransactionsOfUserAfterGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -502,23 +574,20 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of("cat1", "cat2");
         Date fromParameter = null;
         Date untilParameter = null;
-
-        // List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2020", "amount", "100"),
-                Map.of("year", "2021", "amount", "200")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2020, new BigDecimal("100")),
+                new YearAmountDTO(2021, new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(transactionRepository.getYearlySumOfTransactionsByCategories(any(ExtraUser.class), any()))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, never()).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -535,25 +604,20 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of();
         Date fromParameter = null;
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2020", "amount", "100"),
-                Map.of("year", "2021", "amount", "200")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2020, new BigDecimal("100")),
+                new YearAmountDTO(2021, new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getYearlySumOfTransactionsOfUserBeforeGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -570,24 +634,19 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of();
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = Date.valueOf("2022-10-10");
-
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2021", "amount", "200")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2021, new BigDecimal("200"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getYearlySumOfTransactionsOfUserByCategoryAndDateInterval(any(ExtraUser.class), any(), any(Date.class), any(Date.class)))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
@@ -604,28 +663,84 @@ public class TransactionServiceTest {
         List<String> categoriesParameter = List.of();
         Date fromParameter = Date.valueOf("2020-10-10");
         Date untilParameter = null;
-
-        List<String> existingCategories = List.of("cat1", "cat2", "cat3");
-        List<Map<String, String>> expectedResults = List.of(
-                Map.of("year", "2021", "amount", "200"),
-                Map.of("year", "2022", "amount", "300")
+        List<YearAmountDTO> expectedResults = List.of(
+                new YearAmountDTO(2021, new BigDecimal("200")),
+                new YearAmountDTO(2022, new BigDecimal("300"))
         );
 
         // Setup - expectations
-        given(categoryService.getAllCategoryNamesOfUser(any(ExtraUser.class)))
-                .willReturn(existingCategories);
-        given(transactionRepository.getYearlySumOfTransactionsOfUserAfterGivenDate(any(ExtraUser.class), any(), any(Date.class)))
+        given(totalsService.getYearlySums(any(), any(), any(), any()))
                 .willReturn(expectedResults);
 
         // Execute
-        List<Map<String, String>> results = transactionService
-                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, fromParameter, untilParameter);
+        List<YearAmountDTO> results = transactionService
+                .getYearlySumOfTransactionsOfUserByCategoriesAndDateRanges(user, categoriesParameter, List.of(), fromParameter, untilParameter);
 
         // Verify
-        verify(categoryService, times(1)).getAllCategoryNamesOfUser(any(ExtraUser.class));
         Assertions.assertThat(results).isEqualTo(expectedResults);
 
     }
 
+    @Test
+    public void testSearchingTransactions_WithMoreMatchesThanThePageSize_ReturnsThemInIndexOrderWithCursorOfLastRow() {
+        // Setup - data
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+        Category cat1 = new Category("cat1", (short) 1, user);
+        List<Transaction> storedTransactions = List.of(
+                new Expense(user, "lunch 3", new BigDecimal("300.0"), Date.valueOf("2023-09-12"), cat1),
+                new Expense(user, "lunch 2", new BigDecimal("200.0"), Date.valueOf("2022-09-12"), cat1)
+        );
+        ReflectionTestUtils.setField(storedTransactions.get(0), "id", 3L);
+        ReflectionTestUtils.setField(storedTransactions.get(1), "id", 2L);
+
+        // Setup - expectations
+        given(categoryService.getFilteringCategoryIdsOfUser(user, null, null))
+                .willReturn(null);
+        given(searchIndex.search(user, "lunch", null, null, null, null, null, 3))
+                .willReturn(List.of(3L, 2L, 1L));
+        given(transactionRepository.findAllByIdInAndUser(List.of(3L, 2L, 1L), user))
+                .willReturn(List.of(storedTransactions.get(1), storedTransactions.get(0)));
+
+        // Execute
+        TransactionPageResponse page = transactionService
+                .searchTransactionsOfUserByConceptAndCategoriesAndDateRanges(user, "lunch", null, null, null, null, null, null, 2);
+
+        // Verify
+        Assertions.assertThat(page.getTransactions()).containsExactly(
+                storedTransactions.get(0).asDto(),
+                storedTransactions.get(1).asDto()
+        );
+        Assertions.assertThat(page.getNextCursorDate()).isEqualTo(Date.valueOf("2022-09-12"));
+        Assertions.assertThat(page.getNextCursorId()).isEqualTo(2L);
+    }
+
+    @Test
+    public void testSearchingTransactions_WithoutMatches_DoesNotQueryTheDatabase() {
+        // Setup - data
+        ExtraUser user = new ExtraUser(
+                "Michael",
+                "Jackson",
+                "mj@me.com",
+                "Somepassword1!"
+        );
+
+        // Setup - expectations
+        given(searchIndex.search(any(), any(), any(), any(), any(), any(), any(), anyInt()))
+                .willReturn(List.of());
+
+        // Execute
+        TransactionPageResponse page = transactionService
+                .searchTransactionsOfUserByConceptAndCategoriesAndDateRanges(user, "lunch", null, null, null, null, null, null, 2);
+
+        // Verify
+        Assertions.assertThat(page.getTransactions()).isEmpty();
+        Assertions.assertThat(page.getNextCursorId()).isNull();
+        verifyNoInteractions(transactionRepository);
+    }
 
 }